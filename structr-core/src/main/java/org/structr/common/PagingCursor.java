@@ -0,0 +1,349 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.nio.charset.Charset;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Date;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * Opaque cursor for keyset pagination.
+ *
+ * A cursor contains the sort key, the sort order, and the sort value and
+ * id of the last object of a page. The next page is requested by seeking
+ * directly to that sort value in the index, so the cost of a page does not
+ * depend on its position in the result.
+ *
+ * Cursors can only be used with sort keys of type String, Integer, Long,
+ * Double or Date that are indexed when empty (or can not be empty), so
+ * that objects without a sort value can be found in the index. Those
+ * objects are ordered like the value they are indexed with, i.e. like the
+ * smallest value (first in ascending and last in descending order), except
+ * for Double keys, where the empty value is the smallest positive number.
+ *
+ *
+ */
+public class PagingCursor {
+
+	private static final Charset utf8 = Charset.forName("utf-8");
+	private static final String SEP   = "\u0000";
+
+	private PropertyKey sortKey = null;
+	private boolean descending  = false;
+	private Object value        = null;
+	private String id           = null;
+
+	private PagingCursor(final PropertyKey sortKey, final boolean descending, final Object value, final String id) {
+
+		this.sortKey    = sortKey;
+		this.descending = descending;
+		this.value      = value;
+		this.id         = id;
+	}
+
+	/**
+	 * Creates the cursor for the first page.
+	 *
+	 * @param sortKey
+	 * @param descending
+	 * @return the cursor
+	 * @throws FrameworkException
+	 */
+	public static PagingCursor first(final PropertyKey sortKey, final boolean descending) throws FrameworkException {
+
+		checkSortKey(sortKey);
+
+		return new PagingCursor(sortKey, descending, null, null);
+	}
+
+	/**
+	 * Decodes the given cursor and verifies that it was created for the
+	 * given sort key and order.
+	 *
+	 * @param encoded
+	 * @param sortKey
+	 * @param descending
+	 * @return the decoded cursor
+	 * @throws FrameworkException
+	 */
+	public static PagingCursor decode(final String encoded, final PropertyKey sortKey, final boolean descending) throws FrameworkException {
+
+		checkSortKey(sortKey);
+
+		final String[] parts = decodeParts(encoded);
+		if (parts == null || !sortKey.jsonName().equals(parts[0]) || descending != "d".equals(parts[1])) {
+
+			throw new FrameworkException(400, "Invalid cursor for sort key " + sortKey.jsonName() + (descending ? " descending" : " ascending"));
+		}
+
+		try {
+
+			return new PagingCursor(sortKey, descending, decodeValue(parts[3], parts[4]), parts[2]);
+
+		} catch (NumberFormatException nex) {
+
+			throw new FrameworkException(400, "Invalid cursor");
+		}
+	}
+
+	/**
+	 * Returns the name of the sort key the given cursor was created for.
+	 *
+	 * @param encoded
+	 * @return the name of the sort key or null if the cursor is invalid
+	 */
+	public static String getSortKeyName(final String encoded) {
+
+		final String[] parts = decodeParts(encoded);
+		if (parts != null) {
+
+			return parts[0];
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the sort order the given cursor was created for.
+	 *
+	 * @param encoded
+	 * @return whether the cursor was created for descending order
+	 */
+	public static boolean isDescending(final String encoded) {
+
+		final String[] parts = decodeParts(encoded);
+		if (parts != null) {
+
+			return "d".equals(parts[1]);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Creates the cursor that points to the position after the given object.
+	 *
+	 * @param last the last object of the current page
+	 * @return the encoded cursor
+	 */
+	public String next(final GraphObject last) {
+
+		final Object lastValue  = last.getProperty(sortKey);
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(sortKey.jsonName()).append(SEP);
+		buf.append(descending ? "d" : "a").append(SEP);
+		buf.append(last.getUuid()).append(SEP);
+		buf.append(encodeValue(lastValue));
+
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.toString().getBytes(utf8));
+	}
+
+	public PropertyKey getSortKey() {
+		return sortKey;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return whether this cursor points to a position after the first page
+	 */
+	public boolean hasPosition() {
+		return id != null;
+	}
+
+	/**
+	 * Checks whether the given object has the same sort value as the object
+	 * this cursor points to.
+	 *
+	 * @param obj
+	 * @return whether the sort values are equal
+	 */
+	public boolean hasSameValue(final GraphObject obj) {
+		return compareValue(obj) == 0;
+	}
+
+	/**
+	 * Compares the sort value of the given object with the sort value of
+	 * this cursor, in the sort order of this cursor.
+	 *
+	 * @param obj
+	 * @return a negative number if the object comes before the cursor position, 0 if the values are equal, a positive number otherwise
+	 */
+	public int compareValue(final GraphObject obj) {
+		return compare(obj.getProperty(sortKey), value);
+	}
+
+	/**
+	 * Returns a comparator for in-memory sorting that orders objects like
+	 * the index, so that a cursor can be used with both.
+	 *
+	 * @return the comparator
+	 */
+	public Comparator<GraphObject> getComparator() {
+		return (o1, o2) -> compare(o1.getProperty(sortKey), o2.getProperty(sortKey));
+	}
+
+	// ----- private methods -----
+	private int compare(final Object value1, final Object value2) {
+
+		final int result = compareAscending(emptyValue(value1), emptyValue(value2));
+
+		return descending ? -result : result;
+	}
+
+	private static int compareAscending(final Object value1, final Object value2) {
+
+		// empty strings are indexed like null values
+		final Object v1 = "".equals(value1) ? null : value1;
+		final Object v2 = "".equals(value2) ? null : value2;
+
+		if (v1 == null || v2 == null) {
+
+			// null is the smallest value
+			return v1 == v2 ? 0 : (v1 == null ? -1 : 1);
+		}
+
+		if (v1 instanceof Date && v2 instanceof Date) {
+			return Long.compare(((Date)v1).getTime(), ((Date)v2).getTime());
+		}
+
+		return ((Comparable)v1).compareTo(v2);
+	}
+
+	private Object emptyValue(final Object value) {
+
+		// empty Double values are indexed as Double.MIN_VALUE, which is not the smallest value
+		if (value == null && Double.class.equals(sortKey.valueType())) {
+			return Double.MIN_VALUE;
+		}
+
+		return value;
+	}
+
+	private static void checkSortKey(final PropertyKey sortKey) throws FrameworkException {
+
+		if (sortKey == null || !sortKey.isIndexed() || getTypeTag(sortKey.valueType()) == null) {
+
+			throw new FrameworkException(400, "Cursor pagination requires an indexed sort key of type String, Integer, Long, Double or Date");
+		}
+
+		// objects without a value are missing from the index otherwise
+		if (!sortKey.isIndexedWhenEmpty() && !sortKey.isNotNull()) {
+
+			throw new FrameworkException(400, "Cursor pagination requires a sort key that is indexedWhenEmpty() or notNull(), " + sortKey.jsonName() + " is neither");
+		}
+	}
+
+	private static String[] decodeParts(final String encoded) {
+
+		if (encoded != null) {
+
+			try {
+
+				final String[] parts = new String(Base64.getUrlDecoder().decode(encoded), utf8).split(SEP, 5);
+				if (parts.length == 5) {
+
+					return parts;
+				}
+
+			} catch (IllegalArgumentException ignore) {}
+		}
+
+		return null;
+	}
+
+	private static String getTypeTag(final Class type) {
+
+		if (String.class.equals(type)) {
+			return "s";
+		}
+
+		if (Integer.class.equals(type)) {
+			return "i";
+		}
+
+		if (Long.class.equals(type)) {
+			return "l";
+		}
+
+		if (Double.class.equals(type)) {
+			return "d";
+		}
+
+		if (Date.class.equals(type)) {
+			return "t";
+		}
+
+		return null;
+	}
+
+	private String encodeValue(final Object value) {
+
+		if (value == null || "".equals(value)) {
+			return "n" + SEP;
+		}
+
+		if (value instanceof Date) {
+			return "t" + SEP + ((Date)value).getTime();
+		}
+
+		return getTypeTag(sortKey.valueType()) + SEP + value.toString();
+	}
+
+	private static Object decodeValue(final String tag, final String value) throws FrameworkException {
+
+		switch (tag) {
+
+			case "n":
+				return null;
+
+			case "s":
+				return value;
+
+			case "i":
+				return Integer.valueOf(value);
+
+			case "l":
+				return Long.valueOf(value);
+
+			case "d":
+				return Double.valueOf(value);
+
+			case "t":
+				return new Date(Long.valueOf(value));
+		}
+
+		throw new FrameworkException(400, "Invalid cursor");
+	}
+}
@@ -20,9 +20,14 @@ package org.structr.common;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.QueryResult;
+import org.structr.api.graph.Node;
+import org.structr.api.index.Index;
 import org.structr.common.error.ChronologicalOrderToken;
 import org.structr.common.error.EmptyPropertyToken;
 import org.structr.common.error.ErrorBuffer;
@@ -33,11 +38,14 @@ import org.structr.common.error.TooShortToken;
 import org.structr.common.error.UniqueToken;
 import org.structr.common.error.ValueToken;
 import org.structr.core.GraphObject;
-import org.structr.core.Result;
+import org.structr.core.Services;
+import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeInterface;
-import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.NodeService;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 
@@ -511,51 +519,136 @@ public class ValidationHelper {
 		return false;
 	}
 
-	public static synchronized boolean checkPropertyUniquenessError(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean checkPropertyUniquenessError(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
-			final Object value         = object.getProperty(key);
-			Result<GraphObject> result = null;
-			boolean exists             = false;
-			String id                  = null;
+			return checkUniquenessError(object, object.getClass(), key, object.getProperty(key), errorBuffer);
+		}
 
-			try {
+		// no error
+		return false;
+	}
 
-				if (object instanceof NodeInterface) {
+	/**
+	 * Checks whether the given value of the given property key is unique
+	 * among all objects of the given type (or among all objects of the same
+	 * kind, nodes or relationships, if no type is given).
+	 *
+	 * The value is reserved for the current transaction first, so that no
+	 * concurrent transaction can commit the same value before this one is
+	 * finished. Indexed properties of nodes are then checked with a direct
+	 * lookup in the keyword index, without instantiating any objects.
+	 *
+	 * @param object the object to check
+	 * @param type the type whose instances must not share values, or null
+	 * @param key the property key
+	 * @param value the value
+	 * @param errorBuffer the error buffer
+	 *
+	 * @return true if there is an error checking the given object
+	 */
+	public static boolean checkUniquenessError(final GraphObject object, final Class type, final PropertyKey key, final Object value, final ErrorBuffer errorBuffer) {
 
-					result = StructrApp.getInstance().nodeQuery(((NodeInterface)object).getClass()).and(key, value).getResult();
+		if (value == null) {
 
-				} else {
+			// empty values are not reserved
+			try {
 
-					result = StructrApp.getInstance().relationshipQuery(((RelationshipInterface)object).getClass()).and(key, value).getResult();
+				final String id = findObject(object, type, key, null);
+				if (id != null) {
 
+					errorBuffer.add(new UniqueToken(object.getType(), key, id));
+					return true;
 				}
 
-				exists = !result.isEmpty();
-
 			} catch (FrameworkException fex) {
 
 				logger.log(Level.WARNING, "", fex);
-
 			}
 
-			if (exists) {
+			return false;
+		}
+
+		final String scope = type != null ? type.getSimpleName() : (object instanceof NodeInterface ? "Node" : "Relationship");
+		String id          = TransactionCommand.reserve(scope.concat(".").concat(key.dbName()), String.valueOf(value), object.getUuid());
 
-				GraphObject foundNode = result.get(0);
+		if (id == null) {
 
-				if (foundNode.getId() != object.getId()) {
+			try {
 
-					id = ((AbstractNode) result.get(0)).getUuid();
+				if (object instanceof AbstractNode && key.isIndexed()) {
 
-					errorBuffer.add(new UniqueToken(object.getType(), key, id));
+					id = findIndexedNode((AbstractNode)object, type, key);
 
-					return true;
+				} else {
+
+					id = findObject(object, type, key, value);
 				}
+
+			} catch (FrameworkException fex) {
+
+				logger.log(Level.WARNING, "", fex);
 			}
 		}
 
+		if (id != null) {
+
+			errorBuffer.add(new UniqueToken(object.getType(), key, id));
+
+			return true;
+		}
+
 		// no error
 		return false;
 	}
+
+	// ----- private methods -----
+	private static String findIndexedNode(final AbstractNode node, final Class type, final PropertyKey key) {
+
+		final Index<Node> index = Services.getInstance().getService(NodeService.class).getNodeIndex(NodeService.NodeIndex.keyword);
+		final Set<String> types = type != null ? SearchCommand.getAllSubtypesAsStringSet(type.getSimpleName()) : null;
+		final long id           = node.getId();
+
+		// other objects of this transaction may not be indexed yet
+		TransactionCommand.flushIndexUpdates();
+
+		try (final QueryResult<Node> hits = index.get(key.dbName(), node.getPropertyForIndexing(key), key.valueType())) {
+
+			for (final Node hit : hits) {
+
+				if (hit.getId() != id && (types == null || types.contains(hit.getProperty(GraphObject.type.dbName(), null)))) {
+
+					return (String)hit.getProperty(GraphObject.id.dbName(), "");
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private static String findObject(final GraphObject object, final Class type, final PropertyKey key, final Object value) throws FrameworkException {
+
+		final App app                             = StructrApp.getInstance();
+		final List<? extends GraphObject> results;
+
+		if (object instanceof NodeInterface) {
+
+			results = (type != null ? app.nodeQuery(type) : app.nodeQuery()).and(key, value).getAsList();
+
+		} else {
+
+			results = (type != null ? app.relationshipQuery(type) : app.relationshipQuery()).and(key, value).getAsList();
+		}
+
+		for (final GraphObject result : results) {
+
+			if (result.getId() != object.getId()) {
+
+				return result.getUuid();
+			}
+		}
+
+		return null;
+	}
 }
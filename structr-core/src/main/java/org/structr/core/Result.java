@@ -42,6 +42,7 @@ public class Result<T extends GraphObject> {
 	private String queryTime          = null;
 	private String sortOrder          = null;
 	private String sortKey            = null;
+	private String nextCursor         = null;
 
 	private Integer resultCount       = null;
 	private Integer pageCount         = null;
@@ -154,6 +155,14 @@ public class Result<T extends GraphObject> {
 		return pageSize;
 	}
 
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(final String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
 	public void setPageSize(final Integer pageSize) {
 		this.pageSize = pageSize;
 	}
@@ -109,9 +109,11 @@ public class Services implements StructrServices {
 	public static final String APPLICATION_SESSION_TIMEOUT               = "application.session.timeout";
 	public static final String APPLICATION_SECURITY_OWNERLESS_NODES      = "application.security.ownerless.nodes";
 	public static final String APPLICATION_CHANGELOG_ENABLED             = "application.changelog.enabled";
+	public static final String APPLICATION_CHANGELOG_PATH                = "application.changelog.path";
 	public static final String APPLICATION_UUID_CACHE_SIZE               = "application.cache.uuid.size";
 	public static final String APPLICATION_NODE_CACHE_SIZE               = "application.cache.node.size";
 	public static final String APPLICATION_REL_CACHE_SIZE                = "application.cache.relationship.size";
+	public static final String APPLICATION_SCRIPT_CACHE_SIZE             = "application.cache.script.size";
 	public static final String APPLICATION_FILESYSTEM_ENABLED            = "application.filesystem.enabled";
 	public static final String APPLICATION_FILESYSTEM_INDEXING_LIMIT     = "application.filesystem.indexing.limit";
 	public static final String APPLICATION_FILESYSTEM_INDEXING_MINLENGTH = "application.filesystem.indexing.word.minlength";
@@ -311,11 +313,14 @@ public class Services implements StructrServices {
 		// create set of configured services
 		configuredServiceClasses.addAll(Arrays.asList(configuredServiceNames.split("[ ,]+")));
 
+		final long startTime = System.currentTimeMillis();
+
 		// if configuration is not yet established, instantiate it
 		// this is the place where the service classes get the
 		// opportunity to modify the default configuration
 		getConfigurationProvider();
 
+		logger.log(Level.INFO, "Configuration provider initialized in {0} ms", System.currentTimeMillis() - startTime);
 		logger.log(Level.INFO, "Starting services");
 
 		// initialize other services
@@ -326,11 +331,15 @@ public class Services implements StructrServices {
 
 					try {
 
-						final Service service = createService(serviceClass);
+						final long serviceStartTime = System.currentTimeMillis();
+						final Service service       = createService(serviceClass);
+
 						if (service != null) {
 
 							service.initialized();
 
+							logger.log(Level.INFO, "Service {0} started in {1} ms", new Object[] { serviceClassName, System.currentTimeMillis() - serviceStartTime });
+
 						} else {
 
 							logger.log(Level.WARNING, "Service {0} was not started!", serviceClassName);
@@ -343,7 +352,7 @@ public class Services implements StructrServices {
 				}
 		}
 
-		logger.log(Level.INFO, "{0} service(s) processed", serviceCache.size());
+		logger.log(Level.INFO, "{0} service(s) processed, initialization took {1} ms", new Object[] { serviceCache.size(), System.currentTimeMillis() - startTime });
 		registeredServiceClasses.clear();
 
 		logger.log(Level.INFO, "Registering shutdown hook.");
@@ -53,6 +53,7 @@ public interface Query<T extends GraphObject> extends Iterable<T> {
 	public Query<T> publicOnly(final boolean publicOnly);
 	public Query<T> includeDeletedAndHidden(final boolean includeDeletedAndHidden);
 	public Query<T> offsetId(final String offsetId);
+	public Query<T> cursor(final String cursor);
 	public Query<T> uuid(final String uuid);
 	public Query<T> andType(final Class<T> type);
 	public Query<T> orType(final Class<T> type);
@@ -320,6 +320,11 @@ public class StructrApp implements App {
 		return new Tx(securityContext, this, doValidation, doCallbacks, doNotifications).begin();
 	}
 
+	@Override
+	public Tx readOnlyTx() {
+		return new Tx(securityContext, this).beginReadOnly();
+	}
+
 	@Override
 	public void shutdown() {
 		Services.getInstance().shutdown();
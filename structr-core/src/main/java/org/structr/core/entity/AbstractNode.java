@@ -91,6 +91,7 @@ import org.structr.core.graph.NodeRelationshipStatisticsCommand;
 import org.structr.core.graph.NodeService;
 import org.structr.core.graph.RelationshipFactory;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.FunctionProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -1485,6 +1486,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		for (Index<Node> index : Services.getInstance().getService(NodeService.class).getNodeIndices()) {
 			index.remove(dbNode);
 		}
+
+		TransactionCommand.removedFromIndex(this);
 	}
 
 	public void removeFromIndex(PropertyKey key) {
@@ -1492,6 +1495,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		for (Index<Node> index : Services.getInstance().getService(NodeService.class).getNodeIndices()) {
 			index.remove(dbNode, key.dbName());
 		}
+
+		TransactionCommand.removedFromIndex(this, key);
 	}
 
 	@Override
@@ -60,6 +60,7 @@ import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
@@ -659,6 +660,8 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 		for (Index<Relationship> index : Services.getInstance().getService(NodeService.class).getRelationshipIndices()) {
 			index.remove(dbRelationship);
 		}
+
+		TransactionCommand.removedFromIndex(this);
 	}
 
 	public void removeFromIndex(PropertyKey key) {
@@ -666,6 +669,8 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 		for (Index<Relationship> index : Services.getInstance().getService(NodeService.class).getRelationshipIndices()) {
 			index.remove(dbRelationship, key.dbName());
 		}
+
+		TransactionCommand.removedFromIndex(this, key);
 	}
 
 	@Override
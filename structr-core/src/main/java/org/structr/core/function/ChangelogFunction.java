@@ -20,24 +20,35 @@ package org.structr.core.function;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangeLogStore;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.RelationshipInterface;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 
 public class ChangelogFunction extends Function<Object, Object> {
 
-	public static final String ERROR_MESSAGE_CHANGLOG = "Usage: ${changelog(entity[, resolve=false])}. Example: ${changelog(current)}";
-	public static final String ERROR_MESSAGE_CHANGLOG_JS = "Usage: ${{Structr.changelog(entity[, resolve=false])}}. Example: ${{Structr.changelog(Structr.get('current'))}}";
+	public static final String ERROR_MESSAGE_CHANGLOG = "Usage: ${changelog(entity[, resolve=false[, filterKey, filterValue...]])}. Example: ${changelog(current, false, 'verb', 'change', 'pageSize', 20)}";
+	public static final String ERROR_MESSAGE_CHANGLOG_JS = "Usage: ${{Structr.changelog(entity[, resolve=false[, filterKey, filterValue...]])}}. Example: ${{Structr.changelog(Structr.get('current'), false, 'verb', 'change', 'pageSize', 20)}}";
 
 	private static final Logger logger = Logger.getLogger(ChangelogFunction.class.getName());
 
@@ -50,82 +61,116 @@ public class ChangelogFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final GraphObject entity, final Object[] sources) throws FrameworkException {
 
-		if (arrayHasMinLengthAndMaxLengthAndAllElementsNotNull(sources, 1, 2)) {
+		if (arrayHasMinLengthAndAllElementsNotNull(sources, 1) && (sources.length == 1 || sources.length % 2 == 0)) {
 
-			final App app = StructrApp.getInstance();
+			final SecurityContext securityContext = ctx.getSecurityContext();
+			final App app                         = StructrApp.getInstance(securityContext);
 
-			GraphObject dataObject;
+			String legacyLog = null;
+			String uuid      = null;
 
 			if (sources[0] instanceof GraphObject) {
-				dataObject = (GraphObject)sources[0];
+
+				final GraphObject dataObject = (GraphObject)sources[0];
+
+				uuid      = dataObject.getUuid();
+				legacyLog = dataObject.getProperty(GraphObject.structrChangeLog);
+
+			} else if (sources[0] instanceof String) {
+
+				final GraphObject dataObject = app.get((String)sources[0]);
+				if (dataObject != null) {
+
+					if (!isReadable(securityContext, dataObject)) {
+						return new ArrayList();
+					}
+
+					uuid      = dataObject.getUuid();
+					legacyLog = dataObject.getProperty(GraphObject.structrChangeLog);
+
+				} else if (securityContext.isSuperUser()) {
+
+					// the log of deleted objects is only accessible for admin users
+					uuid = (String)sources[0];
+
+				} else {
+
+					return new ArrayList();
+				}
+
 			} else {
 				logger.log(Level.WARNING, "First parameter must be of type GraphObject: \"{0}\"", sources[0]);
 				return usage(ctx.isJavaScriptContext());
 			}
 
-			final String changelog = dataObject.getProperty(GraphObject.structrChangeLog);
+			final boolean resolveTargets = (sources.length >= 2 && Boolean.TRUE.equals(sources[1]));
+			final Map<String, Object> filters = new LinkedHashMap<>();
 			final List list = new ArrayList();
 
-			if (changelog != null) {
-
-				final String[] entries = changelog.split("\n");
+			for (int i=2; i<sources.length; i+=2) {
 
-				if (entries.length > 0) {
+				filters.put(sources[i].toString(), sources[i+1]);
+			}
 
-					final boolean resolveTargets = (sources.length >= 2 && Boolean.TRUE.equals(sources[1]));
-					final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-					final JsonParser parser = new JsonParser();
+			final Double timeFrom = filters.containsKey("timeFrom") ? getDoubleOrNull(filters.remove("timeFrom")) : null;
+			final Double timeTo   = filters.containsKey("timeTo") ? getDoubleOrNull(filters.remove("timeTo")) : null;
+			final Integer size    = filters.containsKey("pageSize") ? parseInt(filters.remove("pageSize")) : null;
+			final Integer page    = filters.containsKey("page") ? parseInt(filters.remove("page")) : null;
+			final int pageSize    = size != null && size > 0 ? size : Integer.MAX_VALUE;
+			int skip              = size != null && size > 0 && page != null && page > 1 ? (page - 1) * size : 0;
 
-					for (String entry : entries) {
-						final JsonObject jsonObj = parser.parse(entry).getAsJsonObject();
+			final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+			final JsonParser parser = new JsonParser();
 
-						final String verb = jsonObj.get("verb").getAsString();
+			// entries of the old string-based log precede the entries in the store
+			try (final BufferedReader legacy = new BufferedReader(new StringReader(legacyLog != null ? legacyLog : ""));
+				final BufferedReader stored = ChangeLogStore.getInstance().open(uuid)) {
 
-						final TreeMap<String, Object> obj = new TreeMap<>();
-						obj.put("verb", verb);
-						obj.put("time", jsonObj.get("time").getAsLong());
-						obj.put("userId", jsonObj.get("userId").getAsString());
-						obj.put("userName", jsonObj.get("userName").getAsString());
+				for (final BufferedReader reader : new BufferedReader[] { legacy, stored }) {
 
-						if (verb.equals("create") || verb.equals("delete")) {
+					String entry = null;
 
-							obj.put("target", jsonObj.get("target").getAsString());
+					while (reader != null && list.size() < pageSize && (entry = reader.readLine()) != null) {
 
-							if (resolveTargets) {
-								obj.put("targetObj", app.get(jsonObj.get("target").getAsString()));
-							}
+						if (entry.isEmpty()) {
+							continue;
+						}
 
-							list.add(obj);
+						final JsonObject jsonObj;
 
-						} else if (verb.equals("link") || verb.equals("unlink")) {
+						try {
+							jsonObj = parser.parse(entry).getAsJsonObject();
 
-							obj.put("rel", jsonObj.get("rel").getAsString());
-							obj.put("target", jsonObj.get("target").getAsString());
+						} catch (JsonParseException | IllegalStateException ex) {
 
-							if (resolveTargets) {
-								obj.put("targetObj", app.get(jsonObj.get("target").getAsString()));
-							}
+							logger.log(Level.WARNING, "Invalid entry in changelog of {0}: \"{1}\"", new Object[] { uuid, entry });
+							continue;
+						}
 
-							list.add(obj);
+						final long time = jsonObj.get("time").getAsLong();
 
-						} else if (verb.equals("change")) {
+						if ((timeFrom != null && time < timeFrom) || (timeTo != null && time > timeTo) || !matches(jsonObj, filters)) {
+							continue;
+						}
 
-							obj.put("key", jsonObj.get("key").getAsString());
-							obj.put("prev", gson.toJson(jsonObj.get("prev")));
-							obj.put("val", gson.toJson(jsonObj.get("val")));
+						final Map<String, Object> obj = convert(app, gson, jsonObj, resolveTargets);
+						if (obj != null) {
 
-							list.add(obj);
+							if (skip > 0) {
 
-						} else {
+								skip--;
 
-							logger.log(Level.WARNING, "Unknown verb in changelog: \"{0}\"", verb);
+							} else {
 
+								list.add(obj);
+							}
 						}
-
 					}
-
 				}
 
+			} catch (IOException ioex) {
+
+				logger.log(Level.WARNING, "Unable to read changelog of {0}: {1}", new Object[] { uuid, ioex.getMessage() });
 			}
 
 			return list;
@@ -150,4 +195,86 @@ public class ChangelogFunction extends Function<Object, Object> {
 		return "Returns the changelog object";
 	}
 
+	// ----- private methods -----
+	private boolean isReadable(final SecurityContext securityContext, final GraphObject obj) {
+
+		if (obj instanceof NodeInterface) {
+
+			return securityContext.isReadable((NodeInterface)obj, true, false);
+		}
+
+		if (obj instanceof RelationshipInterface) {
+
+			// relationships are readable if both of their nodes are
+			final RelationshipInterface rel = (RelationshipInterface)obj;
+			final NodeInterface sourceNode  = rel.getSourceNode();
+			final NodeInterface targetNode  = rel.getTargetNode();
+
+			return sourceNode != null && targetNode != null && isReadable(securityContext, sourceNode) && isReadable(securityContext, targetNode);
+		}
+
+		return false;
+	}
+
+	private boolean matches(final JsonObject jsonObj, final Map<String, Object> filters) {
+
+		for (final Map.Entry<String, Object> filter : filters.entrySet()) {
+
+			final JsonElement value = jsonObj.get(filter.getKey());
+			if (value == null || !value.isJsonPrimitive() || !value.getAsString().equals(filter.getValue().toString())) {
+
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private Map<String, Object> convert(final App app, final Gson gson, final JsonObject jsonObj, final boolean resolveTargets) throws FrameworkException {
+
+		final String verb = jsonObj.get("verb").getAsString();
+
+		final TreeMap<String, Object> obj = new TreeMap<>();
+		obj.put("verb", verb);
+		obj.put("time", jsonObj.get("time").getAsLong());
+		obj.put("userId", jsonObj.get("userId").getAsString());
+		obj.put("userName", jsonObj.get("userName").getAsString());
+
+		if (verb.equals("create") || verb.equals("delete")) {
+
+			obj.put("target", jsonObj.get("target").getAsString());
+
+			if (resolveTargets) {
+				obj.put("targetObj", app.get(jsonObj.get("target").getAsString()));
+			}
+
+			return obj;
+
+		} else if (verb.equals("link") || verb.equals("unlink")) {
+
+			obj.put("rel", jsonObj.get("rel").getAsString());
+			obj.put("target", jsonObj.get("target").getAsString());
+
+			if (resolveTargets) {
+				obj.put("targetObj", app.get(jsonObj.get("target").getAsString()));
+			}
+
+			return obj;
+
+		} else if (verb.equals("change")) {
+
+			obj.put("key", jsonObj.get("key").getAsString());
+			obj.put("prev", gson.toJson(jsonObj.get("prev")));
+			obj.put("val", gson.toJson(jsonObj.get("val")));
+
+			return obj;
+
+		} else {
+
+			logger.log(Level.WARNING, "Unknown verb in changelog: \"{0}\"", verb);
+
+		}
+
+		return null;
+	}
 }
@@ -58,6 +58,18 @@ public class Functions {
 	}
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException {
+		return parse(expression).evaluate(actionContext, entity);
+	}
+
+	/**
+	 * Parses the given StructrScript expression into an expression tree
+	 * that can be evaluated repeatedly.
+	 *
+	 * @param expression
+	 * @return the root of the expression tree
+	 * @throws FrameworkException
+	 */
+	public static Expression parse(final String expression) throws FrameworkException {
 
 		final String expressionWithoutNewlines = expression.replace('\n', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
@@ -184,7 +196,7 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		return root;
 	}
 
 	private static Expression checkReservedWords(final String word) throws FrameworkException {
@@ -43,6 +43,14 @@ public abstract class BulkGraphOperation<T> {
 		logger.log(Level.WARNING, "Transaction failure in bulk graph operation.", t);
 	}
 
+	/**
+	 * Called after each batch of objects was committed.
+	 *
+	 * @param securityContext
+	 */
+	public void handleTransactionSuccess(final SecurityContext securityContext) {
+	}
+
 	public Predicate<Long> getCondition() {
 		return null;
 	}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Append-only store for the audit log of graph objects. The entries of
+ * each object are appended to a separate file in the order in which
+ * the transactions were committed, so writing an entry does not depend
+ * on the size of the existing log.
+ *
+ *
+ */
+public class ChangeLogStore {
+
+	private static final Object[] locks    = new Object[64];
+	private static ChangeLogStore instance = null;
+	private File basePath                  = null;
+
+	static {
+
+		for (int i=0; i<locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	public ChangeLogStore(final File basePath) {
+		this.basePath = basePath;
+	}
+
+	/**
+	 * Returns the store in the configured changelog path, which defaults to
+	 * the directory "changelog" in the base path of this instance.
+	 *
+	 * @return the store
+	 */
+	public static synchronized ChangeLogStore getInstance() {
+
+		final String basePath    = StructrApp.getConfigurationValue(Services.BASE_PATH, "");
+		final String defaultPath = basePath.isEmpty() ? "changelog" : (basePath.endsWith("/") ? basePath.concat("changelog") : basePath.concat("/changelog"));
+		final File path          = new File(StructrApp.getConfigurationValue(Services.APPLICATION_CHANGELOG_PATH, defaultPath));
+
+		// the configuration changes when the services are restarted with a different base path
+		if (instance == null || !instance.basePath.equals(path)) {
+
+			instance = new ChangeLogStore(path);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Appends the given entries to the log of the object with the given
+	 * UUID.
+	 *
+	 * @param uuid
+	 * @param entries one or more newline-terminated entries
+	 * @throws IOException
+	 */
+	public void append(final String uuid, final String entries) throws IOException {
+
+		final File file = getFile(uuid);
+		if (file != null && entries != null && !entries.isEmpty()) {
+
+			synchronized (getLock(uuid)) {
+
+				file.getParentFile().mkdirs();
+
+				try (final OutputStream out = new FileOutputStream(file, true)) {
+
+					out.write(entries.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens the log of the object with the given UUID for reading.
+	 *
+	 * @param uuid
+	 * @return a reader that returns one entry per line, or null if no log exists
+	 * @throws IOException
+	 */
+	public BufferedReader open(final String uuid) throws IOException {
+
+		final File file = getFile(uuid);
+		if (file != null && file.exists()) {
+
+			return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		}
+
+		return null;
+	}
+
+	// ----- private methods -----
+	private File getFile(final String uuid) {
+
+		// only accept plain identifiers to prevent access outside of the base path
+		if (uuid != null && uuid.length() > 3 && uuid.matches("[a-zA-Z0-9]+")) {
+
+			return new File(basePath, uuid.substring(0, 1) + "/" + uuid.substring(1, 2) + "/" + uuid.substring(2, 3) + "/" + uuid);
+		}
+
+		return null;
+	}
+
+	private Object getLock(final String uuid) {
+		return locks[(uuid.hashCode() & 0x7fffffff) % locks.length];
+	}
+}
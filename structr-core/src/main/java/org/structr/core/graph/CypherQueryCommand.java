@@ -74,6 +74,9 @@ public class CypherQueryCommand extends NodeServiceCommand {
 		List<GraphObject> resultList    = new LinkedList<>();
 		NativeResult result             = null;
 
+		// queries may use the legacy indexes
+		TransactionCommand.flushIndexUpdates();
+
 		if (parameters != null) {
 
 			result = graphDb.execute(query, parameters);
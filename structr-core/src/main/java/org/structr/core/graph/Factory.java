@@ -37,6 +37,7 @@ import org.structr.api.NotFoundException;
 import org.structr.api.QueryResult;
 import org.structr.api.graph.Relationship;
 import org.structr.common.FactoryDefinition;
+import org.structr.common.PagingCursor;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.IdNotFoundToken;
@@ -92,6 +93,16 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	public abstract T instantiate(final S obj, final boolean includeDeletedAndHidden, final boolean publicOnly) throws FrameworkException;
 	public abstract T instantiateDummy(final S entity, final String entityType) throws FrameworkException;
 
+	/**
+	 * Sets the cursor for keyset pagination. The input of this factory
+	 * must already start at the sort value of the cursor.
+	 *
+	 * @param cursor
+	 */
+	public void setCursor(final PagingCursor cursor) {
+		factoryProfile.setCursor(cursor);
+	}
+
 	/**
 	 * Create structr nodes from all given underlying database nodes
 	 * No paging, but security check
@@ -125,7 +136,11 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 			try (final QueryResult<S> closeable = input) {
 
-				if (factoryProfile.getOffsetId() != null) {
+				if (factoryProfile.getCursor() != null) {
+
+					return resultWithCursor(closeable);
+
+				} else if (factoryProfile.getOffsetId() != null) {
 
 					return resultWithOffsetId(closeable);
 
@@ -307,6 +322,72 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	}
 
+	protected Result resultWithCursor(final QueryResult<S> input) throws FrameworkException {
+
+		final PagingCursor cursor = factoryProfile.getCursor();
+		final int pageSize        = factoryProfile.getPageSize();
+		final List<T> elements    = new LinkedList<>();
+		final List<T> ties        = new LinkedList<>();
+		boolean seeking           = cursor.hasPosition();
+
+		try (final QueryResult<S> closeable = input) {
+
+			for (final S item : closeable) {
+
+				final T obj = instantiate(item);
+				if (obj == null) {
+
+					continue;
+				}
+
+				if (seeking) {
+
+					final int position = cursor.compareValue(obj);
+
+					// skip all objects before the cursor value, e.g. the objects with a
+					// value when the cursor points to a null value in descending order
+					if (position < 0) {
+						continue;
+					}
+
+					// skip all objects with the same sort value up to the cursor object
+					if (position == 0) {
+
+						if (cursor.getId().equals(obj.getUuid())) {
+
+							seeking = false;
+							ties.clear();
+
+						} else {
+
+							ties.add(obj);
+						}
+
+						continue;
+					}
+
+					// cursor object not found (deleted or modified), so we
+					// return the skipped objects rather than losing them
+					seeking = false;
+					elements.addAll(ties);
+				}
+
+				if (elements.size() >= pageSize) {
+					break;
+				}
+
+				elements.add(obj);
+			}
+
+			if (seeking) {
+				elements.addAll(ties);
+			}
+
+			// the result count is the number of objects starting at the cursor position
+			return new Result(elements.size() > pageSize ? elements.subList(0, pageSize) : elements, closeable.size(), true, false);
+		}
+	}
+
 	protected Result resultWithoutOffsetId(final QueryResult<S> input) throws FrameworkException {
 
 		final int pageSize = factoryProfile.getPageSize();
@@ -572,6 +653,7 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 		private boolean includeDeletedAndHidden = true;
 		private String offsetId                 = null;
+		private PagingCursor cursor             = null;
 		private boolean publicOnly              = false;
 		private int pageSize                    = DEFAULT_PAGE_SIZE;
 		private int page                        = DEFAULT_PAGE;
@@ -636,6 +718,15 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 		}
 
+		/**
+		 * @return the cursor
+		 */
+		public PagingCursor getCursor() {
+
+			return cursor;
+
+		}
+
 		/**
 		 * @return the pageSize
 		 */
@@ -683,6 +774,15 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 		}
 
+		/**
+		 * @param cursor the cursor to set
+		 */
+		public void setCursor(PagingCursor cursor) {
+
+			this.cursor = cursor;
+
+		}
+
 		/**
 		 * @param publicOnly the publicOnly to set
 		 */
@@ -29,6 +29,7 @@ import java.util.logging.Logger;
 import org.structr.common.AccessPathCache;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.parser.ScriptCache;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -47,6 +48,7 @@ public class FlushCachesCommand extends NodeServiceCommand implements Maintenanc
 		NodeFactory.invalidateCache();
 		RelationshipFactory.invalidateCache();
 		AccessPathCache.invalidate();
+		ScriptCache.getInstance().clear();
 
 		App app = StructrApp.getInstance(securityContext);
 
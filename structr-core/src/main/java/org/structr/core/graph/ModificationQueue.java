@@ -20,13 +20,17 @@ package org.structr.core.graph;
 
 import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.api.graph.Node;
@@ -40,6 +44,8 @@ import org.structr.core.GraphObject;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
+import org.structr.core.property.AbstractPrimitiveProperty;
+import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
 
 /**
@@ -49,7 +55,9 @@ import org.structr.core.property.PropertyKey;
 
 public class ModificationQueue {
 
-	private static final Logger logger = Logger.getLogger(ModificationQueue.class.getName());
+	private static final Logger logger                    = Logger.getLogger(ModificationQueue.class.getName());
+	private static final AtomicLong requestedIndexUpdates = new AtomicLong(0L);
+	private static final AtomicLong appliedIndexUpdates   = new AtomicLong(0L);
 
 	private final boolean auditLogEnabled                                                   = "true".equals(StructrApp.getConfigurationValue(Services.APPLICATION_CHANGELOG_ENABLED, "false"));
 	private final ConcurrentSkipListMap<String, GraphObjectModificationState> modifications = new ConcurrentSkipListMap<>();
@@ -57,6 +65,11 @@ public class ModificationQueue {
 	private final Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
 	private final Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
 	private final Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private final Map<String, String> reservations                                          = new ConcurrentHashMap<>();
+	private final Map<String, String> reservedKeys                                          = new HashMap<>();
+	private final Map<String, Map<String, IndexUpdate>> indexUpdates                        = new LinkedHashMap<>();
+	private final Set<String> reindexedObjects                                              = new HashSet<>();
+	private final Map<String, StringBuilder> auditLogEntries                                = new LinkedHashMap<>();
 
 	/**
 	 * Returns a set containing the different entity types of
@@ -68,6 +81,142 @@ public class ModificationQueue {
 		return synchronizationKeys;
 	}
 
+	/**
+	 * Returns the unique values reserved by this transaction, mapped to
+	 * the UUIDs of the objects they were reserved for.
+	 *
+	 * @return the reserved values
+	 */
+	public Map<String, String> getReservations() {
+		return reservations;
+	}
+
+	/**
+	 * Adds a reserved unique value for the object with the given UUID and
+	 * removes the value of the same key that the object held before.
+	 *
+	 * @param key the scope and key of the unique value
+	 * @param reservation the reserved value, including its scope and key
+	 * @param uuid the UUID of the object the value is reserved for
+	 * @return the replaced reservation, or null
+	 */
+	public String addReservation(final String key, final String reservation, final String uuid) {
+
+		reservations.put(reservation, uuid);
+
+		final String replaced = reservedKeys.put(uuid.concat(":").concat(key), reservation);
+		if (replaced != null && !replaced.equals(reservation)) {
+
+			reservations.remove(replaced);
+			return replaced;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Collects an index update for the given property. Later updates of
+	 * the same property of the same object replace earlier ones, so each
+	 * property is written to its indexes only once per transaction.
+	 *
+	 * @param entity
+	 * @param key
+	 * @param value
+	 */
+	public void queueIndexUpdate(final GraphObject entity, final Property key, final Object value) {
+
+		final String hash                      = hash(entity);
+		Map<String, IndexUpdate> objectUpdates = indexUpdates.get(hash);
+
+		if (objectUpdates == null) {
+
+			objectUpdates = new LinkedHashMap<>();
+			indexUpdates.put(hash, objectUpdates);
+		}
+
+		objectUpdates.put(key.dbName(), new IndexUpdate(entity, key, value));
+
+		requestedIndexUpdates.incrementAndGet();
+	}
+
+	/**
+	 * Discards the collected index updates of the given object, because
+	 * its index entries were removed.
+	 *
+	 * @param entity
+	 */
+	public void removedFromIndex(final GraphObject entity) {
+
+		final String hash = hash(entity);
+
+		indexUpdates.remove(hash);
+		reindexedObjects.add(hash);
+	}
+
+	/**
+	 * Discards the collected index update of the given property of the
+	 * given object, because its index entries were removed.
+	 *
+	 * @param entity
+	 * @param key
+	 */
+	public void removedFromIndex(final GraphObject entity, final PropertyKey key) {
+
+		final Map<String, IndexUpdate> objectUpdates = indexUpdates.get(hash(entity));
+		if (objectUpdates != null) {
+
+			objectUpdates.remove(key.dbName());
+		}
+	}
+
+	/**
+	 * Writes the collected index updates to the indexes. Updates of deleted
+	 * objects and of passively indexed values that were not changed in
+	 * this transaction are skipped.
+	 */
+	public void flushIndexUpdates() {
+
+		for (final Entry<String, Map<String, IndexUpdate>> entry : indexUpdates.entrySet()) {
+
+			final String hash                        = entry.getKey();
+			final GraphObjectModificationState state = modifications.get(hash);
+
+			if (state != null && (state.isDeleted() || state.isPassivelyDeleted())) {
+				continue;
+			}
+
+			for (final IndexUpdate update : entry.getValue().values()) {
+
+				if (state != null && isUnchanged(hash, state, update.key)) {
+					continue;
+				}
+
+				update.key.updateIndex(update.entity, update.value);
+				appliedIndexUpdates.incrementAndGet();
+			}
+		}
+
+		indexUpdates.clear();
+	}
+
+	/**
+	 * Returns the number of index updates requested since startup.
+	 *
+	 * @return the number of requested updates
+	 */
+	public static long getRequestedIndexUpdates() {
+		return requestedIndexUpdates.get();
+	}
+
+	/**
+	 * Returns the number of index updates written since startup.
+	 *
+	 * @return the number of written updates
+	 */
+	public static long getAppliedIndexUpdates() {
+		return appliedIndexUpdates.get();
+	}
+
 	public boolean doInnerCallbacks(final SecurityContext securityContext, final ErrorBuffer errorBuffer) throws FrameworkException {
 
 		long t0                  = System.currentTimeMillis();
@@ -145,40 +294,84 @@ public class ModificationQueue {
 		}
 	}
 
+	/**
+	 * Collects the audit log entries of this transaction and removes the
+	 * old string-based log from the modified objects. The entries are
+	 * written to the change log store by {@link #writeAuditLog()}, which
+	 * must be called after the transaction of this method was committed.
+	 */
 	public void updateAuditLog() {
 
 		if (auditLogEnabled && !modificationEvents.isEmpty()) {
 
 			for (final ModificationEvent ev: modificationEvents) {
 
-				if (!ev.isDeleted()) {
+				final String newLog = ev.getChangeLog();
+				if (newLog.isEmpty()) {
+					continue;
+				}
+
+				try {
+					final String uuid = ev.getUuid();
 
-					try {
+					if (!ev.isDeleted()) {
+
+						// move entries of the old string-based log to the store once
 						final GraphObject obj = ev.getGraphObject();
 						if (obj != null) {
 
 							final String existingLog = obj.getProperty(GraphObject.structrChangeLog);
-							final String newLog      = ev.getChangeLog();
-							final String newValue    = existingLog != null ? existingLog + newLog : newLog;
+							if (existingLog != null) {
 
-							obj.unlockSystemPropertiesOnce();
-							obj.setProperty(GraphObject.structrChangeLog, newValue);
-						}
+								addAuditLog(uuid, existingLog);
 
-					} catch (Throwable t) {
-						logger.log(Level.WARNING, "", t);
+								obj.unlockSystemPropertiesOnce();
+								obj.setProperty(GraphObject.structrChangeLog, null);
+							}
+						}
 					}
+
+					addAuditLog(uuid, newLog);
+
+				} catch (Throwable t) {
+					logger.log(Level.WARNING, "", t);
 				}
 			}
 		}
 	}
 
+	/**
+	 * Appends the entries collected by {@link #updateAuditLog()} to the
+	 * change log store.
+	 */
+	public void writeAuditLog() {
+
+		if (!auditLogEntries.isEmpty()) {
+
+			final ChangeLogStore store = ChangeLogStore.getInstance();
+
+			for (final Entry<String, StringBuilder> entry : auditLogEntries.entrySet()) {
+
+				try {
+					store.append(entry.getKey(), entry.getValue().toString());
+
+				} catch (Throwable t) {
+					logger.log(Level.WARNING, "", t);
+				}
+			}
+
+			auditLogEntries.clear();
+		}
+	}
+
 	public void clear() {
 
 		// clear collections afterwards
 		alreadyPropagated.clear();
 		modifications.clear();
 		modificationEvents.clear();
+		indexUpdates.clear();
+		reindexedObjects.clear();
 	}
 
 	public void create(final Principal user, final NodeInterface node) {
@@ -362,6 +555,18 @@ public class ModificationQueue {
 		}
 	}
 
+	private void addAuditLog(final String uuid, final String entries) {
+
+		StringBuilder buf = auditLogEntries.get(uuid);
+		if (buf == null) {
+
+			buf = new StringBuilder();
+			auditLogEntries.put(uuid, buf);
+		}
+
+		buf.append(entries);
+	}
+
 	private GraphObjectModificationState getState(final NodeInterface node) {
 		return getState(node, false);
 	}
@@ -407,4 +612,42 @@ public class ModificationQueue {
 	private String hash(final RelationshipInterface rel) {
 		return "R" + rel.getId();
 	}
+
+	private String hash(final GraphObject obj) {
+		return (obj instanceof NodeInterface ? "N" : "R") + obj.getId();
+	}
+
+	/**
+	 * Passively indexed properties are indexed again on every modification
+	 * of an object. Stored values can only change through setProperty, so
+	 * they can be skipped unless the object is new, was removed from the
+	 * index, or the value was set in this transaction.
+	 */
+	private boolean isUnchanged(final String hash, final GraphObjectModificationState state, final Property key) {
+
+		if (state.isCreated() || reindexedObjects.contains(hash)) {
+			return false;
+		}
+
+		if (!key.isPassivelyIndexed() || key.isUnvalidated() || !(key instanceof AbstractPrimitiveProperty)) {
+			return false;
+		}
+
+		return !state.getRemovedProperties().containsKey(key);
+	}
+
+	// ----- nested classes -----
+	private static class IndexUpdate {
+
+		private GraphObject entity = null;
+		private Property key       = null;
+		private Object value       = null;
+
+		public IndexUpdate(final GraphObject entity, final Property key, final Object value) {
+
+			this.entity = entity;
+			this.key    = key;
+			this.value  = value;
+		}
+	}
 }
@@ -90,6 +90,8 @@ public abstract class NodeServiceCommand extends Command {
 
 		while (active) {
 
+			boolean committed = false;
+
 			active = false;
 
 			try (final Tx tx = app.tx()) {
@@ -115,13 +117,19 @@ public abstract class NodeServiceCommand extends Command {
 				}
 
 				tx.success();
+				committed = true;
 
 			} catch (Throwable t) {
 
 				// bulk transaction failed, what to do?
+				committed = false;
 				operation.handleTransactionFailure(securityContext, t);
 			}
 
+			if (committed) {
+				operation.handleTransactionSuccess(securityContext);
+			}
+
 			if (description != null) {
 				logger.log(Level.INFO, "{0}: {1} objects processed", new Object[] { description, objectCount } );
 			}
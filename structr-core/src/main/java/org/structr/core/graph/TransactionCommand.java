@@ -21,7 +21,9 @@ package org.structr.core.graph;
 
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 //~--- JDK imports ------------------------------------------------------------
@@ -33,10 +35,12 @@ import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.TransactionSource;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
+import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
 
 //~--- classes ----------------------------------------------------------------
@@ -66,8 +70,13 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 	private static final ThreadLocal<TransactionCommand> currentCommand = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionReference> transactions = new ThreadLocal<>();
 	private static final MultiSemaphore                    semaphore    = new MultiSemaphore();
+	private static final Map<String, ModificationQueue> reservations    = new ConcurrentHashMap<>();
 
 	public TransactionCommand beginTx() {
+		return beginTx(false);
+	}
+
+	public TransactionCommand beginTx(final boolean readOnly) {
 
 		final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
 		TransactionReference tx       = transactions.get();
@@ -75,10 +84,15 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		if (tx == null) {
 
 			// start new transaction
-			tx = new TransactionReference(graphDb.beginTx());
+			tx = new TransactionReference(graphDb.beginTx(), readOnly);
+
+			// read-only transactions don't need to track modifications
+			if (!readOnly) {
+
+				queues.set(new ModificationQueue());
+				buffers.set(new ErrorBuffer());
+			}
 
-			queues.set(new ModificationQueue());
-			buffers.set(new ErrorBuffer());
 			transactions.set(tx);
 			currentCommand.set(this);
 		}
@@ -94,6 +108,12 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		final TransactionReference tx = transactions.get();
 		if (tx != null && tx.isToplevel()) {
 
+			if (tx.isReadOnly()) {
+
+				tx.success();
+				return;
+			}
+
 			final ModificationQueue modificationQueue = queues.get();
 			final ErrorBuffer errorBuffer             = buffers.get();
 
@@ -136,6 +156,9 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 				throw new FrameworkException(422, "Unable to commit transaction, validation failed", errorBuffer);
 			}
 
+			// 4. write the collected index updates
+			modificationQueue.flushIndexUpdates();
+
 			try {
 				tx.success();
 
@@ -156,7 +179,7 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 				modificationQueue = queues.get();
 
-				final Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+				final Set<String> synchronizationKeys = modificationQueue != null ? modificationQueue.getSynchronizationKeys() : null;
 
 				// cleanup
 				queues.remove();
@@ -174,6 +197,14 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 					// release semaphores as the transaction is now finished
 					semaphore.release(synchronizationKeys);	// careful: this can be null
+
+					// release unique values, they are now either committed or rolled back
+					if (modificationQueue != null) {
+
+						for (final String reservation : modificationQueue.getReservations().keySet()) {
+							reservations.remove(reservation, modificationQueue);
+						}
+					}
 				}
 
 			} else {
@@ -220,8 +251,122 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		return null;
 	}
 
+	/**
+	 * Reserves the given unique value for an object in the current
+	 * transaction until the transaction is committed or rolled back.
+	 * Reserving a value before checking the index for existing values
+	 * ensures that two concurrent transactions cannot both commit the same
+	 * value, without locking the whole type.
+	 *
+	 * If the object already holds a different value of the same key in
+	 * this transaction, the reservation of that value is released, so a
+	 * value that is replaced can be used by other objects immediately.
+	 *
+	 * @param key the scope and key of the unique value
+	 * @param value the unique value
+	 * @param uuid the UUID of the object the value is reserved for
+	 * @return null if the value was reserved, or the UUID of the object that holds the reservation
+	 */
+	public static String reserve(final String key, final String value, final String uuid) {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			final String reservation      = key.concat("=").concat(value);
+			final ModificationQueue owner = reservations.putIfAbsent(reservation, modificationQueue);
+
+			if (owner == null) {
+
+				final String replaced = modificationQueue.addReservation(key, reservation, uuid);
+				if (replaced != null) {
+
+					reservations.remove(replaced, modificationQueue);
+				}
+
+				return null;
+			}
+
+			final String ownerUuid = owner.getReservations().get(reservation);
+			if (owner == modificationQueue && uuid.equals(ownerUuid)) {
+
+				return null;
+			}
+
+			return ownerUuid != null ? ownerUuid : "";
+		}
+
+		// read-only or no transaction
+		return null;
+	}
+
+	/**
+	 * Collects the given index update in the current transaction.
+	 *
+	 * @param entity
+	 * @param key
+	 * @param value
+	 * @return false if there is no writable transaction and the index must be updated immediately
+	 */
+	public static boolean queueIndexUpdate(final GraphObject entity, final Property key, final Object value) {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			modificationQueue.queueIndexUpdate(entity, key, value);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Notifies the current transaction that all index entries of the
+	 * given object were removed.
+	 *
+	 * @param entity
+	 */
+	public static void removedFromIndex(final GraphObject entity) {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			modificationQueue.removedFromIndex(entity);
+		}
+	}
+
+	/**
+	 * Notifies the current transaction that the index entries of the
+	 * given property of the given object were removed.
+	 *
+	 * @param entity
+	 * @param key
+	 */
+	public static void removedFromIndex(final GraphObject entity, final PropertyKey key) {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			modificationQueue.removedFromIndex(entity, key);
+		}
+	}
+
+	/**
+	 * Writes the index updates collected so far, so that index queries
+	 * in the current transaction see all modifications.
+	 */
+	public static void flushIndexUpdates() {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			modificationQueue.flushIndexUpdates();
+		}
+	}
+
 	public static void postProcess(final String key, final TransactionPostProcess process) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -244,6 +389,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void nodeCreated(final Principal user, final NodeInterface node) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -265,6 +412,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void nodeModified(final Principal user, final AbstractNode node, final PropertyKey key, final Object previousValue, final Object newValue) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -286,6 +435,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void nodeDeleted(final Principal user, final NodeInterface node) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -307,6 +458,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void relationshipCreated(final Principal user, final RelationshipInterface relationship) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -328,6 +481,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void relationshipModified(final Principal user, final RelationshipInterface relationship, final PropertyKey key, final Object previousValue, final Object newValue) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -349,6 +504,8 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	public static void relationshipDeleted(final Principal user, final RelationshipInterface relationship, final boolean passive) {
 
+		checkWriteAccess();
+
 		TransactionCommand command = currentCommand.get();
 		if (command != null) {
 
@@ -380,6 +537,34 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		return listeners;
 	}
 
+	public static boolean isReadOnly() {
+
+		final TransactionReference tx = transactions.get();
+		if (tx != null) {
+
+			return tx.isReadOnly();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Indicates whether the current transaction contains modifications
+	 * that are not committed yet.
+	 *
+	 * @return true if there are uncommitted modifications
+	 */
+	public static boolean hasModifications() {
+
+		final ModificationQueue modificationQueue = queues.get();
+		if (modificationQueue != null) {
+
+			return !modificationQueue.getModificationEvents().isEmpty();
+		}
+
+		return false;
+	}
+
 	public static boolean inTransaction() {
 		return currentCommand.get() != null;
 	}
@@ -460,4 +645,11 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 	private ModificationQueue getModificationQueue() {
 		return queues.get();
 	}
+
+	private static void checkWriteAccess() {
+
+		if (isReadOnly()) {
+			throw new ReadOnlyTransactionException("Unable to modify the database in a read-only transaction.");
+		}
+	}
 }
@@ -31,9 +31,20 @@ public class TransactionReference implements Transaction {
 	private Transaction tx           = null;
 	private int referenceCount       = 0;
 	private boolean successful       = false;
+	private boolean readOnly         = false;
 
 	public TransactionReference(final Transaction tx) {
-		this.tx = tx;
+		this(tx, false);
+	}
+
+	public TransactionReference(final Transaction tx, final boolean readOnly) {
+
+		this.tx       = tx;
+		this.readOnly = readOnly;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
 	}
 
 	public boolean isToplevel() {
@@ -38,6 +38,7 @@ public class Tx implements AutoCloseable {
 	private boolean doValidation            = true;
 	private boolean doCallbacks             = true;
 	private boolean doNotifications         = true;
+	private boolean readOnly                = false;
 	private TransactionCommand cmd          = null;
 	private StructrApp app                  = null;
 
@@ -65,6 +66,25 @@ public class Tx implements AutoCloseable {
 		return this;
 	}
 
+	/**
+	 * Begins a read-only transaction. Read-only transactions do not track
+	 * modifications, do not acquire commit semaphores and do not run any
+	 * callbacks or transaction listeners. Any attempt to modify the database
+	 * in a read-only transaction results in a {@link ReadOnlyTransactionException}.
+	 *
+	 * If a transaction is already running in the current thread, the new
+	 * transaction joins it and inherits its mode.
+	 *
+	 * @return this transaction
+	 */
+	public Tx beginReadOnly() {
+
+		cmd      = app.command(TransactionCommand.class).beginTx(true);
+		readOnly = true;
+
+		return this;
+	}
+
 	public void success() throws FrameworkException {
 		cmd.commitTx(doValidation);
 		success = true;
@@ -75,7 +95,7 @@ public class Tx implements AutoCloseable {
 
 		final ModificationQueue modificationQueue = cmd.finishTx();
 
-		if (success && guard.compareAndSet(false, true)) {
+		if (success && !readOnly && guard.compareAndSet(false, true)) {
 
 			// experimental
 			try (final Tx tx = begin()) {
@@ -101,6 +121,11 @@ public class Tx implements AutoCloseable {
 				tx.success();
 			}
 
+			// write the audit log after the transaction that removed the old log from the objects was committed
+			if (modificationQueue != null) {
+				modificationQueue.writeAuditLog();
+			}
+
 			guard.set(false);
 		}
 	}
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.commons.lang3.StringUtils;
 import org.structr.api.index.Index;
 import org.structr.api.search.Occurrence;
 import org.structr.api.Predicate;
@@ -35,6 +36,7 @@ import org.structr.api.graph.PropertyContainer;
 import org.structr.api.QueryResult;
 import org.structr.api.index.IndexType;
 import org.structr.common.GraphObjectComparator;
+import org.structr.common.PagingCursor;
 import org.structr.common.PagingHelper;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
@@ -49,6 +51,7 @@ import org.structr.core.graph.Factory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.schema.ConfigurationProvider;
@@ -94,6 +97,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	private boolean doNotSort                    = false;
 	private boolean exactSearch                  = true;
 	private String offsetId                      = null;
+	private String cursor                        = null;
 	private int pageSize                         = Integer.MAX_VALUE;
 	private int page                             = 1;
 
@@ -110,6 +114,9 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			return Result.EMPTY_RESULT;
 		}
 
+		// make modifications of the current transaction visible to the query
+		TransactionCommand.flushIndexUpdates();
+
 		final Factory<S, T> factory  = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, page, offsetId);
 		boolean hasGraphSources      = false;
 		boolean hasSpatialSource     = false;
@@ -203,6 +210,13 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			indexType = IndexType.Fulltext;
 		}
 
+		// keyset pagination, an empty cursor requests the first page
+		PagingCursor pagingCursor = null;
+		if (cursor != null) {
+
+			pagingCursor = StringUtils.isEmpty(cursor) ? PagingCursor.first(sortKey, sortDescending) : PagingCursor.decode(cursor, sortKey, sortDescending);
+		}
+
 		// only do "normal" query if no other sources are present
 		// use filters to filter sources otherwise
 		if (!hasSpatialSource && !sources.isEmpty()) {
@@ -218,9 +232,43 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				rootGroup.sortDescending(sortDescending);
 			}
 
-			// do query
-			final QueryResult hits = getIndex().query(rootGroup);
-			intermediateResult     = factory.instantiate(hits);
+			if (pagingCursor != null) {
+
+				if (hasEmptySearchFields || hasSpatialSource) {
+
+					// result will be filtered and paged in memory
+					final QueryResult hits = getIndex().query(rootGroup);
+					intermediateResult     = getFactory(securityContext, includeDeletedAndHidden, publicOnly, Integer.MAX_VALUE, 1, null).instantiate(hits);
+
+				} else {
+
+					// seek directly to the cursor position in the index, cursor sort keys are
+					// indexed when empty, so the open lower bound in descending order includes
+					// the null values, and the factory skips to the cursor position among them
+					if (pagingCursor.hasPosition() && pagingCursor.getValue() != null) {
+
+						if (sortDescending) {
+
+							rootGroup.add(new RangeSearchAttribute(sortKey, null, pagingCursor.getValue(), Occurrence.REQUIRED));
+
+						} else {
+
+							rootGroup.add(new RangeSearchAttribute(sortKey, pagingCursor.getValue(), null, Occurrence.REQUIRED));
+						}
+					}
+
+					factory.setCursor(pagingCursor);
+
+					final QueryResult hits = getIndex().query(rootGroup);
+					intermediateResult     = factory.instantiate(hits);
+				}
+
+			} else {
+
+				// do query
+				final QueryResult hits = getIndex().query(rootGroup);
+				intermediateResult     = factory.instantiate(hits);
+			}
 		}
 
 		if (intermediateResult != null && (hasEmptySearchFields || hasGraphSources || hasSpatialSource)) {
@@ -269,12 +317,24 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				}
 			}
 
+			if (pagingCursor != null) {
+
+				// sort like the index, so the cursor positions are the same in both cases
+				Collections.sort(finalResult, pagingCursor.getComparator());
+
+				return withNextCursor(new Result(seek(finalResult, pagingCursor), resultCount, true, false), pagingCursor);
+			}
+
 			// sort list
 			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
 
 			// return paged final result
 			return new Result(PagingHelper.subList(finalResult, pageSize, page, offsetId), resultCount, true, false);
 
+		} else if (pagingCursor != null) {
+
+			return withNextCursor(intermediateResult, pagingCursor);
+
 		} else {
 
 			// no filtering
@@ -282,6 +342,72 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 	}
 
+	/**
+	 * Returns the page after the cursor position from the given sorted list,
+	 * like Factory.resultWithCursor does for index results.
+	 */
+	private List<GraphObject> seek(final List<GraphObject> sortedResult, final PagingCursor pagingCursor) {
+
+		int fromIndex = 0;
+
+		if (pagingCursor.hasPosition()) {
+
+			int firstTie = -1;
+
+			fromIndex = sortedResult.size();
+
+			for (int i=0; i<sortedResult.size(); i++) {
+
+				final GraphObject obj = sortedResult.get(i);
+				final int position    = pagingCursor.compareValue(obj);
+
+				if (position < 0) {
+					continue;
+				}
+
+				if (position == 0) {
+
+					if (pagingCursor.getId().equals(obj.getUuid())) {
+
+						firstTie  = -1;
+						fromIndex = i + 1;
+						break;
+					}
+
+					if (firstTie < 0) {
+						firstTie = i;
+					}
+
+					continue;
+				}
+
+				// cursor object not found (deleted or modified), continue after the cursor value
+				fromIndex = i;
+				break;
+			}
+
+			// return the skipped objects with the same value rather than losing them
+			if (firstTie >= 0) {
+				fromIndex = firstTie;
+			}
+		}
+
+		return sortedResult.subList(fromIndex, Math.min(sortedResult.size(), fromIndex + Math.min(pageSize, sortedResult.size())));
+	}
+
+	private Result withNextCursor(final Result result, final PagingCursor pagingCursor) {
+
+		final List<GraphObject> results = result.getResults();
+
+		// only return a cursor if there might be more results
+		if (!results.isEmpty() && results.size() >= pageSize) {
+
+			result.setNextCursor(pagingCursor.next(results.get(results.size() - 1)));
+		}
+
+		return result;
+	}
+
 	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
 
 		final Set<GraphObject> mergedResult = new LinkedHashSet<>();
@@ -447,6 +573,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	@Override
+	public org.structr.core.app.Query<T> cursor(final String cursor) {
+		this.cursor = cursor;
+		return this;
+	}
+
 	@Override
 	public org.structr.core.app.Query<T> uuid(final String uuid) {
 
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Bounded store for the values of the cache() builtin function.
+ *
+ * The store holds at most a configurable number of entries and evicts the
+ * least recently used entry when it is full. Expired entries are removed
+ * periodically, not only when their key is accessed again. Concurrent
+ * requests for the same missing or expired key evaluate the value only
+ * once, all other callers wait for the result.
+ *
+ *
+ */
+public class ScriptCache {
+
+	private static final long SWEEP_INTERVAL = 10000L;
+	private static ScriptCache instance      = null;
+
+	private final AtomicLong hits            = new AtomicLong();
+	private final AtomicLong misses          = new AtomicLong();
+	private final AtomicLong evictions       = new AtomicLong();
+	private final AtomicLong expirations     = new AtomicLong();
+	private final Random random              = new Random(System.currentTimeMillis());
+	private Map<String, CachedValue> entries = null;
+	private long nextSweep                   = 0L;
+	private int maxSize                      = 1000;
+
+	ScriptCache(final int maxSize) {
+
+		this.maxSize = Math.max(1, maxSize);
+		this.entries = new LRUMap();
+	}
+
+	public static synchronized ScriptCache getInstance() {
+
+		if (instance == null) {
+			instance = new ScriptCache(Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_SCRIPT_CACHE_SIZE), 1000));
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Returns the cached value for the given key, or evaluates the given
+	 * loader if there is no valid value. The loader is called by at most
+	 * one thread per key at a time.
+	 *
+	 * @param key
+	 * @param timeoutSeconds
+	 * @param loader
+	 * @return the cached value
+	 * @throws FrameworkException
+	 */
+	public Object get(final String key, final long timeoutSeconds, final Loader loader) throws FrameworkException {
+
+		final CachedValue cachedValue = getOrCreate(key);
+
+		synchronized (cachedValue) {
+
+			if (cachedValue.isExpired()) {
+
+				misses.incrementAndGet();
+
+				cachedValue.refresh(loader.load(), timeoutSeconds, random.nextInt(10));
+
+			} else {
+
+				hits.incrementAndGet();
+			}
+
+			return cachedValue.getValue();
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",        size());
+		statistics.put("maxSize",     maxSize);
+		statistics.put("hits",        hits.get());
+		statistics.put("misses",      misses.get());
+		statistics.put("evictions",   evictions.get());
+		statistics.put("expirations", expirations.get());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private synchronized CachedValue getOrCreate(final String key) {
+
+		final long now = System.currentTimeMillis();
+		if (now > nextSweep) {
+
+			removeExpired(now);
+			nextSweep = now + SWEEP_INTERVAL;
+		}
+
+		CachedValue cachedValue = entries.get(key);
+		if (cachedValue == null) {
+
+			cachedValue = new CachedValue();
+			entries.put(key, cachedValue);
+		}
+
+		return cachedValue;
+	}
+
+	private void removeExpired(final long now) {
+
+		final Iterator<CachedValue> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+
+			final CachedValue cachedValue = iterator.next();
+
+			// entries that have never been loaded are currently being evaluated
+			if (cachedValue.isLoaded() && cachedValue.isExpired(now)) {
+
+				iterator.remove();
+				expirations.incrementAndGet();
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	public interface Loader {
+
+		Object load() throws FrameworkException;
+	}
+
+	private class LRUMap extends LinkedHashMap<String, CachedValue> {
+
+		public LRUMap() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, CachedValue> eldest) {
+
+			if (size() > maxSize) {
+
+				evictions.incrementAndGet();
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	private static final class CachedValue {
+
+		private volatile Object value   = null;
+		private volatile boolean loaded = false;
+		private volatile long timeout   = 0L;
+
+		public Object getValue() {
+			return value;
+		}
+
+		public boolean isLoaded() {
+			return loaded;
+		}
+
+		public boolean isExpired() {
+			return isExpired(System.currentTimeMillis());
+		}
+
+		public boolean isExpired(final long now) {
+			return now > timeout;
+		}
+
+		public void refresh(final Object value, final long timeoutSeconds, final int jitterSeconds) {
+
+			this.timeout = System.currentTimeMillis() + ((timeoutSeconds + jitterSeconds) * 1000);
+			this.value   = value;
+			this.loaded  = true;
+		}
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.structr.core.property;
 
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.api.Predicate;
@@ -133,6 +134,7 @@ public abstract class AbstractPrimitiveProperty<T> extends Property<T> {
 				throw new FrameworkException(500, "setProperty outside of transaction.");
 			}
 
+			final Object previousValue               = propertyContainer.hasProperty(dbName()) ? propertyContainer.getProperty(dbName()) : null;
 			boolean internalSystemPropertiesUnlocked = false;
 
 			// notify only non-system properties
@@ -146,7 +148,7 @@ public abstract class AbstractPrimitiveProperty<T> extends Property<T> {
 						securityContext.getCachedUser(),
 						(AbstractNode)obj,
 						AbstractPrimitiveProperty.this,
-						propertyContainer.hasProperty(dbName()) ? propertyContainer.getProperty(dbName()) : null,
+						previousValue,
 						value
 					);
 				}
@@ -160,7 +162,7 @@ public abstract class AbstractPrimitiveProperty<T> extends Property<T> {
 						securityContext.getCachedUser(),
 						(AbstractRelationship)obj,
 						AbstractPrimitiveProperty.this,
-						propertyContainer.hasProperty(dbName()) ? propertyContainer.getProperty(dbName()) : null,
+						previousValue,
 						value
 					);
 				}
@@ -204,8 +206,9 @@ public abstract class AbstractPrimitiveProperty<T> extends Property<T> {
 
 				// do indexing, needs to be done after
 				// setProperty to make spatial index
-				// work
-				if (!isPassivelyIndexed()) {
+				// work, unchanged values are already
+				// indexed
+				if (!isPassivelyIndexed() && !Objects.deepEquals(previousValue, convertedValue)) {
 
 					index(obj, convertedValue);
 				}
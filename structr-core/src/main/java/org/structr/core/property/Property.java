@@ -48,6 +48,7 @@ import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
 import org.structr.core.graph.NodeService.NodeIndex;
 import org.structr.core.graph.NodeService.RelationshipIndex;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.graph.search.PropertySearchAttribute;
 import org.structr.core.graph.search.SearchAttribute;
 
@@ -150,13 +151,13 @@ public abstract class Property<T> implements PropertyKey<T> {
 	 * Use this method to mark a property as being unique. Please note that
 	 * using this method will not actually cause a uniqueness check, just
 	 * notify the system that this property should be treated as having a
-	 * unique value.
+	 * unique value. Uniqueness checks reserve the value for the duration
+	 * of the transaction, so the property does not require synchronization.
 	 *
 	 * @return the Property to satisfy the builder pattern
 	 */
 	public Property<T> unique() {
-		this.unique                  = true;
-		this.requiresSynchronization = true;
+		this.unique = true;
 		return this;
 	}
 
@@ -485,6 +486,22 @@ public abstract class Property<T> implements PropertyKey<T> {
 	@Override
 	public void index(final GraphObject entity, Object value) {
 
+		// index updates are collected per transaction and applied once on commit
+		if (!TransactionCommand.queueIndexUpdate(entity, this, value)) {
+
+			updateIndex(entity, value);
+		}
+	}
+
+	/**
+	 * Replaces the index entries of this property for the given entity
+	 * with the given value.
+	 *
+	 * @param entity
+	 * @param value
+	 */
+	public void updateIndex(final GraphObject entity, Object value) {
+
 		if (entity instanceof AbstractNode) {
 
 			NodeService nodeService = Services.getInstance().getService(NodeService.class);
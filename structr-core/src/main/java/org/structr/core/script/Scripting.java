@@ -32,6 +32,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.function.Functions;
+import org.structr.core.parser.Expression;
 import org.structr.core.property.DateProperty;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.parser.DatePropertyParser;
@@ -133,16 +134,53 @@ public class Scripting {
 
 		} else {
 
-			Object extractedValue = Functions.evaluate(actionContext, entity, source);
-			final String value    = extractedValue != null ? extractedValue.toString() : "";
-			final String output   = actionContext.getOutput();
+			return evaluate(actionContext, entity, Functions.parse(source));
+		}
+	}
 
-			if (StringUtils.isEmpty(value) && output != null && !output.isEmpty()) {
-				extractedValue = output;
-			}
+	/**
+	 * Parses the given script once so that it can be evaluated repeatedly
+	 * with {@link #evaluate(ActionContext, GraphObject, Expression)}.
+	 * JavaScript expressions cannot be compiled, they are evaluated from
+	 * source every time.
+	 *
+	 * @param expression the scripting expression
+	 *
+	 * @return the compiled StructrScript expression, or null for JavaScript
+	 * @throws FrameworkException
+	 */
+	public static Expression compile(final String expression) throws FrameworkException {
 
-			return extractedValue;
+		if (expression.startsWith("${{") && expression.endsWith("}}")) {
+			return null;
 		}
+
+		return Functions.parse(expression.substring(2, expression.length() - 1));
+	}
+
+	/**
+	 * Evaluates the given compiled StructrScript expression.
+	 *
+	 * @param actionContext the action context
+	 * @param entity the entity
+	 * @param expression the compiled expression
+	 *
+	 * @return
+	 * @throws FrameworkException
+	 */
+	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final Expression expression) throws FrameworkException {
+
+		actionContext.setJavaScriptContext(false);
+
+		Object extractedValue = expression.evaluate(actionContext, entity);
+		final String value    = extractedValue != null ? extractedValue.toString() : "";
+		final String output   = actionContext.getOutput();
+
+		if (StringUtils.isEmpty(value) && output != null && !output.isEmpty()) {
+			extractedValue = output;
+		}
+
+		return extractedValue;
 	}
 
 	private static Object evaluateJavascript(final ActionContext actionContext, final GraphObject entity, final String script) throws FrameworkException {
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import org.structr.common.SecurityContext;
+import org.structr.common.ValidationHelper;
 import org.structr.common.error.EmptyPropertyToken;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.UniqueToken;
@@ -110,32 +111,15 @@ public class GlobalPropertyUniquenessValidator<T> implements PropertyValidator<T
 					long t1 = System.nanoTime() - t0;
 					logger.log(Level.FINE, "get(): {0} ns, {1} results", new Object[] {t1, result.size()});
 				
+				} else if (object instanceof NodeInterface || object instanceof RelationshipInterface) {
+
+					// index lookup for any other property, reserves the value for the current transaction
+					return !ValidationHelper.checkUniquenessError(object, null, key, value, errorBuffer);
+
 				} else {
 
-					// fallback for any other property
 					result = Collections.EMPTY_LIST;
-					if (object instanceof NodeInterface) {
-
-						long t0 = System.nanoTime();
-						
-						result = StructrApp.getInstance().nodeQuery().and(key, value).getAsList();
-						
-						long t1 = System.nanoTime() - t0;
-						logger.log(Level.FINE, "instanceOf NodeInterface => nodeQuery: {0} ns, {1} result(s)", new Object[] {t1, result.size()});
-
-					} else if (object instanceof RelationshipInterface) {
-
-						long t0 = System.nanoTime();
-						
-						result = StructrApp.getInstance().relationshipQuery().and(key, value).getAsList();
-						
-						long t1 = System.nanoTime()- t0;
-						logger.log(Level.FINE, "instanceOf RelationshipInterface => nodeQuery: {0} ns, {1} result(s)", new Object[] {t1, result.size()});
-					} else {
-						
-						logger.log(Level.SEVERE, "GraphObject is neither NodeInterface nor RelationshipInterface");
-						
-					}
+					logger.log(Level.SEVERE, "GraphObject is neither NodeInterface nor RelationshipInterface");
 				}
 				
 				nodeExists = !result.isEmpty();
@@ -166,6 +150,6 @@ public class GlobalPropertyUniquenessValidator<T> implements PropertyValidator<T
 
 	@Override
 	public boolean requiresSynchronization() {
-		return true;
+		return false;
 	}
 }
@@ -18,19 +18,14 @@
  */
 package org.structr.core.validator;
 
-import java.util.logging.Level;
 import org.structr.common.SecurityContext;
+import org.structr.common.ValidationHelper;
 import org.structr.common.error.EmptyPropertyToken;
 import org.structr.common.error.ErrorBuffer;
-import org.structr.common.error.FrameworkException;
-import org.structr.common.error.UniqueToken;
 import org.structr.core.GraphObject;
 import org.structr.core.PropertyValidator;
-import org.structr.core.entity.AbstractNode;
 import java.util.logging.Logger;
 import org.structr.core.property.PropertyKey;
-import org.structr.core.Result;
-import org.structr.core.app.StructrApp;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -77,35 +72,8 @@ public class TypeUniquenessValidator<T> implements PropertyValidator<T> {
 
 		if (key != null) {
 
-			Result<AbstractNode> result = null;
-			boolean nodeExists          = false;
-			String id                   = null;
-
-			try {
-
-				result = StructrApp.getInstance().nodeQuery(type).and(key, value).getResult();
-				nodeExists = !result.isEmpty();
-
-			} catch (FrameworkException fex) {
-
-				logger.log(Level.WARNING, "", fex);
-
-			}
-
-			if (nodeExists) {
-
-				for (final AbstractNode foundNode : result.getResults()) {
-
-					if (foundNode.getId() != object.getId()) {
-
-						id = foundNode.getUuid();
-
-						errorBuffer.add(new UniqueToken(object.getType(), key, id));
-
-						return false;
-					}
-				}
-			}
+			// index lookup, reserves the value for the current transaction
+			return !ValidationHelper.checkUniquenessError(object, type, key, value, errorBuffer);
 		}
 
 		return true;
@@ -113,6 +81,6 @@ public class TypeUniquenessValidator<T> implements PropertyValidator<T> {
 
 	@Override
 	public boolean requiresSynchronization() {
-		return true;
+		return false;
 	}
 }
@@ -27,11 +27,14 @@ import org.structr.core.entity.GenericNode;
 //~--- JDK imports ------------------------------------------------------------
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 
 import java.util.Enumeration;
@@ -46,12 +49,18 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.structr.common.DefaultFactoryDefinition;
 import org.structr.common.FactoryDefinition;
@@ -76,9 +85,11 @@ import org.structr.util.LogMessageSupplier;
  */
 public class JarConfigurationProvider implements ConfigurationProvider {
 
-	private static final Logger logger = Logger.getLogger(JarConfigurationProvider.class.getName());
+	private static final Logger logger             = Logger.getLogger(JarConfigurationProvider.class.getName());
+	private static final byte[] STATIC_INITIALIZER = "<clinit>".getBytes(StandardCharsets.US_ASCII);
 
 	public static final String DYNAMIC_TYPES_PACKAGE = "org.structr.dynamic";
+	public static final String MODULE_INDEX_PATH     = "configuration.provider.index";
 
 	private final Map<String, Class<? extends RelationshipInterface>> relationshipEntityClassCache = new ConcurrentHashMap<>(1000);
 	private final Map<String, Class<? extends NodeInterface>> nodeEntityClassCache                 = new ConcurrentHashMap(1000);
@@ -109,6 +120,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	private final Map<String, Map<String, Method>> exportedMethodMap                               = new ConcurrentHashMap<>(100);
 	private final Map<Class, Set<Class>> interfaceMap                                              = new ConcurrentHashMap<>(2000);
 	private final Map<String, Class> reverseInterfaceMap                                           = new ConcurrentHashMap<>(5000);
+	private final Map<String, Set<Class>> subtypeMap                                               = new ConcurrentHashMap<>(2000);
 
 	private final Set<PropertyKey> globalKnownPropertyKeys                                         = new LinkedHashSet<>();
 	private final Set<String> dynamicViews                                                         = new LinkedHashSet<>();
@@ -513,6 +525,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			globalClassJSNamePropertyMap.remove(fqcn);
 
 			interfaceMap.remove(oldType);
+			removeSubtype(oldType);
 
 			// clear all
 			combinedTypeRelationClassCache.clear();
@@ -536,9 +549,19 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		String fqcn       = type.getName();
 
 		if (AbstractNode.class.isAssignableFrom(type)) {
-			nodeEntityClassCache.put(simpleName, type);
+
+			final Class previousType = nodeEntityClassCache.put(simpleName, type);
+			if (previousType != null && !previousType.equals(type)) {
+				removeSubtype(previousType);
+			}
+
 			nodeEntityPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")));
 			globalPropertyViewMap.remove(fqcn);
+
+			// register type as a subtype of all of its supertypes (including itself)
+			for (final Class supertype : getAllTypes(type)) {
+				subtypeMap.computeIfAbsent(supertype.getName(), k -> ConcurrentHashMap.newKeySet()).add(type);
+			}
 		}
 
 		if (AbstractRelationship.class.isAssignableFrom(type)) {
@@ -965,16 +988,17 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 			registerProperty(type, propertyKey);
 
-			// scan all existing classes and find all classes that have the given type as a supertype
-			for (final Class possibleSubclass : nodeEntityClassCache.values()) {
+			// find all classes that have the given type as a supertype
+			// (lookup by name, not class, because of the schema class loader)
+			final Set<Class> subtypes = subtypeMap.get(typeName);
+			if (subtypes != null) {
 
-				// need to compare strings not classes here..
-				for (final Class supertype : getAllTypes(possibleSubclass)) {
+				for (final Class subtype : subtypes) {
 
-					if (supertype.getName().equals(typeName)) {
+					if (subtype.equals(nodeEntityClassCache.get(subtype.getSimpleName()))) {
 
-						registerProperty(possibleSubclass, propertyKey);
-						registerPropertySet(possibleSubclass, PropertyView.Ui, propertyKey);
+						registerProperty(subtype, propertyKey);
+						registerPropertySet(subtype, PropertyView.Ui, propertyKey);
 					}
 				}
 			}
@@ -988,49 +1012,182 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	// ----- private methods -----
 	private void scanResources() {
 
-		Set<String> resourcePaths = getResourcesToScan();
-		for (String resourcePath : resourcePaths) {
+		final long t0                                 = System.currentTimeMillis();
+		final Set<String> resourcePaths               = getResourcesToScan();
+		final ModuleIndex index                       = new ModuleIndex(getModuleIndexFile(), System.getProperty("java.class.path"));
+		final Map<String, Future<List<String>>> scans = new LinkedHashMap<>();
+		final Map<String, List<String>> types         = new LinkedHashMap<>();
+		final AtomicInteger indexed                   = new AtomicInteger();
+		final ExecutorService executor                = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		index.load();
+		index.retainAll(resourcePaths);
+
+		// find the types to register, JARs that are unchanged since the last start are read from the index
+		for (final String resourcePath : resourcePaths) {
+
+			scans.put(resourcePath, executor.submit(() -> {
+
+				final List<String> indexedTypes = index.get(resourcePath);
+				if (indexedTypes != null) {
+
+					indexed.incrementAndGet();
+					return indexedTypes;
+				}
+
+				final List<String> failedTypes = new ArrayList<>();
+				final List<String> foundTypes  = findTypes(resourcePath, failedTypes);
+
+				// classes that could not be loaded might be loadable after a restart, so the JAR is not indexed
+				if (failedTypes.isEmpty()) {
+
+					index.put(resourcePath, foundTypes);
+
+				} else {
+
+					logger.log(Level.FINE, "Not indexing {0}, unable to load {1}", new Object[] { resourcePath, failedTypes });
+				}
+
+				return foundTypes;
+			}));
+		}
+
+		for (final Entry<String, Future<List<String>>> scan : scans.entrySet()) {
+
+			try {
+
+				types.put(scan.getKey(), scan.getValue().get());
+
+			} catch (InterruptedException | ExecutionException ex) {
 
-			scanResource(resourcePath);
+				final Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+
+				logger.log(Level.WARNING, cause, LogMessageSupplier.create("Error loading module {0}: {1}", new Object[]{scan.getKey(), cause.getMessage()}));
+			}
 		}
 
-		logger.log(Level.INFO, "{0} JARs scanned", resourcePaths.size());
+		executor.shutdown();
+
+		final long t1 = System.currentTimeMillis();
+		int count     = 0;
+
+		// load and register the types in class path order
+		for (final List<String> resourceTypes : types.values()) {
+
+			importResource(resourceTypes);
 
+			count += resourceTypes.size();
+		}
+
+		index.store();
+
+		final long t2 = System.currentTimeMillis();
+
+		logger.log(Level.INFO, "{0} JARs scanned ({1} from index), {2} types registered in {3} ms ({4} ms scan, {5} ms registration)", new Object[] { resourcePaths.size(), indexed.get(), count, t2 - t0, t1 - t0, t2 - t1 });
 	}
 
-	private void scanResource(final String resourceName) {
+	/**
+	 * Returns the names of all classes in the given resource that need to be
+	 * registered or have a static initializer, without initializing any of
+	 * them. Static initializers register websocket commands, maintenance
+	 * commands etc., so these classes must be initialized like the types.
+	 */
+	private List<String> findTypes(final String resourceName, final List<String> failedTypes) throws IOException {
 
-		try {
+		final StructrModuleInfo module = loadResource(resourceName);
+		final ClassLoader classLoader  = JarConfigurationProvider.class.getClassLoader();
+		final List<String> types       = new ArrayList<>();
 
-			final StructrModuleInfo module = loadResource(resourceName);
-			if (module != null) {
+		for (final String name : module.getClasses()) {
 
-				importResource(module);
+			final String className = StringUtils.removeStart(name, ".");
 
-			} else {
+			try {
 
-				logger.log(Level.WARNING, "Module was null!");
+				final Class clazz   = Class.forName(className, false, classLoader);
+				final int modifiers = clazz.getModifiers();
+
+				if (NodeInterface.class.isAssignableFrom(clazz)) {
+
+					types.add(className);
+
+				} else if (!Modifier.isAbstract(modifiers) && (AbstractRelationship.class.isAssignableFrom(clazz) || Service.class.isAssignableFrom(clazz) || Agent.class.isAssignableFrom(clazz) || StructrModule.class.isAssignableFrom(clazz))) {
+
+					types.add(className);
+
+				} else if (hasStaticInitializer(classLoader, className)) {
+
+					types.add(className);
+				}
+
+			} catch (Throwable t) {
+
+				failedTypes.add(className);
+			}
+		}
+
+		return types;
+	}
+
+	/**
+	 * Checks the constant pool of the given class for the name of the static
+	 * initializer method. Classes without it cannot have side effects when
+	 * they are initialized.
+	 */
+	private boolean hasStaticInitializer(final ClassLoader classLoader, final String className) throws IOException {
+
+		try (final InputStream is = classLoader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+
+			if (is == null) {
+
+				// class file not found, initialize to be safe
+				return true;
 			}
 
-		} catch (IOException ioex) {
+			final byte[] data = IOUtils.toByteArray(is);
+			final int length  = STATIC_INITIALIZER.length;
+
+			for (int i=0; i<=data.length-length; i++) {
 
-			logger.log(Level.WARNING, ioex, LogMessageSupplier.create("Error loading module {0}: {1}", new Object[]{resourceName, ioex.getMessage()}));
+				int j = 0;
+
+				while (j < length && data[i+j] == STATIC_INITIALIZER[j]) {
+					j++;
+				}
 
+				if (j == length) {
+					return true;
+				}
+			}
 		}
 
+		return false;
 	}
 
-	private void importResource(StructrModuleInfo module) throws IOException {
+	private File getModuleIndexFile() {
 
-		final Set<String> classes = module.getClasses();
+		final String indexPath = Services.getInstance().getConfigurationValue(MODULE_INDEX_PATH);
+		if (StringUtils.isNotBlank(indexPath)) {
 
-		for (final String name : classes) {
+			return new File(indexPath);
+		}
 
-			String className = StringUtils.removeStart(name, ".");
+		final String basePath = Services.getInstance().getConfigurationValue(Services.BASE_PATH);
+		if (StringUtils.isNotBlank(basePath) && new File(basePath).isDirectory()) {
+
+			return new File(basePath, "modules.index");
+		}
+
+		return null;
+	}
+
+	private void importResource(final Collection<String> classes) {
+
+		for (final String className : classes) {
 
 			try {
 
-				// instantiate class..
+				// instantiate class, runs its static initializer
 				final Class clazz   = Class.forName(className);
 				final int modifiers = clazz.getModifiers();
 
@@ -1256,6 +1413,13 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 		return modules;
 	}
 
+	private void removeSubtype(final Class type) {
+
+		for (final Set<Class> subtypes : subtypeMap.values()) {
+			subtypes.remove(type);
+		}
+	}
+
 	private <T> Map<Field, T> getFieldValuesOfType(final Class<T> fieldType, final Class entityType) {
 
 		final Map<Field, T> fields = new LinkedHashMap<>();
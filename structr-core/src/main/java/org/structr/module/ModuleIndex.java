@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.module;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Persistent index of the types found in the module JARs on the class path.
+ *
+ * Each entry maps the path of a JAR file to the CRC32 checksum of its
+ * contents and the names of the classes that need to be loaded. An
+ * entry is only used if the checksum of the file is unchanged, so that
+ * replaced JARs are scanned again. Directories are never indexed. The
+ * whole index is discarded if the class path has changed, because the
+ * classes found in a JAR depend on the classes available to load them.
+ *
+ *
+ */
+class ModuleIndex {
+
+	private static final Logger logger        = Logger.getLogger(ModuleIndex.class.getName());
+	private static final String VERSION_KEY   = "index.version";
+	private static final String CLASSPATH_KEY = "index.classpath";
+	private static final String VERSION       = "2";
+
+	private final Map<String, String> entries = new ConcurrentHashMap<>();
+	private final Map<String, Long> checksums = new ConcurrentHashMap<>();
+	private volatile boolean modified         = false;
+	private String classPathKey               = null;
+	private File file                         = null;
+
+	public ModuleIndex(final File file, final String classPath) {
+
+		final CRC32 crc = new CRC32();
+
+		crc.update(StringUtils.defaultString(classPath).getBytes(StandardCharsets.UTF_8));
+
+		this.classPathKey = Long.toString(crc.getValue());
+		this.file         = file;
+	}
+
+	/**
+	 * Reads the index file, an index of a different version or for a
+	 * different class path is ignored.
+	 */
+	public void load() {
+
+		if (file != null && file.exists()) {
+
+			final Properties properties = new Properties();
+
+			try (final InputStream is = new FileInputStream(file)) {
+
+				properties.load(is);
+
+				if (VERSION.equals(properties.getProperty(VERSION_KEY)) && classPathKey.equals(properties.getProperty(CLASSPATH_KEY))) {
+
+					for (final String resource : properties.stringPropertyNames()) {
+
+						if (!VERSION_KEY.equals(resource) && !CLASSPATH_KEY.equals(resource)) {
+
+							entries.put(resource, properties.getProperty(resource));
+						}
+					}
+				}
+
+			} catch (IOException ioex) {
+
+				logger.log(Level.WARNING, "Unable to read module index {0}: {1}", new Object[] { file, ioex.getMessage() });
+			}
+		}
+	}
+
+	/**
+	 * Writes the index file if entries were added or removed.
+	 */
+	public void store() {
+
+		if (file != null && modified) {
+
+			final Properties properties = new Properties();
+
+			properties.putAll(entries);
+			properties.setProperty(VERSION_KEY, VERSION);
+			properties.setProperty(CLASSPATH_KEY, classPathKey);
+
+			try (final OutputStream os = new FileOutputStream(file)) {
+
+				properties.store(os, "Structr module index, do not edit");
+				modified = false;
+
+			} catch (IOException ioex) {
+
+				logger.log(Level.WARNING, "Unable to write module index {0}: {1}", new Object[] { file, ioex.getMessage() });
+			}
+		}
+	}
+
+	/**
+	 * Returns the indexed class names of the given resource, or null if the
+	 * resource is not indexed or has been modified since it was indexed.
+	 *
+	 * @param resource
+	 * @return the class names or null
+	 */
+	public List<String> get(final String resource) {
+
+		final String entry = entries.get(resource);
+		if (entry != null && isIndexable(resource)) {
+
+			final int pos = entry.indexOf(";");
+			if (pos > 0) {
+
+				final Long checksum = getChecksum(resource);
+				if (checksum != null && entry.substring(0, pos).equals(checksum.toString())) {
+
+					final String classes = entry.substring(pos + 1);
+					if (classes.isEmpty()) {
+
+						return Collections.emptyList();
+					}
+
+					return Arrays.asList(classes.split(","));
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores the class names of the given resource if it is a JAR file.
+	 *
+	 * @param resource
+	 * @param classes
+	 */
+	public void put(final String resource, final Collection<String> classes) {
+
+		if (isIndexable(resource)) {
+
+			final Long checksum = getChecksum(resource);
+			if (checksum != null) {
+
+				entries.put(resource, checksum + ";" + StringUtils.join(classes, ","));
+				modified = true;
+			}
+		}
+	}
+
+	/**
+	 * Removes the entries of all resources that are not in the given set.
+	 *
+	 * @param resources
+	 */
+	public void retainAll(final Collection<String> resources) {
+
+		for (final String resource : new ArrayList<>(entries.keySet())) {
+
+			if (!resources.contains(resource)) {
+
+				entries.remove(resource);
+				modified = true;
+			}
+		}
+	}
+
+	public static boolean isIndexable(final String resource) {
+
+		final String lowerResource = resource.toLowerCase();
+
+		return (lowerResource.endsWith(".jar") || lowerResource.endsWith(".war")) && new File(resource).isFile();
+	}
+
+	// ----- private methods -----
+	private Long getChecksum(final String resource) {
+
+		Long checksum = checksums.get(resource);
+		if (checksum == null) {
+
+			try {
+
+				checksum = FileUtils.checksumCRC32(new File(resource));
+				checksums.put(resource, checksum);
+
+			} catch (IOException ioex) {
+
+				logger.log(Level.WARNING, "Unable to compute checksum of {0}: {1}", new Object[] { resource, ioex.getMessage() });
+			}
+		}
+
+		return checksum;
+	}
+}
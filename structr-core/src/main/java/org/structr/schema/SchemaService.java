@@ -94,6 +94,8 @@ public class SchemaService implements Service {
 
 				final Set<String> dynamicViews  = new LinkedHashSet<>();
 				final NodeExtender nodeExtender = new NodeExtender();
+				final long startTime            = System.currentTimeMillis();
+				long compileTime                = 0L;
 
 				try (final Tx tx = StructrApp.getInstance().tx()) {
 
@@ -135,7 +137,9 @@ public class SchemaService implements Service {
 						SchemaRelationshipNode.clearPropagatingRelationshipTypes();
 
 						// compile all classes at once and register
+						final long compileStartTime = System.currentTimeMillis();
 						Map<String, Class> newTypes = nodeExtender.compile(errorBuffer);
+						compileTime                 = System.currentTimeMillis() - compileStartTime;
 
 						for (final Class newType : newTypes.values()) {
 
@@ -181,6 +185,8 @@ public class SchemaService implements Service {
 
 				calculateHierarchy();
 
+				logger.log(Level.INFO, "Schema reloaded in {0} ms ({1} ms compilation)", new Object[] { System.currentTimeMillis() - startTime, compileTime });
+
 			} finally {
 
 				// compiling done
@@ -194,7 +194,8 @@ public abstract class PropertySourceGenerator {
 			buf.append(".notNull()");
 		}
 
-		if (source.isIndexed()) {
+		// unique properties are always indexed so that the uniqueness check can use an index lookup
+		if (source.isIndexed() || source.isUnique()) {
 
 			if (StringUtils.isNotBlank(source.getDefaultValue())) {
 
@@ -34,7 +34,9 @@ public abstract class AbstractProcess<T> implements Callable<T> {
 	private static final Logger logger = Logger.getLogger(AbstractProcess.class.getName());
 
 	private final AtomicBoolean running       = new AtomicBoolean(true);
+	private final AtomicBoolean cancelled     = new AtomicBoolean(false);
 	protected SecurityContext securityContext = null;
+	private volatile Process proc             = null;
 	private StreamReader stdOut               = null;
 	private StreamReader stdErr               = null;
 	private String cmd                        = null;
@@ -56,7 +58,7 @@ public abstract class AbstractProcess<T> implements Callable<T> {
 			preprocess();
 
 			final StringBuilder commandLine = getCommandLine();
-			if (commandLine != null) {
+			if (commandLine != null && !cancelled.get()) {
 
 				cmd = commandLine.toString();
 
@@ -64,15 +66,20 @@ public abstract class AbstractProcess<T> implements Callable<T> {
 
 				logger.log(Level.INFO, "Executing {0}", cmd);
 
-				Process proc = Runtime.getRuntime().exec(args);
+				proc = Runtime.getRuntime().exec(args);
 
 				// consume streams
 				stdOut = new StreamReader(proc.getInputStream(), running);
-				stdErr = new StreamReader(proc.getErrorStream(), running);
+				stdErr = new StreamReader(proc.getErrorStream(), running, this::onErrorOutput);
 
 				stdOut.start();
 				stdErr.start();
 
+				// process may have been cancelled while starting
+				if (cancelled.get()) {
+					proc.destroy();
+				}
+
 				exitCode = proc.waitFor();
 			}
 
@@ -83,14 +90,70 @@ public abstract class AbstractProcess<T> implements Callable<T> {
 
 		running.set(false);
 
+		// wait for the remaining output of the process
+		joinReaders();
+
 		// debugging output
-		if (exitCode != 0) {
-			logger.log(Level.WARNING, "Process {0} exited with exit code {1}, error stream:\n{2}\n", new Object[] { cmd, exitCode, stdErr.getBuffer() } );
+		if (cancelled.get()) {
+
+			logger.log(Level.INFO, "Process {0} was cancelled", cmd);
+
+		} else if (exitCode != 0) {
+
+			logger.log(Level.WARNING, "Process {0} exited with exit code {1}, error stream:\n{2}\n", new Object[] { cmd, exitCode, stdErr != null ? stdErr.getBuffer() : "" } );
 		}
 
 		return processExited(exitCode);
 	}
 
+	/**
+	 * Cancels this process. A process that has not been started yet will
+	 * not be started, a running process is destroyed.
+	 */
+	public void cancel() {
+
+		cancelled.set(true);
+
+		final Process process = proc;
+		if (process != null) {
+
+			process.destroy();
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled.get();
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	/**
+	 * Called for every line the process writes to its error stream,
+	 * override this method to track the progress of a process.
+	 *
+	 * @param line
+	 */
+	protected void onErrorOutput(final String line) {
+	}
+
+	private void joinReaders() {
+
+		try {
+			if (stdOut != null) {
+				stdOut.join(1000);
+			}
+
+			if (stdErr != null) {
+				stdErr.join(1000);
+			}
+
+		} catch (InterruptedException iex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	protected String outputStream() {
 		return stdOut.getBuffer();
 	}
@@ -19,11 +19,13 @@
 package org.structr.util;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,13 +40,19 @@ public class StreamReader extends Thread {
 	private final Queue<String> queue = new ConcurrentLinkedQueue<>();
 	private BufferedReader reader     = null;
 	private AtomicBoolean running     = null;
+	private Consumer<String> listener = null;
 
 	public StreamReader(final InputStream is, final AtomicBoolean running) {
+		this(is, running, null);
+	}
+
+	public StreamReader(final InputStream is, final AtomicBoolean running, final Consumer<String> listener) {
 
 		super("StreamReader");
 
-		this.reader  = new BufferedReader(new InputStreamReader(is));
-		this.running = running;
+		this.reader   = new BufferedReader(new InputStreamReader(is));
+		this.running  = running;
+		this.listener = listener;
 
 		this.setDaemon(true);
 	}
@@ -75,12 +83,21 @@ public class StreamReader extends Thread {
 					if (line != null) {
 
 						queue.add(line);
+
+						if (listener != null) {
+							listener.accept(line);
+						}
 					}
 
 				} while (line != null);
 
 				Thread.sleep(10);
 
+			} catch (IOException ioex) {
+
+				// stream was closed, e.g. because the process was destroyed
+				break;
+
 			} catch (Throwable t) {
 				logger.log(Level.WARNING, "", t);
 			}
@@ -20,6 +20,7 @@ package org.structr.common;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -27,6 +28,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.app.App;
@@ -211,6 +213,190 @@ public class ConcurrentTests extends StructrTest {
 		assertEquals("Invalid concurrent validation result", count, result.size());
 	}
 
+	public void testUniqueValueReservation() {
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute(SchemaNode.name, "Item"),
+				new NodeAttribute(new StringProperty("_testXYZ"), "+String!")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		final Class type = StructrApp.getConfiguration().getNodeEntityClass("Item");
+		assertNotNull(type);
+
+		final PropertyKey testXYZ = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, "testXYZ", false);
+		assertNotNull(testXYZ);
+
+		// duplicate values in the same transaction must be rejected
+		try (final Tx tx = app.tx()) {
+
+			app.create(type, new NodeAttribute(testXYZ, "duplicate"));
+			app.create(type, new NodeAttribute(testXYZ, "duplicate"));
+
+			tx.success();
+
+			fail("Unique constraint violated in a single transaction.");
+
+		} catch (FrameworkException fex) {
+
+			assertEquals("Invalid uniqueness validation result", 422, fex.getStatus());
+		}
+
+		// the reservation of the rolled back transaction must be released
+		try (final Tx tx = app.tx()) {
+
+			app.create(type, new NodeAttribute(testXYZ, "duplicate"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid uniqueness validation result", 1, app.nodeQuery(type).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+
+	public void testConcurrentUniqueValueReservation() {
+
+		final Class type               = createUniqueType();
+		final PropertyKey testXYZ      = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, "testXYZ", false);
+		final CountDownLatch reserved  = new CountDownLatch(1);
+		final CountDownLatch attempted = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newCachedThreadPool();
+
+		// the first transaction reserves the value and waits until the second one has tried to commit it
+		final Future<Boolean> first = executor.submit(() -> {
+
+			try (final Tx tx = app.tx()) {
+
+				final NodeInterface node = app.create(type, new NodeAttribute(testXYZ, "concurrent"));
+				final boolean error      = ValidationHelper.checkPropertyUniquenessError(node, testXYZ, new ErrorBuffer());
+
+				reserved.countDown();
+				attempted.await();
+
+				tx.success();
+
+				return error;
+			}
+		});
+
+		try {
+
+			reserved.await();
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(type, new NodeAttribute(testXYZ, "concurrent"));
+
+				tx.success();
+
+				fail("Unique value reserved by a concurrent transaction was committed.");
+
+			} catch (FrameworkException fex) {
+
+				assertEquals("Invalid uniqueness validation result", 422, fex.getStatus());
+			}
+
+			attempted.countDown();
+
+			assertFalse("Unique value could not be reserved.", first.get());
+
+		} catch (Throwable t) {
+
+			logger.log(Level.WARNING, "", t);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			attempted.countDown();
+			executor.shutdown();
+		}
+
+		assertEquals("Invalid uniqueness validation result", 1, countNodes(type));
+	}
+
+	public void testReplacedUniqueValueIsReleased() {
+
+		final Class type               = createUniqueType();
+		final PropertyKey testXYZ      = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, "testXYZ", false);
+		final CountDownLatch replaced  = new CountDownLatch(1);
+		final CountDownLatch created   = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newCachedThreadPool();
+
+		// the first transaction reserves a value, replaces it and waits until the replaced value was used by another transaction
+		final Future<Boolean> first = executor.submit(() -> {
+
+			try (final Tx tx = app.tx()) {
+
+				final NodeInterface node = app.create(type, new NodeAttribute(testXYZ, "old"));
+				boolean error            = ValidationHelper.checkPropertyUniquenessError(node, testXYZ, new ErrorBuffer());
+
+				node.setProperty(testXYZ, "new");
+
+				error |= ValidationHelper.checkPropertyUniquenessError(node, testXYZ, new ErrorBuffer());
+
+				replaced.countDown();
+				created.await();
+
+				tx.success();
+
+				return error;
+			}
+		});
+
+		try {
+
+			replaced.await();
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(type, new NodeAttribute(testXYZ, "old"));
+
+				tx.success();
+
+			} finally {
+
+				created.countDown();
+			}
+
+			assertFalse("Unique value could not be reserved.", first.get());
+
+		} catch (Throwable t) {
+
+			logger.log(Level.WARNING, "", t);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			created.countDown();
+			executor.shutdown();
+		}
+
+		assertEquals("Invalid uniqueness validation result", 2, countNodes(type));
+	}
 
 	/**
 	 * disabled, failing test to check for (existing, confirmed) flaw in parallel node instantiation)
@@ -359,6 +545,49 @@ public class ConcurrentTests extends StructrTest {
 		}
 	}
 
+	// ----- private methods -----
+	private Class createUniqueType() {
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute(SchemaNode.name, "Item"),
+				new NodeAttribute(new StringProperty("_testXYZ"), "+String!")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		final Class type = StructrApp.getConfiguration().getNodeEntityClass("Item");
+		assertNotNull(type);
+
+		return type;
+	}
+
+	private int countNodes(final Class type) {
+
+		try (final Tx tx = app.tx()) {
+
+			final int count = app.nodeQuery(type).getAsList().size();
+
+			tx.success();
+
+			return count;
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		return 0;
+	}
+
 	private static class Worker<T> implements Runnable {
 
 		private static final AtomicInteger counter = new AtomicInteger();
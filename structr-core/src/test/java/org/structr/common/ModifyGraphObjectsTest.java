@@ -25,7 +25,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.GenericNode;
+import org.structr.core.entity.TestOne;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ModificationQueue;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
@@ -163,4 +166,80 @@ public class ModifyGraphObjectsTest extends StructrTest {
 			fail("Unexpected exception");
 		}
 	}
+
+	/**
+	 * Test that index updates are collected per transaction, written once
+	 * per property and skipped for unchanged values.
+	 */
+	public void test03CoalescedIndexUpdates() {
+
+		try {
+
+			TestOne test = null;
+
+			try (final Tx tx = app.tx()) {
+
+				test = app.create(TestOne.class, "test");
+				tx.success();
+			}
+
+			final long requested = ModificationQueue.getRequestedIndexUpdates();
+			final long applied   = ModificationQueue.getAppliedIndexUpdates();
+
+			try (final Tx tx = app.tx()) {
+
+				for (int i=0; i<10; i++) {
+					test.setProperty(TestOne.aCreateString, "value" + i);
+				}
+
+				// pending updates must be visible to queries in the same transaction
+				assertEquals(test, app.nodeQuery(TestOne.class).and(TestOne.aCreateString, "value9").getFirst());
+
+				tx.success();
+			}
+
+			final long requestedUpdates = ModificationQueue.getRequestedIndexUpdates() - requested;
+			final long appliedUpdates   = ModificationQueue.getAppliedIndexUpdates() - applied;
+
+			assertTrue("Repeated updates of the same property should be written once", requestedUpdates - appliedUpdates >= 9);
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals(test, app.nodeQuery(TestOne.class).and(TestOne.aCreateString, "value9").getFirst());
+				assertNull(app.nodeQuery(TestOne.class).and(TestOne.aCreateString, "value0").getFirst());
+			}
+
+			int passiveKeys = 0;
+
+			for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(TestOne.class, PropertyView.All)) {
+
+				if (key.isPassivelyIndexed()) {
+					passiveKeys++;
+				}
+			}
+
+			final long appliedBefore = ModificationQueue.getAppliedIndexUpdates();
+
+			try (final Tx tx = app.tx()) {
+
+				// set the same value again
+				test.setProperty(TestOne.aCreateString, "value9");
+				tx.success();
+			}
+
+			assertTrue("Unchanged values should not be indexed again", ModificationQueue.getAppliedIndexUpdates() - appliedBefore < passiveKeys);
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals(test, app.nodeQuery(TestOne.class).and(TestOne.aCreateString, "value9").getFirst());
+				assertEquals(test, app.nodeQuery(TestOne.class).and(TestOne.aString, null).getFirst());
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
 }
@@ -32,6 +32,7 @@ import java.util.logging.Logger;
 import org.structr.core.entity.GenericNode;
 import org.structr.core.entity.TestOne;
 import org.structr.core.entity.relationship.NodeHasLocation;
+import org.structr.core.graph.ReadOnlyTransactionException;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 
@@ -188,4 +189,67 @@ public class PerformanceTest extends StructrTest {
 
 	}
 
+	/**
+	 * Tests that modifications in a read-only transaction are rejected
+	 * and rolled back.
+	 */
+	public void test04ReadOnlyTransaction() {
+
+		try {
+
+			final TestOne test = createTestNodes(TestOne.class, 1).get(0);
+
+			try (final Tx tx = app.readOnlyTx()) {
+
+				test.setProperty(TestOne.name, "modified");
+				tx.success();
+
+				fail("Modification in read-only transaction should throw an exception");
+
+			} catch (ReadOnlyTransactionException expected) {
+			}
+
+			try (final Tx tx = app.readOnlyTx()) {
+
+				app.create(TestOne.class, "test");
+				tx.success();
+
+				fail("Node creation in read-only transaction should throw an exception");
+
+			} catch (ReadOnlyTransactionException expected) {
+			}
+
+			// nested transactions inherit the read-only mode
+			try (final Tx tx = app.readOnlyTx()) {
+
+				try (final Tx nested = app.tx()) {
+
+					app.delete(test);
+					nested.success();
+				}
+
+				tx.success();
+
+				fail("Node deletion in nested read-only transaction should throw an exception");
+
+			} catch (ReadOnlyTransactionException expected) {
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertNotNull("Deletion in read-only transaction should be rolled back", app.get(TestOne.class, test.getUuid()));
+				assertNull("Modification in read-only transaction should be rolled back", test.getProperty(TestOne.name));
+				assertEquals("Node creation in read-only transaction should be rolled back", 1, app.nodeQuery(TestOne.class).getAsList().size());
+
+				tx.success();
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.log(Level.SEVERE, ex.toString());
+			fail("Unexpected exception");
+
+		}
+	}
+
 }
\ No newline at end of file
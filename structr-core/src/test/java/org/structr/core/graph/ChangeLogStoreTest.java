@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class ChangeLogStoreTest {
+
+	private static final Logger logger = Logger.getLogger(ChangeLogStoreTest.class.getName());
+
+	@Test
+	public void testAppendAndRead() {
+
+		final File basePath = new File("/tmp/structr-changelog-test-" + System.currentTimeMillis());
+
+		try {
+
+			final ChangeLogStore store = new ChangeLogStore(basePath);
+			final String uuid          = "0123456789abcdef0123456789abcdef";
+
+			assertNull("Log of unknown object should not exist", store.open(uuid));
+
+			for (int i=0; i<1000; i++) {
+				store.append(uuid, "{\"time\":" + i + "}\n");
+			}
+
+			try (final BufferedReader reader = store.open(uuid)) {
+
+				String line = null;
+				int count   = 0;
+
+				while ((line = reader.readLine()) != null) {
+
+					assertEquals("Entries should be stored in the order of insertion", "{\"time\":" + count + "}", line);
+					count++;
+				}
+
+				assertEquals("Invalid number of entries", 1000, count);
+			}
+
+		} catch (IOException ioex) {
+
+			logger.log(Level.WARNING, "", ioex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			FileUtils.deleteQuietly(basePath);
+		}
+	}
+
+	@Test
+	public void testConcurrentAppend() {
+
+		final File basePath        = new File("/tmp/structr-changelog-test-" + System.currentTimeMillis());
+		final ChangeLogStore store = new ChangeLogStore(basePath);
+		final String uuid          = "fedcba9876543210fedcba9876543210";
+		final List<Thread> threads = new ArrayList<>();
+		final AtomicInteger errors = new AtomicInteger();
+
+		try {
+
+			for (int i=0; i<8; i++) {
+
+				final int thread = i;
+
+				threads.add(new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+
+						try {
+
+							for (int j=0; j<500; j++) {
+								store.append(uuid, "{\"thread\":" + thread + ",\"entry\":" + j + "}\n");
+							}
+
+						} catch (IOException ioex) {
+
+							logger.log(Level.WARNING, "", ioex);
+							errors.incrementAndGet();
+						}
+					}
+				}));
+			}
+
+			for (final Thread thread : threads) {
+				thread.start();
+			}
+
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+
+			if (errors.get() > 0) {
+				fail("Unexpected exception");
+			}
+
+			try (final BufferedReader reader = store.open(uuid)) {
+
+				String line = null;
+				int count   = 0;
+
+				while ((line = reader.readLine()) != null) {
+
+					assertTrue("Entries must not be interleaved", line.matches("\\{\"thread\":[0-7],\"entry\":[0-9]+\\}"));
+					count++;
+				}
+
+				assertEquals("Invalid number of entries", 4000, count);
+			}
+
+		} catch (IOException | InterruptedException ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			FileUtils.deleteQuietly(basePath);
+		}
+	}
+
+	@Test
+	public void testInvalidIdentifiers() {
+
+		final File basePath        = new File("/tmp/structr-changelog-test-" + System.currentTimeMillis());
+		final ChangeLogStore store = new ChangeLogStore(basePath);
+
+		try {
+
+			store.append("../../etc/passwd", "{}\n");
+			store.append("", "{}\n");
+			store.append(null, "{}\n");
+
+			assertNull(store.open("../../etc/passwd"));
+			assertTrue("No files should be created for invalid identifiers", !basePath.exists());
+
+		} catch (IOException ioex) {
+
+			logger.log(Level.WARNING, "", ioex);
+			fail("Unexpected exception");
+		}
+	}
+}
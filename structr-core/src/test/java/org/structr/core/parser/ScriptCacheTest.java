@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.parser;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+
+/**
+ *
+ */
+public class ScriptCacheTest {
+
+	private static final Logger logger = Logger.getLogger(ScriptCacheTest.class.getName());
+
+	@Test
+	public void testMaximumSize() throws FrameworkException {
+
+		final ScriptCache cache = new ScriptCache(10);
+
+		for (int i=0; i<100; i++) {
+
+			final String value = "value" + i;
+			Assert.assertEquals("Invalid cached value", value, cache.get("key" + i, 60, () -> value));
+		}
+
+		Assert.assertEquals("Invalid script cache size", 10, cache.size());
+		Assert.assertEquals("Invalid number of evictions", 90L, cache.getStatistics().get("evictions"));
+
+		// most recent entries must still be cached
+		Assert.assertEquals("Invalid cached value", "value99", cache.get("key99", 60, () -> "other"));
+		Assert.assertEquals("Invalid cached value", "other", cache.get("key0", 60, () -> "other"));
+
+		Assert.assertEquals("Invalid number of hits", 1L, cache.getStatistics().get("hits"));
+		Assert.assertEquals("Invalid number of misses", 101L, cache.getStatistics().get("misses"));
+	}
+
+	@Test
+	public void testSingleEvaluation() throws Exception {
+
+		final ScriptCache cache     = new ScriptCache(10);
+		final AtomicInteger count   = new AtomicInteger();
+		final AtomicInteger errors  = new AtomicInteger();
+		final CountDownLatch start  = new CountDownLatch(1);
+		final Thread[] threads      = new Thread[10];
+
+		for (int i=0; i<threads.length; i++) {
+
+			threads[i] = new Thread(() -> {
+
+				try {
+					start.await();
+
+					cache.get("expensive", 60, () -> {
+
+						count.incrementAndGet();
+
+						try { Thread.sleep(100); } catch (InterruptedException iex) {}
+
+						return "result";
+					});
+
+				} catch (InterruptedException | FrameworkException ex) {
+
+					logger.log(Level.WARNING, "", ex);
+					errors.incrementAndGet();
+				}
+			});
+
+			threads[i].start();
+		}
+
+		start.countDown();
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		if (errors.get() > 0) {
+			Assert.fail("Unexpected exception");
+		}
+
+		Assert.assertEquals("Value expression must be evaluated only once", 1, count.get());
+		Assert.assertEquals("Invalid number of hits", 9L, cache.getStatistics().get("hits"));
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.module;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+
+/**
+ * Test the validation of the persistent module index.
+ *
+ *
+ */
+public class ModuleIndexTest extends TestCase {
+
+	private static final String CLASS_PATH = "structr-test.jar";
+
+	public void testIndexValidation() throws Exception {
+
+		final File dir           = File.createTempFile("modules", "");
+		final File jar           = new File(dir, "structr-test.jar");
+		final File indexFile     = new File(dir, "modules.index");
+		final List<String> types = Arrays.asList("org.structr.test.One", "org.structr.test.Two");
+
+		dir.delete();
+		dir.mkdirs();
+
+		try {
+
+			writeJar(jar, "one");
+
+			final ModuleIndex index = new ModuleIndex(indexFile, CLASS_PATH);
+
+			index.load();
+			assertNull("Empty index must not contain entries", index.get(jar.getAbsolutePath()));
+
+			index.put(jar.getAbsolutePath(), types);
+			index.store();
+
+			// unchanged JAR must be read from the index
+			final ModuleIndex loaded = new ModuleIndex(indexFile, CLASS_PATH);
+
+			loaded.load();
+			assertEquals(types, loaded.get(jar.getAbsolutePath()));
+
+			// index of a different class path must not be used
+			final ModuleIndex otherClassPath = new ModuleIndex(indexFile, CLASS_PATH + File.pathSeparator + "other.jar");
+
+			otherClassPath.load();
+			assertNull("Index of a different class path must not be used", otherClassPath.get(jar.getAbsolutePath()));
+
+			// modified JAR must be scanned again
+			writeJar(jar, "two");
+
+			final ModuleIndex modified = new ModuleIndex(indexFile, CLASS_PATH);
+
+			modified.load();
+			assertNull("Modified JAR must not be read from the index", modified.get(jar.getAbsolutePath()));
+
+			// JARs that are no longer on the class path are removed
+			modified.put(jar.getAbsolutePath(), Collections.emptyList());
+			modified.retainAll(Collections.emptySet());
+			modified.store();
+
+			final ModuleIndex retained = new ModuleIndex(indexFile, CLASS_PATH);
+
+			retained.load();
+			assertNull(retained.get(jar.getAbsolutePath()));
+
+			// directories are never indexed
+			retained.put(dir.getAbsolutePath(), types);
+			assertNull(retained.get(dir.getAbsolutePath()));
+
+		} finally {
+
+			jar.delete();
+			indexFile.delete();
+			dir.delete();
+		}
+	}
+
+	// ----- private methods -----
+	private void writeJar(final File file, final String content) throws Exception {
+
+		try (final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+
+			zip.putNextEntry(new ZipEntry("org/structr/test/One.class"));
+			zip.write(content.getBytes("utf-8"));
+			zip.closeEntry();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.transform;
+
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.parser.Expression;
+import org.structr.core.script.Scripting;
+import org.structr.schema.action.ActionContext;
+
+/**
+ * A script of a virtual type that is parsed only once. JavaScript
+ * expressions are evaluated from source.
+ *
+ *
+ */
+class CompiledScript {
+
+	private Expression expression = null;
+	private String source         = null;
+
+	public CompiledScript(final String script) throws FrameworkException {
+
+		this.source     = "${" + script + "}";
+		this.expression = Scripting.compile(source);
+	}
+
+	public Object evaluate(final ActionContext actionContext, final GraphObject entity) throws FrameworkException {
+
+		if (expression != null) {
+
+			return Scripting.evaluate(actionContext, entity, expression);
+		}
+
+		return Scripting.evaluate(actionContext, entity, source);
+	}
+}
@@ -24,7 +24,6 @@ import org.structr.core.GraphObject;
 import org.structr.core.app.StructrApp;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
-import org.structr.core.script.Scripting;
 import org.structr.schema.action.ActionContext;
 
 /**
@@ -32,19 +31,19 @@ import org.structr.schema.action.ActionContext;
  */
 public class Transformation {
 
-	private String sourceName          = null;
-	private String targetName          = null;
-	private String inputFunction       = null;
-	private String outputFunction      = null;
-	private PropertyKey sourceProperty = null;
-	private PropertyKey targetProperty = null;
+	private String sourceName             = null;
+	private String targetName             = null;
+	private CompiledScript inputFunction  = null;
+	private CompiledScript outputFunction = null;
+	private PropertyKey sourceProperty    = null;
+	private PropertyKey targetProperty    = null;
 
-	public Transformation(final Class type, final String sourceName, final String targetName, final String inputFunction, final String outputFunction) {
+	public Transformation(final Class type, final String sourceName, final String targetName, final String inputFunction, final String outputFunction) throws FrameworkException {
 
 		this.sourceName     = sourceName;
 		this.targetName     = targetName;
-		this.inputFunction  = inputFunction;
-		this.outputFunction = outputFunction;
+		this.inputFunction  = inputFunction != null ? new CompiledScript(inputFunction) : null;
+		this.outputFunction = outputFunction != null ? new CompiledScript(outputFunction) : null;
 
 		this.sourceProperty = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, sourceName);
 		this.targetProperty = new GenericProperty(targetName);
@@ -58,7 +57,7 @@ public class Transformation {
 
 		// output transformation requested
 		actionContext.setConstant("input", source);
-		return Scripting.evaluate(actionContext, null, "${" + outputFunction + "}");
+		return outputFunction.evaluate(actionContext, null);
 	}
 
 	public void transformInput(final ActionContext actionContext, final Map<String, Object> source) throws FrameworkException {
@@ -71,7 +70,7 @@ public class Transformation {
 
 				// input transformation requested
 				actionContext.setConstant("input", inputValue);
-				inputValue = Scripting.evaluate(actionContext, null, "${" + inputFunction + "}");
+				inputValue = inputFunction.evaluate(actionContext, null);
 			}
 
 			source.put(sourceName, inputValue);
@@ -19,11 +19,13 @@
 package org.structr.transform;
 
 import org.structr.common.PropertyView;
+import org.structr.common.SecurityContext;
 import org.structr.common.View;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
+import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StartNode;
 import org.structr.core.property.StringProperty;
 
@@ -81,4 +83,20 @@ public class VirtualProperty extends AbstractNode {
 
 		return new Transformation(_type, _sourceName, _targetName, _inputFunction, _outputFunction);
 	}
+
+	// ----- callbacks -----
+	@Override
+	public void afterCreation(final SecurityContext securityContext) {
+		VirtualType.invalidatePipelines();
+	}
+
+	@Override
+	public void afterModification(final SecurityContext securityContext) {
+		VirtualType.invalidatePipelines();
+	}
+
+	@Override
+	public void afterDeletion(final SecurityContext securityContext, final PropertyMap properties) {
+		VirtualType.invalidatePipelines();
+	}
 }
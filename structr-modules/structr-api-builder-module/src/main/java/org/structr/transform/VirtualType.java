@@ -18,16 +18,21 @@
  */
 package org.structr.transform;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.apache.commons.lang.StringUtils;
 import org.structr.api.Predicate;
-import org.structr.api.util.Iterables;
 import org.structr.common.GraphObjectComparator;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
@@ -36,13 +41,17 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.Result;
+import org.structr.core.app.Query;
+import org.structr.core.app.StructrApp;
+import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.EndNodes;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
+import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
-import org.structr.core.script.Scripting;
 import org.structr.rest.common.ResultTransformer;
 import org.structr.schema.action.ActionContext;
 
@@ -51,7 +60,10 @@ import org.structr.schema.action.ActionContext;
  */
 public class VirtualType extends AbstractNode implements ResultTransformer {
 
-	private static final Logger logger = Logger.getLogger(VirtualType.class.getName());
+	private static final Logger logger                   = Logger.getLogger(VirtualType.class.getName());
+	private static final Map<String, Pipeline> pipelines = new ConcurrentHashMap<>();
+	private static final AtomicLong version              = new AtomicLong();
+	private static final Pattern equalPattern            = Pattern.compile("equal\\(\\s*this\\.([a-zA-Z_][a-zA-Z0-9_]*)\\s*,\\s*(?:'([^']*)'|\"([^\"]*)\"|(true|false)|(-?[0-9]+(?:\\.[0-9]+)?))\\s*\\)");
 
 	public static final Property<List<VirtualProperty>> properties = new EndNodes<>("properties", VirtualTypeProperty.class);
 	public static final Property<Integer> position                 = new IntProperty("position").indexed();
@@ -72,27 +84,85 @@ public class VirtualType extends AbstractNode implements ResultTransformer {
 		return getProperty(sourceType);
 	}
 
+	/**
+	 * Transforms the given result. The filter expression is evaluated for
+	 * all objects, the transformations only for the objects that are
+	 * actually rendered, i.e. for a single page if the result is paged.
+	 *
+	 * @param securityContext
+	 * @param sourceType
+	 * @param result
+	 * @return the transformed result
+	 * @throws FrameworkException
+	 */
 	@Override
 	public Result transformOutput(final SecurityContext securityContext, final Class sourceType, final Result result) throws FrameworkException {
 
-		final List<VirtualProperty> props         = sort(getProperty(properties));
-		final Mapper mapper                       = new Mapper(securityContext, props, entityType);
-		final Filter filter                       = new Filter(securityContext, getProperty(filterExpression));
-		final Iterable<GraphObject> iterable      = Iterables.map(mapper, Iterables.filter(filter, result.getResults()));
-		final List<GraphObject> transformedResult = Iterables.toList(iterable);
+		final Pipeline pipeline          = getPipeline(sourceType);
+		final Filter filter              = new Filter(securityContext, pipeline.filter);
+		final List<GraphObject> source   = result.getResults();
+		final List<GraphObject> accepted = new ArrayList<>(source.size());
 
-		return new Result(transformedResult,transformedResult.size(), result.isCollection(), result.isPrimitiveArray());
+		for (final GraphObject obj : source) {
+
+			if (filter.accept(obj)) {
+				accepted.add(obj);
+			}
+		}
+
+		// keep the total count of a paged result if nothing was filtered
+		final Integer count      = accepted.size() == source.size() ? result.getRawResultCount() : accepted.size();
+		final Result transformed = new Result(new MappedList(accepted, new Mapper(securityContext, pipeline.transformations)), count, result.isCollection(), result.isPrimitiveArray());
+
+		transformed.setNextCursor(result.getNextCursor());
+
+		return transformed;
+	}
+
+	@Override
+	public boolean applyFilter(final SecurityContext securityContext, final Class sourceType, final Query query) throws FrameworkException {
+
+		final Pipeline pipeline = getPipeline(sourceType);
+		if (pipeline.conditions != null) {
+
+			for (final Condition condition : pipeline.conditions) {
+
+				query.and(condition.key, condition.getValue(securityContext));
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns a function that transforms a single object like {@link #transformOutput},
+	 * so that large collections can be transformed one object at a time. The
+	 * function returns null for objects that are rejected by the filter
+	 * expression.
+	 *
+	 * @param securityContext
+	 * @return the transformation function
+	 * @throws FrameworkException
+	 */
+	public Function<GraphObject, GraphObject> getOutputTransformation(final SecurityContext securityContext) throws FrameworkException {
+
+		final Class type        = StructrApp.getConfiguration().getNodeEntityClass(getSourceType());
+		final Pipeline pipeline = getPipeline(type != null ? type : entityType);
+		final Mapper mapper     = new Mapper(securityContext, pipeline.transformations);
+		final Filter filter     = new Filter(securityContext, pipeline.filter);
+
+		return (final GraphObject source) -> filter.accept(source) ? mapper.apply(source) : null;
 	}
 
 	@Override
 	public void transformInput(final SecurityContext securityContext, final Class type, final Map<String, Object> propertySet) throws FrameworkException {
 
 		final ActionContext actionContext = new ActionContext(securityContext);
-		final List<VirtualProperty> props = sort(getProperty(properties));
 
-		for (final VirtualProperty property : props) {
+		for (final Transformation transformation : getPipeline(type).transformations) {
 
-			final Transformation transformation = property.getTransformation(type);
 			transformation.transformInput(actionContext, propertySet);
 		}
 	}
@@ -102,7 +172,60 @@ public class VirtualType extends AbstractNode implements ResultTransformer {
 		return false;
 	}
 
+	// ----- callbacks -----
+	@Override
+	public void afterCreation(final SecurityContext securityContext) {
+		invalidatePipelines();
+	}
+
+	@Override
+	public void afterModification(final SecurityContext securityContext) {
+		invalidatePipelines();
+	}
+
+	@Override
+	public void afterDeletion(final SecurityContext securityContext, final PropertyMap properties) {
+		invalidatePipelines();
+	}
+
+	/**
+	 * Discards all compiled pipelines, so that the next transformation of
+	 * every virtual type uses its current definition.
+	 */
+	public static void invalidatePipelines() {
+		version.incrementAndGet();
+	}
+
+	// ----- package methods -----
+	/**
+	 * Returns the pipeline of this virtual type for the given source type.
+	 *
+	 * Pipelines are only cached when they are built from committed data. A
+	 * transaction with uncommitted modifications builds its own pipeline,
+	 * so that changes which are later rolled back never become visible to
+	 * other transactions.
+	 */
+	Pipeline getPipeline(final Class type) throws FrameworkException {
+
+		if (TransactionCommand.hasModifications()) {
+
+			return new Pipeline(type, sort(getProperty(properties)), getProperty(filterExpression));
+		}
+
+		final String uuid = getUuid();
+		Pipeline pipeline = pipelines.get(uuid);
+
+		if (pipeline == null || !pipeline.isValid(type)) {
+
+			pipeline = new Pipeline(type, sort(getProperty(properties)), getProperty(filterExpression));
+			pipelines.put(uuid, pipeline);
+		}
+
+		return pipeline;
+	}
+
 	// ----- private methods -----
+
 	private List<VirtualProperty> sort(final List<VirtualProperty> source) {
 
 		Collections.sort(source, new GraphObjectComparator(VirtualProperty.position, false));
@@ -111,25 +234,142 @@ public class VirtualType extends AbstractNode implements ResultTransformer {
 	}
 
 	// ----- nested classes -----
+	static class Pipeline {
+
+		private final List<Transformation> transformations = new LinkedList<>();
+		private List<Condition> conditions                 = null;
+		private CompiledScript filter                      = null;
+		private Class type                                 = null;
+		private long pipelineVersion                       = 0L;
+
+		public Pipeline(final Class type, final List<VirtualProperty> properties, final String filterExpression) throws FrameworkException {
+
+			// read the version first, a concurrent modification must invalidate this pipeline
+			this.pipelineVersion = version.get();
+			this.type            = type;
+
+			for (final VirtualProperty property : properties) {
+
+				final Transformation transformation = property.getTransformation(type);
+				if (transformation != null) {
+
+					this.transformations.add(transformation);
+				}
+			}
+
+			if (StringUtils.isNotBlank(filterExpression)) {
+
+				this.filter     = new CompiledScript(filterExpression);
+				this.conditions = parseConditions(type, filterExpression);
+
+			} else {
+
+				this.conditions = Collections.emptyList();
+			}
+		}
+
+		public boolean isValid(final Class type) {
+			return pipelineVersion == version.get() && (this.type == null ? type == null : this.type.equals(type));
+		}
+
+		/**
+		 * Translates filter expressions of the form "equal(this.key, value)"
+		 * or "and(equal(this.key1, value1), equal(this.key2, value2), ...)"
+		 * on indexed keys into query conditions.
+		 *
+		 * @return the conditions, or null if the expression cannot be evaluated by the database
+		 */
+		private static List<Condition> parseConditions(final Class type, final String filterExpression) {
+
+			final String trimmed      = filterExpression.trim();
+			final boolean conjunction = trimmed.startsWith("and(") && trimmed.endsWith(")");
+			final String expression   = conjunction ? trimmed.substring(4, trimmed.length() - 1) : trimmed;
+
+			if (type == null) {
+				return null;
+			}
+
+			final List<Condition> result = new LinkedList<>();
+			final Matcher matcher        = equalPattern.matcher(expression);
+			int position                 = 0;
+
+			while (matcher.find()) {
+
+				// only separators are allowed between the conditions
+				if (!expression.substring(position, matcher.start()).matches(position == 0 ? "\\s*" : "\\s*,\\s*")) {
+					return null;
+				}
+
+				final PropertyKey key = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, matcher.group(1), false);
+				if (key == null || !key.isSearchable()) {
+					return null;
+				}
+
+				if (matcher.group(4) != null) {
+
+					result.add(new Condition(key, Boolean.valueOf(matcher.group(4))));
+
+				} else {
+
+					result.add(new Condition(key, matcher.group(2) != null ? matcher.group(2) : (matcher.group(3) != null ? matcher.group(3) : matcher.group(5))));
+				}
+
+				position = matcher.end();
+			}
+
+			if (result.isEmpty() || (result.size() > 1 && !conjunction) || !expression.substring(position).trim().isEmpty()) {
+				return null;
+			}
+
+			return result;
+		}
+	}
+
+	private static class Condition {
+
+		private PropertyKey key = null;
+		private Object value    = null;
+
+		public Condition(final PropertyKey key, final Object value) {
+
+			this.key   = key;
+			this.value = value;
+		}
+
+		public Object getValue(final SecurityContext securityContext) throws FrameworkException {
+
+			if (value instanceof String) {
+
+				final PropertyConverter converter = key.inputConverter(securityContext);
+				if (converter != null) {
+
+					return converter.convert(value);
+				}
+			}
+
+			return value;
+		}
+	}
+
 	private static class Filter implements Predicate<GraphObject> {
 
-		private ActionContext ctx = null;
-		private String expression = null;
+		private ActionContext ctx     = null;
+		private CompiledScript script = null;
 
-		public Filter(final SecurityContext securityContext, final String expression) {
+		public Filter(final SecurityContext securityContext, final CompiledScript script) {
 
-			this.ctx        = new ActionContext(securityContext);
-			this.expression = expression;
+			this.ctx    = new ActionContext(securityContext);
+			this.script = script;
 		}
 
 		@Override
 		public boolean accept(final GraphObject value) {
 
-			if (StringUtils.isNotBlank(expression)) {
+			if (script != null) {
 
 				try {
 
-					return Boolean.TRUE.equals(Scripting.evaluate(ctx, value, "${" + expression + "}"));
+					return Boolean.TRUE.equals(script.evaluate(ctx, value));
 
 				} catch (FrameworkException fex) {
 					logger.log(Level.WARNING, "", fex);
@@ -142,21 +382,13 @@ public class VirtualType extends AbstractNode implements ResultTransformer {
 
 	private static class Mapper implements Function<GraphObject, GraphObject> {
 
-		private final List<Transformation> transformations = new LinkedList<>();
-		private ActionContext actionContext                = null;
-
-		public Mapper(final SecurityContext securityContext, final List<VirtualProperty> properties, final Class type) throws FrameworkException {
+		private List<Transformation> transformations = null;
+		private ActionContext actionContext          = null;
 
-			this.actionContext = new ActionContext(securityContext);
+		public Mapper(final SecurityContext securityContext, final List<Transformation> transformations) {
 
-			for (final VirtualProperty property : properties) {
-
-				final Transformation transformation = property.getTransformation(type);
-				if (transformation != null) {
-
-					this.transformations.add(transformation);
-				}
-			}
+			this.actionContext   = new ActionContext(securityContext);
+			this.transformations = transformations;
 		}
 
 		@Override
@@ -181,4 +413,36 @@ public class VirtualType extends AbstractNode implements ResultTransformer {
 		}
 
 	}
+
+	/**
+	 * List that transforms its elements on first access.
+	 */
+	private static class MappedList extends AbstractList<GraphObject> {
+
+		private List<GraphObject> source = null;
+		private GraphObject[] mapped     = null;
+		private Mapper mapper            = null;
+
+		public MappedList(final List<GraphObject> source, final Mapper mapper) {
+
+			this.mapped = new GraphObject[source.size()];
+			this.source = source;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public GraphObject get(final int index) {
+
+			if (mapped[index] == null) {
+				mapped[index] = mapper.apply(source.get(index));
+			}
+
+			return mapped[index];
+		}
+
+		@Override
+		public int size() {
+			return mapped.length;
+		}
+	}
 }
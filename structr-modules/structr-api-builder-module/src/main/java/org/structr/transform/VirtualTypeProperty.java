@@ -18,8 +18,10 @@
  */
 package org.structr.transform;
 
+import org.structr.common.SecurityContext;
 import org.structr.core.entity.OneToMany;
 import org.structr.core.entity.Relation;
+import org.structr.core.property.PropertyMap;
 
 /**
  *
@@ -45,4 +47,14 @@ public class VirtualTypeProperty extends OneToMany<VirtualType, VirtualProperty>
 	public int getAutocreationFlag() {
 		return Relation.SOURCE_TO_TARGET;
 	}
+
+	@Override
+	public void afterCreation(final SecurityContext securityContext) {
+		VirtualType.invalidatePipelines();
+	}
+
+	@Override
+	public void afterDeletion(final SecurityContext securityContext, final PropertyMap properties) {
+		VirtualType.invalidatePipelines();
+	}
 }
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.transform;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.Result;
+import org.structr.core.app.Query;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.SchemaNode;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.GenericProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.transform.common.StructrTransformTest;
+
+/**
+ * Tests the pipeline cache and the filter pushdown of {@link VirtualType}.
+ *
+ *
+ */
+public class VirtualTypeTest extends StructrTransformTest {
+
+	private static final Logger logger = Logger.getLogger(VirtualTypeTest.class.getName());
+
+	private Class type               = null;
+	private PropertyKey status       = null;
+	private String virtualTypeId     = null;
+	private String virtualPropertyId = null;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute(SchemaNode.name, "Project"),
+				new NodeAttribute(new StringProperty("_status"), "String")
+			);
+
+			tx.success();
+		}
+
+		type   = StructrApp.getConfiguration().getNodeEntityClass("Project");
+		status = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, "status", false);
+
+		assertNotNull(type);
+		assertNotNull(status);
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<5; i++) {
+
+				app.create(type,
+					new NodeAttribute(AbstractNode.name, "project" + i),
+					new NodeAttribute(status, i < 3 ? "open" : "closed")
+				);
+			}
+
+			final VirtualType virtualType = app.create(VirtualType.class,
+				new NodeAttribute(VirtualType.name, "OpenProjects"),
+				new NodeAttribute(VirtualType.sourceType, "Project"),
+				new NodeAttribute(VirtualType.filterExpression, "equal(this.status, 'open')")
+			);
+
+			final VirtualProperty virtualProperty = app.create(VirtualProperty.class,
+				new NodeAttribute(VirtualProperty.virtualType, virtualType),
+				new NodeAttribute(VirtualProperty.position, 0),
+				new NodeAttribute(VirtualProperty.sourceName, "name"),
+				new NodeAttribute(VirtualProperty.targetName, "title")
+			);
+
+			virtualTypeId     = virtualType.getUuid();
+			virtualPropertyId = virtualProperty.getUuid();
+
+			tx.success();
+		}
+	}
+
+	public void testPipelineIsCached() {
+
+		try {
+
+			final VirtualType.Pipeline pipeline = getPipeline();
+
+			assertSame("Pipeline was not cached", pipeline, getPipeline());
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testPipelineIsInvalidated() {
+
+		try {
+
+			final VirtualType.Pipeline pipeline = getPipeline();
+
+			VirtualType.invalidatePipelines();
+
+			final VirtualType.Pipeline rebuilt = getPipeline();
+
+			assertNotSame("Pipeline was not invalidated", pipeline, rebuilt);
+			assertSame("Pipeline was not cached", rebuilt, getPipeline());
+
+			// committed modifications of a virtual property invalidate the pipeline
+			try (final Tx tx = app.tx()) {
+
+				app.get(VirtualProperty.class, virtualPropertyId).setProperty(VirtualProperty.targetName, "label");
+				tx.success();
+			}
+
+			assertNotSame("Pipeline was not invalidated", rebuilt, getPipeline());
+
+			final List<GraphObject> result = transform();
+
+			assertEquals(3, result.size());
+			assertEquals("project0", result.get(0).getProperty(new GenericProperty("label")));
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testUncommittedChangesAreNotCached() {
+
+		try {
+
+			final VirtualType.Pipeline pipeline = getPipeline();
+
+			try (final Tx tx = app.tx()) {
+
+				final VirtualType virtualType = app.get(VirtualType.class, virtualTypeId);
+
+				virtualType.setProperty(VirtualType.filterExpression, "equal(this.status, 'closed')");
+
+				// the modifying transaction uses its own pipeline
+				assertEquals(2, virtualType.transformOutput(securityContext, type, app.nodeQuery(type).sort(AbstractNode.name).getResult()).getResults().size());
+
+				// no success, roll back
+			}
+
+			assertSame("Uncommitted pipeline was cached", pipeline, getPipeline());
+			assertEquals(3, transform().size());
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testEqualityFilterIsAppliedToQuery() {
+
+		try {
+
+			assertEquals(3, applyFilter("equal(this.status, 'open')").size());
+			assertEquals(1, applyFilter("and(equal(this.status, 'open'), equal(this.name, 'project1'))").size());
+			assertEquals(0, applyFilter("and(equal(this.status, 'closed'), equal(this.name, 'project1'))").size());
+
+			// expressions that the database cannot evaluate are evaluated per object
+			assertNull(applyFilter("or(equal(this.status, 'open'), equal(this.name, 'project4'))"));
+			assertNull(applyFilter("contains(this.name, 'project')"));
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testFilterExpressionIsEvaluated() {
+
+		try {
+
+			final List<GraphObject> result = transform();
+
+			assertEquals(3, result.size());
+			assertEquals("project0", result.get(0).getProperty(new GenericProperty("title")));
+			assertEquals("project2", result.get(2).getProperty(new GenericProperty("title")));
+
+			setFilterExpression("or(equal(this.status, 'closed'), equal(this.name, 'project0'))");
+
+			assertEquals(3, transform().size());
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	// ----- private methods -----
+	private VirtualType.Pipeline getPipeline() throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final VirtualType.Pipeline pipeline = app.get(VirtualType.class, virtualTypeId).getPipeline(type);
+
+			tx.success();
+
+			return pipeline;
+		}
+	}
+
+	private List<GraphObject> transform() throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final VirtualType virtualType  = app.get(VirtualType.class, virtualTypeId);
+			final Result result            = virtualType.transformOutput(securityContext, type, app.nodeQuery(type).sort(AbstractNode.name).getResult());
+			final List<GraphObject> mapped = result.getResults();
+
+			// transformations run on first access
+			for (final GraphObject obj : mapped) {
+				assertNotNull(obj);
+			}
+
+			tx.success();
+
+			return mapped;
+		}
+	}
+
+	/**
+	 * Sets the given filter expression and applies it to a query for all
+	 * source objects.
+	 *
+	 * @return the query result, or null if the filter could not be applied to the query
+	 */
+	private List<GraphObject> applyFilter(final String filterExpression) throws FrameworkException {
+
+		setFilterExpression(filterExpression);
+
+		try (final Tx tx = app.tx()) {
+
+			final Query query             = app.nodeQuery(type);
+			final VirtualType virtualType = app.get(VirtualType.class, virtualTypeId);
+			List<GraphObject> result      = null;
+
+			if (virtualType.applyFilter(securityContext, type, query)) {
+
+				result = query.getAsList();
+			}
+
+			tx.success();
+
+			return result;
+		}
+	}
+
+	private void setFilterExpression(final String filterExpression) throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			app.get(VirtualType.class, virtualTypeId).setProperty(VirtualType.filterExpression, filterExpression);
+			tx.success();
+		}
+	}
+}
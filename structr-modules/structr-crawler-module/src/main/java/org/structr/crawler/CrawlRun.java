@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.crawler;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.cookie.CookiePolicy;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.Tx;
+
+/**
+ * State of a single crawl run: the documents fetched so far and the
+ * transaction the created objects are committed in.
+ *
+ * A batched run executes in a separate thread with its own transactions and
+ * commits every <code>Crawler.batchSize</code> objects; the calling thread
+ * waits for the run to finish.
+ *
+ *
+ */
+class CrawlRun {
+
+	private static final Logger logger = Logger.getLogger(CrawlRun.class.getName());
+
+	public static final String CRAWLER_BATCH_SIZE          = "Crawler.batchSize";
+	public static final String CRAWLER_DOCUMENT_CACHE_SIZE = "Crawler.documentCacheSize";
+
+	private FixedSizeCache<String, Document> documents     = null;
+	private SecurityContext securityContext                = null;
+	private boolean batched                                = false;
+	private int batchSize                                  = 0;
+	private int count                                      = 0;
+	private Tx tx                                          = null;
+
+	public CrawlRun(final SecurityContext securityContext, final boolean batched) {
+
+		this.documents       = new FixedSizeCache<>(Services.parseInt(StructrApp.getConfigurationValue(CRAWLER_DOCUMENT_CACHE_SIZE), 100));
+		this.batchSize       = Services.parseInt(StructrApp.getConfigurationValue(CRAWLER_BATCH_SIZE), 100);
+		this.securityContext = securityContext;
+		this.batched         = batched;
+	}
+
+	public void execute(final Extraction extraction) throws FrameworkException {
+
+		if (!batched) {
+
+			extraction.extract(this);
+			return;
+		}
+
+		final FutureTask<Void> task = new FutureTask<>(() -> {
+
+			final App app = StructrApp.getInstance(securityContext);
+
+			tx = app.tx();
+
+			try {
+				extraction.extract(this);
+				tx.success();
+
+			} finally {
+
+				tx.close();
+			}
+
+			return null;
+		});
+
+		final Thread thread = new Thread(task, "CrawlRun");
+
+		thread.start();
+
+		try {
+			task.get();
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+			throw new FrameworkException(500, "Crawl run was interrupted.");
+
+		} catch (ExecutionException eex) {
+
+			final Throwable cause = eex.getCause();
+			if (cause instanceof FrameworkException) {
+
+				throw (FrameworkException)cause;
+			}
+
+			logger.log(Level.WARNING, "", cause);
+
+			throw new FrameworkException(500, "Crawl run failed: " + cause.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the parsed document for the given URL. Documents are fetched
+	 * only once per run.
+	 *
+	 * @param url
+	 * @param cookie
+	 * @return the document
+	 * @throws FrameworkException
+	 */
+	public Document getDocument(final String url, final String cookie) throws FrameworkException {
+
+		final String key = url + "\n" + cookie;
+		Document doc     = documents.get(key);
+
+		if (doc == null) {
+
+			doc = Jsoup.parse(getContent(url, cookie));
+			documents.put(key, doc);
+		}
+
+		return doc;
+	}
+
+	/**
+	 * Must be called after an object was created and populated, commits
+	 * the current batch if the batch size is reached.
+	 *
+	 * @param obj
+	 * @throws FrameworkException
+	 */
+	public void created(final NodeInterface obj) throws FrameworkException {
+
+		count++;
+
+		if (batched && batchSize > 0 && (count % batchSize) == 0) {
+
+			tx.success();
+			tx.close();
+
+			tx = StructrApp.getInstance(securityContext).tx();
+
+			logger.log(Level.INFO, "Committed batch, {0} objects created so far", count);
+		}
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	// ----- private methods -----
+	private String getContent(final String url, final String cookie) throws FrameworkException {
+
+		final HttpClientParams params = new HttpClientParams(HttpClientParams.getDefaultParams());
+
+		final HttpClient client = new HttpClient(params);
+		final GetMethod get = new GetMethod(url);
+
+		get.addRequestHeader("User-Agent", "curl/7.35.0");
+		get.addRequestHeader("Connection", "close");
+		get.getParams().setParameter("http.protocol.single-cookie-header", true);
+		get.getParams().setCookiePolicy(CookiePolicy.BROWSER_COMPATIBILITY);
+		get.setFollowRedirects(true);
+
+		if (StringUtils.isNotBlank(cookie)) {
+
+			get.addRequestHeader("Cookie", cookie);
+		}
+
+		String content = "";
+		try {
+			client.executeMethod(get);
+			content = get.getResponseBodyAsString().replace("<head>", "<head>\n  <base href=\"" + url + "\">");
+
+		} catch (IOException ex) {
+			throw new FrameworkException(422, "Unable to extract content from " + url + ".");
+
+		} finally {
+
+			get.releaseConnection();
+		}
+
+		return content;
+	}
+
+	// ----- nested classes -----
+	public interface Extraction {
+
+		void extract(final CrawlRun run) throws FrameworkException;
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.crawler;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+/**
+ * Index of the elements matched by a pattern, grouped by their position
+ * among their siblings.
+ *
+ * Looking up the elements at position i is equivalent to the selector
+ * <code>selector:nth-child(i)</code>, and sub selectors are evaluated
+ * relative to these elements instead of the whole document.
+ *
+ *
+ */
+class ElementIndex {
+
+	private final Map<Integer, Elements> positions = new HashMap<>();
+
+	public ElementIndex(final Elements elements) {
+
+		// Element.elementSiblingIndex() scans all siblings, so the positions
+		// are computed once for all children of each parent instead
+		final Map<Element, Integer> siblingIndex = new IdentityHashMap<>();
+
+		for (final Element element : elements) {
+
+			Integer index = siblingIndex.get(element);
+			if (index == null) {
+
+				final Element parent = element.parent();
+				if (parent != null) {
+
+					int i = 0;
+
+					for (final Element child : parent.children()) {
+						siblingIndex.put(child, i++);
+					}
+
+					index = siblingIndex.get(element);
+
+				} else {
+
+					index = 0;
+				}
+			}
+
+			final int position = index + 1;
+			Elements list      = positions.get(position);
+
+			if (list == null) {
+
+				list = new Elements();
+				positions.put(position, list);
+			}
+
+			list.add(element);
+		}
+	}
+
+	/**
+	 * Returns the elements at the given (1-based) position.
+	 *
+	 * @param position
+	 * @return the elements, or an empty list
+	 */
+	public Elements get(final int position) {
+
+		final Elements elements = positions.get(position);
+		if (elements != null) {
+
+			return elements;
+		}
+
+		return new Elements();
+	}
+
+	/**
+	 * Returns the elements that match <code>selector:nth-child(position) &gt; subSelector</code>.
+	 *
+	 * @param position
+	 * @param subSelector
+	 * @return the matching elements
+	 */
+	public Elements select(final int position, final String subSelector) {
+
+		final Elements elements = get(position);
+		if (elements.isEmpty()) {
+
+			return elements;
+		}
+
+		return elements.select("> " + subSelector);
+	}
+}
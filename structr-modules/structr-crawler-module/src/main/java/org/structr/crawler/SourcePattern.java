@@ -18,7 +18,6 @@
  */
 package org.structr.crawler;
 
-import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
@@ -28,12 +27,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
-import org.apache.commons.httpclient.HttpClient;
-import org.apache.commons.httpclient.cookie.CookiePolicy;
-import org.apache.commons.httpclient.methods.GetMethod;
-import org.apache.commons.httpclient.params.HttpClientParams;
 import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.structr.core.entity.AbstractNode;
@@ -89,43 +83,13 @@ public class SourcePattern extends AbstractNode {
 		return app.create(type(typeString));
 	}
 	
-	private String getContent(final String url, final String cookie) throws FrameworkException {
-		
-		final HttpClientParams params = new HttpClientParams(HttpClientParams.getDefaultParams());
-
-		final HttpClient client = new HttpClient(params);
-		final GetMethod get = new GetMethod(url);
-
-		get.addRequestHeader("User-Agent", "curl/7.35.0");
-		get.addRequestHeader("Connection", "close");
-		get.getParams().setParameter("http.protocol.single-cookie-header", true);
-		get.getParams().setCookiePolicy(CookiePolicy.BROWSER_COMPATIBILITY);
-		get.setFollowRedirects(true);
-
-		if (StringUtils.isNotBlank(cookie)) {
-
-			get.addRequestHeader("Cookie", cookie);
-		}
-
-		String content = "";
-		try {
-			client.executeMethod(get);
-			content = get.getResponseBodyAsString().replace("<head>", "<head>\n  <base href=\"" + url + "\">");
-			
-		} catch (IOException ex) {
-			throw new FrameworkException(422, "Unable to extract content from " + url + ".");
-		}
-
-		return content;
-	}
-	
-	private void extractAndSetValue(final NodeInterface obj, final Document doc, final String selector, final String mappedType, final String mappedAttribute, final SourcePage subPage)  throws FrameworkException {
+	private void extractAndSetValue(final NodeInterface obj, final Elements elements, final String mappedType, final String mappedAttribute, final SourcePage subPage, final CrawlRun run)  throws FrameworkException {
 
 		// If the sub pattern has a mapped attribute, set the extracted value
 		if (StringUtils.isNotEmpty(mappedAttribute)) {
 
 			// Extract the value for this sub pattern's selector
-			final String ex = doc.select(selector).text();
+			final String ex = elements.text();
 
 			final ConfigurationProvider config  = StructrApp.getConfiguration();
 			final PropertyKey key = config.getPropertyKeyForJSONName(type(mappedType), mappedAttribute);
@@ -147,13 +111,10 @@ public class SourcePattern extends AbstractNode {
 			}
 
 			// This is the URL of the linked page derived from the enclosing selector
-			final String subUrl     = uri.getScheme() + "://" + uri.getAuthority() + doc.select(selector).attr("href");
+			final String subUrl     = uri.getScheme() + "://" + uri.getAuthority() + elements.attr("href");
 
-			// Extract the content of the linked page
-			final String subContent = getContent(subUrl, null);
-
-			// Parse the content into a document
-			final Document subDoc = Jsoup.parse(subContent);
+			// Fetch and parse the linked page (only once per crawl run)
+			final Document subDoc = run.getDocument(subUrl, null);
 
 			final List<SourcePattern> subPagePatterns = subPage.getProperty(SourcePage.patterns);
 
@@ -163,6 +124,7 @@ public class SourcePattern extends AbstractNode {
 				final Map<String, Object> params = new HashMap<>();
 				params.put("document", subDoc);
 				params.put("object", obj);
+				params.put("run", run);
 
 				subPagePattern.extract(params);
 
@@ -231,6 +193,23 @@ public class SourcePattern extends AbstractNode {
 
 	@Export
 	public void extract(final Map<String, Object> parameters) throws FrameworkException {
+
+		final Object run = parameters.get("run");
+		if (run instanceof CrawlRun) {
+
+			// invoked from a pattern of the same crawl run
+			extract(parameters, (CrawlRun)run);
+
+		} else {
+
+			// objects of a new crawl run are committed in batches, unless they are
+			// added to an object of the caller, which must stay in the caller's transaction
+			new CrawlRun(securityContext, !parameters.containsKey("object")).execute((crawlRun) -> extract(parameters, crawlRun));
+		}
+	}
+
+	// ----- private methods -----
+	private void extract(final Map<String, Object> parameters, final CrawlRun run) throws FrameworkException {
 		
 		final SourcePage page = getProperty(sourcePageProperty);
 		
@@ -271,11 +250,8 @@ public class SourcePattern extends AbstractNode {
 				throw new FrameworkException(422, "This pattern's source page has no URL, exiting.");
 			}
 
-			// Get the content from the URL
-			final String content = getContent(url, cookie);
-
-			// Parse the document with Jsoup and extract the elements matched by the given selector
-			doc = Jsoup.parse(content);
+			// Get the document from the URL (only once per crawl run)
+			doc = run.getDocument(url, cookie);
 			
 		}
 
@@ -286,34 +262,56 @@ public class SourcePattern extends AbstractNode {
 		
 		final Elements parts = doc.select(selector);
 
+		// Index the matched elements by position, sub patterns are evaluated relative to them
+		final ElementIndex index = new ElementIndex(parts);
+
+		// Read the sub patterns' settings once instead of once per element
+		final int subPatternCount                 = subPatterns.size();
+		final String[] subSelectors               = new String[subPatternCount];
+		final String[] subPatternMappedAttributes = new String[subPatternCount];
+		final SourcePage[] subPatternSubPages     = new SourcePage[subPatternCount];
+
+		for (int j = 0; j < subPatternCount; j++) {
+
+			final SourcePattern subPattern = subPatterns.get(j);
+
+			subSelectors[j]               = subPattern.getProperty(SourcePattern.selectorProperty);
+			subPatternMappedAttributes[j] = subPattern.getProperty(SourcePattern.mappedAttributeProperty);
+			subPatternSubPages[j]         = subPattern.getProperty(SourcePattern.subPageProperty);
+		}
+
 		// Loop through all elements found for this pattern; if a start index is given, start at this element
 		for (int i = (from != null ? from.intValue() : 1); i<= (to != null ? to : parts.size()); i++) {
-			
+
 			// If no object was given (from a higher-level pattern), create a new object of the given type
 			final NodeInterface obj = (parentObj == null ? create(mappedType) : parentObj);
-			
-			if (subPatterns.size() > 0) {
-			
-				// Loop through the sub patterns of this pattern
-				for (final SourcePattern subPattern : subPatterns) {
 
-					final String subSelector = selector + ":nth-child(" + i + ") > " + subPattern.getProperty(SourcePattern.selectorProperty);
+			if (subPatternCount > 0) {
 
-					final String subPatternMappedAttribute = subPattern.getProperty(SourcePattern.mappedAttributeProperty);
-					final SourcePage subPatternSubPage     = subPattern.getProperty(SourcePattern.subPageProperty);
+				// Loop through the sub patterns of this pattern
+				for (int j = 0; j < subPatternCount; j++) {
 
-					extractAndSetValue(obj, doc, subSelector, mappedType, subPatternMappedAttribute, subPatternSubPage);
+					extractAndSetValue(obj, index.select(i, subSelectors[j]), mappedType, subPatternMappedAttributes[j], subPatternSubPages[j], run);
 
 				}
-			
+
 			} else {
-				
+
 				final String mappedAttribute = getProperty(mappedAttributeProperty);
-			
-				extractAndSetValue(obj, doc, selector, mappedType, mappedAttribute, null);
-				
+
+				extractAndSetValue(obj, parts, mappedType, mappedAttribute, null, run);
+
+				if (parentObj != null) {
+
+					// The value is the same for every iteration
+					break;
+				}
+			}
+
+			if (parentObj == null) {
+
+				run.created(obj);
 			}
-			
 		}
 
 	}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.crawler;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.GenericNode;
+import org.structr.core.graph.Tx;
+import org.structr.crawler.common.StructrCrawlerTest;
+
+/**
+ * Tests the batched commits and the document cache of a crawl run.
+ *
+ *
+ */
+public class CrawlRunTest extends StructrCrawlerTest {
+
+	private static final Logger logger = Logger.getLogger(CrawlRunTest.class.getName());
+
+	@Override
+	protected void setUp() throws Exception {
+
+		final Map<String, Object> additionalConfig = new HashMap<>();
+
+		additionalConfig.put(CrawlRun.CRAWLER_BATCH_SIZE, "10");
+		additionalConfig.put(CrawlRun.CRAWLER_DOCUMENT_CACHE_SIZE, "2");
+
+		setUp(additionalConfig);
+	}
+
+	public void testBatching() {
+
+		final List<Integer> committed = new LinkedList<>();
+
+		try {
+
+			new CrawlRun(securityContext, true).execute((run) -> {
+
+				for (int i=0; i<25; i++) {
+
+					run.created(app.create(GenericNode.class, "node" + i));
+
+					if (i == 14) {
+						committed.add(countCommitted());
+					}
+				}
+			});
+
+			assertEquals("Full batches must be committed during the run", Integer.valueOf(10), committed.get(0));
+			assertEquals("All objects must be committed after the run", 25, countCommitted());
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+	}
+
+	public void testFailedRunKeepsCommittedBatches() {
+
+		try {
+
+			new CrawlRun(securityContext, true).execute((run) -> {
+
+				for (int i=0; i<15; i++) {
+					run.created(app.create(GenericNode.class, "node" + i));
+				}
+
+				throw new FrameworkException(422, "Extraction failed");
+			});
+
+			fail("Failed extraction must throw an exception");
+
+		} catch (FrameworkException fex) {
+			assertEquals(422, fex.getStatus());
+		}
+
+		try {
+
+			assertEquals("Only the failed batch must be rolled back", 10, countCommitted());
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+	}
+
+	public void testDocumentCache() {
+
+		final AtomicInteger requests = new AtomicInteger();
+		HttpServer server            = null;
+
+		try {
+
+			server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			server.createContext("/", (exchange) -> {
+
+				final byte[] body = ("<html><head></head><body><p>" + exchange.getRequestURI().getPath() + "</p></body></html>").getBytes("UTF-8");
+
+				requests.incrementAndGet();
+
+				exchange.sendResponseHeaders(200, body.length);
+
+				try (final OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+
+			server.start();
+
+			final String base  = "http://127.0.0.1:" + server.getAddress().getPort();
+			final CrawlRun run = new CrawlRun(securityContext, false);
+
+			assertEquals("/a", run.getDocument(base + "/a", null).select("p").text());
+			assertEquals("/a", run.getDocument(base + "/a", null).select("p").text());
+			assertEquals("Document must be fetched only once per run", 1, requests.get());
+
+			run.getDocument(base + "/a", "session=1");
+			assertEquals("Documents are cached per cookie", 2, requests.get());
+
+			// the cache holds two documents, so the first one is evicted
+			run.getDocument(base + "/b", null);
+			run.getDocument(base + "/a", null);
+			assertEquals("Evicted document must be fetched again", 4, requests.get());
+
+			new CrawlRun(securityContext, false).getDocument(base + "/b", null);
+			assertEquals("Documents must not be shared between runs", 5, requests.get());
+
+		} catch (IOException | FrameworkException ex) {
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			if (server != null) {
+				server.stop(0);
+			}
+		}
+	}
+
+	// ----- private methods -----
+	/**
+	 * Counts the committed nodes in a separate thread, which does not see
+	 * the uncommitted changes of the crawl run.
+	 */
+	private int countCommitted() throws FrameworkException {
+
+		final FutureTask<Integer> count = new FutureTask<>(() -> {
+
+			try (final Tx tx = app.tx()) {
+
+				final int size = app.nodeQuery(GenericNode.class).getAsList().size();
+
+				tx.success();
+
+				return size;
+			}
+		});
+
+		new Thread(count).start();
+
+		try {
+			return count.get();
+
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new FrameworkException(500, "Unable to count committed nodes: " + ex.getMessage());
+		}
+	}
+}
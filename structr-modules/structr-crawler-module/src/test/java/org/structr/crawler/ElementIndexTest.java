@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the evaluation of sub patterns relative to the elements matched by
+ * a pattern, using generated local HTML files.
+ *
+ *
+ */
+public class ElementIndexTest {
+
+	@Test
+	public void testEquivalenceWithNthChildSelector() throws IOException {
+
+		final Document doc       = Jsoup.parse(createListing(50), "UTF-8");
+		final String selector    = "table.listing tr";
+		final ElementIndex index = new ElementIndex(doc.select(selector));
+
+		for (int i=1; i<=50; i++) {
+
+			for (final String subSelector : new String[] { "td.name", "td.price", "td a" }) {
+
+				final String expected = doc.select(selector + ":nth-child(" + i + ") > " + subSelector).text();
+				assertEquals("Invalid value for row " + i + " and " + subSelector, expected, index.select(i, subSelector).text());
+			}
+		}
+
+		assertEquals("Invalid value for row 7", "Item 7", index.select(7, "td.name").text());
+		assertEquals("Invalid link for row 7", "/items/7", index.select(7, "td a").attr("href"));
+
+		// positions outside of the listing must not match anything
+		assertTrue("Position outside of listing must not match", index.select(51, "td.name").isEmpty());
+	}
+
+	@Test
+	public void testMultipleParents() {
+
+		final Document doc       = Jsoup.parse("<div><p>a1</p><span>x</span><p>a2</p></div><div><p>b1</p></div><div><span>y</span><span>z</span><p>c3</p></div>");
+		final ElementIndex index = new ElementIndex(doc.select("div > *"));
+
+		for (int i=1; i<=3; i++) {
+
+			assertEquals("Invalid elements at position " + i, doc.select("div > *:nth-child(" + i + ")").text(), index.get(i).text());
+		}
+
+		assertEquals("Invalid elements at position 1", "a1 b1 y", index.get(1).text());
+		assertEquals("Invalid elements at position 3", "a2 c3", index.get(3).text());
+	}
+
+	@Test
+	public void testLargeListing() throws IOException {
+
+		final int rows           = 20000;
+		final Document doc       = Jsoup.parse(createListing(rows), "UTF-8");
+		final Elements parts     = doc.select("table.listing tr");
+		final long t0            = System.currentTimeMillis();
+		final ElementIndex index = new ElementIndex(parts);
+		final long indexDuration = System.currentTimeMillis() - t0;
+
+		// computing the sibling index of each element separately is quadratic in the number of rows
+		assertTrue("Indexing of " + rows + " rows took " + indexDuration + " ms", indexDuration < 1000);
+
+		for (int i=1; i<=rows; i++) {
+
+			assertEquals("Invalid value for row " + i, "Item " + i, index.select(i, "td.name").text());
+			assertEquals("Invalid value for row " + i, Integer.toString(i * 10), index.select(i, "td.price").text());
+		}
+
+		final long duration = System.currentTimeMillis() - t0;
+
+		// evaluating the selector over the whole document for every row takes minutes for this listing
+		assertTrue("Extraction of " + rows + " rows took " + duration + " ms", duration < 30000);
+	}
+
+	// ----- private methods -----
+	private File createListing(final int rows) throws IOException {
+
+		final File file = File.createTempFile("structr-crawler-listing", ".html");
+		file.deleteOnExit();
+
+		try (final PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+
+			writer.println("<html><head><title>Listing</title></head><body>");
+			writer.println("<div class=\"header\"><p>Header</p></div>");
+			writer.println("<table class=\"listing\"><tbody>");
+
+			for (int i=1; i<=rows; i++) {
+
+				writer.print("<tr><td class=\"name\">Item ");
+				writer.print(i);
+				writer.print("</td><td class=\"price\">");
+				writer.print(i * 10);
+				writer.print("</td><td><a href=\"/items/");
+				writer.print(i);
+				writer.println("\">Details</a></td></tr>");
+			}
+
+			writer.println("</tbody></table></body></html>");
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.feed;
+
+import com.rometools.rome.feed.synd.SyndFeed;
+import com.rometools.rome.io.FeedException;
+import com.rometools.rome.io.SyndFeedInput;
+import com.rometools.rome.io.XmlReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Fetches a feed only if it has changed since the last fetch.
+ *
+ * The entity tag and modification date of the last response are sent as
+ * If-None-Match and If-Modified-Since headers, so that HTTP servers can
+ * answer with 304 Not Modified. For servers that ignore these headers and
+ * for other protocols (e.g. file URLs), the values of the new response are
+ * compared with the stored ones before the feed is parsed.
+ *
+ *
+ */
+public class ConditionalFeedFetcher {
+
+	private int timeout = 0;
+
+	/**
+	 * @param timeoutSeconds connect and read timeout in seconds, 0 means no timeout
+	 */
+	public ConditionalFeedFetcher(final int timeoutSeconds) {
+		this.timeout = timeoutSeconds * 1000;
+	}
+
+	/**
+	 * Fetches the feed from the given URL.
+	 *
+	 * @param url
+	 * @param etag the entity tag of the last response, or null
+	 * @param lastModified the modification date of the last response, or null
+	 * @return the response, containing the parsed feed if it was modified
+	 * @throws IOException
+	 * @throws FeedException
+	 */
+	public Response fetch(final String url, final String etag, final String lastModified) throws IOException, FeedException {
+
+		final URLConnection connection = new URL(url).openConnection();
+
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+
+		if (StringUtils.isNotBlank(etag)) {
+			connection.setRequestProperty("If-None-Match", etag);
+		}
+
+		if (StringUtils.isNotBlank(lastModified)) {
+			connection.setRequestProperty("If-Modified-Since", lastModified);
+		}
+
+		connection.connect();
+
+		try {
+
+			if (connection instanceof HttpURLConnection) {
+
+				final int status = ((HttpURLConnection)connection).getResponseCode();
+				if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+
+					return new Response(null, etag, lastModified);
+				}
+
+				if (status >= 400) {
+
+					throw new IOException("Unable to fetch feed from " + url + ", server responded with status " + status);
+				}
+			}
+
+			final String newEtag         = connection.getHeaderField("ETag");
+			final String newLastModified = connection.getHeaderField("Last-Modified");
+
+			if (isUnchanged(etag, newEtag, lastModified, newLastModified)) {
+
+				return new Response(null, etag, lastModified);
+			}
+
+			try (final InputStream is = connection.getInputStream()) {
+
+				final SyndFeed feed = new SyndFeedInput().build(new XmlReader(is));
+
+				return new Response(feed, newEtag, newLastModified);
+			}
+
+		} finally {
+
+			if (connection instanceof HttpURLConnection) {
+				((HttpURLConnection)connection).disconnect();
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private boolean isUnchanged(final String etag, final String newEtag, final String lastModified, final String newLastModified) {
+
+		// at least one validator must be present and all present validators must match
+		if (newEtag == null && newLastModified == null) {
+			return false;
+		}
+
+		return StringUtils.equals(etag, newEtag) && StringUtils.equals(lastModified, newLastModified);
+	}
+
+	// ----- nested classes -----
+	public static class Response {
+
+		private SyndFeed feed       = null;
+		private String etag         = null;
+		private String lastModified = null;
+
+		public Response(final SyndFeed feed, final String etag, final String lastModified) {
+
+			this.feed         = feed;
+			this.etag         = etag;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return the parsed feed, or null if the feed was not modified
+		 */
+		public SyndFeed getFeed() {
+			return feed;
+		}
+
+		public boolean isModified() {
+			return feed != null;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+	}
+}
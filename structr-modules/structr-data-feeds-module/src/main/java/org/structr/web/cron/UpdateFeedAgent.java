@@ -24,6 +24,7 @@ import java.util.logging.Logger;
 import org.structr.agent.Agent;
 import org.structr.agent.ReturnValue;
 import org.structr.agent.Task;
+import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
@@ -42,16 +43,22 @@ public class UpdateFeedAgent<T extends DataFeed> extends Agent<T> {
 		logger.log(Level.FINE, "Processing task {0}", task.getClass().getName());
 
 		final App app = StructrApp.getInstance();
-		try (final Tx tx = app.tx(true, true, false)) {
 
-			for (DataFeed feed : (List<T>) task.getNodes()) {
+		// one transaction per feed, so that a failing feed does not roll back the others
+		for (DataFeed feed : (List<T>) task.getNodes()) {
+
+			try (final Tx tx = app.tx(true, true, false)) {
 
 				logger.log(Level.FINE, "Updating data feed {0} if due", feed.getProperty(DataFeed.name));
 
 				feed.updateIfDue();
-			}
 
-			tx.success();
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				logger.log(Level.WARNING, "Unable to update data feed", fex);
+			}
 		}
 
 		return ReturnValue.Success;
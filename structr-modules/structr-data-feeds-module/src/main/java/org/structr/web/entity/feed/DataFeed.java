@@ -18,30 +18,32 @@
  */
 package org.structr.web.entity.feed;
 
-import com.rometools.fetcher.FeedFetcher;
-import com.rometools.fetcher.FetcherException;
-import com.rometools.fetcher.impl.HttpURLFeedFetcher;
 import com.rometools.rome.feed.synd.SyndContent;
 import com.rometools.rome.feed.synd.SyndEnclosure;
 import com.rometools.rome.feed.synd.SyndEntry;
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.FeedException;
 import java.io.IOException;
-import java.net.URL;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang3.StringUtils;
-import org.structr.common.GraphObjectComparator;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
 import org.structr.common.View;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Export;
+import org.structr.core.Services;
 import org.structr.core.app.App;
+import org.structr.core.app.Query;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.EndNodes;
@@ -51,6 +53,7 @@ import org.structr.core.property.LongProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
+import org.structr.feed.ConditionalFeedFetcher;
 import org.structr.schema.SchemaService;
 import org.structr.web.entity.relation.FeedItems;
 
@@ -62,7 +65,11 @@ import org.structr.web.entity.relation.FeedItems;
 
 public class DataFeed extends AbstractNode {
 
-	private static final Logger logger = Logger.getLogger(DataFeed.class.getName());
+	private static final Logger logger           = Logger.getLogger(DataFeed.class.getName());
+	private static final Set<String> taggedFeeds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+	private static final int LINK_BATCH_SIZE     = 100;
+
+	public static final String FETCH_TIMEOUT     = "DataFeed.timeout";
 
 	public static final Property<List<FeedItem>> items          = new EndNodes<>("items", FeedItems.class);
 	public static final Property<String>         url            = new StringProperty("url").indexed();
@@ -72,12 +79,14 @@ public class DataFeed extends AbstractNode {
 	public static final Property<Date>           lastUpdated    = new ISO8601DateProperty("lastUpdated");
 	public static final Property<Long>           maxAge         = new LongProperty("maxAge"); // maximum age of the oldest feed entry in milliseconds
 	public static final Property<Integer>        maxItems       = new IntProperty("maxItems"); // maximum number of feed entries to retain
+	public static final Property<String>         etag           = new StringProperty("etag"); // entity tag of the last fetched version
+	public static final Property<String>         lastModified   = new StringProperty("lastModified"); // modification date of the last fetched version
 
 	public static final View defaultView = new View(DataFeed.class, PropertyView.Public, id, type, url, items, feedType, description);
 
 	public static final View uiView = new View(DataFeed.class, PropertyView.Ui,
 		id, name, owner, type, createdBy, deleted, hidden, createdDate, lastModifiedDate, visibleToPublicUsers, visibleToAuthenticatedUsers, visibilityStartDate, visibilityEndDate,
-                url, items, feedType, description, lastUpdated, maxAge, maxItems
+                url, items, feedType, description, lastUpdated, maxAge, maxItems, etag, lastModified
 	);
 
         static {
@@ -101,35 +110,52 @@ public class DataFeed extends AbstractNode {
 		final Integer maxItemsToRetain = getProperty(maxItems);
 		final Long    maxItemAge       = getProperty(maxAge);
 
-		int i = 0;
-
 		// Don't do anything if maxItems and maxAge are not set
 		if (maxItemsToRetain != null || maxItemAge != null) {
 
-			final List<FeedItem> feedItems = getProperty(items);
+			final App app = StructrApp.getInstance();
+
+			try {
+
+				tagItems();
+
+				final Set<FeedItem> itemsToDelete = new LinkedHashSet<>();
 
-			// Sort by publication date, youngest items first
-			feedItems.sort(new GraphObjectComparator(FeedItem.pubDate, GraphObjectComparator.DESCENDING));
+				if (maxItemAge != null) {
 
-			for (final FeedItem item : feedItems) {
+					final Date oldestDate = new Date(System.currentTimeMillis() - maxItemAge);
+
+					itemsToDelete.addAll(app.nodeQuery(FeedItem.class).and(FeedItem.feedId, getUuid()).andRange(FeedItem.pubDate, new Date(0), oldestDate).getAsList());
+				}
 
-				i++;
+				if (maxItemsToRetain != null) {
 
-				final Date itemDate = item.getProperty(FeedItem.pubDate);
+					if (maxItemsToRetain > 0) {
 
-				if ((maxItemsToRetain != null && i > maxItemsToRetain) || (maxItemAge != null && itemDate.before(new Date(new Date().getTime() - maxItemAge)))) {
+						// Count the items without loading them, then fetch only the oldest surplus items
+						final int itemCount = app.nodeQuery(FeedItem.class).and(FeedItem.feedId, getUuid()).pageSize(1).getResult().getRawResultCount();
+						final int surplus   = itemCount - maxItemsToRetain;
 
-					try {
-						StructrApp.getInstance().delete(item);
+						if (surplus > 0) {
 
-					} catch (FrameworkException ex) {
-						logger.log(Level.SEVERE, "Error while deleting old/surplus feed item " + item, ex);
+							itemsToDelete.addAll(app.nodeQuery(FeedItem.class).and(FeedItem.feedId, getUuid()).sort(FeedItem.pubDate).pageSize(surplus).getAsList());
+						}
+
+					} else {
+
+						itemsToDelete.addAll(app.nodeQuery(FeedItem.class).and(FeedItem.feedId, getUuid()).getAsList());
 					}
 				}
-			}
 
-		}
+				for (final FeedItem item : itemsToDelete) {
+
+					app.delete(item);
+				}
 
+			} catch (FrameworkException ex) {
+				logger.log(Level.SEVERE, "Error while deleting old/surplus feed items of " + this, ex);
+			}
+		}
 	}
 
 	/**
@@ -141,7 +167,7 @@ public class DataFeed extends AbstractNode {
 		final Date lastUpdate = getProperty(lastUpdated);
 		final Long interval   = getProperty(updateInterval);
 
-		if ((lastUpdate == null || interval != null) && new Date().after(new Date(lastUpdate.getTime() + interval))) {
+		if (lastUpdate == null || (interval != null && new Date().after(new Date(lastUpdate.getTime() + interval)))) {
 
 			// Update feed and clean-up afterwards
 			updateFeed(true);
@@ -157,6 +183,10 @@ public class DataFeed extends AbstractNode {
 	/**
 	 * Update the feed from the given URL.
 	 *
+	 * The feed is fetched conditionally and parsed only if it has changed
+	 * since the last update. New entries are linked to the feed one by one,
+	 * existing items are left untouched.
+	 *
 	 * @param cleanUp	Clean-up old items after update
 	 */
 	@Export
@@ -169,70 +199,84 @@ public class DataFeed extends AbstractNode {
 
 			try {
 
-				final FeedFetcher     feedFetcher = new HttpURLFeedFetcher();
-				final SyndFeed        feed        = feedFetcher.retrieveFeed(new URL(remoteUrl));
-				final List<SyndEntry> entries     = feed.getEntries();
+				final ConditionalFeedFetcher fetcher    = new ConditionalFeedFetcher(Services.parseInt(StructrApp.getConfigurationValue(FETCH_TIMEOUT), 30));
+				final ConditionalFeedFetcher.Response r = fetcher.fetch(remoteUrl, getProperty(etag), getProperty(lastModified));
 
-				setProperty(feedType,    feed.getFeedType());
-				setProperty(description, feed.getDescription());
+				if (r.isModified()) {
 
-				final List<FeedItem> newItems = getProperty(items);
+					final SyndFeed        feed          = r.getFeed();
+					final List<SyndEntry> entries       = feed.getEntries();
+					final Set<String>     existingLinks = getExistingLinks(app, entries);
 
-				for (final SyndEntry entry : entries) {
+					setProperty(feedType,    feed.getFeedType());
+					setProperty(description, feed.getDescription());
 
-					final PropertyMap props = new PropertyMap();
+					for (final SyndEntry entry : entries) {
 
-					final String link = entry.getLink();
+						final String link = entry.getLink();
 
-					// Check if item with this link already exists
-					if (app.nodeQuery(FeedItem.class).and(FeedItem.url, link).getFirst() == null) {
+						// Skip entries without link and items which already exist
+						if (link != null && existingLinks.add(link)) {
 
-						props.put(FeedItem.url, entry.getLink());
-						props.put(FeedItem.name, entry.getTitle());
-						props.put(FeedItem.author, entry.getAuthor());
-						props.put(FeedItem.comments, entry.getComments());
-                                                props.put(FeedItem.description, entry.getDescription().getValue());
+							final PropertyMap props = new PropertyMap();
 
-						final FeedItem item = app.create(FeedItem.class, props);
-						item.setProperty(FeedItem.pubDate, entry.getPublishedDate());
+							props.put(FeedItem.url, link);
+							props.put(FeedItem.name, entry.getTitle());
+							props.put(FeedItem.author, entry.getAuthor());
+							props.put(FeedItem.comments, entry.getComments());
+							props.put(FeedItem.pubDate, entry.getPublishedDate());
+							props.put(FeedItem.feedId, getUuid());
 
-						final List<FeedItemContent> itemContents = new LinkedList<>();
-                                                final List<FeedItemEnclosure> itemEnclosures = new LinkedList<>();
+							if (entry.getDescription() != null) {
+								props.put(FeedItem.description, entry.getDescription().getValue());
+							}
 
-                                                //Get and add all contents
-						final List<SyndContent> contents = entry.getContents();
-						for (final SyndContent content : contents) {
-							final FeedItemContent itemContent = app.create(FeedItemContent.class);
-							itemContent.setProperty(FeedItemContent.value, content.getValue());
+							final FeedItem item = app.create(FeedItem.class, props);
 
-							itemContents.add(itemContent);
-						}
+							final List<FeedItemContent> itemContents     = new LinkedList<>();
+							final List<FeedItemEnclosure> itemEnclosures = new LinkedList<>();
 
-                                                //Get and add all enclosures
-                                                final List<SyndEnclosure> enclosures = entry.getEnclosures();
-                                                for (final SyndEnclosure enclosure : enclosures){
-                                                        final FeedItemEnclosure itemEnclosure= app.create(FeedItemEnclosure.class);
-                                                        itemEnclosure.setProperty(FeedItemEnclosure.url, enclosure.getUrl());
-                                                        itemEnclosure.setProperty(FeedItemEnclosure.enclosureLength, enclosure.getLength());
-                                                        itemEnclosure.setProperty(FeedItemEnclosure.enclosureType, enclosure.getType());
+							//Get and add all contents
+							final List<SyndContent> contents = entry.getContents();
+							for (final SyndContent content : contents) {
+								final FeedItemContent itemContent = app.create(FeedItemContent.class);
+								itemContent.setProperty(FeedItemContent.value, content.getValue());
 
-                                                        itemEnclosures.add(itemEnclosure);
-                                                }
+								itemContents.add(itemContent);
+							}
 
-						item.setProperty(FeedItem.contents, itemContents);
-                                                item.setProperty(FeedItem.enclosures, itemEnclosures);
+							//Get and add all enclosures
+							final List<SyndEnclosure> enclosures = entry.getEnclosures();
+							for (final SyndEnclosure enclosure : enclosures){
+								final FeedItemEnclosure itemEnclosure= app.create(FeedItemEnclosure.class);
+								itemEnclosure.setProperty(FeedItemEnclosure.url, enclosure.getUrl());
+								itemEnclosure.setProperty(FeedItemEnclosure.enclosureLength, enclosure.getLength());
+								itemEnclosure.setProperty(FeedItemEnclosure.enclosureType, enclosure.getType());
 
-						newItems.add(item);
+								itemEnclosures.add(itemEnclosure);
+							}
 
-						logger.log(Level.FINE, "Created new item: {0} ({1}) ", new Object[]{item.getProperty(FeedItem.name), item.getProperty(FeedItem.pubDate)});
+							item.setProperty(FeedItem.contents, itemContents);
+							item.setProperty(FeedItem.enclosures, itemEnclosures);
 
+							// Link the new item only instead of rewriting the whole item list
+							item.setProperty(FeedItem.feed, this);
+
+							logger.log(Level.FINE, "Created new item: {0} ({1}) ", new Object[]{item.getProperty(FeedItem.name), item.getProperty(FeedItem.pubDate)});
+						}
 					}
+
+					setProperty(etag, r.getETag());
+					setProperty(lastModified, r.getLastModified());
+
+				} else {
+
+					logger.log(Level.FINE, "Feed {0} not modified", remoteUrl);
 				}
 
-				setProperty(items, newItems);
 				setProperty(lastUpdated, new Date());
 
-			} catch (IllegalArgumentException | IOException | FetcherException | FeedException | FrameworkException ex) {
+			} catch (IllegalArgumentException | IOException | FeedException | FrameworkException ex) {
 				logger.log(Level.SEVERE, "Error while updating feed", ex);
 			}
 
@@ -242,4 +286,70 @@ public class DataFeed extends AbstractNode {
 			cleanUp();
 		}
 	}
+
+	// ----- private methods -----
+	/**
+	 * Returns the links of the given entries for which items already exist,
+	 * looked up in batches of {@value #LINK_BATCH_SIZE} links.
+	 */
+	private Set<String> getExistingLinks(final App app, final List<SyndEntry> entries) throws FrameworkException {
+
+		final Set<String> existingLinks = new HashSet<>();
+		final List<String> links        = new LinkedList<>();
+
+		for (final SyndEntry entry : entries) {
+
+			final String link = entry.getLink();
+			if (link != null) {
+
+				links.add(link);
+
+				if (links.size() == LINK_BATCH_SIZE) {
+
+					findItems(app, links, existingLinks);
+					links.clear();
+				}
+			}
+		}
+
+		if (!links.isEmpty()) {
+
+			findItems(app, links, existingLinks);
+		}
+
+		return existingLinks;
+	}
+
+	private void findItems(final App app, final List<String> links, final Set<String> existingLinks) throws FrameworkException {
+
+		final Query<FeedItem> query = app.nodeQuery(FeedItem.class).and();
+
+		for (final String link : links) {
+			query.or(FeedItem.url, link);
+		}
+
+		for (final FeedItem item : query.getAsList()) {
+			existingLinks.add(item.getProperty(FeedItem.url));
+		}
+	}
+
+	/**
+	 * Sets the feed id of items created before the clean-up was based on it,
+	 * once per feed and server run.
+	 */
+	private void tagItems() throws FrameworkException {
+
+		final String uuid = getUuid();
+
+		if (taggedFeeds.add(uuid)) {
+
+			for (final FeedItem item : getProperty(items)) {
+
+				if (!uuid.equals(item.getProperty(FeedItem.feedId))) {
+
+					item.setProperty(FeedItem.feedId, uuid);
+				}
+			}
+		}
+	}
 }
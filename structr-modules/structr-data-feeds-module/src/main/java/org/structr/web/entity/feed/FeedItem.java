@@ -72,6 +72,7 @@ public class FeedItem extends AbstractNode implements Indexable {
 	public static final Property<Integer> version                = new IntProperty("version").indexed().readOnly();
 
 	public static final Property<DataFeed> feed                  = new StartNode<>("feed", FeedItems.class);
+	public static final Property<String> feedId                  = new StringProperty("feedId").indexed();
 
 	public static final View publicView = new View(FeedItem.class, PropertyView.Public, type, name, contentType, owner,
 		url, author, comments, contents, pubDate, description, enclosures
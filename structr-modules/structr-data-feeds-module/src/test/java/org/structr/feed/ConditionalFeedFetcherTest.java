@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.feed;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests conditional fetching with feeds served from local files.
+ *
+ *
+ */
+public class ConditionalFeedFetcherTest {
+
+	@Test
+	public void testConditionalFetch() throws Exception {
+
+		final ConditionalFeedFetcher fetcher = new ConditionalFeedFetcher(10);
+		final File file                      = File.createTempFile("feed", ".xml");
+
+		try {
+
+			writeFeed(file, 2, 1_000_000_000_000L);
+
+			final ConditionalFeedFetcher.Response first = fetcher.fetch(file.toURI().toString(), null, null);
+
+			assertTrue("Initial fetch must return the feed", first.isModified());
+			assertNotNull("File URLs must provide a modification date", first.getLastModified());
+			assertEquals(2, first.getFeed().getEntries().size());
+
+			// unchanged file must not be parsed again
+			final ConditionalFeedFetcher.Response second = fetcher.fetch(file.toURI().toString(), first.getETag(), first.getLastModified());
+
+			assertFalse("Unchanged feed must not be returned", second.isModified());
+			assertEquals(first.getLastModified(), second.getLastModified());
+
+			writeFeed(file, 3, 1_000_000_060_000L);
+
+			final ConditionalFeedFetcher.Response third = fetcher.fetch(file.toURI().toString(), second.getETag(), second.getLastModified());
+
+			assertTrue("Modified feed must be returned", third.isModified());
+			assertEquals(3, third.getFeed().getEntries().size());
+
+		} finally {
+
+			file.delete();
+		}
+	}
+
+	// ----- private methods -----
+	private void writeFeed(final File file, final int numberOfItems, final long lastModified) throws Exception {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buf.append("<rss version=\"2.0\"><channel><title>Test</title><link>http://localhost/</link><description>Test feed</description>\n");
+
+		for (int i=0; i<numberOfItems; i++) {
+			buf.append("<item><title>Item ").append(i).append("</title><link>http://localhost/item").append(i).append("</link></item>\n");
+		}
+
+		buf.append("</channel></rss>\n");
+
+		Files.write(file.toPath(), buf.toString().getBytes(StandardCharsets.UTF_8));
+
+		file.setLastModified(lastModified);
+	}
+}
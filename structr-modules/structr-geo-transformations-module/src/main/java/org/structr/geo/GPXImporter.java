@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo;
+
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.api.Predicate;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.BulkGraphOperation;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.NodeServiceCommand;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.PropertyMap;
+import org.structr.geo.entity.GPXTrack;
+import org.structr.geo.entity.GPXTrackPoint;
+import org.structr.geo.entity.GPXTrackSegment;
+import org.structr.geo.entity.relation.GPXSegmentPoints;
+import org.structr.geo.entity.relation.GPXTrackSegments;
+
+/**
+ * Persists the tracks of a GPX document as {@link GPXTrack},
+ * {@link GPXTrackSegment} and {@link GPXTrackPoint} nodes, committing
+ * the transaction after each batch of events.
+ *
+ * Track points can be thinned out by a minimum distance to the previously
+ * stored point and by a sample rate. The first and the last point of each
+ * segment are always stored.
+ *
+ *
+ */
+public class GPXImporter extends BulkGraphOperation<GPXReader.Event> {
+
+	private static final Logger logger       = Logger.getLogger(GPXImporter.class.getName());
+	private static final double EARTH_RADIUS = 6371008.8;
+
+	private GraphObjectMap lastStoredPoint = null;
+	private GraphObjectMap pendingPoint    = null;
+	private GPXTrackSegment segment        = null;
+	private GPXTrack track                 = null;
+	private App app                        = null;
+	private double minDistance             = 0.0;
+	private int sampleRate                 = 1;
+	private int segmentPosition            = 0;
+	private int segmentPointCount          = 0;
+	private int segmentPointIndex          = 0;
+	private int trackPointCount            = 0;
+	private long trackCount                = 0L;
+	private long segmentCount              = 0L;
+	private long pointsRead                = 0L;
+	private long pointsStored              = 0L;
+	private boolean failed                 = false;
+
+	/**
+	 * @param minDistance the minimum distance in meters between two stored points, or 0
+	 * @param sampleRate store only every n-th point, or 1
+	 */
+	public GPXImporter(final double minDistance, final int sampleRate) {
+
+		this.minDistance = Math.max(0.0, minDistance);
+		this.sampleRate  = Math.max(1, sampleRate);
+	}
+
+	/**
+	 * Reads all events from the given reader and persists them.
+	 *
+	 * @param securityContext
+	 * @param reader
+	 * @param batchSize the number of events after which the transaction is committed
+	 * @return whether the import finished without errors
+	 */
+	public boolean importTracks(final SecurityContext securityContext, final GPXReader reader, final long batchSize) {
+
+		this.app = StructrApp.getInstance(securityContext);
+
+		NodeServiceCommand.bulkGraphOperation(securityContext, reader, batchSize, "GPX import", this);
+
+		return !failed;
+	}
+
+	public long getTrackCount() {
+		return trackCount;
+	}
+
+	public long getSegmentCount() {
+		return segmentCount;
+	}
+
+	public long getPointsRead() {
+		return pointsRead;
+	}
+
+	public long getPointsStored() {
+		return pointsStored;
+	}
+
+	// ----- class BulkGraphOperation -----
+	@Override
+	public void handleGraphObject(final SecurityContext securityContext, final GPXReader.Event event) throws FrameworkException {
+
+		final GraphObjectMap data = event.getData();
+
+		switch (event.getType()) {
+
+			case TrackStart:
+				track           = app.create(GPXTrack.class, new PropertyMap());
+				trackPointCount = 0;
+				segmentPosition = 0;
+				trackCount++;
+				break;
+
+			case SegmentStart:
+				segment = app.create(GPXTrackSegment.class, new NodeAttribute<>(GPXTrackSegment.position, segmentPosition++));
+				app.create(track, segment, GPXTrackSegments.class);
+				lastStoredPoint   = null;
+				pendingPoint      = null;
+				segmentPointCount = 0;
+				segmentPointIndex = 0;
+				segmentCount++;
+				break;
+
+			case TrackPoint:
+				handlePoint(data);
+				break;
+
+			case SegmentEnd:
+				if (pendingPoint != null) {
+					storePoint(pendingPoint);
+				}
+				data.put(GPXTrackSegment.pointCount, segmentPointCount);
+				update(segment, data);
+				trackPointCount += segmentPointCount;
+				segment = null;
+				break;
+
+			case TrackEnd:
+				data.put(GPXTrack.pointCount, trackPointCount);
+				update(track, data);
+				track = null;
+				break;
+
+			default:
+				// waypoints, routes and metadata are not persisted
+				break;
+		}
+	}
+
+	@Override
+	public void handleThrowable(final SecurityContext securityContext, final Throwable t, final GPXReader.Event currentObject) {
+
+		logger.log(Level.WARNING, "Unable to import GPX {0} event: {1}", new Object[] { currentObject.getType(), t.getMessage() });
+		failed = true;
+	}
+
+	@Override
+	public void handleTransactionFailure(final SecurityContext securityContext, final Throwable t) {
+
+		logger.log(Level.WARNING, "Unable to import GPX data: {0}", t.getMessage());
+		failed = true;
+	}
+
+	@Override
+	public Predicate<Long> getCondition() {
+
+		return new Predicate<Long>() {
+
+			@Override
+			public boolean accept(final Long value) {
+				return !failed;
+			}
+		};
+	}
+
+	// ----- public static methods -----
+	/**
+	 * Returns the great-circle distance between the given points in meters.
+	 *
+	 * @param lat1
+	 * @param lon1
+	 * @param lat2
+	 * @param lon2
+	 * @return the distance in meters
+	 */
+	public static double distance(final double lat1, final double lon1, final double lat2, final double lon2) {
+
+		final double dLat = Math.toRadians(lat2 - lat1);
+		final double dLon = Math.toRadians(lon2 - lon1);
+		final double a    = Math.pow(Math.sin(dLat / 2), 2) + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+
+		return 2.0 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+	}
+
+	// ----- private methods -----
+	private void handlePoint(final GraphObjectMap data) throws FrameworkException {
+
+		final int index = segmentPointIndex++;
+
+		pointsRead++;
+
+		if (lastStoredPoint == null || (index % sampleRate == 0 && isFarEnough(data))) {
+
+			storePoint(data);
+
+		} else {
+
+			// keep the point in case it is the last one of the segment
+			pendingPoint = data;
+		}
+	}
+
+	private boolean isFarEnough(final GraphObjectMap data) {
+
+		if (minDistance > 0.0) {
+
+			final Double lat1 = lastStoredPoint.get(GPXReader.latitudeProperty);
+			final Double lon1 = lastStoredPoint.get(GPXReader.longitudeProperty);
+			final Double lat2 = data.get(GPXReader.latitudeProperty);
+			final Double lon2 = data.get(GPXReader.longitudeProperty);
+
+			if (lat1 != null && lon1 != null && lat2 != null && lon2 != null) {
+
+				return distance(lat1, lon1, lat2, lon2) >= minDistance;
+			}
+		}
+
+		return true;
+	}
+
+	private void storePoint(final GraphObjectMap data) throws FrameworkException {
+
+		data.put(GPXTrackPoint.position, segmentPointCount++);
+
+		final GPXTrackPoint point = app.create(GPXTrackPoint.class, convert(GPXTrackPoint.class, data));
+		app.create(segment, point, GPXSegmentPoints.class);
+
+		lastStoredPoint = data;
+		pendingPoint    = null;
+
+		pointsStored++;
+	}
+
+	/**
+	 * Maps the values of the given event data to the properties of the
+	 * given type with the same JSON name and ignores all others.
+	 */
+	private PropertyMap convert(final Class<? extends NodeInterface> type, final GraphObjectMap data) {
+
+		final PropertyMap properties = new PropertyMap();
+
+		for (final Entry<PropertyKey, Object> entry : data.getRawMap().entrySet()) {
+
+			final PropertyKey key = StructrApp.getConfiguration().getPropertyKeyForJSONName(type, entry.getKey().jsonName(), false);
+			if (key != null && !GraphObject.type.equals(key) && !GraphObject.id.equals(key)) {
+
+				properties.put(key, entry.getValue());
+			}
+		}
+
+		return properties;
+	}
+
+	private void update(final NodeInterface node, final GraphObjectMap data) throws FrameworkException {
+
+		for (final Entry<PropertyKey, Object> entry : convert(node.getClass(), data).entrySet()) {
+
+			node.setProperty(entry.getKey(), entry.getValue());
+		}
+	}
+}
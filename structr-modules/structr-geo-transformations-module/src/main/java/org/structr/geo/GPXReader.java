@@ -0,0 +1,436 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.GenericProperty;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StringProperty;
+
+/**
+ * Streaming GPX parser. Reads the document incrementally and returns one
+ * event per waypoint, route, track point and track or segment boundary,
+ * so that arbitrarily large tracks can be processed with constant memory.
+ *
+ * Routes are returned as a single event including their points.
+ *
+ *
+ */
+public class GPXReader implements Iterator<GPXReader.Event>, AutoCloseable {
+
+	public enum Type { Metadata, Waypoint, Route, TrackStart, SegmentStart, TrackPoint, SegmentEnd, TrackEnd }
+
+	public static final Property<List<GraphObjectMap>> pointsProperty = new GenericProperty<>("points");
+	public static final Property<GraphObjectMap> authorProperty       = new GenericProperty<>("author");
+	public static final Property<Double> latitudeProperty             = new DoubleProperty("latitude");
+	public static final Property<Double> longitudeProperty            = new DoubleProperty("longitude");
+
+	private static final Map<String, Property> fieldMapping = new LinkedHashMap<>();
+
+	static {
+
+		fieldMapping.put("ele",           new DoubleProperty("altitude"));
+		fieldMapping.put("time",          new StringProperty("time"));
+		fieldMapping.put("name",          new StringProperty("name"));
+		fieldMapping.put("desc",          new StringProperty("description"));
+		fieldMapping.put("link",          new StringProperty("link"));
+		fieldMapping.put("src",           new StringProperty("source"));
+		fieldMapping.put("magvar",        new DoubleProperty("magvar"));
+		fieldMapping.put("cmt",           new StringProperty("comment"));
+		fieldMapping.put("type",          new StringProperty("type"));
+		fieldMapping.put("sym",           new StringProperty("symbol"));
+		fieldMapping.put("fix",           new StringProperty("fixType"));
+		fieldMapping.put("sat",           new IntProperty("satelliteCount"));
+		fieldMapping.put("hdop",          new DoubleProperty("horizontalDilution"));
+		fieldMapping.put("vdop",          new DoubleProperty("verticalDilution"));
+		fieldMapping.put("pdop",          new DoubleProperty("positionDilution"));
+		fieldMapping.put("ageofdgpsdata", new DoubleProperty("dgpsAge"));
+		fieldMapping.put("dgpsid",        new StringProperty("dgpsId"));
+		fieldMapping.put("geoidheight",   new DoubleProperty("geoidHeight"));
+
+	}
+
+	private XMLStreamReader reader = null;
+	private GraphObjectMap segment = null;
+	private GraphObjectMap track   = null;
+	private Event nextEvent        = null;
+
+	public GPXReader(final InputStream source) throws XMLStreamException {
+		this.reader = createFactory().createXMLStreamReader(source);
+	}
+
+	public GPXReader(final Reader source) throws XMLStreamException {
+		this.reader = createFactory().createXMLStreamReader(source);
+	}
+
+	/**
+	 * Reads the next event from the document.
+	 *
+	 * @return the next event, or null at the end of the document
+	 * @throws XMLStreamException
+	 */
+	public Event read() throws XMLStreamException {
+
+		if (nextEvent != null) {
+
+			final Event event = nextEvent;
+			nextEvent         = null;
+
+			return event;
+		}
+
+		while (reader.hasNext()) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+
+					final String name = reader.getLocalName();
+
+					if (segment != null) {
+
+						if ("trkpt".equals(name)) {
+							return new Event(Type.TrackPoint, readPoint());
+						}
+
+						readProperty(segment);
+
+					} else if (track != null) {
+
+						if ("trkseg".equals(name)) {
+
+							segment = new GraphObjectMap();
+							return new Event(Type.SegmentStart, null);
+						}
+
+						readProperty(track);
+
+					} else {
+
+						switch (name) {
+
+							case "gpx":
+								break;
+
+							case "metadata":
+								return new Event(Type.Metadata, readPoint());
+
+							case "wpt":
+								return new Event(Type.Waypoint, readPoint());
+
+							case "rte":
+								return new Event(Type.Route, readRoute());
+
+							case "trk":
+								track = new GraphObjectMap();
+								return new Event(Type.TrackStart, null);
+
+							default:
+								skipElement();
+								break;
+						}
+					}
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+
+					if (segment != null && "trkseg".equals(reader.getLocalName())) {
+
+						final GraphObjectMap data = segment;
+						segment                   = null;
+
+						return new Event(Type.SegmentEnd, data);
+					}
+
+					if (track != null && "trk".equals(reader.getLocalName())) {
+
+						final GraphObjectMap data = track;
+						track                     = null;
+
+						return new Event(Type.TrackEnd, data);
+					}
+					break;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+		reader.close();
+	}
+
+	// ----- interface Iterator<Event> -----
+	@Override
+	public boolean hasNext() {
+
+		if (nextEvent == null) {
+
+			try {
+				nextEvent = read();
+
+			} catch (XMLStreamException xex) {
+				throw new IllegalStateException(xex);
+			}
+		}
+
+		return nextEvent != null;
+	}
+
+	@Override
+	public Event next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Event event = nextEvent;
+		nextEvent         = null;
+
+		return event;
+	}
+
+	// ----- private methods -----
+	private XMLInputFactory createFactory() {
+
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+		// GPX documents never need external entities or DTDs
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+		return factory;
+	}
+
+	private GraphObjectMap readRoute() throws XMLStreamException {
+
+		final List<GraphObjectMap> points = new LinkedList<>();
+		final GraphObjectMap result       = new GraphObjectMap();
+
+		while (nextChild()) {
+
+			if ("rtept".equals(reader.getLocalName())) {
+
+				points.add(readPoint());
+
+			} else {
+
+				readProperty(result);
+			}
+		}
+
+		if (!points.isEmpty()) {
+			result.put(pointsProperty, points);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reads the current element and its children into a map.
+	 */
+	private GraphObjectMap readPoint() throws XMLStreamException {
+
+		final GraphObjectMap item = new GraphObjectMap();
+
+		// latitude and longitude are the only node attributes
+		final Double latitude = getDoubleAttribute("lat");
+		if (latitude != null) {
+
+			item.put(latitudeProperty, latitude);
+		}
+
+		final Double longitude = getDoubleAttribute("lon");
+		if (longitude != null) {
+
+			item.put(longitudeProperty, longitude);
+		}
+
+		// all other attributes are stored in child nodes
+		while (nextChild()) {
+
+			readProperty(item);
+		}
+
+		return item;
+	}
+
+	/**
+	 * Reads the current element into the given map if it is a known
+	 * property, or skips it.
+	 */
+	private void readProperty(final GraphObjectMap item) throws XMLStreamException {
+
+		final String tagName    = reader.getLocalName();
+		final Property property = fieldMapping.get(tagName);
+
+		if (property != null) {
+
+			final String source = readText();
+			if (!source.isEmpty()) {
+
+				switch (property.valueType().getSimpleName()) {
+
+					case "Double":
+						item.put(property, Double.valueOf(source));
+						break;
+
+					case "String":
+						item.put(property, source);
+						break;
+
+					case "Integer":
+						item.put(property, Integer.valueOf(source));
+						break;
+				}
+			}
+
+		} else if ("author".equals(tagName)) {
+
+			final GraphObjectMap author = readPoint();
+			if (!author.isEmpty()) {
+
+				item.put(authorProperty, author);
+			}
+
+		} else {
+
+			skipElement();
+		}
+	}
+
+	/**
+	 * Returns the text content of the current element and all its
+	 * children, and moves to the end of the element.
+	 */
+	private String readText() throws XMLStreamException {
+
+		final StringBuilder buf = new StringBuilder();
+		int depth               = 1;
+
+		while (depth > 0) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					buf.append(reader.getText());
+					break;
+			}
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Moves to the next child element of the current element.
+	 *
+	 * @return false if the end of the current element was reached
+	 */
+	private boolean nextChild() throws XMLStreamException {
+
+		while (reader.hasNext()) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					return true;
+
+				case XMLStreamConstants.END_ELEMENT:
+					return false;
+			}
+		}
+
+		return false;
+	}
+
+	private void skipElement() throws XMLStreamException {
+
+		int depth = 1;
+
+		while (depth > 0) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+			}
+		}
+	}
+
+	private Double getDoubleAttribute(final String name) {
+
+		final String str = reader.getAttributeValue(null, name);
+		if (str != null && !str.isEmpty()) {
+
+			return Double.valueOf(str);
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	public static class Event {
+
+		private GraphObjectMap data = null;
+		private Type type           = null;
+
+		public Event(final Type type, final GraphObjectMap data) {
+
+			this.type = type;
+			this.data = data;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public GraphObjectMap getData() {
+			return data;
+		}
+	}
+}
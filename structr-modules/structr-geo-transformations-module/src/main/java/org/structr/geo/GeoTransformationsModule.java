@@ -33,9 +33,10 @@ public class GeoTransformationsModule implements StructrModule {
 	public void onLoad() {
 
 		// extend set of builtin functions
-		Functions.functions.put("lat_lon_to_utm", new LatLonToUTMFunction());
-		Functions.functions.put("utm_to_lat_lon", new UTMToLatLonFunction());
-		Functions.functions.put("import_gpx",     new ImportGPXFunction());
+		Functions.functions.put("lat_lon_to_utm",    new LatLonToUTMFunction());
+		Functions.functions.put("utm_to_lat_lon",    new UTMToLatLonFunction());
+		Functions.functions.put("import_gpx",        new ImportGPXFunction());
+		Functions.functions.put("import_gpx_tracks", new ImportGPXTracksFunction());
 	}
 
 	@Override
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLStreamException;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.common.fulltext.Indexable;
+import org.structr.core.GraphObject;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.property.BooleanProperty;
+import org.structr.core.property.LongProperty;
+import org.structr.core.property.Property;
+import org.structr.schema.action.ActionContext;
+import org.structr.schema.action.Function;
+
+/**
+ * Streams the tracks of a GPX file or string into the database. Unlike
+ * {@link ImportGPXFunction}, the document is never held in memory and the
+ * points are committed in batches, so the import runs in a separate thread
+ * with its own transactions.
+ *
+ *
+ */
+public class ImportGPXTracksFunction extends Function<Object, Object> {
+
+	private static final Logger logger                  = Logger.getLogger(ImportGPXTracksFunction.class.getName());
+	public static final Property<Long> tracksProperty   = new LongProperty("tracks");
+	public static final Property<Long> segmentsProperty = new LongProperty("segments");
+	public static final Property<Long> pointsRead       = new LongProperty("pointsRead");
+	public static final Property<Long> pointsStored     = new LongProperty("pointsStored");
+	public static final Property<Boolean> success       = new BooleanProperty("success");
+	public static final String ERROR_MESSAGE            = "Usage: ${import_gpx_tracks(file [, minDistance [, sampleRate [, batchSize]]])}. Example: ${import_gpx_tracks(first(find('File', 'name', 'track.gpx')), 5.0)}";
+	public static final int DEFAULT_BATCH_SIZE          = 1000;
+
+	@Override
+	public Object apply(final ActionContext ctx, final GraphObject entity, final Object[] sources) throws FrameworkException {
+
+		try {
+
+			if (!arrayHasMinLengthAndMaxLengthAndAllElementsNotNull(sources, 1, 4)) {
+
+				return null;
+			}
+
+			final InputStream source = getInputStream(sources[0]);
+			if (source == null) {
+
+				logger.log(Level.WARNING, "Invalid parameter for GPX import, expected file or string, got {0}", sources[0].getClass().getSimpleName());
+				return "Invalid parameters";
+			}
+
+			final Double minDistance = sources.length > 1 ? getDoubleOrNull(sources[1]) : null;
+			final Integer sampleRate = sources.length > 2 ? parseInt(sources[2]) : null;
+			final Integer batchSize  = sources.length > 3 ? parseInt(sources[3]) : null;
+
+			final GPXImporter importer = new GPXImporter(minDistance != null ? minDistance : 0.0, sampleRate != null ? sampleRate : 1);
+			final ImportThread thread  = new ImportThread(ctx.getSecurityContext(), importer, source, batchSize != null && batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE);
+
+			// the import commits its own transactions, which is not possible in the transaction of the caller
+			thread.start();
+			thread.join();
+
+			final GraphObjectMap result = new GraphObjectMap();
+
+			result.put(tracksProperty,   importer.getTrackCount());
+			result.put(segmentsProperty, importer.getSegmentCount());
+			result.put(pointsRead,       importer.getPointsRead());
+			result.put(pointsStored,     importer.getPointsStored());
+			result.put(success,          thread.isSuccessful());
+
+			return result;
+
+		} catch (final IllegalArgumentException e) {
+
+			logParameterError(entity, sources, ctx.isJavaScriptContext());
+
+			return usage(ctx.isJavaScriptContext());
+
+		} catch (InterruptedException iex) {
+
+			logger.log(Level.WARNING, "GPX import was interrupted");
+		}
+
+		return null;
+	}
+
+	@Override
+	public String usage(final boolean inJavaScriptContext) {
+		return ERROR_MESSAGE;
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Imports the tracks of a GPX file into the database in batches.";
+	}
+
+	@Override
+	public String getName() {
+		return "import_gpx_tracks";
+	}
+
+	// ----- private methods -----
+	private InputStream getInputStream(final Object source) {
+
+		if (source instanceof Indexable) {
+
+			return ((Indexable)source).getInputStream();
+		}
+
+		if (source instanceof String) {
+
+			return new ByteArrayInputStream(((String)source).getBytes(StandardCharsets.UTF_8));
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	private static class ImportThread extends Thread {
+
+		private SecurityContext securityContext = null;
+		private GPXImporter importer            = null;
+		private InputStream source              = null;
+		private boolean successful              = false;
+		private int batchSize                   = 0;
+
+		public ImportThread(final SecurityContext securityContext, final GPXImporter importer, final InputStream source, final int batchSize) {
+
+			super("GPX import");
+
+			this.securityContext = securityContext;
+			this.importer        = importer;
+			this.source          = source;
+			this.batchSize       = batchSize;
+		}
+
+		@Override
+		public void run() {
+
+			try (final InputStream is = source; final GPXReader reader = new GPXReader(is)) {
+
+				successful = importer.importTracks(securityContext, reader, batchSize);
+
+			} catch (Throwable t) {
+
+				logger.log(Level.WARNING, "Unable to import GPX data: {0}", t.getMessage());
+			}
+		}
+
+		public boolean isSuccessful() {
+			return successful;
+		}
+	}
+}
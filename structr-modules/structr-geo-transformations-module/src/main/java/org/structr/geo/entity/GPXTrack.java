@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo.entity;
+
+import java.util.List;
+import org.structr.common.PropertyView;
+import org.structr.common.View;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.EndNodes;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StringProperty;
+import org.structr.geo.entity.relation.GPXTrackSegments;
+
+/**
+ * A track imported from a GPX file.
+ *
+ *
+ */
+public class GPXTrack extends AbstractNode {
+
+	public static final Property<List<GPXTrackSegment>> segments = new EndNodes<>("segments", GPXTrackSegments.class);
+	public static final Property<String> description             = new StringProperty("description");
+	public static final Property<String> comment                 = new StringProperty("comment");
+	public static final Property<String> source                  = new StringProperty("source");
+	public static final Property<String> link                    = new StringProperty("link");
+	public static final Property<Integer> pointCount             = new IntProperty("pointCount");
+
+	public static final View publicView = new View(GPXTrack.class, PropertyView.Public,
+		name, description, comment, source, link, pointCount, segments
+	);
+
+	public static final View uiView = new View(GPXTrack.class, PropertyView.Ui,
+		name, description, comment, source, link, pointCount, segments
+	);
+}
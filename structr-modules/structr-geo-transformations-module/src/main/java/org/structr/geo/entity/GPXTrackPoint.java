@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo.entity;
+
+import org.structr.common.PropertyView;
+import org.structr.common.View;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StartNode;
+import org.structr.core.property.StringProperty;
+import org.structr.geo.entity.relation.GPXSegmentPoints;
+
+/**
+ * A point of a GPX track segment.
+ *
+ *
+ */
+public class GPXTrackPoint extends AbstractNode {
+
+	public static final Property<GPXTrackSegment> segment       = new StartNode<>("segment", GPXSegmentPoints.class);
+	public static final Property<Integer> position              = new IntProperty("position").indexed();
+	public static final Property<Double> latitude               = new DoubleProperty("latitude").indexed();
+	public static final Property<Double> longitude              = new DoubleProperty("longitude").indexed();
+	public static final Property<Double> altitude               = new DoubleProperty("altitude");
+	public static final Property<String> time                   = new StringProperty("time").indexed();
+	public static final Property<String> description            = new StringProperty("description");
+	public static final Property<String> fixType                = new StringProperty("fixType");
+	public static final Property<Integer> satelliteCount        = new IntProperty("satelliteCount");
+	public static final Property<Double> horizontalDilution     = new DoubleProperty("horizontalDilution");
+	public static final Property<Double> verticalDilution       = new DoubleProperty("verticalDilution");
+	public static final Property<Double> positionDilution       = new DoubleProperty("positionDilution");
+
+	public static final View publicView = new View(GPXTrackPoint.class, PropertyView.Public,
+		position, latitude, longitude, altitude, time
+	);
+
+	public static final View uiView = new View(GPXTrackPoint.class, PropertyView.Ui,
+		segment, position, latitude, longitude, altitude, time, description, fixType, satelliteCount, horizontalDilution, verticalDilution, positionDilution
+	);
+}
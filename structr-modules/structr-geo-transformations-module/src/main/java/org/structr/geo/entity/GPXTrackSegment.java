@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo.entity;
+
+import java.util.List;
+import org.structr.common.PropertyView;
+import org.structr.common.View;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.EndNodes;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StartNode;
+import org.structr.geo.entity.relation.GPXSegmentPoints;
+import org.structr.geo.entity.relation.GPXTrackSegments;
+
+/**
+ * A segment of a GPX track.
+ *
+ *
+ */
+public class GPXTrackSegment extends AbstractNode {
+
+	public static final Property<GPXTrack> track               = new StartNode<>("track", GPXTrackSegments.class);
+	public static final Property<List<GPXTrackPoint>> points   = new EndNodes<>("points", GPXSegmentPoints.class);
+	public static final Property<Integer> position             = new IntProperty("position").indexed();
+	public static final Property<Integer> pointCount           = new IntProperty("pointCount");
+
+	public static final View publicView = new View(GPXTrackSegment.class, PropertyView.Public,
+		track, position, pointCount
+	);
+
+	public static final View uiView = new View(GPXTrackSegment.class, PropertyView.Ui,
+		track, position, pointCount
+	);
+}
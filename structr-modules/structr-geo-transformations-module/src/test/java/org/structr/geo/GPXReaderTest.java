@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.geo;
+
+import java.io.Reader;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.StringProperty;
+
+/**
+ *
+ */
+public class GPXReaderTest {
+
+	@Test
+	public void testLargeGeneratedTrack() {
+
+		final int tracks   = 3;
+		final int segments = 4;
+		final int points   = 50000;
+
+		try (final GPXReader reader = new GPXReader(new GeneratedGPXReader(tracks, segments, points))) {
+
+			GPXReader.Event event = null;
+			GraphObjectMap last   = null;
+			int trackCount        = 0;
+			int segmentCount      = 0;
+			int pointCount        = 0;
+			int waypointCount     = 0;
+
+			while ((event = reader.read()) != null) {
+
+				switch (event.getType()) {
+
+					case Waypoint:
+						waypointCount++;
+						break;
+
+					case TrackStart:
+						trackCount++;
+						break;
+
+					case SegmentStart:
+						segmentCount++;
+						break;
+
+					case TrackPoint:
+						last = event.getData();
+						pointCount++;
+						break;
+
+					case TrackEnd:
+						assertEquals("Invalid track name", "Track " + (trackCount - 1), event.getData().get(new StringProperty("name")));
+						break;
+				}
+			}
+
+			assertEquals("Invalid number of waypoints", 1, waypointCount);
+			assertEquals("Invalid number of tracks", tracks, trackCount);
+			assertEquals("Invalid number of segments", tracks * segments, segmentCount);
+			assertEquals("Invalid number of points", tracks * segments * points, pointCount);
+
+			// check the values of the last point
+			assertEquals("Invalid latitude", 50.0 + (points - 1) * 0.0001, last.get(GPXReader.latitudeProperty), 0.000001);
+			assertEquals("Invalid longitude", 8.0, last.get(GPXReader.longitudeProperty), 0.000001);
+			assertEquals("Invalid altitude", (double)(points - 1), last.get(new DoubleProperty("altitude")), 0.000001);
+
+			// all points were read, the reader must stay at the end
+			assertNull(reader.read());
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testDistance() {
+
+		// one degree of latitude is about 111.2 km
+		assertEquals(111195.0, GPXImporter.distance(50.0, 8.0, 51.0, 8.0), 10.0);
+		assertEquals(0.0, GPXImporter.distance(50.0, 8.0, 50.0, 8.0), 0.000001);
+
+		// 0.0001 degrees of latitude are about 11 m
+		assertTrue(GPXImporter.distance(50.0, 8.0, 50.0001, 8.0) > 11.0);
+		assertTrue(GPXImporter.distance(50.0, 8.0, 50.0001, 8.0) < 11.2);
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Generates a GPX document on the fly, so that the size of the test
+	 * document does not depend on the available memory.
+	 */
+	private static class GeneratedGPXReader extends Reader {
+
+		private final StringBuilder buffer = new StringBuilder();
+		private int bufferPosition         = 0;
+		private int tracks                 = 0;
+		private int segments               = 0;
+		private int points                 = 0;
+		private int track                  = 0;
+		private int segment                = 0;
+		private int point                  = 0;
+		private boolean finished           = false;
+
+		public GeneratedGPXReader(final int tracks, final int segments, final int points) {
+
+			this.tracks   = tracks;
+			this.segments = segments;
+			this.points   = points;
+
+			buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>\n");
+			buffer.append("<gpx xmlns=\"http://www.topografix.com/GPX/1/1\" version=\"1.1\" creator=\"Structr\">\n");
+			buffer.append(" <metadata><name>Generated</name></metadata>\n");
+			buffer.append(" <wpt lat=\"50.0\" lon=\"8.0\"><name>Start</name></wpt>\n");
+		}
+
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) {
+
+			while (bufferPosition >= buffer.length()) {
+
+				if (finished) {
+					return -1;
+				}
+
+				buffer.setLength(0);
+				bufferPosition = 0;
+
+				generate();
+			}
+
+			final int count = Math.min(len, buffer.length() - bufferPosition);
+
+			buffer.getChars(bufferPosition, bufferPosition + count, cbuf, off);
+			bufferPosition += count;
+
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		private void generate() {
+
+			if (track == tracks) {
+
+				buffer.append("</gpx>\n");
+				finished = true;
+				return;
+			}
+
+			if (segment == 0 && point == 0) {
+				buffer.append(" <trk>\n  <name>Track ").append(track).append("</name>\n");
+			}
+
+			if (point == 0) {
+				buffer.append("  <trkseg>\n");
+			}
+
+			// generate a hundred points at a time
+			for (int i=0; i<100 && point < points; i++, point++) {
+
+				buffer.append("   <trkpt lat=\"").append(50.0 + point * 0.0001).append("\" lon=\"8.0\">");
+				buffer.append("<ele>").append(point).append("</ele>");
+				buffer.append("<time>2016-01-01T00:00:00Z</time>");
+				buffer.append("<sat>8</sat>");
+				buffer.append("</trkpt>\n");
+			}
+
+			if (point == points) {
+
+				buffer.append("  </trkseg>\n");
+				point = 0;
+				segment++;
+
+				if (segment == segments) {
+
+					buffer.append(" </trk>\n");
+					segment = 0;
+					track++;
+				}
+			}
+		}
+	}
+}
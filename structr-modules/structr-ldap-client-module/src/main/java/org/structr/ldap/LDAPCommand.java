@@ -50,7 +50,7 @@ public class LDAPCommand extends Command implements MaintenanceCommand {
 
 			try {
 
-				ldapService.doUpdate();
+				ldapService.doUpdate("true".equals(String.valueOf(attributes.get("full"))));
 
 			} catch (Throwable t) {
 				Logger.getLogger(LDAPCommand.class.getName()).log(Level.WARNING, "Unable to update LDAP information.", t);
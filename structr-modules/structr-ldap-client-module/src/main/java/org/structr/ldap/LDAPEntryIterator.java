@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.ldap;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.directory.api.ldap.model.cursor.CursorException;
+import org.apache.directory.api.ldap.model.cursor.SearchCursor;
+import org.apache.directory.api.ldap.model.entry.Entry;
+import org.apache.directory.api.ldap.model.exception.LdapException;
+import org.apache.directory.api.ldap.model.message.LdapResult;
+import org.apache.directory.api.ldap.model.message.Response;
+import org.apache.directory.api.ldap.model.message.ResultCodeEnum;
+import org.apache.directory.api.ldap.model.message.SearchRequest;
+import org.apache.directory.api.ldap.model.message.SearchRequestImpl;
+import org.apache.directory.api.ldap.model.message.SearchResultDone;
+import org.apache.directory.api.ldap.model.message.SearchResultEntry;
+import org.apache.directory.api.ldap.model.message.SearchScope;
+import org.apache.directory.api.ldap.model.message.controls.PagedResults;
+import org.apache.directory.api.ldap.model.message.controls.PagedResultsImpl;
+import org.apache.directory.api.ldap.model.name.Dn;
+import org.apache.directory.ldap.client.api.LdapConnection;
+
+/**
+ * Iterates over the results of an LDAP search, using the paged results
+ * control (RFC 2696) so that only one page of entries is held in memory.
+ *
+ * Servers that do not support paging return all entries in a single page.
+ *
+ *
+ */
+public class LDAPEntryIterator implements Iterator<Entry>, AutoCloseable {
+
+	private static final Logger logger = Logger.getLogger(LDAPEntryIterator.class.getName());
+
+	private LdapConnection connection = null;
+	private SearchCursor cursor       = null;
+	private SearchScope scope         = null;
+	private String[] attributes       = null;
+	private String baseDn             = null;
+	private String filter             = null;
+	private Entry nextEntry           = null;
+	private byte[] cookie             = null;
+	private boolean lastPage          = false;
+	private int pageSize              = 0;
+
+	public LDAPEntryIterator(final LdapConnection connection, final String baseDn, final String filter, final SearchScope scope, final int pageSize, final String... attributes) {
+
+		this.connection = connection;
+		this.attributes = attributes;
+		this.pageSize   = pageSize;
+		this.baseDn     = baseDn;
+		this.filter     = filter;
+		this.scope      = scope;
+	}
+
+	@Override
+	public void close() {
+
+		lastPage = true;
+		closeCursor();
+	}
+
+	// ----- interface Iterator<Entry> -----
+	@Override
+	public boolean hasNext() {
+
+		try {
+
+			while (nextEntry == null) {
+
+				if (cursor == null) {
+
+					if (lastPage) {
+						return false;
+					}
+
+					cursor = connection.search(createRequest());
+				}
+
+				if (cursor.next()) {
+
+					final Response response = cursor.get();
+					if (response instanceof SearchResultEntry) {
+
+						nextEntry = ((SearchResultEntry)response).getEntry();
+					}
+
+				} else {
+
+					finishPage();
+				}
+			}
+
+		} catch (LdapException | CursorException | IOException ex) {
+
+			// stop iteration, the caller must not assume that all entries were returned
+			close();
+
+			throw new IllegalStateException(ex);
+		}
+
+		return true;
+	}
+
+	@Override
+	public Entry next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Entry entry = nextEntry;
+		nextEntry         = null;
+
+		return entry;
+	}
+
+	// ----- private methods -----
+	private SearchRequest createRequest() throws LdapException {
+
+		final SearchRequest request = new SearchRequestImpl();
+
+		request.setBase(new Dn(baseDn));
+		request.setFilter(filter);
+		request.setScope(scope);
+		request.addAttributes(attributes);
+
+		if (pageSize > 0) {
+
+			final PagedResults control = new PagedResultsImpl();
+
+			control.setSize(pageSize);
+			control.setCookie(cookie);
+
+			request.addControl(control);
+
+		} else {
+
+			lastPage = true;
+		}
+
+		return request;
+	}
+
+	private void finishPage() throws LdapException, IOException {
+
+		final SearchResultDone done = cursor.getSearchResultDone();
+
+		closeCursor();
+
+		// no response control means that the server returned all entries
+		cookie = null;
+
+		if (done != null) {
+
+			final LdapResult result = done.getLdapResult();
+			if (!ResultCodeEnum.SUCCESS.equals(result.getResultCode())) {
+
+				throw new LdapException("Search failed with " + result.getResultCode() + ": " + result.getDiagnosticMessage());
+			}
+
+			final PagedResults control = (PagedResults)done.getControl(PagedResults.OID);
+			if (control != null) {
+
+				cookie = control.getCookie();
+			}
+		}
+
+		if (cookie == null || cookie.length == 0) {
+			lastPage = true;
+		}
+	}
+
+	private void closeCursor() {
+
+		if (cursor != null) {
+
+			try {
+				cursor.close();
+
+			} catch (Exception ex) {
+				logger.log(Level.FINE, "Unable to close LDAP search cursor", ex);
+			}
+
+			cursor = null;
+		}
+	}
+}
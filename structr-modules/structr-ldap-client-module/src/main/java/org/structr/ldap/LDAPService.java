@@ -19,13 +19,20 @@
 package org.structr.ldap;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang.StringUtils;
 import org.apache.directory.api.ldap.model.cursor.CursorException;
 import org.apache.directory.api.ldap.model.cursor.EntryCursor;
+import org.apache.directory.api.ldap.model.entry.Attribute;
 import org.apache.directory.api.ldap.model.entry.DefaultModification;
 import org.apache.directory.api.ldap.model.entry.Entry;
 import org.apache.directory.api.ldap.model.entry.Modification;
@@ -39,11 +46,14 @@ import org.apache.directory.ldap.client.api.LdapNetworkConnection;
 import org.structr.api.service.Command;
 import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
+import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.BulkGraphOperation;
 import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.Tx;
 
 /**
@@ -63,17 +73,27 @@ public class LDAPService extends Thread implements RunnableService {
 	public static final String CONFIG_KEY_LDAP_BASEDN     = "ldap.baseDn";
 	public static final String CONFIG_KEY_LDAP_FILTER     = "ldap.filter";
 	public static final String CONFIG_KEY_LDAP_SCOPE      = "ldap.scope";
-
-	private long updateInterval = TimeUnit.HOURS.toMillis(2);	// completely arbitrary update interval, set your own in structr.conf!
-	private String host         = "localhost";
-	private String binddn       = null;
-	private String secret       = null;
-	private String baseDn       = null;
-	private String filter       = null;
-	private String scope        = null;
-	private boolean useSsl      = true;
-	private boolean doRun       = false;
-	private int port            = 389;
+	public static final String CONFIG_KEY_LDAP_PAGE_SIZE  = "ldap.pageSize";
+	public static final String CONFIG_KEY_LDAP_BATCH_SIZE = "ldap.batchSize";
+	public static final String CONFIG_KEY_SYNC_ATTRIBUTE  = "ldap.syncAttribute";
+	public static final String CONFIG_KEY_FULL_SYNC       = "ldap.fullSyncInterval";
+
+	private long updateInterval   = TimeUnit.HOURS.toMillis(2);	// completely arbitrary update interval, set your own in structr.conf!
+	private long fullSyncInterval = TimeUnit.HOURS.toMillis(24);
+	private long lastFullSync     = 0L;
+	private String lastSyncValue  = null;
+	private String syncAttribute  = "modifyTimestamp";
+	private String host           = "localhost";
+	private String binddn         = null;
+	private String secret         = null;
+	private String baseDn         = null;
+	private String filter         = null;
+	private String scope          = null;
+	private boolean useSsl        = true;
+	private boolean doRun         = false;
+	private int batchSize         = 1000;
+	private int pageSize          = 500;
+	private int port              = 389;
 
 	public LDAPService() {
 
@@ -148,10 +168,23 @@ public class LDAPService extends Thread implements RunnableService {
 	}
 
 	public void doUpdate() throws IOException, LdapException, CursorException, FrameworkException {
+		doUpdate(false);
+	}
 
-		final LdapConnection connection = new LdapNetworkConnection(host, port, useSsl);
-		final App app                   = StructrApp.getInstance();
+	/**
+	 * Synchronizes the local users with the LDAP directory. Unless a full
+	 * synchronization is requested or due, only the entries that were
+	 * modified since the last run are fetched.
+	 *
+	 * @param forceFullSync
+	 * @throws IOException
+	 * @throws LdapException
+	 * @throws CursorException
+	 * @throws FrameworkException
+	 */
+	public void doUpdate(final boolean forceFullSync) throws IOException, LdapException, CursorException, FrameworkException {
 
+		final LdapConnection connection = new LdapNetworkConnection(host, port, useSsl);
 		if (connection != null) {
 
 			// make connection persistent
@@ -159,55 +192,28 @@ public class LDAPService extends Thread implements RunnableService {
 
 			if (connection.connect()) {
 
-				logger.log(Level.INFO, "Updating user/group information from LDAP server {0}:{1}..", new Object[]{host, port});
+				final boolean fullSync = forceFullSync || lastSyncValue == null || System.currentTimeMillis() - lastFullSync > fullSyncInterval;
 
-				if (StringUtils.isNotBlank(binddn) && StringUtils.isNotBlank(secret)) {
+				if (fullSync) {
 
-					connection.bind(binddn, secret);
+					logger.log(Level.INFO, "Updating user/group information from LDAP server {0}:{1}..", new Object[]{host, port});
 
-				} else if (StringUtils.isNotBlank(binddn)) {
+				} else {
 
-					connection.bind(binddn);
+					logger.log(Level.INFO, "Updating user/group information from LDAP server {0}:{1}, {2} >= {3}..", new Object[]{host, port, syncAttribute, lastSyncValue});
 				}
 
-				// step 1: fetch / update all users from LDAP server
-				final EntryCursor cursor = connection.search(baseDn, filter, SearchScope.valueOf(scope));
-				while (cursor.next()) {
-
-					final Entry entry = cursor.get();
-					synchronizeUserEntry(connection, entry);
-				}
-
-				// step 2: examine local users and refresh / remove
-				try (final Tx tx = app.tx()) {
-
-					for (final LDAPUser user : app.nodeQuery(LDAPUser.class).getAsList()) {
-
-						final String dn = user.getProperty(LDAPUser.distinguishedName);
-						if (dn != null) {
-
-							final Entry userEntry = connection.lookup(dn);
-							if (userEntry != null) {
-
-								// update user information
-								user.initializeFrom(userEntry);
-
-							} else {
-
-								logger.log(Level.INFO, "User {0} doesn't exist in LDAP directory, deleting.", user);
-								app.delete(user);
-							}
+				if (StringUtils.isNotBlank(binddn) && StringUtils.isNotBlank(secret)) {
 
-						} else {
+					connection.bind(binddn, secret);
 
-							logger.log(Level.WARNING, "User {0} doesn't have an LDAP distinguished name, ignoring.", user);
-						}
-					}
+				} else if (StringUtils.isNotBlank(binddn)) {
 
-					tx.success();
+					connection.bind(binddn);
 				}
 
-				cursor.close();
+				synchronize(connection, fullSync);
+
 				connection.close();
 
 			} else {
@@ -217,44 +223,64 @@ public class LDAPService extends Thread implements RunnableService {
 		}
 	}
 
-	// ----- private methods -----
-	private String synchronizeUserEntry(final LdapConnection connection, final Entry entry) {
+	// ----- protected methods -----
+	/**
+	 * Fetches the (modified) entries from the given connection in pages
+	 * and stores them in batches of <code>ldap.batchSize</code> entries.
+	 * A full synchronization additionally removes the local users whose
+	 * entries no longer exist in the directory.
+	 *
+	 * @param connection a bound connection
+	 * @param fullSync
+	 * @throws FrameworkException
+	 */
+	protected void synchronize(final LdapConnection connection, final boolean fullSync) throws FrameworkException {
+
+		final SecurityContext securityContext = SecurityContext.getSuperUserInstance();
+		final Map<String, LDAPUser> users     = loadUsers();
+		final long startTime                  = System.currentTimeMillis();
+		final String since                    = fullSync ? null : lastSyncValue;
+		final String searchFilter             = since != null ? "(&" + filter + "(" + syncAttribute + ">=" + since + "))" : filter;
+		final EntrySynchronizer synchronizer  = new EntrySynchronizer(connection, users);
+
+		try (final LDAPEntryIterator entries = new LDAPEntryIterator(connection, baseDn, searchFilter, SearchScope.valueOf(scope), pageSize, "*", syncAttribute, "entryUUID")) {
+
+			NodeServiceCommand.bulkGraphOperation(securityContext, entries, batchSize, "LDAP synchronization", synchronizer);
+		}
 
-		final App app         = StructrApp.getInstance();
-		final Dn dn           = entry.getDn();
-		final String dnString = dn.toString();
+		if (synchronizer.hasFailed()) {
 
-		try (final Tx tx = app.tx()) {
-
-			LDAPUser user = app.nodeQuery(LDAPUser.class).and(LDAPUser.distinguishedName, dnString).getFirst();
-			if (user == null) {
+			// keep the previous state so that the next run fetches the same entries again
+			logger.log(Level.WARNING, "LDAP synchronization incomplete, {0} entries processed.", synchronizer.getEntryCount());
+			return;
+		}
 
-				user = app.create(LDAPUser.class, new NodeAttribute(LDAPUser.distinguishedName, dnString));
-				user.initializeFrom(entry);
+		if (fullSync) {
 
-				final String uuid = user.getUuid();
-				if (user.getProperty(LDAPUser.entryUuid) == null) {
+			final List<LDAPUser> missing = new LinkedList<>();
 
-					try {
-						// try to set "our" UUID in the remote database
-						final Modification addUuid = new DefaultModification(ModificationOperation.ADD_ATTRIBUTE, "entryUUID", normalizeUUID(uuid));
-						connection.modify(dn, addUuid);
+			for (final Map.Entry<String, LDAPUser> entry : users.entrySet()) {
 
-					} catch (LdapException ex) {
-						logger.log(Level.WARNING, "Unable to set entryUUID: {0}", ex.getMessage());
-					}
+				if (!synchronizer.getSeenDns().contains(entry.getKey())) {
+					missing.add(entry.getValue());
 				}
 			}
 
-			tx.success();
+			if (!missing.isEmpty()) {
 
-			return user.getUuid();
+				NodeServiceCommand.bulkGraphOperation(securityContext, missing.iterator(), batchSize, "LDAP cleanup", new MissingUserHandler(connection));
+			}
 
-		} catch (FrameworkException | LdapInvalidAttributeValueException fex) {
-			logger.log(Level.WARNING, "Unable to update LDAP information", fex);
+			lastFullSync = startTime;
 		}
 
-		return null;
+		final String maxSyncValue = synchronizer.getMaxSyncValue();
+		if (maxSyncValue != null && (lastSyncValue == null || maxSyncValue.compareTo(lastSyncValue) > 0)) {
+
+			lastSyncValue = maxSyncValue;
+		}
+
+		logger.log(Level.INFO, "LDAP synchronization finished, {0} entries processed in {1} ms.", new Object[] { synchronizer.getEntryCount(), System.currentTimeMillis() - startTime });
 	}
 
 	// ----- class Thread -----
@@ -316,18 +342,27 @@ public class LDAPService extends Thread implements RunnableService {
 	@Override
 	public void initialize(final StructrServices services, final Properties config) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
 
-		this.updateInterval = Long.valueOf(config.getProperty(CONFIG_KEY_UPDATE_INTERVAL, Long.toString(TimeUnit.HOURS.toMillis(2))));
+		this.updateInterval   = Long.valueOf(config.getProperty(CONFIG_KEY_UPDATE_INTERVAL, Long.toString(TimeUnit.HOURS.toMillis(2))));
+		this.fullSyncInterval = Long.valueOf(config.getProperty(CONFIG_KEY_FULL_SYNC, Long.toString(TimeUnit.HOURS.toMillis(24))));
 
-		this.binddn         = config.getProperty(CONFIG_KEY_LDAP_BINDDN);
-		this.secret         = config.getProperty(CONFIG_KEY_LDAP_SECRET);
+		this.binddn           = config.getProperty(CONFIG_KEY_LDAP_BINDDN);
+		this.secret           = config.getProperty(CONFIG_KEY_LDAP_SECRET);
 
-		this.host           = config.getProperty(CONFIG_KEY_LDAP_HOST, "localhost");
-		this.baseDn         = config.getProperty(CONFIG_KEY_LDAP_BASEDN, "ou=system");
-		this.filter         = config.getProperty(CONFIG_KEY_LDAP_FILTER, "(objectclass=*)");
-		this.scope          = config.getProperty(CONFIG_KEY_LDAP_SCOPE, "SUBTREE");
+		this.host             = config.getProperty(CONFIG_KEY_LDAP_HOST, "localhost");
+		this.baseDn           = config.getProperty(CONFIG_KEY_LDAP_BASEDN, "ou=system");
+		this.filter           = config.getProperty(CONFIG_KEY_LDAP_FILTER, "(objectclass=*)");
+		this.scope            = config.getProperty(CONFIG_KEY_LDAP_SCOPE, "SUBTREE");
+		this.syncAttribute    = config.getProperty(CONFIG_KEY_SYNC_ATTRIBUTE, "modifyTimestamp");
 
-		this.port           = Integer.valueOf(config.getProperty(CONFIG_KEY_LDAP_PORT, "389"));
-		this.useSsl         = "true".equals(config.getProperty(CONFIG_KEY_LDAP_SSL, "true"));
+		this.port             = Integer.valueOf(config.getProperty(CONFIG_KEY_LDAP_PORT, "389"));
+		this.useSsl           = "true".equals(config.getProperty(CONFIG_KEY_LDAP_SSL, "true"));
+		this.pageSize         = Integer.valueOf(config.getProperty(CONFIG_KEY_LDAP_PAGE_SIZE, "500"));
+		this.batchSize        = Integer.valueOf(config.getProperty(CONFIG_KEY_LDAP_BATCH_SIZE, "1000"));
+
+		// the filter is combined with the incremental search condition
+		if (!this.filter.startsWith("(")) {
+			this.filter = "(" + this.filter + ")";
+		}
 	}
 
 	@Override
@@ -345,6 +380,36 @@ public class LDAPService extends Thread implements RunnableService {
 	}
 
 	// ----- private methods -----
+	/**
+	 * Returns all local users with a distinguished name, so that directory
+	 * entries can be matched without a query per entry.
+	 */
+	private Map<String, LDAPUser> loadUsers() throws FrameworkException {
+
+		final Map<String, LDAPUser> users = new HashMap<>();
+		final App app                     = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx()) {
+
+			for (final LDAPUser user : app.nodeQuery(LDAPUser.class).getAsList()) {
+
+				final String dn = user.getProperty(LDAPUser.distinguishedName);
+				if (dn != null) {
+
+					users.put(dn, user);
+
+				} else {
+
+					logger.log(Level.WARNING, "User {0} doesn't have an LDAP distinguished name, ignoring.", user);
+				}
+			}
+
+			tx.success();
+		}
+
+		return users;
+	}
+
 	private String normalizeUUID(final String uuid) {
 
 		final StringBuilder buf = new StringBuilder(uuid);
@@ -356,5 +421,140 @@ public class LDAPService extends Thread implements RunnableService {
 
 		return buf.toString();
 	}
-}
 
+	private String getString(final Entry entry, final String key) throws LdapInvalidAttributeValueException {
+
+		final Attribute attribute = entry.get(key);
+		if (attribute != null) {
+
+			return attribute.getString();
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	private class EntrySynchronizer extends BulkGraphOperation<Entry> {
+
+		private final Set<String> seenDns   = new HashSet<>();
+		private LdapConnection connection   = null;
+		private Map<String, LDAPUser> users = null;
+		private String maxSyncValue         = null;
+		private boolean failed              = false;
+		private long entryCount             = 0L;
+
+		public EntrySynchronizer(final LdapConnection connection, final Map<String, LDAPUser> users) {
+
+			this.connection = connection;
+			this.users      = users;
+		}
+
+		@Override
+		public void handleGraphObject(final SecurityContext securityContext, final Entry entry) throws FrameworkException {
+
+			final App app         = StructrApp.getInstance(securityContext);
+			final Dn dn           = entry.getDn();
+			final String dnString = dn.toString();
+
+			seenDns.add(dnString);
+			entryCount++;
+
+			try {
+
+				final String syncValue = getString(entry, syncAttribute);
+				if (syncValue != null && (maxSyncValue == null || syncValue.compareTo(maxSyncValue) > 0)) {
+
+					maxSyncValue = syncValue;
+				}
+
+				LDAPUser user = users.get(dnString);
+				if (user == null) {
+
+					user = app.create(LDAPUser.class, new NodeAttribute(LDAPUser.distinguishedName, dnString));
+					user.initializeFrom(entry);
+
+					users.put(dnString, user);
+
+					final String uuid = user.getUuid();
+					if (user.getProperty(LDAPUser.entryUuid) == null) {
+
+						try {
+							// try to set "our" UUID in the remote database
+							final Modification addUuid = new DefaultModification(ModificationOperation.ADD_ATTRIBUTE, "entryUUID", normalizeUUID(uuid));
+							connection.modify(dn, addUuid);
+
+						} catch (LdapException ex) {
+							logger.log(Level.WARNING, "Unable to set entryUUID: {0}", ex.getMessage());
+						}
+					}
+
+				} else {
+
+					// update user information
+					user.initializeFrom(entry);
+				}
+
+			} catch (LdapInvalidAttributeValueException ex) {
+				logger.log(Level.WARNING, "Unable to update LDAP information for {0}: {1}", new Object[] { dnString, ex.getMessage() });
+			}
+		}
+
+		@Override
+		public void handleTransactionFailure(final SecurityContext securityContext, final Throwable t) {
+
+			logger.log(Level.WARNING, "Unable to update LDAP information", t);
+			failed = true;
+		}
+
+		public Set<String> getSeenDns() {
+			return seenDns;
+		}
+
+		public String getMaxSyncValue() {
+			return maxSyncValue;
+		}
+
+		public boolean hasFailed() {
+			return failed;
+		}
+
+		public long getEntryCount() {
+			return entryCount;
+		}
+	}
+
+	private class MissingUserHandler extends BulkGraphOperation<LDAPUser> {
+
+		private LdapConnection connection = null;
+
+		public MissingUserHandler(final LdapConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public void handleGraphObject(final SecurityContext securityContext, final LDAPUser user) throws FrameworkException {
+
+			final String dn = user.getProperty(LDAPUser.distinguishedName);
+
+			try {
+
+				// the entry may still exist outside of the configured search filter
+				final Entry userEntry = connection.lookup(dn, "*", syncAttribute, "entryUUID");
+				if (userEntry != null) {
+
+					// update user information
+					user.initializeFrom(userEntry);
+
+				} else {
+
+					logger.log(Level.INFO, "User {0} doesn't exist in LDAP directory, deleting.", user);
+					StructrApp.getInstance(securityContext).delete(user);
+				}
+
+			} catch (LdapException ex) {
+
+				throw new FrameworkException(500, "Unable to look up " + dn + ": " + ex.getMessage());
+			}
+		}
+	}
+}
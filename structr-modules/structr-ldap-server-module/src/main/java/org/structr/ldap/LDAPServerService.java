@@ -54,6 +54,12 @@ import org.apache.directory.shared.ldap.schemamanager.impl.DefaultSchemaManager;
 import org.structr.api.service.Command;
 import org.structr.api.service.SingletonService;
 import org.structr.api.service.StructrServices;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+import org.structr.ldap.entity.LDAPAttributeImpl;
+import org.structr.ldap.entity.LDAPValueImpl;
 
 public class LDAPServerService implements SingletonService {
 
@@ -81,6 +87,8 @@ public class LDAPServerService implements SingletonService {
 
 		try {
 
+			updateValueIndex();
+
 			ds = new DefaultDirectoryService();
 
 			final SchemaManager schemaManager = new DefaultSchemaManager();
@@ -168,6 +176,42 @@ public class LDAPServerService implements SingletonService {
 	}
 
 	// ----- private methods -----
+	/**
+	 * Sets the indexed properties of attribute values that were created
+	 * before the attribute index existed.
+	 */
+	private void updateValueIndex() throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+		int count     = 0;
+
+		try (final Tx tx = app.tx()) {
+
+			for (final LDAPValueImpl value : app.nodeQuery(LDAPValueImpl.class).getAsList()) {
+
+				final String stringValue = value.getStringValue();
+
+				if (stringValue != null && value.getProperty(LDAPValueImpl.normalizedValue) == null) {
+
+					final LDAPAttributeImpl attribute = value.getProperty(LDAPValueImpl.parent);
+					if (attribute != null) {
+
+						value.setProperty(LDAPValueImpl.oid, attribute.getOid());
+					}
+
+					value.setProperty(LDAPValueImpl.normalizedValue, LDAPValueImpl.normalize(stringValue));
+					count++;
+				}
+			}
+
+			tx.success();
+		}
+
+		if (count > 0) {
+			logger.log(Level.INFO, "Updated index of {0} LDAP attribute values", count);
+		}
+	}
+
 	private void initSchema(final SchemaManager schemaManager, final CoreSession adminSession, final StructrPartition partition) throws Exception {
 
 		final URL url            = SchemaEntityFactory.class.getProtectionDomain().getCodeSource().getLocation();
@@ -25,6 +25,8 @@
 package org.structr.ldap;
 
 import org.structr.ldap.api.LDAPNode;
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -34,6 +36,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
 import org.apache.directory.api.ldap.model.constants.SchemaConstants;
 import org.apache.directory.server.core.entry.ClonedServerEntry;
 import org.apache.directory.shared.ldap.model.entry.Attribute;
@@ -66,7 +69,9 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
 import org.structr.ldap.api.LDAPAttribute;
+import org.structr.ldap.entity.LDAPAttributeImpl;
 import org.structr.ldap.entity.LDAPNodeImpl;
+import org.structr.ldap.entity.LDAPValueImpl;
 import org.structr.ldap.api.LDAPValue;
 
 /**
@@ -208,28 +213,63 @@ public class StructrLDAPWrapper {
 	}
 
 	public List<Entry> filter(final Dn dn, final ExprNode filter, final SearchScope scope) throws LdapException {
+		return filter(dn, filter, scope, 0L);
+	}
+
+	/**
+	 * Returns the entries below the given DN that match the given filter.
+	 *
+	 * Equality, presence and prefix filters are answered from the attribute
+	 * index if possible, other filters are evaluated while traversing the
+	 * tree. Only the ids of matching nodes are collected here, the entries
+	 * are created when the returned list is read.
+	 *
+	 * @param dn
+	 * @param filter
+	 * @param scope
+	 * @param sizeLimit the maximum number of entries, or 0 for no limit
+	 * @return the matching entries
+	 * @throws LdapException
+	 */
+	public List<Entry> filter(final Dn dn, final ExprNode filter, final SearchScope scope, final long sizeLimit) throws LdapException {
+
+		final List<String> ids = new ArrayList<>();
+
+		// collect one more result than requested so that exceeding the size limit can be detected
+		final int limit = sizeLimit > 0 && sizeLimit < Integer.MAX_VALUE ? (int)sizeLimit + 1 : Integer.MAX_VALUE;
 
 		try (final Tx tx = app().tx()) {
 
 			final LDAPNode entry = find(dn);
-			List<Entry> result   = null;
-
 			if (entry != null) {
 
-				result = filter(entry, filter, scope, 0);
-			}
+				final Set<LDAPNode> candidates = LDAPNodeImpl.class.isAssignableFrom(type) ? getCandidates(filter) : null;
+				if (candidates != null) {
 
-			tx.success();
+					for (final LDAPNode candidate : candidates) {
+
+						if (ids.size() >= limit) {
+							break;
+						}
+
+						if (isInScope(entry, candidate, scope) && matches(candidate, filter)) {
+							ids.add(candidate.getUuid());
+						}
+					}
+
+				} else {
 
-			if (result != null) {
-				return result;
+					filter(entry, filter, scope, 0, ids, limit);
+				}
 			}
 
+			tx.success();
+
 		} catch (FrameworkException fex) {
 			handleException(fex);
 		}
 
-		return Collections.emptyList();
+		return new EntryList(ids);
 	}
 
 	// ----- private methods -----
@@ -311,17 +351,20 @@ public class StructrLDAPWrapper {
 		return current;
 	}
 
-	private List<Entry> filter(final LDAPNode node, final ExprNode filter, final SearchScope scope, final int depth) throws FrameworkException, LdapException {
+	private void filter(final LDAPNode node, final ExprNode filter, final SearchScope scope, final int depth, final List<String> ids, final int limit) throws FrameworkException, LdapException {
 
 		final boolean base     = SearchScope.OBJECT.equals(scope);
 		final boolean oneLevel = SearchScope.ONELEVEL.equals(scope);
 		final boolean subtree  = SearchScope.SUBTREE.equals(scope);
-		final List<Entry> list = new LinkedList<>();
+
+		if (ids.size() >= limit) {
+			return;
+		}
 
 		if (base || !(depth == 0 && oneLevel)) {
 
 			if (matches(node, filter)) {
-				list.add(getEntry(node));
+				ids.add(node.getUuid());
 			}
 		}
 
@@ -329,11 +372,171 @@ public class StructrLDAPWrapper {
 
 			// recurse
 			for (final LDAPNode child : node.getChildren()) {
-				list.addAll(filter(child, filter, scope, depth + 1));
+				filter(child, filter, scope, depth + 1, ids, limit);
+			}
+		}
+	}
+
+	/**
+	 * Returns the nodes that possibly match the given filter, or null if the
+	 * filter can not be answered from the attribute index.
+	 */
+	private Set<LDAPNode> getCandidates(final ExprNode filter) throws FrameworkException, LdapException {
+
+		if (filter instanceof SimpleNode) {
+
+			final SimpleNode simpleNode = (SimpleNode)filter;
+			if (EQUALITY.equals(simpleNode.getAssertionType()) && hasStringMatchingRule(simpleNode.getAttributeType())) {
+
+				final Attribute attribute = new DefaultAttribute(simpleNode.getAttributeType(), simpleNode.getValue());
+
+				return getNodes(app().nodeQuery(LDAPValueImpl.class)
+					.and(LDAPValueImpl.oid, attribute.getId())
+					.and(LDAPValueImpl.normalizedValue, LDAPValueImpl.normalize(simpleNode.getValue().getString()))
+					.getAsList()
+				);
+			}
+
+		} else if (filter instanceof SubstringNode) {
+
+			final SubstringNode substringNode = (SubstringNode)filter;
+			final String initialPart          = LDAPValueImpl.normalize(substringNode.getInitial());
+
+			if (StringUtils.isNotEmpty(initialPart)) {
+
+				final Attribute attribute = new DefaultAttribute(substringNode.getAttributeType());
+
+				return getNodes(app().nodeQuery(LDAPValueImpl.class)
+					.and(LDAPValueImpl.oid, attribute.getId())
+					.andRange(LDAPValueImpl.normalizedValue, initialPart, initialPart + Character.MAX_VALUE)
+					.getAsList()
+				);
+			}
+
+		} else if (filter instanceof PresenceNode) {
+
+			final Attribute attribute = new DefaultAttribute(((PresenceNode)filter).getAttributeType());
+			final Set<LDAPNode> nodes = new LinkedHashSet<>();
+
+			for (final LDAPAttributeImpl attr : app().nodeQuery(LDAPAttributeImpl.class).and(LDAPAttributeImpl.oid, attribute.getId()).getAsList()) {
+
+				final LDAPNode node = attr.getProperty(LDAPAttributeImpl.parent);
+				if (node != null) {
+
+					nodes.add(node);
+				}
 			}
+
+			return nodes;
+
+		} else if (filter instanceof AndNode) {
+
+			Set<LDAPNode> intersection = null;
+
+			// a conjunction can be answered from the index if at least one part can
+			for (final ExprNode child : ((AndNode)filter).getChildren()) {
+
+				final Set<LDAPNode> candidates = getCandidates(child);
+				if (candidates != null) {
+
+					if (intersection == null) {
+
+						intersection = candidates;
+
+					} else {
+
+						intersection.retainAll(candidates);
+					}
+				}
+			}
+
+			return intersection;
+
+		} else if (filter instanceof OrNode) {
+
+			final Set<LDAPNode> union = new LinkedHashSet<>();
+
+			// a disjunction can only be answered from the index if all parts can
+			for (final ExprNode child : ((OrNode)filter).getChildren()) {
+
+				final Set<LDAPNode> candidates = getCandidates(child);
+				if (candidates == null) {
+
+					return null;
+				}
+
+				union.addAll(candidates);
+			}
+
+			return union;
 		}
 
-		return list;
+		return null;
+	}
+
+	/**
+	 * The attribute index stores lowercased values, so it can only be used
+	 * for attributes that are compared with a case (in)sensitive string
+	 * matching rule.
+	 */
+	private boolean hasStringMatchingRule(final AttributeType attributeType) {
+
+		if (attributeType != null && attributeType.getEquality() != null) {
+
+			final String name = attributeType.getEquality().getName();
+			return name != null && (name.startsWith("caseIgnore") || name.startsWith("caseExact"));
+		}
+
+		return false;
+	}
+
+	private Set<LDAPNode> getNodes(final List<LDAPValueImpl> values) {
+
+		final Set<LDAPNode> nodes = new LinkedHashSet<>();
+
+		for (final LDAPValueImpl value : values) {
+
+			final LDAPAttributeImpl attribute = value.getProperty(LDAPValueImpl.parent);
+			if (attribute != null) {
+
+				final LDAPNode node = attribute.getProperty(LDAPAttributeImpl.parent);
+				if (node != null) {
+
+					nodes.add(node);
+				}
+			}
+		}
+
+		return nodes;
+	}
+
+	private boolean isInScope(final LDAPNode base, final LDAPNode node, final SearchScope scope) {
+
+		final String baseId = base.getUuid();
+
+		switch (scope) {
+
+			case OBJECT:
+				return baseId.equals(node.getUuid());
+
+			case ONELEVEL:
+				final LDAPNode parent = node.getParent();
+				return parent != null && baseId.equals(parent.getUuid());
+
+			default:
+				LDAPNode current = node;
+
+				while (current != null) {
+
+					if (baseId.equals(current.getUuid())) {
+						return true;
+					}
+
+					current = current.getParent();
+				}
+		}
+
+		return false;
 	}
 
 	private boolean matches(final LDAPNode node, final ExprNode filter) throws FrameworkException, LdapInvalidAttributeValueException {
@@ -397,6 +600,12 @@ public class StructrLDAPWrapper {
 
 				case EQUALITY:
 					return hasAttributeValue(node, attribute);
+
+				case GREATEREQ:
+					return hasOrderedValue(node, attribute, true);
+
+				case LESSEQ:
+					return hasOrderedValue(node, attribute, false);
 			}
 		}
 
@@ -450,6 +659,31 @@ public class StructrLDAPWrapper {
 		return false;
 	}
 
+	/**
+	 * Compares the string values of the given attribute with the asserted
+	 * value. Sufficient for values with a fixed-width format like generalized
+	 * time, which is what incremental synchronization filters use.
+	 */
+	private boolean hasOrderedValue(final LDAPNode node, final Attribute value, final boolean greaterOrEqual) throws FrameworkException, LdapInvalidAttributeValueException {
+
+		final Attribute attribute = findAttribute(node, value.getId());
+		if (attribute != null) {
+
+			final String bound = value.getString();
+
+			for (final Value<?> existing : attribute) {
+
+				final int comparison = existing.getString().compareTo(bound);
+				if (greaterOrEqual ? comparison >= 0 : comparison <= 0) {
+
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
 	private Attribute findAttribute(final LDAPNode node, final String oid) throws FrameworkException, LdapInvalidAttributeValueException {
 
 		for (final LDAPAttribute attr : node.getAttributes()) {
@@ -488,4 +722,53 @@ public class StructrLDAPWrapper {
 		fex.printStackTrace();
 
 	}
+
+	// ----- nested classes -----
+	/**
+	 * List of search results that creates each entry when it is read,
+	 * so that a cursor over this list only loads the entries that are
+	 * actually sent to the client.
+	 */
+	private class EntryList extends AbstractList<Entry> {
+
+		private List<String> ids  = null;
+		private Entry cachedEntry = null;
+		private int cachedIndex   = -1;
+
+		public EntryList(final List<String> ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public Entry get(final int index) {
+
+			if (index != cachedIndex) {
+
+				try (final Tx tx = app().tx()) {
+
+					final LDAPNode node = (LDAPNode)app().get(ids.get(index));
+					if (node == null) {
+
+						throw new IllegalStateException("LDAP entry with id " + ids.get(index) + " was removed during search");
+					}
+
+					cachedEntry = getEntry(node);
+					cachedIndex = index;
+
+					tx.success();
+
+				} catch (FrameworkException | LdapException ex) {
+
+					throw new IllegalStateException(ex);
+				}
+			}
+
+			return cachedEntry;
+		}
+
+		@Override
+		public int size() {
+			return ids.size();
+		}
+	}
 }
@@ -157,7 +157,7 @@ class StructrPartition implements Partition {
 		final Dn dn                   = searchContext.getDn();
 		final ExprNode filter         = searchContext.getFilter();
 		final SearchScope scope       = searchContext.getScope();
-		final List<Entry> list        = getWrapper(principal).filter(dn, filter, scope);
+		final List<Entry> list        = getWrapper(principal).filter(dn, filter, scope, searchContext.getSizeLimit());
 		final Cursor<Entry> cursor    = new ListCursor<>(list);
 
 		return new BaseEntryFilteringCursor(cursor, searchContext);
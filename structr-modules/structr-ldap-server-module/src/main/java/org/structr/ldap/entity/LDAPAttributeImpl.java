@@ -93,6 +93,8 @@ public class LDAPAttributeImpl extends AbstractNode implements LDAPAttribute {
 		return StructrApp.getInstance(securityContext).create(LDAPValueImpl.class,
 			new NodeAttribute<>(LDAPValueImpl.parent, this),
 			new NodeAttribute<>(LDAPValueImpl.value, value),
+			new NodeAttribute<>(LDAPValueImpl.oid, getOid()),
+			new NodeAttribute<>(LDAPValueImpl.normalizedValue, LDAPValueImpl.normalize(value)),
 			new NodeAttribute<>(AbstractNode.visibleToPublicUsers, true),
 			new NodeAttribute<>(AbstractNode.visibleToAuthenticatedUsers, true)
 		);
@@ -39,8 +39,10 @@ import org.structr.ldap.relationship.LDAPValues;
  */
 public class LDAPValueImpl extends AbstractNode implements LDAPValue {
 
-	public static final Property<LDAPAttributeImpl> parent = new StartNode<>("parent", LDAPValues.class);
-	public static final Property<String> value             = new StringProperty("value");
+	public static final Property<LDAPAttributeImpl> parent    = new StartNode<>("parent", LDAPValues.class);
+	public static final Property<String> value                = new StringProperty("value");
+	public static final Property<String> oid                  = new StringProperty("oid").indexed();
+	public static final Property<String> normalizedValue      = new StringProperty("normalizedValue").indexed();
 
 	public static final View publicView = new View(LDAPValueImpl.class, PropertyView.Public,
 		value
@@ -57,6 +59,25 @@ public class LDAPValueImpl extends AbstractNode implements LDAPValue {
 
 	@Override
 	public void setStringValue(final String value) throws FrameworkException {
+
 		setProperty(LDAPValueImpl.value, value);
+		setProperty(LDAPValueImpl.normalizedValue, normalize(value));
+	}
+
+	/**
+	 * Normalizes the given value for the attribute index. The index is only
+	 * used to find candidates, each candidate is checked against the filter
+	 * with the matching rules of the schema afterwards.
+	 *
+	 * @param value
+	 * @return the lower-case value with collapsed whitespace
+	 */
+	public static String normalize(final String value) {
+
+		if (value != null) {
+			return value.trim().replaceAll("\\s+", " ").toLowerCase();
+		}
+
+		return null;
 	}
 }
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.ldap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.directory.ldap.client.api.LdapConnection;
+import org.apache.directory.ldap.client.api.LdapNetworkConnection;
+import org.apache.directory.shared.ldap.model.entry.DefaultEntry;
+import org.apache.directory.shared.ldap.model.entry.Entry;
+import org.apache.directory.shared.ldap.model.name.Dn;
+import org.apache.directory.shared.ldap.model.schema.SchemaManager;
+import org.apache.directory.shared.ldap.schemamanager.impl.DefaultSchemaManager;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.graph.Tx;
+import org.structr.ldap.common.StructrLDAPTest;
+import org.structr.ldap.entity.LDAPNodeImpl;
+
+/**
+ * Tests the synchronization of {@link LDAPService} against the embedded
+ * directory server.
+ *
+ *
+ */
+public class LDAPSynchronizationTest extends StructrLDAPTest {
+
+	private static final Logger logger = Logger.getLogger(LDAPSynchronizationTest.class.getName());
+
+	private SchemaManager schemaManager = null;
+	private StructrLDAPWrapper wrapper  = null;
+	private LdapConnection connection   = null;
+	private LDAPService service         = null;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp(Collections.singletonMap(Services.CONFIGURED_SERVICES, "NodeService SchemaService LDAPServerService"));
+
+		// entries are stored in the partition that the server service creates for dc=org
+		schemaManager = new DefaultSchemaManager();
+		wrapper       = new StructrLDAPWrapper(securityContext, schemaManager, "structr", LDAPNodeImpl.class);
+
+		final Entry people = new DefaultEntry(schemaManager, new Dn(schemaManager, "ou=people,dc=org"));
+
+		people.add("objectClass", "top", "organizationalUnit");
+		people.add("ou", "people");
+
+		wrapper.add(people);
+
+		for (int i=0; i<5; i++) {
+			addPerson(i);
+		}
+
+		final Properties ldapConfig = new Properties();
+
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_PORT,      "10389");
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_SSL,       "false");
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_BASEDN,    "ou=people,dc=org");
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_FILTER,    "(uid=*)");
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_SYNC_ATTRIBUTE, "employeeNumber");
+
+		// fewer entries per page than entries in the directory
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_PAGE_SIZE,  "2");
+		ldapConfig.setProperty(LDAPService.CONFIG_KEY_LDAP_BATCH_SIZE, "3");
+
+		service = new LDAPService();
+		service.initialize(null, ldapConfig);
+
+		connection = new LdapNetworkConnection("localhost", 10389, false);
+		assertTrue("Unable to connect to the embedded directory server", connection.connect());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		if (connection != null) {
+			connection.close();
+		}
+
+		super.tearDown();
+	}
+
+	public void testFullSynchronization() {
+
+		try {
+
+			service.synchronize(connection, true);
+
+			final List<LDAPUser> users = getUsers();
+
+			assertEquals("Paged search did not return all entries", 5, users.size());
+
+			try (final Tx tx = app.tx()) {
+
+				final LDAPUser user = getUser("user3");
+
+				assertNotNull(user);
+				assertEquals("uid=user3,ou=people,dc=org", user.getProperty(LDAPUser.distinguishedName));
+				assertEquals("User 3", user.getProperty(LDAPUser.commonName));
+
+				tx.success();
+			}
+
+		} catch (Exception ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testIncrementalSynchronization() {
+
+		try {
+
+			service.synchronize(connection, true);
+
+			// a local change is only overwritten if the entry is fetched again
+			setCommonName("user0", "local");
+			setCommonName("user4", "local");
+
+			addPerson(5);
+			addPerson(6);
+
+			service.synchronize(connection, false);
+
+			assertEquals(7, getUsers().size());
+
+			try (final Tx tx = app.tx()) {
+
+				// user0 is older than the last synchronization, user4 is the last synchronized entry
+				assertEquals("local",  getUser("user0").getProperty(LDAPUser.commonName));
+				assertEquals("User 4", getUser("user4").getProperty(LDAPUser.commonName));
+				assertEquals("User 6", getUser("user6").getProperty(LDAPUser.commonName));
+
+				tx.success();
+			}
+
+			service.synchronize(connection, true);
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("User 0", getUser("user0").getProperty(LDAPUser.commonName));
+				tx.success();
+			}
+
+		} catch (Exception ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	public void testRemovedEntriesAreDeleted() {
+
+		try {
+
+			service.synchronize(connection, true);
+
+			assertEquals(5, getUsers().size());
+
+			wrapper.delete(new Dn(schemaManager, "uid=user2,ou=people,dc=org"));
+
+			// an incremental synchronization can not detect removed entries
+			service.synchronize(connection, false);
+
+			assertEquals(5, getUsers().size());
+
+			service.synchronize(connection, true);
+
+			assertEquals(4, getUsers().size());
+
+			try (final Tx tx = app.tx()) {
+
+				assertNull(getUser("user2"));
+				assertNotNull(getUser("user1"));
+
+				tx.success();
+			}
+
+		} catch (Exception ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	// ----- private methods -----
+	private void addPerson(final int index) throws Exception {
+
+		final Entry person = new DefaultEntry(schemaManager, new Dn(schemaManager, "uid=user" + index + ",ou=people,dc=org"));
+
+		person.add("objectClass", "top", "person", "organizationalPerson", "inetOrgPerson");
+		person.add("uid", "user" + index);
+		person.add("cn", "User " + index);
+		person.add("sn", "User");
+
+		// fixed-width values so that the string order is the numeric order
+		person.add("employeeNumber", String.format("%03d", index));
+
+		wrapper.add(person);
+	}
+
+	private List<LDAPUser> getUsers() throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final List<LDAPUser> users = app.nodeQuery(LDAPUser.class).getAsList();
+
+			tx.success();
+
+			return users;
+		}
+	}
+
+	private LDAPUser getUser(final String name) throws FrameworkException {
+		return app.nodeQuery(LDAPUser.class).andName(name).getFirst();
+	}
+
+	private void setCommonName(final String name, final String commonName) throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			getUser(name).setProperty(LDAPUser.commonName, commonName);
+			tx.success();
+		}
+	}
+}
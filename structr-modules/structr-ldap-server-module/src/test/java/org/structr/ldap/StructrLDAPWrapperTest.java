@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.ldap;
+
+import java.util.List;
+import org.apache.directory.shared.ldap.model.entry.DefaultEntry;
+import org.apache.directory.shared.ldap.model.entry.Entry;
+import org.apache.directory.shared.ldap.model.filter.FilterParser;
+import org.apache.directory.shared.ldap.model.message.SearchScope;
+import org.apache.directory.shared.ldap.model.name.Dn;
+import org.apache.directory.shared.ldap.model.schema.SchemaManager;
+import org.apache.directory.shared.ldap.schemamanager.impl.DefaultSchemaManager;
+import org.structr.ldap.common.StructrLDAPTest;
+import org.structr.ldap.entity.LDAPNodeImpl;
+
+/**
+ * Tests the attribute index and the lazy search results of {@link StructrLDAPWrapper}.
+ *
+ *
+ */
+public class StructrLDAPWrapperTest extends StructrLDAPTest {
+
+	private SchemaManager schemaManager = null;
+	private StructrLDAPWrapper wrapper  = null;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+
+		schemaManager = new DefaultSchemaManager();
+		wrapper       = new StructrLDAPWrapper(securityContext, schemaManager, "test", LDAPNodeImpl.class);
+
+		add("dc=org", "domain", "dc", "org");
+		add("ou=people,dc=org", "organizationalUnit", "ou", "people");
+		add("ou=roles,dc=org", "organizationalUnit", "ou", "roles");
+
+		for (int i=0; i<5; i++) {
+
+			final Entry person = entry("cn=user" + i + ",ou=people,dc=org", "person");
+
+			person.add("cn", "user" + i);
+			person.add("sn", i % 2 == 0 ? "Smith" : "Miller");
+
+			wrapper.add(person);
+		}
+
+		// same cn in a different subtree
+		add("cn=user0,ou=roles,dc=org", "organizationalRole", "cn", "user0");
+	}
+
+	public void testEqualityFilter() throws Exception {
+
+		// the index stores normalized values, matching must be case-insensitive
+		assertEquals(3, search("ou=people,dc=org", "(sn=SMITH)", SearchScope.ONELEVEL, 0).size());
+		assertEquals(2, search("ou=people,dc=org", "(sn=miller)", SearchScope.ONELEVEL, 0).size());
+		assertEquals(0, search("ou=people,dc=org", "(sn=unknown)", SearchScope.ONELEVEL, 0).size());
+	}
+
+	public void testIndexResultsAreRestrictedToScope() throws Exception {
+
+		assertEquals(1, search("ou=people,dc=org", "(cn=user0)", SearchScope.ONELEVEL, 0).size());
+		assertEquals(1, search("ou=roles,dc=org",  "(cn=user0)", SearchScope.SUBTREE, 0).size());
+		assertEquals(2, search("dc=org",           "(cn=user0)", SearchScope.SUBTREE, 0).size());
+		assertEquals(0, search("dc=org",           "(cn=user0)", SearchScope.ONELEVEL, 0).size());
+
+		final List<Entry> base = search("cn=user0,ou=people,dc=org", "(cn=user0)", SearchScope.OBJECT, 0);
+
+		assertEquals(1, base.size());
+		assertEquals(new Dn(schemaManager, "cn=user0,ou=people,dc=org"), base.get(0).getDn());
+	}
+
+	public void testPresenceAndPrefixFilters() throws Exception {
+
+		assertEquals(5, search("ou=people,dc=org", "(sn=*)", SearchScope.ONELEVEL, 0).size());
+		assertEquals(6, search("dc=org", "(cn=*)", SearchScope.SUBTREE, 0).size());
+
+		assertEquals(5, search("ou=people,dc=org", "(cn=USER*)", SearchScope.ONELEVEL, 0).size());
+		assertEquals(1, search("ou=people,dc=org", "(cn=user3*)", SearchScope.ONELEVEL, 0).size());
+	}
+
+	public void testCombinedFilters() throws Exception {
+
+		assertEquals(1, search("ou=people,dc=org", "(&(sn=smith)(cn=user2))", SearchScope.ONELEVEL, 0).size());
+		assertEquals(0, search("ou=people,dc=org", "(&(sn=miller)(cn=user2))", SearchScope.ONELEVEL, 0).size());
+		assertEquals(3, search("ou=people,dc=org", "(|(sn=miller)(cn=user0))", SearchScope.ONELEVEL, 0).size());
+
+		// the conjunction is answered from the index, the substring part is evaluated on the candidates
+		assertEquals(1, search("ou=people,dc=org", "(&(sn=smith)(cn=*4))", SearchScope.ONELEVEL, 0).size());
+	}
+
+	public void testSizeLimit() throws Exception {
+
+		// one more entry than requested is returned so that the caller can detect that the limit was exceeded
+		assertEquals(3, search("ou=people,dc=org", "(sn=*)", SearchScope.ONELEVEL, 2).size());
+		assertEquals(5, search("ou=people,dc=org", "(sn=*)", SearchScope.ONELEVEL, 5).size());
+	}
+
+	public void testEntriesAreCreatedWhenRead() throws Exception {
+
+		final List<Entry> result = search("ou=people,dc=org", "(cn=user1)", SearchScope.ONELEVEL, 0);
+
+		assertEquals(1, result.size());
+
+		wrapper.delete(new Dn(schemaManager, "cn=user1,ou=people,dc=org"));
+
+		try {
+
+			result.get(0);
+			fail("Reading a search result must load the entry from the database.");
+
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	// ----- private methods -----
+	private List<Entry> search(final String dn, final String filter, final SearchScope scope, final long sizeLimit) throws Exception {
+		return wrapper.filter(new Dn(schemaManager, dn), FilterParser.parse(schemaManager, filter), scope, sizeLimit);
+	}
+
+	private Entry entry(final String dn, final String objectClass) throws Exception {
+
+		final Entry entry = new DefaultEntry(schemaManager, new Dn(schemaManager, dn));
+
+		entry.add("objectClass", "top", objectClass);
+
+		return entry;
+	}
+
+	private void add(final String dn, final String objectClass, final String attribute, final String value) throws Exception {
+
+		final Entry entry = entry(dn, objectClass);
+
+		entry.add(attribute, value);
+
+		wrapper.add(entry);
+	}
+}
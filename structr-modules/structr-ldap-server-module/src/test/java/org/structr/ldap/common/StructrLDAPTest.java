@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.ldap.common;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.structr.api.config.Structr;
+import org.structr.common.SecurityContext;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.module.JarConfigurationProvider;
+
+/**
+ * Base class for all structr LDAP tests
+ *
+ * All tests are executed in superuser context
+ *
+ *
+ */
+public abstract class StructrLDAPTest extends TestCase {
+
+	protected Properties config               = new Properties();
+	protected SecurityContext securityContext = null;
+	protected App app                         = null;
+	protected String basePath                 = null;
+
+	@Override
+	protected void setUp() throws Exception {
+		setUp(null);
+	}
+
+	protected void setUp(final Map<String, Object> additionalConfig) {
+
+		System.out.println("\n######################################################################################");
+		System.out.println("# Starting " + getClass().getSimpleName() + "#" + getName());
+		System.out.println("######################################################################################");
+
+		config = Services.getBaseConfiguration();
+
+		basePath = "/tmp/structr-test-" + System.currentTimeMillis() + "-" + System.nanoTime();
+
+		// enable "just testing" flag to avoid JAR resource scanning
+		config.setProperty(Services.TESTING, "true");
+
+		config.setProperty(Services.CONFIGURATION, JarConfigurationProvider.class.getName());
+		config.setProperty(Services.CONFIGURED_SERVICES, "NodeService SchemaService");
+		config.setProperty(Services.TMP_PATH, "/tmp/");
+		config.setProperty(Services.BASE_PATH, basePath);
+		config.setProperty(Structr.DATABASE_PATH, basePath + "/db");
+		config.setProperty(Services.FILES_PATH, basePath + "/files");
+		config.setProperty(Services.LOG_DATABASE_PATH, basePath + "/logDb.dat");
+		config.setProperty(Services.TCP_PORT, (System.getProperty("tcpPort") != null ? System.getProperty("tcpPort") : "13465"));
+		config.setProperty(Services.UDP_PORT, (System.getProperty("udpPort") != null ? System.getProperty("udpPort") : "13466"));
+		config.setProperty(Services.SUPERUSER_USERNAME, "superadmin");
+		config.setProperty(Services.SUPERUSER_PASSWORD, "sehrgeheim");
+
+		if (additionalConfig != null) {
+			config.putAll(additionalConfig);
+		}
+
+		final Services services = Services.getInstance(config);
+
+		// wait for service layer to be initialized
+		do {
+			try {
+				Thread.sleep(100);
+			} catch (Throwable t) {
+			}
+
+		} while (!services.isInitialized());
+
+		securityContext = SecurityContext.getSuperUserInstance();
+		app             = StructrApp.getInstance(securityContext);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		Services.getInstance().shutdown();
+
+		File testDir = new File(basePath);
+		int count = 0;
+
+		// try up to 10 times to delete the directory
+		while (testDir.exists() && count++ < 10) {
+
+			try {
+
+				if (testDir.isDirectory()) {
+
+					FileUtils.deleteDirectory(testDir);
+
+				} else {
+
+					testDir.delete();
+				}
+
+			} catch (Throwable t) {
+			}
+
+			try {
+				Thread.sleep(500);
+			} catch (Throwable t) {
+			}
+		}
+
+		super.tearDown();
+
+		System.out.println("######################################################################################");
+		System.out.println("# " + getClass().getSimpleName() + "#" + getName() + " finished.");
+		System.out.println("######################################################################################\n");
+	}
+}
@@ -19,16 +19,21 @@
 package org.structr.media;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
 import org.structr.web.entity.Image;
 
 /**
+ * Video helper that runs avconv and avprobe through the {@link TranscodingQueue}.
  *
  *
  */
@@ -37,10 +42,13 @@ public class AVConv implements VideoHelper {
 
 	private static final Logger logger = Logger.getLogger(AVConv.class.getName());
 
-	private static final ExecutorService service = Executors.newCachedThreadPool();
-	private SecurityContext securityContext      = null;
-	private VideoFile inputVideo                 = null;
-	private String outputFileName                = null;
+	public static final String AVCONV_COMMAND  = "VideoFile.avconv";
+	public static final String AVPROBE_COMMAND = "VideoFile.avprobe";
+	public static final String PROBE_TIMEOUT   = "VideoFile.probe.timeout";
+
+	private SecurityContext securityContext    = null;
+	private VideoFile inputVideo               = null;
+	private String outputFileName              = null;
 
 	private AVConv(final SecurityContext securityContext, final VideoFile inputVideo, final String outputFileName) {
 		this.securityContext = securityContext;
@@ -57,60 +65,56 @@ public class AVConv implements VideoHelper {
 		return new AVConv(securityContext, inputVideo, outputFileName);
 	}
 
-	@Override
-	public Future<VideoFile> doConversion(final String scriptName) {
-		return service.submit(new ConverterProcess(securityContext, inputVideo, outputFileName, scriptName));
+	public static String getAvconvCommand() {
+		return StructrApp.getConfigurationValue(AVCONV_COMMAND, "avconv");
 	}
 
-	@Override
-	public Future<Image> grabFrame(final String scriptName, final String imageName, final long frameIndex) {
-		return service.submit(new FrameGrabberProcess(securityContext, inputVideo, imageName, frameIndex, scriptName));
+	public static String getAvprobeCommand() {
+		return StructrApp.getConfigurationValue(AVPROBE_COMMAND, "avprobe");
 	}
 
 	@Override
-	public Map<String, String> getMetadata() {
-
-		try {
-
-			return service.submit(new GetMetadataProcess(securityContext, inputVideo)).get();
-
-		} catch (InterruptedException | ExecutionException ex) {
-			logger.log(Level.WARNING, "", ex);
-		}
-
-		return null;
+	public Future<VideoFile> doConversion(final String scriptName) throws FrameworkException {
+		return TranscodingQueue.getInstance().convert(securityContext, inputVideo, outputFileName, scriptName);
 	}
 
 	@Override
-	public void setMetadata(final String key, final String value) {
+	public Future<Image> grabFrame(final String scriptName, final String imageName, final long frameIndex) throws FrameworkException {
+		return TranscodingQueue.getInstance().grab(securityContext, inputVideo, imageName, frameIndex, scriptName);
+	}
 
-		try {
+	@Override
+	public Map<String, String> getMetadata() throws FrameworkException {
+		return await(TranscodingQueue.getInstance().getMetadata(securityContext, inputVideo));
+	}
 
-			service.submit(new SetMetadataProcess(securityContext, inputVideo, key, value)).get();
+	@Override
+	public void setMetadata(final String key, final String value) throws FrameworkException {
+		await(TranscodingQueue.getInstance().submit(new SetMetadataProcess(securityContext, inputVideo, key, value), TranscodingQueue.PRIORITY_PROBE));
+	}
 
-		} catch (InterruptedException | ExecutionException ex) {
-			logger.log(Level.WARNING, "", ex);
-		}
+	@Override
+	public void setMetadata(final Map<String, String> metadata) throws FrameworkException {
+		await(TranscodingQueue.getInstance().submit(new SetMetadataProcess(securityContext, inputVideo, metadata), TranscodingQueue.PRIORITY_PROBE));
 	}
 
 	@Override
-	public void setMetadata(final Map<String, String> metadata) {
+	public CompletableFuture<Map<String, Object>> getVideoInfo() {
+		return TranscodingQueue.getInstance().getVideoInfo(securityContext, inputVideo);
+	}
 
-		try {
+	// ----- private methods -----
+	private <T> T await(final Future<T> future) throws FrameworkException {
 
-			service.submit(new SetMetadataProcess(securityContext, inputVideo, metadata)).get();
+		final int timeout = Services.parseInt(StructrApp.getConfigurationValue(PROBE_TIMEOUT), 60);
 
-		} catch (InterruptedException | ExecutionException ex) {
-			logger.log(Level.WARNING, "", ex);
-		}
-	}
+		try {
 
-	@Override
-	public Map<String, Object> getVideoInfo() {
+			return future.get(timeout, TimeUnit.SECONDS);
 
-		try {
+		} catch (TimeoutException tex) {
 
-			return service.submit(new GetVideoInfoProcess(securityContext, inputVideo.getDiskFilePath(securityContext))).get();
+			throw new FrameworkException(503, "Media process did not finish within " + timeout + " seconds, please try again later");
 
 		} catch (InterruptedException | ExecutionException ex) {
 			logger.log(Level.WARNING, "", ex);
@@ -22,6 +22,8 @@ import org.structr.util.AbstractProcess;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.common.SecurityContext;
@@ -40,18 +42,24 @@ import org.structr.web.common.FileHelper;
  *
  * transcode.sh [input] [output]
  *
+ * The progress of the conversion is read from the "time=" output that
+ * avconv writes to the error stream.
+ *
  *
  */
 
 public class ConverterProcess extends AbstractProcess<VideoFile> {
 
-	private static final Logger logger = Logger.getLogger(ConverterProcess.class.getName());
+	private static final Logger logger        = Logger.getLogger(ConverterProcess.class.getName());
+	private static final Pattern timePattern  = Pattern.compile("time=\\s*(?:(\\d+):(\\d+):)?(\\d+(?:\\.\\d+)?)");
 
-	private VideoFile newFile     = null;
-	private VideoFile inputFile   = null;
-	private String outputFileName = null;
-	private String scriptName     = null;
-	private String fileExtension  = null;
+	private VideoFile newFile                 = null;
+	private VideoFile inputFile               = null;
+	private String outputFileName             = null;
+	private String scriptName                 = null;
+	private String fileExtension              = null;
+	private Double duration                   = null;
+	private volatile double progress          = 0.0;
 
 	public ConverterProcess(final SecurityContext securityContext, final VideoFile inputFile, final String outputFileName, final String scriptName) {
 
@@ -74,6 +82,9 @@ public class ConverterProcess extends AbstractProcess<VideoFile> {
 			// obtain destination path of new file
 			outputFileName = newFile.getFileOnDisk().getAbsolutePath();
 
+			// duration of the input video is needed to compute the progress
+			duration = inputFile.getProperty(VideoFile.duration);
+
 			tx.success();
 
 		} catch (FrameworkException | IOException fex) {
@@ -107,6 +118,34 @@ public class ConverterProcess extends AbstractProcess<VideoFile> {
 		return null;
 	}
 
+	@Override
+	protected void onErrorOutput(final String line) {
+
+		if (duration != null && duration > 0) {
+
+			final Matcher matcher = timePattern.matcher(line);
+			if (matcher.find()) {
+
+				double seconds = Double.valueOf(matcher.group(3));
+
+				if (matcher.group(1) != null) {
+					seconds += Integer.valueOf(matcher.group(1)) * 3600 + Integer.valueOf(matcher.group(2)) * 60;
+				}
+
+				progress = Math.min(1.0, seconds / duration);
+			}
+		}
+	}
+
+	/**
+	 * Returns the progress of this conversion.
+	 *
+	 * @return a value between 0 and 1
+	 */
+	public double getProgress() {
+		return progress;
+	}
+
 	@Override
 	public VideoFile processExited(int exitCode) {
 
@@ -54,7 +54,9 @@ public class GetMetadataProcess extends AbstractProcess<Map<String, String>> {
 	@Override
 	public StringBuilder getCommandLine() {
 
-		StringBuilder commandLine = new StringBuilder("avconv -y -loglevel quiet -i ");
+		StringBuilder commandLine = new StringBuilder(AVConv.getAvconvCommand());
+
+		commandLine.append(" -y -loglevel quiet -i ");
 
 		// build command line from builder options
 		commandLine.append(inputVideo.getDiskFilePath(securityContext));
@@ -48,7 +48,13 @@ public class GetVideoInfoProcess extends AbstractProcess<Map<String, Object>> {
 	@Override
 	public StringBuilder getCommandLine() {
 
-		StringBuilder commandLine = new StringBuilder("if [ -x \"$(which avprobe)\" ]; then avprobe -v verbose -show_format -show_streams -of json ");
+		final String avprobe = AVConv.getAvprobeCommand();
+
+		StringBuilder commandLine = new StringBuilder("if [ -x \"$(which ");
+		commandLine.append(avprobe);
+		commandLine.append(")\" ]; then ");
+		commandLine.append(avprobe);
+		commandLine.append(" -v verbose -show_format -show_streams -of json ");
 		commandLine.append(path);
 		commandLine.append("; fi;");
 
@@ -83,10 +83,11 @@ public class SetMetadataProcess extends AbstractProcess<Void> {
 			return null;
 		}
 
-		final StringBuilder commandLine = new StringBuilder("avconv -y -i ");
+		final StringBuilder commandLine = new StringBuilder(AVConv.getAvconvCommand());
 		final String diskFilePath       = inputVideo.getDiskFilePath(securityContext);
 
 		// build command line from builder options
+		commandLine.append(" -y -i ");
 		commandLine.append(diskFilePath);
 
 		for (final Entry<String, String> meta : metadata.entrySet()) {
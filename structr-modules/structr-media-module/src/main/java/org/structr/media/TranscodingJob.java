@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.media;
+
+import org.structr.common.PropertyView;
+import org.structr.common.SecurityContext;
+import org.structr.common.View;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Export;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.EnumProperty;
+import org.structr.core.property.IntProperty;
+import org.structr.core.property.LongProperty;
+import org.structr.core.property.Property;
+import org.structr.core.property.StringProperty;
+
+/**
+ * Persistent record of a conversion or frame grabbing job. Jobs that were
+ * queued or running when the server was stopped are scheduled again by the
+ * {@link TranscodingService}.
+ *
+ *
+ */
+public class TranscodingJob extends AbstractNode {
+
+	public enum Type   { convert, grab }
+	public enum Status { queued, running, finished, failed, cancelled }
+
+	public static final Property<Type> jobType          = new EnumProperty<>("jobType", Type.class);
+	public static final Property<Status> status         = new EnumProperty<>("status", Status.class, Status.queued).indexed();
+	public static final Property<String> inputFileId    = new StringProperty("inputFileId").indexed();
+	public static final Property<String> resultFileId   = new StringProperty("resultFileId");
+	public static final Property<String> scriptName     = new StringProperty("scriptName");
+	public static final Property<String> outputFileName = new StringProperty("outputFileName");
+	public static final Property<Long> timeIndex        = new LongProperty("timeIndex");
+	public static final Property<Integer> priority      = new IntProperty("priority");
+	public static final Property<Double> progress       = new DoubleProperty("progress");
+
+	public static final View publicView = new View(TranscodingJob.class, PropertyView.Public,
+		jobType, status, inputFileId, resultFileId, scriptName, outputFileName, timeIndex, priority, progress
+	);
+
+	public static final View uiView = new View(TranscodingJob.class, PropertyView.Ui,
+		jobType, status, inputFileId, resultFileId, scriptName, outputFileName, timeIndex, priority, progress
+	);
+
+	@Override
+	public void afterCreation(final SecurityContext securityContext) {
+
+		super.afterCreation(securityContext);
+
+		TranscodingQueue.jobCommitted(getUuid());
+	}
+
+	@Export
+	public void cancel() throws FrameworkException {
+		TranscodingQueue.getInstance().cancel(this);
+	}
+
+	public boolean isPending() {
+
+		final Status jobStatus = getProperty(status);
+
+		return Status.queued.equals(jobStatus) || Status.running.equals(jobStatus);
+	}
+}
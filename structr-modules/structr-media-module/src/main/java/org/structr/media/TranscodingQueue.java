@@ -0,0 +1,593 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.media;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
+import org.structr.media.TranscodingJob.Status;
+import org.structr.media.TranscodingJob.Type;
+import org.structr.util.AbstractProcess;
+import org.structr.web.entity.Image;
+
+/**
+ * Scheduler for the external processes of the media module.
+ *
+ * At most <code>VideoFile.transcoding.threads</code> processes run at the
+ * same time, waiting processes are started in the order of their priority.
+ * Conversions and frame grabs are recorded as {@link TranscodingJob} nodes
+ * that carry status and progress and can be cancelled. A job is started
+ * when the transaction that created it was committed, so that its status
+ * can be updated by the worker thread. Probe results are cached by file
+ * checksum, and concurrent probes of the same file share a single process.
+ *
+ *
+ */
+public class TranscodingQueue {
+
+	private static final Logger logger = Logger.getLogger(TranscodingQueue.class.getName());
+
+	public static final String TRANSCODING_THREADS    = "VideoFile.transcoding.threads";
+	public static final String PROGRESS_INTERVAL      = "VideoFile.transcoding.progressInterval";
+	public static final String PROBE_CACHE_SIZE       = "VideoFile.probe.cacheSize";
+
+	public static final int PRIORITY_CONVERT          = 0;
+	public static final int PRIORITY_GRAB             = 5;
+	public static final int PRIORITY_PROBE            = 10;
+
+	private static TranscodingQueue instance          = null;
+
+	private final Map<String, Task<?>> jobs                = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<?>> probes = new ConcurrentHashMap<>();
+	private final Map<String, Task<?>> uncommitted         = new ConcurrentHashMap<>();
+	private final AtomicLong sequence                      = new AtomicLong();
+	private FixedSizeCache<String, Object> cache           = null;
+	private ScheduledExecutorService progressMonitor       = null;
+	private ThreadPoolExecutor executor                    = null;
+	private volatile boolean shuttingDown                  = false;
+
+	TranscodingQueue(final int threads, final int cacheSize, final int progressInterval) {
+
+		final ThreadFactory threadFactory = new NamedThreadFactory("TranscodingQueue");
+
+		this.cache           = new FixedSizeCache<>(cacheSize);
+		this.executor        = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(), threadFactory);
+		this.progressMonitor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+
+		this.executor.allowCoreThreadTimeOut(true);
+		this.progressMonitor.scheduleWithFixedDelay(this::updateProgress, progressInterval, progressInterval, TimeUnit.SECONDS);
+	}
+
+	public static synchronized TranscodingQueue getInstance() {
+
+		if (instance == null) {
+
+			final int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+			instance = new TranscodingQueue(
+				Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(TRANSCODING_THREADS), defaultThreads)),
+				Services.parseInt(StructrApp.getConfigurationValue(PROBE_CACHE_SIZE), 1000),
+				Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(PROGRESS_INTERVAL), 5))
+			);
+		}
+
+		return instance;
+	}
+
+	public static synchronized void shutdownInstance() {
+
+		if (instance != null) {
+
+			instance.shutdown();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Called after the transaction that created the given job was committed.
+	 *
+	 * @param jobId
+	 */
+	public static synchronized void jobCommitted(final String jobId) {
+
+		if (instance != null) {
+
+			final Task<?> task = instance.uncommitted.remove(jobId);
+			if (task != null) {
+
+				instance.executor.execute(task);
+			}
+		}
+	}
+
+	// ----- public methods -----
+	/**
+	 * Schedules the conversion of the given video. If called in an enclosing
+	 * transaction, the conversion starts when that transaction is committed.
+	 *
+	 * @param securityContext
+	 * @param inputFile
+	 * @param outputFileName
+	 * @param scriptName
+	 * @return the future result of the conversion
+	 * @throws FrameworkException
+	 */
+	public Future<VideoFile> convert(final SecurityContext securityContext, final VideoFile inputFile, final String outputFileName, final String scriptName) throws FrameworkException {
+
+		final boolean committed  = !TransactionCommand.inTransaction();
+		final TranscodingJob job = createJob(securityContext, Type.convert, inputFile, outputFileName, scriptName, null, PRIORITY_CONVERT);
+
+		return schedule(job, new ConverterProcess(securityContext, inputFile, outputFileName, scriptName), PRIORITY_CONVERT, committed);
+	}
+
+	/**
+	 * Schedules a frame grab of the given video. If called in an enclosing
+	 * transaction, the frame grab starts when that transaction is committed.
+	 *
+	 * @param securityContext
+	 * @param inputFile
+	 * @param imageName
+	 * @param timeIndex
+	 * @param scriptName
+	 * @return the future result of the frame grab
+	 * @throws FrameworkException
+	 */
+	public Future<Image> grab(final SecurityContext securityContext, final VideoFile inputFile, final String imageName, final long timeIndex, final String scriptName) throws FrameworkException {
+
+		final boolean committed  = !TransactionCommand.inTransaction();
+		final TranscodingJob job = createJob(securityContext, Type.grab, inputFile, imageName, scriptName, timeIndex, PRIORITY_GRAB);
+
+		return schedule(job, new FrameGrabberProcess(securityContext, inputFile, imageName, timeIndex, scriptName), PRIORITY_GRAB, committed);
+	}
+
+	public CompletableFuture<Map<String, Object>> getVideoInfo(final SecurityContext securityContext, final VideoFile inputFile) {
+		return probe(getProbeKey("info", inputFile), () -> new GetVideoInfoProcess(securityContext, inputFile.getDiskFilePath(securityContext)));
+	}
+
+	public CompletableFuture<Map<String, String>> getMetadata(final SecurityContext securityContext, final VideoFile inputFile) {
+		return probe(getProbeKey("metadata", inputFile), () -> new GetMetadataProcess(securityContext, inputFile));
+	}
+
+	/**
+	 * Schedules a process that is not recorded as a job.
+	 *
+	 * @param <T>
+	 * @param process
+	 * @param priority
+	 * @return the future result of the process
+	 */
+	public <T> CompletableFuture<T> submit(final AbstractProcess<T> process, final int priority) {
+
+		final Task<T> task = new Task<>(process, null, priority);
+
+		executor.execute(task);
+
+		return task.completion;
+	}
+
+	public void cancel(final TranscodingJob job) throws FrameworkException {
+
+		final Task<?> task = jobs.get(job.getUuid());
+		if (task != null) {
+
+			task.cancel(true);
+
+		} else if (job.isPending()) {
+
+			// job from a previous run that was not scheduled again
+			job.setProperty(TranscodingJob.status, Status.cancelled);
+		}
+	}
+
+	/**
+	 * Schedules all jobs that were queued or running when the server was
+	 * stopped.
+	 *
+	 * @throws FrameworkException
+	 */
+	public void recover() throws FrameworkException {
+
+		final SecurityContext securityContext = SecurityContext.getSuperUserInstance();
+		final App app                         = StructrApp.getInstance(securityContext);
+		final List<Runnable> recovered        = new LinkedList<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (final Status pending : new Status[] { Status.queued, Status.running }) {
+
+				for (final TranscodingJob job : app.nodeQuery(TranscodingJob.class).and(TranscodingJob.status, pending).getAsList()) {
+
+					if (jobs.containsKey(job.getUuid())) {
+						continue;
+					}
+
+					final VideoFile inputFile = app.get(VideoFile.class, job.getProperty(TranscodingJob.inputFileId));
+					if (inputFile != null) {
+
+						final AbstractProcess<?> process = createProcess(securityContext, job, inputFile);
+						final Integer priority           = job.getProperty(TranscodingJob.priority);
+
+						job.setProperty(TranscodingJob.status, Status.queued);
+						job.setProperty(TranscodingJob.progress, 0.0);
+
+						recovered.add(() -> schedule(job, process, priority, true));
+
+					} else {
+
+						job.setProperty(TranscodingJob.status, Status.failed);
+					}
+				}
+			}
+
+			tx.success();
+		}
+
+		// start the jobs after the status changes were committed
+		for (final Runnable schedule : recovered) {
+			schedule.run();
+		}
+
+		if (!recovered.isEmpty()) {
+			logger.log(Level.INFO, "Scheduled {0} transcoding job(s) from previous run", recovered.size());
+		}
+	}
+
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	public void shutdown() {
+
+		shuttingDown = true;
+
+		progressMonitor.shutdownNow();
+		executor.shutdownNow();
+
+		// stop running processes, their jobs remain pending and will be scheduled again
+		for (final Task<?> task : jobs.values()) {
+			task.process.cancel();
+		}
+	}
+
+	// ----- private methods -----
+	private <T> Task<T> schedule(final TranscodingJob job, final AbstractProcess<T> process, final Integer priority, final boolean committed) {
+
+		final Task<T> task = new Task<>(process, job.getUuid(), priority != null ? priority : PRIORITY_CONVERT);
+
+		jobs.put(job.getUuid(), task);
+
+		if (committed) {
+
+			executor.execute(task);
+
+		} else {
+
+			// started by jobCommitted(), the worker could not see the job before
+			uncommitted.put(job.getUuid(), task);
+		}
+
+		return task;
+	}
+
+	<T> CompletableFuture<T> probe(final String key, final Supplier<AbstractProcess<T>> supplier) {
+
+		if (key != null) {
+
+			final Object cached = cache.get(key);
+			if (cached != null) {
+
+				return CompletableFuture.completedFuture((T)cached);
+			}
+
+			final CompletableFuture<?> running = probes.get(key);
+			if (running != null) {
+
+				return (CompletableFuture<T>)running;
+			}
+		}
+
+		final Task<T> task = new Task<>(supplier.get(), null, PRIORITY_PROBE);
+
+		if (key != null) {
+
+			// the returned future completes after the result was cached
+			final CompletableFuture<T> probe = task.completion.whenComplete((result, t) -> {
+
+				if (result != null) {
+					cache.put(key, result);
+				}
+
+				probes.remove(key);
+			});
+
+			final CompletableFuture<?> running = probes.putIfAbsent(key, probe);
+			if (running != null) {
+
+				return (CompletableFuture<T>)running;
+			}
+
+			executor.execute(task);
+
+			return probe;
+		}
+
+		executor.execute(task);
+
+		return task.completion;
+	}
+
+	private String getProbeKey(final String kind, final VideoFile inputFile) {
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			final Long checksum = inputFile.getChecksum();
+
+			tx.success();
+
+			if (checksum != null) {
+				return kind + ":" + checksum;
+			}
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+		}
+
+		return null;
+	}
+
+	private TranscodingJob createJob(final SecurityContext securityContext, final Type type, final VideoFile inputFile, final String outputFileName, final String scriptName, final Long timeIndex, final int priority) throws FrameworkException {
+
+		final App app = StructrApp.getInstance(securityContext);
+
+		try (final Tx tx = app.tx()) {
+
+			final TranscodingJob job = app.create(TranscodingJob.class,
+				new NodeAttribute<>(TranscodingJob.jobType, type),
+				new NodeAttribute<>(TranscodingJob.inputFileId, inputFile.getUuid()),
+				new NodeAttribute<>(TranscodingJob.outputFileName, outputFileName),
+				new NodeAttribute<>(TranscodingJob.scriptName, scriptName),
+				new NodeAttribute<>(TranscodingJob.timeIndex, timeIndex),
+				new NodeAttribute<>(TranscodingJob.priority, priority),
+				new NodeAttribute<>(TranscodingJob.progress, 0.0)
+			);
+
+			tx.success();
+
+			return job;
+		}
+	}
+
+	private AbstractProcess<?> createProcess(final SecurityContext securityContext, final TranscodingJob job, final VideoFile inputFile) {
+
+		final String outputFileName = job.getProperty(TranscodingJob.outputFileName);
+		final String scriptName     = job.getProperty(TranscodingJob.scriptName);
+
+		if (Type.grab.equals(job.getProperty(TranscodingJob.jobType))) {
+
+			final Long timeIndex = job.getProperty(TranscodingJob.timeIndex);
+
+			return new FrameGrabberProcess(securityContext, inputFile, outputFileName, timeIndex != null ? timeIndex : 0L, scriptName);
+		}
+
+		return new ConverterProcess(securityContext, inputFile, outputFileName, scriptName);
+	}
+
+	private void updateJob(final String jobId, final Status status, final Double progress, final String resultFileId) {
+
+		if (shuttingDown) {
+			return;
+		}
+
+		final App app = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx()) {
+
+			final TranscodingJob job = app.get(TranscodingJob.class, jobId);
+			if (job != null) {
+
+				if (status != null) {
+					job.setProperty(TranscodingJob.status, status);
+				}
+
+				if (progress != null) {
+					job.setProperty(TranscodingJob.progress, progress);
+				}
+
+				if (resultFileId != null) {
+					job.setProperty(TranscodingJob.resultFileId, resultFileId);
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "Unable to update transcoding job {0}: {1}", new Object[] { jobId, fex.getMessage() });
+		}
+	}
+
+	private void updateProgress() {
+
+		for (final Task<?> task : jobs.values()) {
+
+			if (task.started && !task.isDone() && task.process instanceof ConverterProcess) {
+
+				final double progress = ((ConverterProcess)task.process).getProgress();
+				if (progress != task.reportedProgress) {
+
+					updateJob(task.jobId, null, progress, null);
+					task.reportedProgress = progress;
+				}
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	private class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+
+		private final CompletableFuture<T> completion = new CompletableFuture<>();
+		private AbstractProcess<T> process            = null;
+		private String jobId                          = null;
+		private volatile boolean started              = false;
+		private double reportedProgress               = 0.0;
+		private long sequenceNumber                   = 0L;
+		private int priority                          = 0;
+
+		public Task(final AbstractProcess<T> process, final String jobId, final int priority) {
+
+			super(process);
+
+			this.sequenceNumber = sequence.incrementAndGet();
+			this.priority       = priority;
+			this.process        = process;
+			this.jobId          = jobId;
+
+			// cancelling the returned future cancels the process
+			completion.whenComplete((result, t) -> {
+
+				if (completion.isCancelled()) {
+					cancel(true);
+				}
+			});
+		}
+
+		@Override
+		public void run() {
+
+			if (!isDone()) {
+
+				started = true;
+
+				if (jobId != null) {
+					updateJob(jobId, Status.running, null, null);
+				}
+			}
+
+			super.run();
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+
+			process.cancel();
+			executor.remove(this);
+
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		protected void done() {
+
+			T result = null;
+
+			if (!isCancelled()) {
+
+				try {
+					result = get();
+
+				} catch (InterruptedException | ExecutionException ex) {
+					logger.log(Level.WARNING, "", ex);
+				}
+			}
+
+			if (jobId != null) {
+
+				jobs.remove(jobId);
+				uncommitted.remove(jobId);
+
+				if (isCancelled() || process.isCancelled()) {
+
+					updateJob(jobId, Status.cancelled, null, null);
+
+				} else if (process.getExitCode() == 0) {
+
+					updateJob(jobId, Status.finished, 1.0, result instanceof GraphObject ? ((GraphObject)result).getUuid() : null);
+
+				} else {
+
+					updateJob(jobId, Status.failed, null, null);
+				}
+			}
+
+			completion.complete(result);
+		}
+
+		@Override
+		public int compareTo(final Task<?> other) {
+
+			// higher priority first, submission order within the same priority
+			final int result = Integer.compare(other.priority, priority);
+			if (result == 0) {
+
+				return Long.compare(sequenceNumber, other.sequenceNumber);
+			}
+
+			return result;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+		private String name               = null;
+
+		public NamedThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+
+			final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.media;
+
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.api.service.Command;
+import org.structr.api.service.SingletonService;
+import org.structr.api.service.StructrServices;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Service that schedules the transcoding jobs of a previous run again when
+ * the server starts, and stops the running media processes on shutdown. Add
+ * TranscodingService to <code>configured.services</code> to enable it.
+ *
+ *
+ */
+public class TranscodingService implements SingletonService {
+
+	private static final Logger logger = Logger.getLogger(TranscodingService.class.getName());
+
+	private boolean isRunning = false;
+
+	@Override
+	public void injectArguments(final Command command) {
+	}
+
+	@Override
+	public void initialize(final StructrServices services, final Properties config) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+		isRunning = true;
+	}
+
+	@Override
+	public void initialized() {
+
+		try {
+			TranscodingQueue.getInstance().recover();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "Unable to schedule pending transcoding jobs", fex);
+		}
+	}
+
+	@Override
+	public void shutdown() {
+
+		TranscodingQueue.shutdownInstance();
+		isRunning = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+	@Override
+	public String getName() {
+		return TranscodingService.class.getSimpleName();
+	}
+
+	@Override
+	public boolean isVital() {
+		return false;
+	}
+}
@@ -26,14 +26,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
-import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Export;
 import static org.structr.core.GraphObject.type;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.JsonInput;
 import org.structr.core.app.StructrApp;
-import org.structr.core.graph.ModificationQueue;
 import static org.structr.core.graph.NodeInterface.name;
 import static org.structr.core.graph.NodeInterface.owner;
 import org.structr.core.graph.Tx;
@@ -102,19 +100,19 @@ public class VideoFile extends File {
 
 
 	@Override
-	public boolean onCreation(SecurityContext securityContext, ErrorBuffer errorBuffer) throws FrameworkException {
+	public void afterCreation(SecurityContext securityContext) {
 
-		updateVideoInfo();
+		super.afterCreation(securityContext);
 
-		return super.onCreation(securityContext, errorBuffer);
+		updateVideoInfo();
 	}
 
 	@Override
-	public boolean onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
+	public void afterModification(SecurityContext securityContext) {
 
-		updateVideoInfo();
+		super.afterModification(securityContext);
 
-		return super.onModification(securityContext, errorBuffer, modificationQueue);
+		updateVideoInfo();
 	}
 
 	public String getDiskFilePath(final SecurityContext securityContext) {
@@ -153,8 +151,11 @@ public class VideoFile extends File {
 		final RestMethodResult result      = new RestMethodResult(200);
 		final GraphObjectMap map           = new GraphObjectMap();
 
-		for (final Entry<String, String> entry : metadata.entrySet()) {
-			map.setProperty(new StringProperty(entry.getKey()), entry.getValue());
+		if (metadata != null) {
+
+			for (final Entry<String, String> entry : metadata.entrySet()) {
+				map.setProperty(new StringProperty(entry.getKey()), entry.getValue());
+			}
 		}
 
 		result.addContent(map);
@@ -179,12 +180,20 @@ public class VideoFile extends File {
 		AVConv.newInstance(securityContext, this).setMetadata(map);
 	}
 
+	/**
+	 * Probes this video in the background and stores the stream information
+	 * when the probe has finished. Probe results are cached by checksum, so
+	 * an unchanged file is only probed once.
+	 */
 	@Export
 	public void updateVideoInfo() {
+		AVConv.newInstance(securityContext, this).getVideoInfo().thenAccept(this::setVideoInfo);
+	}
+
+	public void setVideoInfo(final Map<String, Object> info) {
 
 		try (final Tx tx = StructrApp.getInstance(securityContext).tx()) {
 
-			final Map<String, Object> info = AVConv.newInstance(securityContext, this).getVideoInfo();
 			if (info != null && info.containsKey("streams")) {
 
 				final List<Map<String, Object>> streams = (List<Map<String, Object>>)info.get("streams");
@@ -195,19 +204,20 @@ public class VideoFile extends File {
 
 						if ("video".equals(codecType)) {
 
-							setIfNotNull(videoCodecName, stream.get("codec_long_name"));
-							setIfNotNull(videoCodec,     stream.get("codec_name"));
-							setIfNotNull(pixelFormat,    stream.get("pix_fmt"));
-							setIfNotNull(width,          toInt(stream.get("width")));
-							setIfNotNull(height,         toInt(stream.get("height")));
-							setIfNotNull(duration,       toDouble(stream.get("duration")));
+							setIfChanged(videoCodecName, stream.get("codec_long_name"));
+							setIfChanged(videoCodec,     stream.get("codec_name"));
+							setIfChanged(pixelFormat,    stream.get("pix_fmt"));
+							setIfChanged(width,          toInt(stream.get("width")));
+							setIfChanged(height,         toInt(stream.get("height")));
+							setIfChanged(duration,       toDouble(stream.get("duration")));
 
 
 						} else if ("audio".equals(codecType)) {
 
-							setIfNotNull(audioCodecName, stream.get("codec_long_name"));
-							setIfNotNull(audioCodec,     stream.get("codec_name"));
-							setIfNotNull(sampleRate,     toInt(stream.get("sampleRate")));
+							setIfChanged(audioCodecName, stream.get("codec_long_name"));
+							setIfChanged(audioCodec,     stream.get("codec_name"));
+							setIfChanged(audioChannels,  toInt(stream.get("channels")));
+							setIfChanged(sampleRate,     toDouble(stream.get("sample_rate")));
 						}
 					}
 				}
@@ -220,9 +230,13 @@ public class VideoFile extends File {
 		}
 	}
 
-	private void setIfNotNull(final Property key, final Object value) throws FrameworkException {
+	/**
+	 * Only changed values are written, so that storing the cached probe
+	 * result after a modification does not modify this node again.
+	 */
+	private void setIfChanged(final Property key, final Object value) throws FrameworkException {
 
-		if (value != null) {
+		if (value != null && !value.equals(getProperty(key))) {
 			setProperty(key, value);
 		}
 	}
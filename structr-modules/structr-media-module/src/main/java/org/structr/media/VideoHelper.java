@@ -19,7 +19,9 @@
 package org.structr.media;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import org.structr.common.error.FrameworkException;
 import org.structr.web.entity.Image;
 
 /**
@@ -28,12 +30,12 @@ import org.structr.web.entity.Image;
  */
 public interface VideoHelper {
 
-	public Future<VideoFile> doConversion(final String scriptName);
-	public Future<Image> grabFrame(final String scriptName, final String imageName, final long timeIndex);
+	public Future<VideoFile> doConversion(final String scriptName) throws FrameworkException;
+	public Future<Image> grabFrame(final String scriptName, final String imageName, final long timeIndex) throws FrameworkException;
 
-	public Map<String, String> getMetadata();
-	public void setMetadata(final String key, final String value);
-	public void setMetadata(final Map<String, String> metadata);
+	public Map<String, String> getMetadata() throws FrameworkException;
+	public void setMetadata(final String key, final String value) throws FrameworkException;
+	public void setMetadata(final Map<String, String> metadata) throws FrameworkException;
 
-	public Map<String, Object> getVideoInfo();
+	public CompletableFuture<Map<String, Object>> getVideoInfo();
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.media;
+
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.media.TranscodingJob.Status;
+import org.structr.media.TranscodingJob.Type;
+import org.structr.media.common.StructrMediaTest;
+import org.structr.web.common.FileHelper;
+
+/**
+ * Tests the persistence and recovery of transcoding jobs, with cp in place
+ * of a conversion script.
+ *
+ *
+ */
+public class TranscodingJobTest extends StructrMediaTest {
+
+	private static final Logger logger = Logger.getLogger(TranscodingJobTest.class.getName());
+
+	@Override
+	protected void setUp() throws Exception {
+		setUp(Collections.singletonMap("VideoFile.copy", "cp"));
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		TranscodingQueue.shutdownInstance();
+
+		super.tearDown();
+	}
+
+	public void testJobIsStartedAfterCommit() {
+
+		final TranscodingQueue queue = TranscodingQueue.getInstance();
+		Future<VideoFile> future     = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final VideoFile video = FileHelper.createFile(securityContext, "video".getBytes(), "video/mp4", VideoFile.class, "video.mp4");
+
+			future = queue.convert(securityContext, video, "converted.mp4", "copy");
+
+			// the worker can not see the job before the commit
+			assertEquals("Job must not be started before the commit", 0, queue.getQueueSize() + queue.getActiveCount());
+
+			tx.success();
+
+		} catch (Exception ex) {
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+		}
+
+		try {
+
+			final VideoFile converted = future.get(30, TimeUnit.SECONDS);
+			assertNotNull("Conversion has no result", converted);
+
+			try (final Tx tx = app.tx()) {
+
+				final TranscodingJob job = app.nodeQuery(TranscodingJob.class).getFirst();
+
+				assertEquals("Job status was not updated", Status.finished, job.getProperty(TranscodingJob.status));
+				assertEquals("Job result was not stored", converted.getUuid(), job.getProperty(TranscodingJob.resultFileId));
+				assertEquals("Job progress was not updated", Double.valueOf(1.0), job.getProperty(TranscodingJob.progress));
+
+				tx.success();
+			}
+
+		} catch (Exception ex) {
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+		}
+	}
+
+	public void testRecover() {
+
+		String jobId    = null;
+		String orphanId = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final VideoFile video = FileHelper.createFile(securityContext, "video".getBytes(), "video/mp4", VideoFile.class, "video.mp4");
+
+			// jobs that were running or queued when the server was stopped
+			jobId = app.create(TranscodingJob.class,
+				new NodeAttribute<>(TranscodingJob.jobType, Type.convert),
+				new NodeAttribute<>(TranscodingJob.status, Status.running),
+				new NodeAttribute<>(TranscodingJob.inputFileId, video.getUuid()),
+				new NodeAttribute<>(TranscodingJob.outputFileName, "recovered.mp4"),
+				new NodeAttribute<>(TranscodingJob.scriptName, "copy"),
+				new NodeAttribute<>(TranscodingJob.progress, 0.5)
+			).getUuid();
+
+			orphanId = app.create(TranscodingJob.class,
+				new NodeAttribute<>(TranscodingJob.jobType, Type.convert),
+				new NodeAttribute<>(TranscodingJob.status, Status.queued),
+				new NodeAttribute<>(TranscodingJob.inputFileId, "00000000000000000000000000000000"),
+				new NodeAttribute<>(TranscodingJob.scriptName, "copy")
+			).getUuid();
+
+			tx.success();
+
+		} catch (Exception ex) {
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+		}
+
+		try {
+
+			TranscodingQueue.getInstance().recover();
+
+			assertEquals("Job without input file must fail", Status.failed, getStatus(orphanId));
+
+			final long t0 = System.currentTimeMillis();
+			while (!Status.finished.equals(getStatus(jobId)) && System.currentTimeMillis() - t0 < 30000) {
+				Thread.sleep(100);
+			}
+
+			assertEquals("Recovered job was not finished", Status.finished, getStatus(jobId));
+
+		} catch (Exception ex) {
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+		}
+	}
+
+	// ----- private methods -----
+	private Status getStatus(final String jobId) throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final Status status = app.get(TranscodingJob.class, jobId).getProperty(TranscodingJob.status);
+
+			tx.success();
+
+			return status;
+		}
+	}
+}
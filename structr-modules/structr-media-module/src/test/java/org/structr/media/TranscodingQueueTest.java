@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.media;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.structr.util.AbstractProcess;
+
+/**
+ * Tests the scheduling of the transcoding queue with shell commands in
+ * place of avconv.
+ *
+ *
+ */
+public class TranscodingQueueTest {
+
+	@Test
+	public void testConcurrencyLimit() throws Exception {
+
+		final TranscodingQueue queue             = new TranscodingQueue(2, 10, 1);
+		final AtomicInteger running              = new AtomicInteger();
+		final AtomicInteger maxRunning           = new AtomicInteger();
+		final List<CompletableFuture<String>> futures = new CopyOnWriteArrayList<>();
+
+		for (int i=0; i<6; i++) {
+
+			futures.add(queue.submit(new StubProcess("sleep 0.2; echo done" + i) {
+
+				@Override
+				public void preprocess() {
+					maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				}
+
+				@Override
+				public String processExited(final int exitCode) {
+					running.decrementAndGet();
+					return super.processExited(exitCode);
+				}
+
+			}, TranscodingQueue.PRIORITY_CONVERT));
+		}
+
+		for (int i=0; i<6; i++) {
+			assertEquals("Invalid process output", "done" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+		}
+
+		assertEquals("Queue must not run more processes than configured", 2, maxRunning.get());
+
+		queue.shutdown();
+	}
+
+	@Test
+	public void testPriorities() throws Exception {
+
+		final TranscodingQueue queue = new TranscodingQueue(1, 10, 1);
+		final List<String> order     = new CopyOnWriteArrayList<>();
+		final CountDownLatch started = new CountDownLatch(1);
+
+		// occupy the only thread until all other processes are queued
+		queue.submit(new StubProcess("sleep 0.5") {
+
+			@Override
+			public void preprocess() {
+				started.countDown();
+			}
+
+		}, TranscodingQueue.PRIORITY_CONVERT);
+
+		started.await(10, TimeUnit.SECONDS);
+
+		final CompletableFuture<String> convert1 = queue.submit(new OrderedProcess(order, "convert1"), TranscodingQueue.PRIORITY_CONVERT);
+		final CompletableFuture<String> convert2 = queue.submit(new OrderedProcess(order, "convert2"), TranscodingQueue.PRIORITY_CONVERT);
+		final CompletableFuture<String> probe    = queue.submit(new OrderedProcess(order, "probe"), TranscodingQueue.PRIORITY_PROBE);
+
+		CompletableFuture.allOf(convert1, convert2, probe).get(10, TimeUnit.SECONDS);
+
+		assertEquals("Processes must be started in the order of their priority", "[probe, convert1, convert2]", order.toString());
+
+		queue.shutdown();
+	}
+
+	@Test
+	public void testCancellation() throws Exception {
+
+		final TranscodingQueue queue = new TranscodingQueue(1, 10, 1);
+		final StubProcess running    = new StubProcess("sleep 30");
+		final StubProcess waiting    = new StubProcess("echo waiting");
+
+		final CompletableFuture<String> runningFuture = queue.submit(running, TranscodingQueue.PRIORITY_CONVERT);
+		final CompletableFuture<String> waitingFuture = queue.submit(waiting, TranscodingQueue.PRIORITY_CONVERT);
+
+		// wait for the first process to start
+		final long t0 = System.currentTimeMillis();
+		while (queue.getActiveCount() == 0 && System.currentTimeMillis() - t0 < 10000) {
+			Thread.sleep(10);
+		}
+
+		waitingFuture.cancel(true);
+		running.cancel();
+
+		// the running process must be destroyed, the waiting one must never start
+		runningFuture.get(10, TimeUnit.SECONDS);
+
+		assertTrue("Running process was not cancelled", running.isCancelled());
+		assertTrue("Waiting process was not cancelled", waiting.isCancelled());
+		assertTrue("Cancelled process must not run", System.currentTimeMillis() - t0 < 10000);
+		assertEquals("Waiting process must not be started", -1, waiting.getExitCode());
+
+		queue.shutdown();
+	}
+
+	@Test
+	public void testProbeCache() throws Exception {
+
+		final TranscodingQueue queue = new TranscodingQueue(2, 10, 1);
+		final AtomicInteger count    = new AtomicInteger();
+
+		final Supplier<AbstractProcess<String>> slowProbe = () -> new StubProcess("sleep 0.3; echo info") {
+
+			@Override
+			public void preprocess() {
+				count.incrementAndGet();
+			}
+		};
+
+		// concurrent probes of the same file share a single process
+		final CompletableFuture<String> probe1 = queue.probe("info:1", slowProbe);
+		final CompletableFuture<String> probe2 = queue.probe("info:1", slowProbe);
+
+		assertEquals("Invalid probe result", "info", probe1.get(10, TimeUnit.SECONDS));
+		assertEquals("Invalid probe result", "info", probe2.get(10, TimeUnit.SECONDS));
+		assertEquals("Concurrent probes must share a process", 1, count.get());
+
+		// the result is cached by key
+		final CompletableFuture<String> cached = queue.probe("info:1", slowProbe);
+
+		assertTrue("Cached probe result must be available immediately", cached.isDone());
+		assertEquals("Invalid probe result", "info", cached.get());
+		assertEquals("Cached probe result must not start a process", 1, count.get());
+
+		// other keys and probes without a key are not shared
+		assertEquals("Invalid probe result", "info", queue.probe("info:2", slowProbe).get(10, TimeUnit.SECONDS));
+		assertEquals("Invalid probe result", "info", queue.probe(null, slowProbe).get(10, TimeUnit.SECONDS));
+		assertEquals("Invalid probe result", "info", queue.probe(null, slowProbe).get(10, TimeUnit.SECONDS));
+		assertEquals("Invalid number of probe processes", 4, count.get());
+
+		// failed probes are not cached
+		final AtomicInteger failures = new AtomicInteger();
+		final Supplier<AbstractProcess<String>> failingProbe = () -> new StubProcess("exit 1") {
+
+			@Override
+			public void preprocess() {
+				failures.incrementAndGet();
+			}
+		};
+
+		assertNull("Failed probe must not return a result", queue.probe("info:3", failingProbe).get(10, TimeUnit.SECONDS));
+		assertNull("Failed probe must not return a result", queue.probe("info:3", failingProbe).get(10, TimeUnit.SECONDS));
+		assertEquals("Failed probe must be run again", 2, failures.get());
+
+		queue.shutdown();
+	}
+
+	// ----- nested classes -----
+	private static class StubProcess extends AbstractProcess<String> {
+
+		private String command = null;
+
+		public StubProcess(final String command) {
+
+			super(null);
+
+			this.command = command;
+		}
+
+		@Override
+		public void preprocess() {
+		}
+
+		@Override
+		public StringBuilder getCommandLine() {
+			return new StringBuilder(command);
+		}
+
+		@Override
+		public String processExited(final int exitCode) {
+			return exitCode == 0 ? outputStream().trim() : null;
+		}
+	}
+
+	private static class OrderedProcess extends StubProcess {
+
+		private List<String> order = null;
+		private String name        = null;
+
+		public OrderedProcess(final List<String> order, final String name) {
+
+			super("echo " + name);
+
+			this.order = order;
+			this.name  = name;
+		}
+
+		@Override
+		public void preprocess() {
+			order.add(name);
+		}
+	}
+}
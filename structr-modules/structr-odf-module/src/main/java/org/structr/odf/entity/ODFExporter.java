@@ -20,6 +20,11 @@ package org.structr.odf.entity;
 
 import java.io.File;
 import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.odftoolkit.odfdom.doc.OdfDocument;
@@ -29,6 +34,8 @@ import org.structr.common.View;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Export;
 import org.structr.core.GraphObject;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.Result;
 import static org.structr.core.GraphObject.createdBy;
 import static org.structr.core.GraphObject.createdDate;
 import static org.structr.core.GraphObject.id;
@@ -47,6 +54,7 @@ import static org.structr.core.graph.NodeInterface.name;
 import static org.structr.core.graph.NodeInterface.owner;
 import org.structr.core.property.EndNode;
 import org.structr.core.property.Property;
+import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
 import org.structr.odf.relations.DocumentResult;
 import org.structr.odf.relations.DocumentTemplate;
@@ -71,6 +79,12 @@ public abstract class ODFExporter extends AbstractNode {
 	private final String ODF_IMAGE_ATTRIBUTE_FILE_PATH         = "xlink:href";
 	private final String ODF_IMAGE_DIRECTORY                   = "Pictures/";
 
+	//Bulk export parameters
+	protected static final String EXPORT_PARAMETER_IDS   = "ids";
+	protected static final String EXPORT_PARAMETER_NODES = "nodes";
+	protected static final String EXPORT_PARAMETER_TYPE  = "type";
+	protected static final int EXPORT_PAGE_SIZE          = 1000;
+
 	protected static final Logger logger = Logger.getLogger(ODTExporter.class.getName());
 
 	public static final Property<VirtualType> transformationProvider = new EndNode("transformationProvider", TransformationRules.class);
@@ -126,7 +140,7 @@ public abstract class ODFExporter extends AbstractNode {
 		try {
 
 			final App app = StructrApp.getInstance();
-			final Image result = app.nodeQuery(Image.class).and(GraphObject.id, uuid).getFirst();
+			final Image result = app.get(Image.class, uuid);
 
 			String imageName = result.getProperty(new StringProperty("name"));
 			String contentType = result.getProperty(new StringProperty("contentType"));
@@ -168,4 +182,159 @@ public abstract class ODFExporter extends AbstractNode {
 		}
 	}
 
+	/**
+	 * Looks up the node with the given id and returns its transformed
+	 * properties, keyed by their target names.
+	 *
+	 * @param uuid
+	 * @return the transformed properties or null if the node does not exist or is filtered out
+	 * @throws FrameworkException
+	 */
+	protected Map<String, Object> getTransformedProperties(final String uuid) throws FrameworkException {
+
+		final GraphObject source = StructrApp.getInstance().get(uuid);
+		if (source != null) {
+
+			return toMap(getTransformation().apply(source));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Transforms the objects selected by the given parameters one at a time
+	 * and hands their properties to the given writer, so that neither the
+	 * source objects nor the transformed rows are held in memory at once.
+	 *
+	 * The objects are selected by a list of ids (<code>ids</code>), by a
+	 * collection of nodes (<code>nodes</code>) or by a type and property
+	 * values (<code>type</code> and all remaining parameters). Type queries
+	 * are fetched in pages of {@value #EXPORT_PAGE_SIZE} objects using a
+	 * paging cursor, so each page is read directly from its position in the
+	 * index.
+	 *
+	 * @param parameters
+	 * @param writer
+	 * @return the number of exported objects
+	 * @throws Exception
+	 */
+	protected int exportRows(final Map<String, Object> parameters, final RowWriter writer) throws Exception {
+
+		final Function<GraphObject, GraphObject> transformation = getTransformation();
+		final App app                                           = StructrApp.getInstance();
+		final Object ids                                        = parameters.get(EXPORT_PARAMETER_IDS);
+		final Object nodes                                      = parameters.get(EXPORT_PARAMETER_NODES);
+		final Object typeName                                   = parameters.get(EXPORT_PARAMETER_TYPE);
+		int count                                               = 0;
+
+		if (ids instanceof Collection) {
+
+			for (final Object uuid : (Collection)ids) {
+
+				if (uuid != null) {
+
+					count += exportRow(transformation, app.get(uuid.toString()), writer);
+				}
+			}
+
+		} else if (nodes instanceof Collection) {
+
+			for (final Object node : (Collection)nodes) {
+
+				if (node instanceof GraphObject) {
+
+					count += exportRow(transformation, (GraphObject)node, writer);
+				}
+			}
+
+		} else if (typeName != null) {
+
+			final Class type = StructrApp.getConfiguration().getNodeEntityClass(typeName.toString());
+			if (type == null) {
+
+				throw new FrameworkException(422, "Unknown type " + typeName);
+			}
+
+			final Map<String, Object> filters = new LinkedHashMap<>(parameters);
+			filters.remove(EXPORT_PARAMETER_TYPE);
+
+			final PropertyMap attributes = PropertyMap.inputTypeToJavaType(securityContext, type, filters);
+
+			// an empty cursor requests the first page, each page continues after the last object of the previous one
+			String cursor = "";
+
+			do {
+
+				final Result<GraphObject> result = app.nodeQuery(type).and(attributes).sort(GraphObject.id).pageSize(EXPORT_PAGE_SIZE).cursor(cursor).getResult();
+
+				for (final GraphObject obj : result.getResults()) {
+
+					count += exportRow(transformation, obj, writer);
+				}
+
+				cursor = result.getNextCursor();
+
+			} while (cursor != null);
+
+		} else {
+
+			throw new FrameworkException(422, "Bulk export needs one of the parameters " + EXPORT_PARAMETER_IDS + ", " + EXPORT_PARAMETER_NODES + " or " + EXPORT_PARAMETER_TYPE);
+		}
+
+		return count;
+	}
+
+	// ----- private methods -----
+	private int exportRow(final Function<GraphObject, GraphObject> transformation, final GraphObject source, final RowWriter writer) throws Exception {
+
+		if (source != null) {
+
+			final Map<String, Object> row = toMap(transformation.apply(source));
+			if (row != null) {
+
+				writer.write(row);
+				return 1;
+			}
+		}
+
+		return 0;
+	}
+
+	private Function<GraphObject, GraphObject> getTransformation() throws FrameworkException {
+
+		final VirtualType transformation = getProperty(transformationProvider);
+		if (transformation == null) {
+
+			throw new FrameworkException(422, "No transformation provider set for exporter " + getUuid());
+		}
+
+		return transformation.getOutputTransformation(securityContext);
+	}
+
+	private Map<String, Object> toMap(final GraphObject transformed) {
+
+		if (transformed instanceof GraphObjectMap) {
+
+			final Map<String, Object> properties = new HashMap<>();
+
+			transformed.getPropertyKeys(null).forEach(
+				p -> properties.put(p.dbName(), transformed.getProperty(p))
+			);
+
+			return properties;
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Receives the transformed properties of a single object during a bulk
+	 * export.
+	 */
+	protected interface RowWriter {
+
+		void write(final Map<String, Object> row) throws Exception;
+	}
+
 }
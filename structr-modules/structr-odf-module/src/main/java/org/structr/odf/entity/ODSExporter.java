@@ -31,18 +31,13 @@ import java.util.logging.Level;
 import org.odftoolkit.odfdom.doc.OdfSpreadsheetDocument;
 import org.odftoolkit.odfdom.doc.table.OdfTable;
 import org.odftoolkit.odfdom.doc.table.OdfTableCell;
+import org.odftoolkit.odfdom.doc.table.OdfTableRow;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Export;
-import org.structr.core.GraphObject;
-import org.structr.core.GraphObjectMap;
-import org.structr.core.Result;
-import org.structr.core.app.App;
-import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.StringProperty;
 import static org.structr.odf.entity.ODFExporter.logger;
 import org.structr.schema.SchemaService;
-import org.structr.transform.VirtualType;
 import org.structr.web.entity.FileBase;
 import static org.structr.odf.entity.ODFExporter.resultDocument;
 
@@ -132,19 +127,13 @@ public class ODSExporter extends ODFExporter {
 	public void exportAttributes(String uuid) throws FrameworkException {
 
 		FileBase output = getProperty(resultDocument);
-		VirtualType transformation = getProperty(transformationProvider);
 
 		try {
 
-			final App app = StructrApp.getInstance();
-			final Result result = app.nodeQuery(AbstractNode.class).and(GraphObject.id, uuid).getResult();
-			final Result transformedResult = transformation.transformOutput(securityContext, AbstractNode.class, result);
-
-			Map<String, Object> nodeProperties = new HashMap<>();
-			GraphObjectMap node = (GraphObjectMap) transformedResult.get(0);
-			node.getPropertyKeys(null).forEach(
-				p -> nodeProperties.put(p.dbName(), node.getProperty(p))
-			);
+			final Map<String, Object> nodeProperties = getTransformedProperties(uuid);
+			if (nodeProperties == null) {
+				return;
+			}
 
 			OdfSpreadsheetDocument spreadsheet = OdfSpreadsheetDocument.loadDocument(output.getFileOnDisk().getAbsolutePath());
 			OdfTable sheet = spreadsheet.getTableList().get(0);
@@ -182,4 +171,106 @@ public class ODSExporter extends ODFExporter {
 		}
 	}
 
+	/**
+	 * Exports all objects selected by the given parameters into consecutive
+	 * rows of the result spreadsheet. The target names of the transformation
+	 * are the cell addresses of the first row, collection values are joined
+	 * into a single cell. The document is loaded and saved only once.
+	 *
+	 * @param parameters ids, nodes or type and property values, see {@link ODFExporter#exportRows}
+	 * @throws FrameworkException
+	 */
+	@Export
+	public void exportCollection(final Map<String, Object> parameters) throws FrameworkException {
+
+		final FileBase output = getProperty(resultDocument);
+
+		try {
+
+			final String path                        = output.getFileOnDisk().getAbsolutePath();
+			final OdfSpreadsheetDocument spreadsheet = OdfSpreadsheetDocument.loadDocument(path);
+			final OdfTable sheet                     = spreadsheet.getTableList().get(0);
+			final Map<String, OdfTableCell> columns  = new HashMap<>();
+			final Map<Integer, RowCursor> rows       = new HashMap<>();
+
+			final int count = exportRows(parameters, (final Map<String, Object> row) -> {
+
+				// move every row in use one down, the first object creates the cursors in the template rows
+				rows.values().forEach(RowCursor::next);
+
+				for (final Entry<String, Object> currentEntry : row.entrySet()) {
+
+					final String address = currentEntry.getKey();
+					OdfTableCell startCell = columns.get(address);
+
+					if (startCell == null) {
+
+						startCell = sheet.getCellByPosition(address);
+						columns.put(address, startCell);
+					}
+
+					final RowCursor cursor = rows.computeIfAbsent(startCell.getRowIndex(), i -> new RowCursor(sheet, sheet.getRowByIndex(i)));
+
+					writeObjectToCell(cursor.row.getCellByIndex(startCell.getColumnIndex()), toCellValue(currentEntry.getValue()));
+				}
+			});
+
+			spreadsheet.save(path);
+			spreadsheet.close();
+
+			logger.log(Level.INFO, "Exported {0} objects to {1}", new Object[] { count, output.getName() });
+
+		} catch (FrameworkException fex) {
+
+			throw fex;
+
+		} catch (Exception e) {
+			logger.log(Level.SEVERE, "Error while exporting to ODS", e);
+		}
+	}
+
+	// ----- private methods -----
+	private Object toCellValue(final Object val) {
+
+		if (val instanceof String[]) {
+
+			return toCellValue(Arrays.asList((String[]) val));
+
+		} else if (val instanceof Collection) {
+
+			final StringJoiner sj = new StringJoiner(",");
+			((Collection<?>) val).forEach(
+				s -> sj.add(String.valueOf(s))
+			);
+
+			return sj.toString();
+		}
+
+		return val;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Walks down the rows of a sheet starting at a given row, appending new
+	 * rows at the end of the table. Navigating from row to row avoids the
+	 * search from the top of the table for every written cell.
+	 */
+	private static class RowCursor {
+
+		private OdfTable sheet  = null;
+		private OdfTableRow row = null;
+
+		public RowCursor(final OdfTable sheet, final OdfTableRow row) {
+
+			this.sheet = sheet;
+			this.row   = row;
+		}
+
+		public void next() {
+
+			final OdfTableRow nextRow = row.getNextRow();
+			row = nextRow != null ? nextRow : sheet.appendRow();
+		}
+	}
+
 }
@@ -21,21 +21,17 @@ package org.structr.odf.entity;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Level;
 import org.odftoolkit.odfdom.doc.OdfTextDocument;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Export;
-import org.structr.core.GraphObject;
-import org.structr.core.GraphObjectMap;
-import org.structr.core.Result;
-import org.structr.core.app.App;
-import org.structr.core.app.StructrApp;
-import org.structr.core.entity.AbstractNode;
 import org.structr.schema.SchemaService;
-import org.structr.transform.VirtualType;
 import org.structr.web.entity.FileBase;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -55,19 +51,13 @@ public class ODTExporter extends ODFExporter {
 	public void exportAttributes(String uuid) throws FrameworkException {
 
 		FileBase output = getProperty(resultDocument);
-		VirtualType transformation = getProperty(transformationProvider);
 
 		try {
 
-			final App app = StructrApp.getInstance();
-			final Result result = app.nodeQuery(AbstractNode.class).and(GraphObject.id, uuid).getResult();
-			final Result transformedResult = transformation.transformOutput(securityContext, AbstractNode.class, result);
-
-			Map<String, Object> nodeProperties = new HashMap<>();
-			GraphObjectMap node = (GraphObjectMap) transformedResult.get(0);
-			node.getPropertyKeys(null).forEach(
-				p -> nodeProperties.put(p.dbName(), node.getProperty(p))
-			);
+			final Map<String, Object> nodeProperties = getTransformedProperties(uuid);
+			if (nodeProperties == null) {
+				return;
+			}
 
 			OdfTextDocument text = OdfTextDocument.loadDocument(output.getFileOnDisk().getAbsolutePath());
 
@@ -120,6 +110,96 @@ public class ODTExporter extends ODFExporter {
 		}
 	}
 
+	/**
+	 * Exports all objects selected by the given parameters into the user
+	 * fields of the result document. The values of each object are appended
+	 * to the fields line by line while the objects are exported, the
+	 * document is loaded and saved only once.
+	 *
+	 * @param parameters ids, nodes or type and property values, see {@link ODFExporter#exportRows}
+	 * @throws FrameworkException
+	 */
+	@Export
+	public void exportCollection(final Map<String, Object> parameters) throws FrameworkException {
+
+		final FileBase output = getProperty(resultDocument);
+
+		try {
+
+			final String path              = output.getFileOnDisk().getAbsolutePath();
+			final OdfTextDocument text     = OdfTextDocument.loadDocument(path);
+			final Map<String, Node> fields = new LinkedHashMap<>();
+			final Set<Node> written        = new HashSet<>();
+
+			final NodeList nodes = text.getContentRoot().getElementsByTagName(ODT_FIELD_TAG_NAME);
+			for (int i = 0; i < nodes.getLength(); i++) {
+
+				final NamedNodeMap attrs = nodes.item(i).getAttributes();
+				final Node fieldName     = attrs.getNamedItem(ODT_FIELD_ATTRIBUTE_NAME);
+				final Node fieldValue    = attrs.getNamedItem(ODT_FIELD_ATTRIBUTE_VALUE);
+
+				if (fieldName != null && fieldValue != null) {
+
+					fields.put(fieldName.getNodeValue(), fieldValue);
+				}
+			}
+
+			// only values of fields that exist in the template are written
+			exportRows(parameters, (final Map<String, Object> row) -> {
+
+				for (final Entry<String, Node> field : fields.entrySet()) {
+
+					final Object value = row.get(field.getKey());
+					if (value instanceof String[]) {
+
+						appendLines(field.getValue(), Arrays.asList((String[]) value), written);
+
+					} else if (value instanceof Collection) {
+
+						appendLines(field.getValue(), (Collection) value, written);
+
+					} else if (value != null) {
+
+						appendLine(field.getValue(), value, written);
+					}
+				}
+			});
+
+			text.save(path);
+			text.close();
+
+		} catch (FrameworkException fex) {
+
+			throw fex;
+
+		} catch (Exception e) {
+			logger.log(Level.SEVERE, "Error while exporting to ODT", e);
+		}
+	}
+
+	// ----- private methods -----
+	private void appendLines(final Node field, final Collection values, final Set<Node> written) {
+
+		for (final Object value : values) {
+			appendLine(field, value, written);
+		}
+	}
+
+	/**
+	 * Appends a single line to the value of the given field attribute. Each
+	 * line is added as a separate text node, so the attribute value is not
+	 * copied for every exported object. The template value is replaced by
+	 * the first line.
+	 */
+	private void appendLine(final Node field, final Object value, final Set<Node> written) {
+
+		if (written.add(field)) {
+			field.setNodeValue("");
+		}
+
+		field.appendChild(field.getOwnerDocument().createTextNode(value + "\n"));
+	}
+
 	static {
 		SchemaService.registerBuiltinTypeOverride("ODTExporter", ODTExporter.class.getName());
 	}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.odf.entity;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.odftoolkit.odfdom.doc.OdfSpreadsheetDocument;
+import org.odftoolkit.odfdom.doc.table.OdfTable;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.SchemaNode;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.dynamic.File;
+import org.structr.odf.common.StructrODFTest;
+import org.structr.transform.VirtualProperty;
+import org.structr.transform.VirtualType;
+import org.structr.web.common.FileHelper;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Tests the bulk export of {@link ODSExporter}.
+ *
+ *
+ */
+public class ODSExporterTest extends StructrODFTest {
+
+	private static final Logger logger = Logger.getLogger(ODSExporterTest.class.getName());
+
+	public void testExportPagedCollection() {
+
+		// more objects than fit into one page of the export query
+		final int count            = ODFExporter.EXPORT_PAGE_SIZE + 5;
+		final Set<String> expected = new HashSet<>();
+		String exporterId          = null;
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class, new NodeAttribute(SchemaNode.name, "Project"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		final Class type = StructrApp.getConfiguration().getNodeEntityClass("Project");
+		assertNotNull(type);
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<count; i++) {
+
+				final String name = "project" + i;
+
+				app.create(type, new NodeAttribute(AbstractNode.name, name));
+				expected.add(name);
+			}
+
+			final VirtualType virtualType = app.create(VirtualType.class,
+				new NodeAttribute(VirtualType.name, "ProjectRows"),
+				new NodeAttribute(VirtualType.sourceType, "Project")
+			);
+
+			app.create(VirtualProperty.class,
+				new NodeAttribute(VirtualProperty.virtualType, virtualType),
+				new NodeAttribute(VirtualProperty.position, 0),
+				new NodeAttribute(VirtualProperty.sourceName, "name"),
+				new NodeAttribute(VirtualProperty.targetName, "A1")
+			);
+
+			final ByteArrayOutputStream template = new ByteArrayOutputStream();
+			final OdfSpreadsheetDocument doc     = OdfSpreadsheetDocument.newSpreadsheetDocument();
+
+			doc.save(template);
+			doc.close();
+
+			final FileBase result = FileHelper.createFile(securityContext, template.toByteArray(), "application/vnd.oasis.opendocument.spreadsheet", File.class, "result.ods");
+
+			final ODSExporter exporter = app.create(ODSExporter.class,
+				new NodeAttribute(ODSExporter.name, "exporter"),
+				new NodeAttribute(ODSExporter.transformationProvider, virtualType),
+				new NodeAttribute(ODSExporter.resultDocument, result)
+			);
+
+			exporterId = exporter.getUuid();
+
+			tx.success();
+
+		} catch (Exception ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final ODSExporter exporter       = app.get(ODSExporter.class, exporterId);
+			final Map<String, Object> params = new HashMap<>();
+
+			params.put("type", "Project");
+
+			exporter.exportCollection(params);
+
+			final OdfSpreadsheetDocument spreadsheet = OdfSpreadsheetDocument.loadDocument(exporter.getProperty(ODSExporter.resultDocument).getFileOnDisk().getAbsolutePath());
+			final OdfTable sheet                     = spreadsheet.getTableList().get(0);
+			final Set<String> exported               = new HashSet<>();
+
+			for (int i=0; i<count; i++) {
+
+				exported.add(sheet.getCellByPosition(0, i).getStringValue());
+			}
+
+			assertEquals("Every object must be exported exactly once", expected, exported);
+			assertEquals("No rows must be written after the last object", "", sheet.getCellByPosition(0, count).getStringValue());
+
+			spreadsheet.close();
+
+			tx.success();
+
+		} catch (Exception ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception.");
+		}
+	}
+}
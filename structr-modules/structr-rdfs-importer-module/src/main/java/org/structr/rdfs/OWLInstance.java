@@ -24,21 +24,23 @@
 
 package org.structr.rdfs;
 
+import java.io.IOException;
 import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.property.ISO8601DateProperty;
 import org.structr.core.property.PropertyKey;
@@ -54,13 +56,12 @@ import org.w3c.dom.NodeList;
  */
 public class OWLInstance extends RDFItem<OWLInstance> {
 
-	private static final Map<URI, NodeInterface> instances = new LinkedHashMap<>();
-	private final SimpleDateFormat isoFormat                = new SimpleDateFormat(ISO8601DateProperty.getDefaultFormat());
-	private final SimpleDateFormat dateFormat              = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
-	protected OWLClass type                                = null;
-	protected Class nodeType                               = null;
-	protected PropertyKey originIdKey                      = null;
-	protected NodeInterface instance                       = null;
+	private final SimpleDateFormat isoFormat  = new SimpleDateFormat(ISO8601DateProperty.getDefaultFormat());
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
+	protected OWLClass type                   = null;
+	protected Class nodeType                  = null;
+	protected PropertyKey originIdKey         = null;
+	protected NodeInterface instance          = null;
 
 	public OWLInstance(final Element element) {
 		super(element);
@@ -74,6 +75,14 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 		return type;
 	}
 
+	public void setInstance(final NodeInterface instance) {
+		this.instance = instance;
+	}
+
+	public NodeInterface getInstance() {
+		return instance;
+	}
+
 	public void createDatabaseNode(final App app) throws FrameworkException {
 
 		final ConfigurationProvider config = StructrApp.getConfiguration();
@@ -86,10 +95,6 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 			if (originIdKey != null) {
 
 				instance = app.create(nodeType, new NodeAttribute(originIdKey, getId().toString()));
-				if (instance != null) {
-
-					instances.put(getId(), instance);
-				}
 
 			} else {
 
@@ -102,14 +107,57 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 		}
 	}
 
-	public void resolveExtensions(final App app, final Map<String, OWLClass> owlClassesByFragment, final Map<URI, OWLInstance> owlInstances, final List<OWLInstance> newInstances) throws FrameworkException {
+	/**
+	 * Creates the database nodes for the typed extension instances of this
+	 * instance and links them via the "extendedBy" property.
+	 *
+	 * @param app
+	 * @param owlClassesByFragment
+	 * @return the extension instances
+	 * @throws FrameworkException
+	 */
+	public List<OWLInstance> resolveExtensions(final App app, final Map<String, OWLClass> owlClassesByFragment) throws FrameworkException {
 
-		final NodeList extensions          = getElements(getElement(), "krdf:KExtendedByRelation");
 		final ConfigurationProvider config = StructrApp.getConfiguration();
 		final Class baseType               = config.getNodeEntityClass("BaseNode");
 		final PropertyKey extensionsKey    = config.getPropertyKeyForJSONName(baseType, "extendedBy", false);
 
-		if (extensions != null && extensionsKey != null) {
+		if (extensionsKey != null) {
+
+			final List<OWLInstance> extensions = getExtensions(owlClassesByFragment);
+			for (final OWLInstance inst : extensions) {
+
+				inst.createDatabaseNode(app);
+
+				if (instance != null) {
+
+					// create extension entity and link
+					final Set extendedBySet = new HashSet<>((List)instance.getProperty(extensionsKey));
+					extendedBySet.add(inst.instance);
+
+					instance.setProperty(extensionsKey, new LinkedList<>(extendedBySet));
+				}
+			}
+
+			return extensions;
+		}
+
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the typed extension instances that are nested in the element
+	 * of this instance.
+	 *
+	 * @param owlClassesByFragment
+	 * @return the extension instances
+	 */
+	public List<OWLInstance> getExtensions(final Map<String, OWLClass> owlClassesByFragment) {
+
+		final List<OWLInstance> result = new LinkedList<>();
+		final NodeList extensions      = getElements(getElement(), "krdf:KExtendedByRelation");
+
+		if (extensions != null) {
 
 			int len = extensions.getLength();
 			for (int i=0; i<len; i++) {
@@ -125,8 +173,7 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 						final Node node = contents.item(j);
 						if (node instanceof Element) {
 
-							final Element content  = (Element)node;
-							final OWLInstance inst = new OWLInstance(content);
+							final OWLInstance inst = new OWLInstance((Element)node);
 							final URI id           = inst.getId();
 							if (id != null) {
 
@@ -137,27 +184,17 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 									if (owlType != null) {
 
 										inst.setType(owlType);
-										newInstances.add(inst);
-
-										inst.createDatabaseNode(app);
-
-										if (instance != null) {
-
-											// create extension entity and link
-											final Set extendedBySet = new HashSet<>((List)instance.getProperty(extensionsKey));
-											extendedBySet.add(inst.instance);
-
-											instance.setProperty(extensionsKey, new LinkedList<>(extendedBySet));
-										}
+										result.add(inst);
 									}
 								}
 							}
-
 						}
 					}
 				}
 			}
 		}
+
+		return result;
 	}
 
 	public void resolveProperties() throws FrameworkException {
@@ -225,7 +262,7 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 		}
 	}
 
-	public void resolveRelationships(final JsonSchema schema, final Map<String, OWLClass> owlClassesByFragment, final Map<URI, OWLInstance> instances, final Map<String, RDFDescription> descriptions, final Map<String, OWLProperty> properties) throws FrameworkException {
+	public void resolveRelationships(final JsonSchema schema, final Map<String, OWLClass> owlClassesByFragment, final UriNodeMap nodes, final Map<String, RDFDescription> descriptions, final Map<String, OWLProperty> properties) throws FrameworkException {
 
 		if (instance != null && type != null) {
 
@@ -249,8 +286,8 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 
 						if (reference != null) {
 
-							final OWLInstance relatedInstance = instances.get(URI.create(reference));
-							if (relatedInstance != null) {
+							final NodeInterface relatedNode = getNode(nodes, reference);
+							if (relatedNode != null) {
 
 								final OWLClass relationshipType = owlClassesByFragment.get(tagName);
 								if (relationshipType != null) {
@@ -271,11 +308,11 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 
 											if (sourceKey != null && targetKey != null) {
 
-												if (this.instance != null && relatedInstance.instance != null) {
+												if (this.instance != null) {
 
 													final NodeInterface hyperNode = StructrApp.getInstance().create(hyperRelationshipType,
 														new NodeAttribute(sourceKey, this.instance),
-														new NodeAttribute(targetKey, relatedInstance.instance)
+														new NodeAttribute(targetKey, relatedNode)
 													);
 
 													// resolve properties that come via rdf:Description
@@ -325,6 +362,33 @@ public class OWLInstance extends RDFItem<OWLInstance> {
 		}
 	}
 
+	/**
+	 * Returns the node that was created for the instance with the given
+	 * URI.
+	 *
+	 * @param nodes
+	 * @param uri
+	 * @return the node, or null
+	 * @throws FrameworkException
+	 */
+	public static NodeInterface getNode(final UriNodeMap nodes, final String uri) throws FrameworkException {
+
+		try {
+
+			final Long nodeId = nodes.get(uri);
+			if (nodeId != null) {
+
+				return (NodeInterface)new NodeFactory(SecurityContext.getSuperUserInstance()).instantiate(StructrApp.getInstance().getDatabaseService().getNodeById(nodeId));
+			}
+
+		} catch (IOException ioex) {
+
+			throw new FrameworkException(500, "Unable to resolve node for " + uri + ": " + ioex.getMessage());
+		}
+
+		return null;
+	}
+
 	// ----- protected methods -----
 
 	@Override
@@ -24,6 +24,7 @@
 
 package org.structr.rdfs;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -41,13 +42,15 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.function.Predicate;
 import org.apache.commons.lang.StringUtils;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
@@ -58,8 +61,10 @@ import org.structr.core.entity.Localization;
 import org.structr.core.entity.Relation.Cardinality;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaRelationshipNode;
+import org.structr.core.graph.BulkGraphOperation;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.ArrayProperty;
 import org.structr.core.property.PropertyKey;
@@ -75,9 +80,7 @@ import org.structr.web.common.FileHelper;
 import org.structr.web.common.ImageHelper;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Image;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 /**
  *
@@ -86,6 +89,8 @@ import org.w3c.dom.Node;
 public class OWLParserv2 {
 
 	private static final Set<String> unwantedPrefixes                   = new LinkedHashSet<>();
+	private static final Set<String> schemaElements                     = new LinkedHashSet<>();
+	private static final Predicate<String> isInstanceElement            = tagName -> !schemaElements.contains(tagName);
 
 	public static final Map<String, String> xmlSchemaPropertyMapping     = new TreeMap<>();
 	public static final Map<String, String> customKTypeMapping           = new TreeMap<>();
@@ -103,6 +108,12 @@ public class OWLParserv2 {
 
 	static {
 
+		schemaElements.add("owl:Class");
+		schemaElements.add("owl:ObjectProperty");
+		schemaElements.add("owl:DatatypeProperty");
+		schemaElements.add("rdf:Description");
+		schemaElements.add("rdf:Property");
+
 		unwantedPrefixes.add("http://www.intelligent-views.de");
 		unwantedPrefixes.add("box");
 		unwantedPrefixes.add("Box");
@@ -165,13 +176,14 @@ public class OWLParserv2 {
 	private final Map<URI, OWLProperty> owlPropertiesByURI     = new TreeMap<>();
 	private final Map<String, RDFDescription> rdfDescriptions  = new TreeMap<>();
 	private final Map<String, OWLClass> owlClassesByFragment   = new TreeMap<>();
-	private final Map<URI, OWLInstance> owlInstances           = new TreeMap<>();
 	private final Map<URI, OWLClass> owlClassesByURI           = new TreeMap<>();
 
 	private final boolean importSchema                         = true;
 	private final boolean importData                           = true;
 	private final boolean importFiles                          = false;
 	private final boolean createFileRelationships              = false;
+	private final int batchSize                                = 1000;
+	private final int maxUrisInMemory                          = 500000;
 
 	public static void main(final String[] args) {
 
@@ -202,15 +214,19 @@ public class OWLParserv2 {
 
 		boolean success = true;
 
-		try (final App app = StructrApp.getInstance()) {
-
-			final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(fileName));
+		try (final App app = StructrApp.getInstance(); final UriNodeMap uriNodeMap = new UriNodeMap(maxUrisInMemory)) {
 
 			System.out.println("Parsing XML document..");
 			logger.println("Parsing XML document..");
 
-			// parse XML document
-			parseDocument(doc.getDocumentElement(), 0);
+			// read classes, properties and descriptions, instances are streamed separately below
+			try (final InputStream is = new BufferedInputStream(new FileInputStream(fileName)); final OWLReader reader = new OWLReader(is, schemaElements::contains)) {
+
+				while (reader.hasNext()) {
+
+					parseSchemaElement(reader.next());
+				}
+			}
 
 			System.out.println("Filtering unwanted classes..");
 			logger.println("Filtering unwanted classes..");
@@ -363,24 +379,24 @@ public class OWLParserv2 {
 						if (possibleOutgoingRelationshipType.isPrimary() && possibleIncomingRelationshipType != null) {
 
 							// this is a relationship
-							final List<OWLClass> sourceTypes = possibleOutgoingRelationshipType.getActualSourceTypes();
-							final List<OWLClass> targetTypes = possibleOutgoingRelationshipType.getActualTargetTypes();
+							final List<OWLClass> sourceTypes        = possibleOutgoingRelationshipType.getActualSourceTypes();
+							final List<OWLClass> targetTypes        = possibleOutgoingRelationshipType.getActualTargetTypes();
+							final String sourceName                 = possibleOutgoingRelationshipType.getStructrName(false);
+							final String targetName                 = possibleIncomingRelationshipType.getStructrName(false);
+							final String relationshipTypeName       = possibleOutgoingRelationshipType.getStructrName(true);
 
 							for (final OWLClass sourceType : sourceTypes) {
 
-								for (final OWLClass targetType : targetTypes) {
-
-									final String sourceName     = possibleOutgoingRelationshipType.getStructrName(false);
-									final String targetName     = possibleIncomingRelationshipType.getStructrName(false);
-									final String sourceTypeName = sourceType.getStructrName(true);
-									final String targetTypeName = targetType.getStructrName(true);
+								final JsonType sourceJsonType = schema.getType(sourceType.getStructrName(true));
+								if (sourceJsonType == null) {
+									continue;
+								}
 
-									final JsonType sourceJsonType = schema.getType(sourceTypeName);
-									final JsonType targetJsonType = schema.getType(targetTypeName);
+								for (final OWLClass targetType : targetTypes) {
 
-									if (sourceJsonType != null && targetJsonType != null) {
+									final JsonType targetJsonType = schema.getType(targetType.getStructrName(true));
+									if (targetJsonType != null) {
 
-										final String relationshipTypeName = possibleOutgoingRelationshipType.getStructrName(true);
 										final JsonObjectType relType      = schema.addType(relationshipTypeName);
 										final JsonObjectType srcType      = (JsonObjectType)sourceJsonType;
 										final JsonObjectType tgtType      = (JsonObjectType)targetJsonType;
@@ -447,10 +463,12 @@ public class OWLParserv2 {
 
 				try (final Tx tx = StructrApp.getInstance().tx()) {
 
+					final Map<String, SchemaNode> schemaNodes = getSchemaNodes(app);
+
 					for (final OWLClass owlClass : owlClassesByURI.values()) {
 
 						final String name           = owlClass.getStructrName(true);
-						final SchemaNode schemaNode = app.nodeQuery(SchemaNode.class).andName(name).getFirst();
+						final SchemaNode schemaNode = schemaNodes.get(name);
 						String icon                 = owlClass.getIcon();
 
 						if (schemaNode != null) {
@@ -477,75 +495,92 @@ public class OWLParserv2 {
 					System.out.println(fex.getErrorBuffer().getErrorTokens());
 				}
 
-				// create instances
-				System.out.println("Resolving instances..");
-				logger.println("Resolving instances..");
+				if (importData) {
 
-				final Iterator<OWLInstance> instancesIterator = owlInstances.values().iterator();
-				final List<OWLInstance> newInstances          = new LinkedList<>();
-				int count                                      = 0;
+					final SecurityContext superUserSecurityContext = SecurityContext.getSuperUserInstance();
 
-				while (instancesIterator.hasNext()) {
+					// create instances
+					System.out.println("Resolving instances..");
+					logger.println("Resolving instances..");
 
-					try (final Tx tx = StructrApp.getInstance().tx()) {
+					try (final InputStream is = new BufferedInputStream(new FileInputStream(fileName)); final OWLReader reader = new OWLReader(is, isInstanceElement)) {
 
-						while (instancesIterator.hasNext()) {
+						// nodes of the current batch, registered only after the batch was committed
+						final Map<String, Long> batchNodes = new LinkedHashMap<>();
 
-							final OWLInstance instance = instancesIterator.next();
-							final OWLClass owlType     = instance.getType();
+						NodeServiceCommand.bulkGraphOperation(superUserSecurityContext, reader, batchSize, "Resolving instances", new BulkGraphOperation<Element>() {
 
-							if (owlType != null) {
+							@Override
+							public void handleGraphObject(final SecurityContext securityContext, final Element element) throws FrameworkException {
 
-								instance.createDatabaseNode(app);
-								instance.resolveProperties();
-								instance.resolveExtensions(app, owlClassesByFragment, owlInstances, newInstances);
-							}
+								final OWLInstance instance = createInstance(element);
+								if (instance != null) {
 
-							if (++count == 100) {
+									instance.createDatabaseNode(app);
+									instance.resolveProperties();
 
-								count = 0;
-								break;
-							}
-						}
+									for (final OWLInstance extension : instance.resolveExtensions(app, owlClassesByFragment)) {
+										addNode(batchNodes, extension);
+									}
 
-						tx.success();
-					}
-				}
+									addNode(batchNodes, instance);
+								}
+							}
 
-				// add newly created extension instances to global map
-				for (final OWLInstance newInstance : newInstances) {
-					owlInstances.put(newInstance.getId(), newInstance);
-				}
+							@Override
+							public void handleTransactionSuccess(final SecurityContext securityContext) {
 
+								try {
 
-				System.out.println("Resolving instance relationships..");
-				logger.println("Resolving instance relationships..");
+									for (final Entry<String, Long> entry : batchNodes.entrySet()) {
+										uriNodeMap.put(entry.getKey(), entry.getValue());
+									}
 
-				final Iterator<OWLInstance> relationshipsIterator = owlInstances.values().iterator();
-				count = 0;
+								} catch (IOException ioex) {
 
-				while (relationshipsIterator.hasNext()) {
+									throw new IllegalStateException("Unable to store instance nodes: " + ioex.getMessage(), ioex);
 
-					try (final Tx tx = StructrApp.getInstance().tx()) {
+								} finally {
 
-						while (relationshipsIterator.hasNext()) {
+									batchNodes.clear();
+								}
+							}
 
-							final OWLInstance instance = relationshipsIterator.next();
-							final OWLClass owlType     = instance.getType();
+							@Override
+							public void handleTransactionFailure(final SecurityContext securityContext, final Throwable t) {
 
-							if (owlType != null) {
+								super.handleTransactionFailure(securityContext, t);
 
-								instance.resolveRelationships(schema, owlClassesByFragment, owlInstances, rdfDescriptions, owlPropertiesByName);
+								// the nodes of the failed batch do not exist
+								batchNodes.clear();
 							}
+						});
+					}
 
-							if (++count == 100) {
+					System.out.println("Resolving instance relationships..");
+					logger.println("Resolving instance relationships..");
 
-								count = 0;
-								break;
-							}
-						}
+					try (final InputStream is = new BufferedInputStream(new FileInputStream(fileName)); final OWLReader reader = new OWLReader(is, isInstanceElement)) {
 
-						tx.success();
+						NodeServiceCommand.bulkGraphOperation(superUserSecurityContext, reader, batchSize, "Resolving instance relationships", new BulkGraphOperation<Element>() {
+
+							@Override
+							public void handleGraphObject(final SecurityContext securityContext, final Element element) throws FrameworkException {
+
+								final OWLInstance instance = createInstance(element);
+								if (instance != null) {
+
+									final List<OWLInstance> instances = new LinkedList<>(instance.getExtensions(owlClassesByFragment));
+									instances.add(0, instance);
+
+									for (final OWLInstance inst : instances) {
+
+										inst.setInstance(OWLInstance.getNode(uriNodeMap, inst.getId().toString()));
+										inst.resolveRelationships(schema, owlClassesByFragment, uriNodeMap, rdfDescriptions, owlPropertiesByName);
+									}
+								}
+							}
+						});
 					}
 				}
 			}
@@ -571,6 +606,9 @@ public class OWLParserv2 {
 					final Iterator<Path> pathIteratorForSchemaExtension = files.iterator();
 					try (final Tx tx = StructrApp.getInstance().tx()) {
 
+						final Map<String, SchemaNode> schemaNodes = getSchemaNodes(app);
+						final Set<String> linkedKeys              = new LinkedHashSet<>();
+
 						while (pathIteratorForSchemaExtension.hasNext()) {
 
 							final Path file     = pathIteratorForSchemaExtension.next();
@@ -593,19 +631,20 @@ public class OWLParserv2 {
 									final Query<NodeInterface> query = app.nodeQuery(false).andType(type).and(key, value, false);
 									final List<NodeInterface> nodes  = query.getAsList();
 
-									if (nodes.size() == 1) {
+									// the schema relationship only needs to be checked once per key
+									if (nodes.size() == 1 && linkedKeys.add(type.getSimpleName() + "." + key.jsonName())) {
 
 										System.out.println("                ##########: " + nodes.size() + " results..");
 
 										// create schema relationship from schema type to file (once)
 										// import file
 										// link file
-										final SchemaNode schemaNode = app.nodeQuery(SchemaNode.class).andName(type.getSimpleName()).getFirst();
+										final SchemaNode schemaNode = schemaNodes.get(type.getSimpleName());
 										if (schemaNode != null) {
 
 											System.out.println("                ##########: found SchemaNode " + schemaNode.getUuid() + " (" + schemaNode.getName() + ")");
 
-											final SchemaNode fileSchemaNode = app.nodeQuery(SchemaNode.class).andName(org.structr.dynamic.File.class.getSimpleName()).getFirst();
+											final SchemaNode fileSchemaNode = schemaNodes.get(org.structr.dynamic.File.class.getSimpleName());
 											if (fileSchemaNode != null) {
 
 												final String capitalJsonName = StringUtils.capitalize(key.jsonName());
@@ -882,10 +921,9 @@ public class OWLParserv2 {
 
 	}
 
-	private void parseDocument(final Element element, final int depth) {
+	private void parseSchemaElement(final Element element) {
 
-		final String elementType  = element.getTagName();
-		switch (elementType) {
+		switch (element.getTagName()) {
 
 			case "owl:Class":
 			case "owl:ObjectProperty":
@@ -897,15 +935,12 @@ public class OWLParserv2 {
 
 					owlClassesByFragment.put(fragment, owlClass);
 				}
-				return;
-
-			case "rdf:Property":
 				break;
 
 			case "rdf:Description":
 				final RDFDescription description = new RDFDescription(element);
 				rdfDescriptions.put(description.getReferenceId(), description);
-				return;
+				break;
 
 			case "owl:DatatypeProperty":
 				final OWLProperty owlProperty = new OWLProperty(element);
@@ -916,45 +951,54 @@ public class OWLParserv2 {
 
 					owlPropertiesByName.put(rawFragmentName, owlProperty);
 				}
-				return;
-
-			default:
+				break;
+		}
+	}
 
-				if (importData) {
+	/**
+	 * Creates an instance for the given element.
+	 *
+	 * @return the instance, or null if the element has no ID or no known type
+	 */
+	private OWLInstance createInstance(final Element element) {
 
-					final OWLInstance instance = new OWLInstance(element);
-					final URI id               = instance.getId();
-					if (id != null) {
+		final OWLInstance instance = new OWLInstance(element);
+		if (instance.getId() != null) {
 
-						final String type = instance.getTypeName();
-						if (type != null) {
+			final String type = instance.getTypeName();
+			if (type != null) {
 
-							final OWLClass owlType = owlClassesByFragment.get(type);
-							if (owlType != null) {
+				final OWLClass owlType = owlClassesByFragment.get(type);
+				if (owlType != null) {
 
-								instance.setType(owlType);
-							}
-						}
+					instance.setType(owlType);
 
-						owlInstances.put(instance.getId(), instance);
-					}
+					return instance;
 				}
-				break;
+			}
 		}
 
-		// do not descend further
-		if (depth >= 1) {
-			return;
+		return null;
+	}
+
+	private void addNode(final Map<String, Long> nodes, final OWLInstance instance) {
+
+		final NodeInterface node = instance.getInstance();
+		if (node != null) {
+
+			nodes.put(instance.getId().toString(), node.getId());
 		}
+	}
 
-		// recurse
-		for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+	private Map<String, SchemaNode> getSchemaNodes(final App app) throws FrameworkException {
 
-			if (child instanceof Element) {
+		final Map<String, SchemaNode> schemaNodes = new TreeMap<>();
 
-				parseDocument((Element)child, depth+1);
-			}
+		for (final SchemaNode schemaNode : app.nodeQuery(SchemaNode.class).getAsList()) {
+			schemaNodes.put(schemaNode.getName(), schemaNode);
 		}
+
+		return schemaNodes;
 	}
 
 	private <T extends RDFItem> void filter(final Collection<T> items) {
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rdfs;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Streaming reader for RDF/XML documents. Returns the top-level elements
+ * of the document one at a time, each as a detached DOM element, so that
+ * only a single class, property or instance is held in memory.
+ *
+ * Element and attribute names are qualified with their prefix as written
+ * in the document (e.g. "owl:Class"), like in a non-namespace-aware DOM.
+ *
+ *
+ */
+public class OWLReader implements Iterator<Element>, AutoCloseable {
+
+	private XMLStreamReader reader    = null;
+	private Predicate<String> filter  = null;
+	private Document document         = null;
+	private Element nextElement       = null;
+	private boolean insideRoot        = false;
+
+	/**
+	 * Creates a reader that returns all top-level elements whose tag name
+	 * is accepted by the given filter. All other elements are skipped
+	 * without being converted.
+	 *
+	 * @param source
+	 * @param filter the tag name filter, or null
+	 * @throws XMLStreamException
+	 */
+	public OWLReader(final InputStream source, final Predicate<String> filter) throws XMLStreamException {
+
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+		// ontologies commonly declare namespace entities in an internal DTD subset,
+		// external entities and DTDs are never loaded
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+		factory.setXMLResolver((publicId, systemId, baseUri, namespace) -> new ByteArrayInputStream(new byte[0]));
+
+		this.reader = factory.createXMLStreamReader(source);
+		this.filter = filter;
+
+		try {
+			this.document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+
+		} catch (ParserConfigurationException pcex) {
+			throw new XMLStreamException(pcex);
+		}
+	}
+
+	/**
+	 * Reads the next accepted top-level element from the document.
+	 *
+	 * @return the next element, or null at the end of the document
+	 * @throws XMLStreamException
+	 */
+	public Element read() throws XMLStreamException {
+
+		if (nextElement != null) {
+
+			final Element element = nextElement;
+			nextElement           = null;
+
+			return element;
+		}
+
+		while (reader.hasNext()) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+
+					if (!insideRoot) {
+
+						// the root element (rdf:RDF) itself is never returned
+						insideRoot = true;
+						break;
+					}
+
+					if (filter == null || filter.test(getName())) {
+
+						return readElement();
+					}
+
+					skipElement();
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					insideRoot = false;
+					break;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+		reader.close();
+	}
+
+	// ----- interface Iterator<Element> -----
+	@Override
+	public boolean hasNext() {
+
+		if (nextElement == null) {
+
+			try {
+				nextElement = read();
+
+			} catch (XMLStreamException xex) {
+				throw new IllegalStateException(xex);
+			}
+		}
+
+		return nextElement != null;
+	}
+
+	@Override
+	public Element next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		final Element element = nextElement;
+		nextElement           = null;
+
+		return element;
+	}
+
+	// ----- private methods -----
+	/**
+	 * Converts the current element and its children into a DOM element
+	 * and moves to the end of the element.
+	 */
+	private Element readElement() throws XMLStreamException {
+
+		final Element root = createElement();
+		Node current       = root;
+
+		while (current != null) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					current = current.appendChild(createElement());
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					current = current == root ? null : current.getParentNode();
+					break;
+
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					current.appendChild(document.createTextNode(reader.getText()));
+					break;
+			}
+		}
+
+		// adjacent text nodes (e.g. around entity references) must be merged, values are read from the first child
+		root.normalize();
+
+		return root;
+	}
+
+	private Element createElement() {
+
+		final Element element = document.createElement(getName());
+		final int count       = reader.getAttributeCount();
+
+		for (int i=0; i<count; i++) {
+
+			final String prefix = reader.getAttributePrefix(i);
+			final String name   = reader.getAttributeLocalName(i);
+
+			element.setAttribute(prefix != null && !prefix.isEmpty() ? prefix + ":" + name : name, reader.getAttributeValue(i));
+		}
+
+		return element;
+	}
+
+	private String getName() {
+
+		final String prefix = reader.getPrefix();
+		final String name   = reader.getLocalName();
+
+		if (prefix != null && !prefix.isEmpty()) {
+
+			return prefix + ":" + name;
+		}
+
+		return name;
+	}
+
+	private void skipElement() throws XMLStreamException {
+
+		int depth = 1;
+
+		while (depth > 0) {
+
+			switch (reader.next()) {
+
+				case XMLStreamConstants.START_ELEMENT:
+					depth++;
+					break;
+
+				case XMLStreamConstants.END_ELEMENT:
+					depth--;
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rdfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maps instance URIs to database node IDs. The first entries are held in
+ * memory, when the given limit is exceeded all entries are moved into a
+ * hash table in a memory-mapped temporary file, with the URIs stored in a
+ * separate file so that lookups remain exact.
+ *
+ *
+ */
+public class UriNodeMap implements AutoCloseable {
+
+	private static final Logger logger = Logger.getLogger(UriNodeMap.class.getName());
+
+	private static final int SLOT_SIZE        = 24;		// hash, node id, key offset
+	private static final int INITIAL_CAPACITY = 1 << 20;
+	private static final int MAX_CAPACITY     = 1 << 26;
+	private static final int WRITE_BUFFER     = 1 << 16;
+
+	private final Map<String, Long> memory         = new HashMap<>();
+	private final ByteArrayOutputStream keyBuffer  = new ByteArrayOutputStream(WRITE_BUFFER);
+	private MappedByteBuffer table                 = null;
+	private FileChannel keys                       = null;
+	private Path directory                         = null;
+	private Path tableFile                         = null;
+	private long keysFlushed                       = 0L;
+	private int maxInMemory                        = 0;
+	private int capacity                           = 0;
+	private int size                               = 0;
+
+	public UriNodeMap(final int maxInMemory) {
+		this.maxInMemory = maxInMemory;
+	}
+
+	public void put(final String uri, final long nodeId) throws IOException {
+
+		if (table == null) {
+
+			memory.put(uri, nodeId);
+
+			if (memory.size() > maxInMemory) {
+				spill();
+			}
+
+		} else {
+
+			putOnDisk(uri, nodeId);
+		}
+	}
+
+	/**
+	 * Returns the node ID for the given URI.
+	 *
+	 * @param uri
+	 * @return the node ID, or null if the URI is not known
+	 * @throws IOException
+	 */
+	public Long get(final String uri) throws IOException {
+
+		if (table == null) {
+			return memory.get(uri);
+		}
+
+		final long hash = hash(uri);
+		int slot        = index(hash, capacity);
+
+		while (true) {
+
+			final int position  = slot * SLOT_SIZE;
+			final long slotHash = table.getLong(position);
+
+			if (slotHash == 0L) {
+				return null;
+			}
+
+			if (slotHash == hash && uri.equals(readKey(table.getLong(position + 16)))) {
+				return table.getLong(position + 8);
+			}
+
+			slot = (slot + 1) & (capacity - 1);
+		}
+	}
+
+	public int size() {
+		return table != null ? size : memory.size();
+	}
+
+	public boolean isSpilled() {
+		return table != null;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		memory.clear();
+
+		if (table != null) {
+
+			release(table, tableFile);
+
+			table     = null;
+			tableFile = null;
+		}
+
+		if (keys != null) {
+
+			keys.close();
+			keys = null;
+		}
+
+		if (directory != null) {
+
+			Files.deleteIfExists(directory.resolve("keys"));
+			Files.deleteIfExists(directory);
+			directory = null;
+		}
+	}
+
+	// ----- private methods -----
+	private void spill() throws IOException {
+
+		directory = Files.createTempDirectory("structr-rdfs-import");
+		keys      = FileChannel.open(directory.resolve("keys"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		table     = createTable(INITIAL_CAPACITY);
+		capacity  = INITIAL_CAPACITY;
+
+		for (final Map.Entry<String, Long> entry : memory.entrySet()) {
+			putOnDisk(entry.getKey(), entry.getValue());
+		}
+
+		memory.clear();
+	}
+
+	private void putOnDisk(final String uri, final long nodeId) throws IOException {
+
+		final long hash = hash(uri);
+		int slot        = index(hash, capacity);
+
+		while (true) {
+
+			final int position  = slot * SLOT_SIZE;
+			final long slotHash = table.getLong(position);
+
+			if (slotHash == 0L) {
+
+				table.putLong(position,      hash);
+				table.putLong(position + 8,  nodeId);
+				table.putLong(position + 16, writeKey(uri));
+
+				// keep the load factor below 0.5
+				if (++size > capacity / 2) {
+					resize();
+				}
+
+				return;
+			}
+
+			if (slotHash == hash && uri.equals(readKey(table.getLong(position + 16)))) {
+
+				table.putLong(position + 8, nodeId);
+				return;
+			}
+
+			slot = (slot + 1) & (capacity - 1);
+		}
+	}
+
+	private void resize() throws IOException {
+
+		final int newCapacity = capacity * 2;
+		if (newCapacity > MAX_CAPACITY) {
+			throw new IllegalStateException("Too many URIs for import, maximum is " + (MAX_CAPACITY / 2));
+		}
+
+		final MappedByteBuffer oldTable = table;
+		final Path oldFile              = tableFile;
+		final MappedByteBuffer newTable = createTable(newCapacity);
+
+		for (int i=0; i<capacity; i++) {
+
+			final int position = i * SLOT_SIZE;
+			final long hash    = oldTable.getLong(position);
+
+			if (hash != 0L) {
+
+				int slot = index(hash, newCapacity);
+
+				while (newTable.getLong(slot * SLOT_SIZE) != 0L) {
+					slot = (slot + 1) & (newCapacity - 1);
+				}
+
+				newTable.putLong(slot * SLOT_SIZE,      hash);
+				newTable.putLong(slot * SLOT_SIZE + 8,  oldTable.getLong(position + 8));
+				newTable.putLong(slot * SLOT_SIZE + 16, oldTable.getLong(position + 16));
+			}
+		}
+
+		table    = newTable;
+		capacity = newCapacity;
+
+		release(oldTable, oldFile);
+	}
+
+	private MappedByteBuffer createTable(final int slots) throws IOException {
+
+		tableFile = Files.createTempFile(directory, "table", null);
+
+		try (final RandomAccessFile file = new RandomAccessFile(tableFile.toFile(), "rw")) {
+
+			file.setLength((long)slots * SLOT_SIZE);
+
+			return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long)slots * SLOT_SIZE);
+		}
+	}
+
+	/**
+	 * Unmaps the given table and deletes its file. A mapped file can not be
+	 * deleted on all platforms, and a mapping is otherwise only released
+	 * when the buffer is garbage collected, so the buffer must not be used
+	 * after this call.
+	 */
+	private static void release(final MappedByteBuffer buffer, final Path file) {
+
+		try {
+			unmap(buffer);
+
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			logger.log(Level.FINE, "Unable to unmap URI table, mapping is released by the garbage collector: {0}", ex.toString());
+		}
+
+		try {
+			Files.deleteIfExists(file);
+
+		} catch (IOException ioex) {
+
+			// still mapped
+			file.toFile().deleteOnExit();
+		}
+	}
+
+	private static void unmap(final MappedByteBuffer buffer) throws ReflectiveOperationException {
+
+		final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+
+		try {
+
+			// Java 9 and later
+			final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			final Field theUnsafe      = unsafeClass.getDeclaredField("theUnsafe");
+
+			theUnsafe.setAccessible(true);
+			invokeCleaner.invoke(theUnsafe.get(null), buffer);
+
+		} catch (NoSuchMethodException nsmex) {
+
+			// Java 8
+			final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+
+			final Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		}
+	}
+
+	private long writeKey(final String uri) throws IOException {
+
+		final byte[] bytes = uri.getBytes(StandardCharsets.UTF_8);
+		final long offset  = keysFlushed + keyBuffer.size();
+
+		keyBuffer.write(bytes.length >>> 24);
+		keyBuffer.write(bytes.length >>> 16);
+		keyBuffer.write(bytes.length >>>  8);
+		keyBuffer.write(bytes.length);
+		keyBuffer.write(bytes);
+
+		if (keyBuffer.size() >= WRITE_BUFFER) {
+			flushKeys();
+		}
+
+		return offset;
+	}
+
+	private String readKey(final long offset) throws IOException {
+
+		// the key may not have been written yet
+		if (offset >= keysFlushed) {
+			flushKeys();
+		}
+
+		final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+		readFully(lengthBuffer, offset);
+
+		final ByteBuffer keyBytes = ByteBuffer.allocate(lengthBuffer.getInt(0));
+		readFully(keyBytes, offset + 4);
+
+		return new String(keyBytes.array(), StandardCharsets.UTF_8);
+	}
+
+	private void readFully(final ByteBuffer buffer, final long offset) throws IOException {
+
+		long position = offset;
+
+		while (buffer.hasRemaining()) {
+
+			final int count = keys.read(buffer, position);
+			if (count < 0) {
+				throw new IOException("Unexpected end of key file at " + position);
+			}
+
+			position += count;
+		}
+	}
+
+	private void flushKeys() throws IOException {
+
+		final ByteBuffer buffer = ByteBuffer.wrap(keyBuffer.toByteArray());
+
+		while (buffer.hasRemaining()) {
+			keysFlushed += keys.write(buffer, keysFlushed);
+		}
+
+		keyBuffer.reset();
+	}
+
+	/**
+	 * 64 bit FNV-1a hash with a final avalanche step, never 0 since 0
+	 * marks an empty slot.
+	 */
+	private static long hash(final String uri) {
+
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i=0; i<uri.length(); i++) {
+
+			hash ^= uri.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+
+		return hash != 0L ? hash : 1L;
+	}
+
+	private static int index(final long hash, final int capacity) {
+		return (int)(hash & (capacity - 1));
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rdfs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import junit.framework.TestCase;
+import org.w3c.dom.Element;
+
+/**
+ * Imports a generated document with a large number of instances through
+ * {@link OWLReader} and {@link UriNodeMap}. The module's tests run with a
+ * small heap, so this fails if instances or URIs are held in memory.
+ *
+ * The number of instances can be set with -Drdfs.instanceCount, e.g. to
+ * measure larger imports with -Dtest=LargeImportTest.
+ *
+ * Only the streaming and the URI resolution are measured, the creation of
+ * the database nodes and relationships by OWLParserv2 is not benchmarked.
+ *
+ *
+ */
+public class LargeImportTest extends TestCase {
+
+	private static final Logger logger   = Logger.getLogger(LargeImportTest.class.getName());
+	private static final String BASE_URI = "http://example.org/person/";
+
+	private File file = null;
+	private int count = 0;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		count = Integer.getInteger("rdfs.instanceCount", 600000);
+		file  = File.createTempFile("structr-rdfs-test", ".owl");
+
+		final long start = System.currentTimeMillis();
+
+		generate(file, count);
+
+		logger.log(Level.INFO, "Generated {0} instances ({1} MB) in {2} ms", new Object[] { count, file.length() / 1024 / 1024, System.currentTimeMillis() - start });
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testStreamedImport() throws Exception {
+
+		try (final UriNodeMap nodes = new UriNodeMap(10000)) {
+
+			long start = System.currentTimeMillis();
+			long id    = 0L;
+
+			// first pass: register the URI of each instance
+			try (final InputStream is = new BufferedInputStream(new FileInputStream(file)); final OWLReader reader = new OWLReader(is, "ex:Person"::equals)) {
+
+				while (reader.hasNext()) {
+
+					nodes.put(reader.next().getAttribute("rdf:about"), id++);
+				}
+			}
+
+			logger.log(Level.INFO, "Registered {0} instances in {1} ms", new Object[] { id, System.currentTimeMillis() - start });
+
+			assertEquals(count, id);
+			assertEquals(count, nodes.size());
+			assertTrue("URIs were not moved to disk", nodes.isSpilled());
+
+			start = System.currentTimeMillis();
+			id    = 0L;
+
+			// second pass: resolve the reference of each instance to its predecessor
+			try (final InputStream is = new BufferedInputStream(new FileInputStream(file)); final OWLReader reader = new OWLReader(is, "ex:Person"::equals)) {
+
+				while (reader.hasNext()) {
+
+					final Element element = reader.next();
+					final Element knows   = (Element)element.getElementsByTagName("ex:knows").item(0);
+
+					assertEquals(Long.valueOf(id), nodes.get(element.getAttribute("rdf:about")));
+
+					if (id > 0) {
+
+						assertEquals(Long.valueOf(id - 1), nodes.get(knows.getAttribute("rdf:resource")));
+					}
+
+					id++;
+				}
+			}
+
+			logger.log(Level.INFO, "Resolved {0} instances in {1} ms", new Object[] { id, System.currentTimeMillis() - start });
+
+			assertEquals(count, id);
+			assertNull(nodes.get(BASE_URI + "unknown"));
+		}
+	}
+
+	// ----- private methods -----
+	private void generate(final File file, final int count) throws IOException {
+
+		try (final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			writer.write("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:owl=\"http://www.w3.org/2002/07/owl#\" xmlns:ex=\"http://example.org/\">\n");
+			writer.write("\t<owl:Class rdf:about=\"http://example.org/Person\"/>\n");
+
+			for (int i=0; i<count; i++) {
+
+				writer.write("\t<ex:Person rdf:about=\"" + BASE_URI + i + "\">\n");
+				writer.write("\t\t<ex:name>Person &amp; " + i + "</ex:name>\n");
+				writer.write("\t\t<ex:knows rdf:resource=\"" + BASE_URI + Math.max(0, i - 1) + "\"/>\n");
+				writer.write("\t</ex:Person>\n");
+			}
+
+			writer.write("</rdf:RDF>\n");
+		}
+	}
+}
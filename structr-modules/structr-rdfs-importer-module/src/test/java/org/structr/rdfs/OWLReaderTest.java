@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rdfs;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import junit.framework.TestCase;
+import org.w3c.dom.Element;
+
+/**
+ * Tests the DTD handling of {@link OWLReader}.
+ *
+ *
+ */
+public class OWLReaderTest extends TestCase {
+
+	public void testInternalEntities() throws Exception {
+
+		final String document =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<!DOCTYPE rdf:RDF [\n" +
+			"\t<!ENTITY ex \"http://example.org/\">\n" +
+			"]>\n" +
+			"<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:ex=\"&ex;\">\n" +
+			"\t<ex:Person rdf:about=\"&ex;person/1\"><ex:name>&ex;name</ex:name></ex:Person>\n" +
+			"</rdf:RDF>\n";
+
+		try (final InputStream is = new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)); final OWLReader reader = new OWLReader(is, null)) {
+
+			assertTrue(reader.hasNext());
+
+			final Element person = reader.next();
+
+			assertEquals("http://example.org/person/1", person.getAttribute("rdf:about"));
+			assertEquals("http://example.org/name", person.getElementsByTagName("ex:name").item(0).getTextContent());
+			assertFalse(reader.hasNext());
+		}
+	}
+
+	public void testExternalEntitiesAreNotLoaded() throws Exception {
+
+		final File secret = File.createTempFile("structr-rdfs-test", ".txt");
+
+		try {
+
+			try (final FileOutputStream out = new FileOutputStream(secret)) {
+				out.write("secret".getBytes(StandardCharsets.UTF_8));
+			}
+
+			final String document =
+				"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+				"<!DOCTYPE rdf:RDF [\n" +
+				"\t<!ENTITY secret SYSTEM \"" + secret.toURI() + "\">\n" +
+				"]>\n" +
+				"<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\" xmlns:ex=\"http://example.org/\">\n" +
+				"\t<ex:Person rdf:about=\"http://example.org/person/1\"><ex:name>&secret;</ex:name></ex:Person>\n" +
+				"</rdf:RDF>\n";
+
+			try (final InputStream is = new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)); final OWLReader reader = new OWLReader(is, null)) {
+
+				while (reader.hasNext()) {
+
+					final Element person = reader.next();
+
+					assertFalse("External entity must not be loaded", person.getTextContent().contains("secret"));
+				}
+
+			} catch (IllegalStateException ignore) {
+
+				// rejecting the reference is fine as well
+			}
+
+		} finally {
+
+			secret.delete();
+		}
+	}
+}
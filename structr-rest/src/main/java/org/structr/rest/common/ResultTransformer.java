@@ -22,6 +22,7 @@ import java.util.Map;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Result;
+import org.structr.core.app.Query;
 
 /**
  *
@@ -31,6 +32,17 @@ public interface ResultTransformer {
 	String getSourceType();
 
 	Result transformOutput(final SecurityContext securityContext, final Class sourceType, final Result result) throws FrameworkException;
+
+	/**
+	 * Adds the output filter to the given source query if it can be
+	 * evaluated by the database.
+	 *
+	 * @param securityContext
+	 * @param sourceType
+	 * @param query
+	 * @return whether the query returns only objects that pass the filter
+	 */
+	boolean applyFilter(final SecurityContext securityContext, final Class sourceType, final Query query) throws FrameworkException;
 	void transformInput(final SecurityContext securityContext, final Class type, final Map<String, Object> propertySet) throws FrameworkException;
 
 	boolean isPrimitiveArray();
@@ -32,6 +32,7 @@ import org.structr.core.GraphObjectMap;
 import org.structr.core.Result;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
+import org.structr.core.parser.ScriptCache;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.StringProperty;
@@ -114,6 +115,7 @@ public class EnvResource extends Resource {
 		info.setProperty(new StringProperty("classPath"), classPath);
 		info.setProperty(new StringProperty("instanceName"), StructrApp.getConfigurationValue(Services.APPLICATION_INSTANCE_NAME, ""));
 		info.setProperty(new StringProperty("instanceStage"), StructrApp.getConfigurationValue(Services.APPLICATION_INSTANCE_STAGE, ""));
+		info.setProperty(new GenericProperty("scriptCache"), ScriptCache.getInstance().getStatistics());
 
 		resultList.add(info);
 
@@ -25,7 +25,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
 import org.structr.common.GraphObjectComparator;
+import org.structr.common.PagingCursor;
 import org.structr.common.PagingHelper;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.EmptyPropertyToken;
@@ -136,6 +138,18 @@ public class TypeResource extends SortableResource {
 
 			collectSearchAttributes(query);
 
+			// keyset pagination: use sort key and order of the cursor unless specified explicitly
+			final String cursor = request.getParameter(JsonRestServlet.REQUEST_PARAMETER_CURSOR);
+			if (StringUtils.isNotEmpty(cursor) && actualSortKey == null) {
+
+				final String sortKeyName = PagingCursor.getSortKeyName(cursor);
+				if (sortKeyName != null) {
+
+					actualSortKey   = StructrApp.getConfiguration().getPropertyKeyForJSONName(entityClass, sortKeyName, false);
+					actualSortOrder = PagingCursor.isDescending(cursor);
+				}
+			}
+
 			// default sort key & order
 			if (actualSortKey == null) {
 
@@ -162,6 +176,24 @@ public class TypeResource extends SortableResource {
 			}
 			if (virtualType != null) {
 
+				// if the database can evaluate the filter of the virtual type, the
+				// query can be paged and only the requested page is transformed
+				if (virtualType.applyFilter(securityContext, entityClass, query)) {
+
+					final Result untransformedPage = query
+						.includeDeletedAndHidden(includeDeletedAndHidden)
+						.publicOnly(publicOnly)
+						.sort(actualSortKey)
+						.order(actualSortOrder)
+						.pageSize(pageSize)
+						.page(page)
+						.offsetId(offsetId)
+						.cursor(cursor)
+						.getResult();
+
+					return virtualType.transformOutput(securityContext, entityClass, untransformedPage);
+				}
+
 				final Result untransformedResult = query
 					.includeDeletedAndHidden(includeDeletedAndHidden)
 					.publicOnly(publicOnly)
@@ -184,6 +216,7 @@ public class TypeResource extends SortableResource {
 					.pageSize(pageSize)
 					.page(page)
 					.offsetId(offsetId)
+					.cursor(cursor)
 					.getResult();
 			}
 
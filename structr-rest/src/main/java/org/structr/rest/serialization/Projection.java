@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A tree of property names that limits the output of the serializer to
+ * the given properties, e.g. "id,name,owner.name,children.id".
+ *
+ * Properties without nested paths are serialized completely, nested paths
+ * limit the output of the related objects.
+ *
+ *
+ */
+public class Projection {
+
+	private final Map<String, Projection> children = new LinkedHashMap<>();
+
+	/**
+	 * Parses the given comma-separated list of property paths.
+	 *
+	 * @param source
+	 * @return the projection, or null if the source contains no paths
+	 */
+	public static Projection parse(final String source) {
+
+		if (StringUtils.isBlank(source)) {
+			return null;
+		}
+
+		final Projection root = new Projection();
+
+		for (final String path : source.split("[,]+")) {
+
+			Projection current = root;
+
+			for (final String part : path.split("[.]+")) {
+
+				final String name = part.trim();
+				if (!name.isEmpty()) {
+
+					Projection child = current.children.get(name);
+					if (child == null) {
+
+						child = new Projection();
+						current.children.put(name, child);
+					}
+
+					current = child;
+				}
+			}
+		}
+
+		return root.isEmpty() ? null : root;
+	}
+
+	public boolean includes(final String jsonName) {
+		return children.containsKey(jsonName);
+	}
+
+	/**
+	 * Returns the projection for the values of the given property.
+	 *
+	 * @param jsonName
+	 * @return the nested projection, or null if the values are not limited
+	 */
+	public Projection get(final String jsonName) {
+
+		final Projection child = children.get(jsonName);
+		if (child != null && !child.isEmpty()) {
+
+			return child;
+		}
+
+		return null;
+	}
+
+	public boolean isEmpty() {
+		return children.isEmpty();
+	}
+}
@@ -23,12 +23,16 @@ import java.util.List;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,6 +49,7 @@ import org.structr.core.Value;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.AbstractRelationship;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 
@@ -54,10 +59,11 @@ import org.structr.core.property.PropertyMap;
  */
 public abstract class StreamingWriter {
 
-	private static final Logger logger                   = Logger.getLogger(StreamingWriter.class.getName());
-	private static final long MAX_SERIALIZATION_TIME     = TimeUnit.SECONDS.toMillis(300);
-	private static final Set<PropertyKey> idNameOnly     = new LinkedHashSet<>();
-	private static final Set<PropertyKey> structrGraph   = new LinkedHashSet<>();
+	private static final Logger logger                     = Logger.getLogger(StreamingWriter.class.getName());
+	private static final long MAX_SERIALIZATION_TIME       = TimeUnit.SECONDS.toMillis(300);
+	private static final Set<PropertyKey> idNameOnly       = new LinkedHashSet<>();
+	private static final Set<PropertyKey> structrGraph     = new LinkedHashSet<>();
+	private static final Map<Class, Boolean> typeKeysCache = new ConcurrentHashMap<>();
 
 	static {
 
@@ -69,6 +75,8 @@ public abstract class StreamingWriter {
 		structrGraph.add(AbstractNode.name);
 	}
 
+	private final Map<Projection, Map<String, List<PlanEntry>>> plans = new IdentityHashMap<>();
+
 	private final Map<String, Serializer> serializerCache = new LinkedHashMap<>();
 	private final Map<String, Serializer> serializers     = new LinkedHashMap<>();
 	private final Serializer<GraphObject> root            = new RootSerializer();
@@ -81,6 +89,7 @@ public abstract class StreamingWriter {
 	private boolean reduceRedundancy                      = false;
 	private int outputNestingDepth                        = 3;
 	private Value<String> propertyView                    = null;
+	private Projection projection                         = null;
 	protected boolean indent                              = true;
 	protected boolean compactNestedProperties             = true;
 
@@ -148,6 +157,7 @@ public abstract class StreamingWriter {
 		Integer page = result.getPage();
 		Integer pageCount = result.getPageCount();
 		Integer pageSize = result.getPageSize();
+		String nextCursor = result.getNextCursor();
 		String queryTime = result.getQueryTime();
 		Integer resultCount = result.getRawResultCount();
 		String searchString = result.getSearchString();
@@ -160,6 +170,10 @@ public abstract class StreamingWriter {
 		// open result set
 		writer.beginObject();
 
+		if (nextCursor != null) {
+			writer.name("next_cursor").value(nextCursor);
+		}
+
 		if (page != null) {
 			writer.name("page").value(page);
 		}
@@ -324,6 +338,16 @@ public abstract class StreamingWriter {
 		this.renderResultCount = doRender;
 	}
 
+	/**
+	 * Limits the output of graph objects to the properties of the given
+	 * projection.
+	 *
+	 * @param projection the projection, or null to render the whole view
+	 */
+	public void setProjection(final Projection projection) {
+		this.projection = projection;
+	}
+
 	private Serializer getSerializerForType(Class type) {
 
 		Class localType       = type;
@@ -363,6 +387,108 @@ public abstract class StreamingWriter {
 		return serializer;
 	}
 
+	/**
+	 * Returns the serialization plan for objects of the given type in the
+	 * given view, i.e. the list of keys to serialize in the current
+	 * projection. Plans are cached for entity types, whose keys depend only
+	 * on the type. Other graph objects (e.g. maps) and types that override
+	 * getPropertyKeys (e.g. GenericNode) have individual keys.
+	 */
+	private List<PlanEntry> getPlan(final GraphObject source, final String view, final boolean compact) {
+
+		if (!hasTypeKeys(source.getClass())) {
+			return createPlan(source, view, compact);
+		}
+
+		Map<String, List<PlanEntry>> cache = plans.get(projection);
+		if (cache == null) {
+
+			cache = new HashMap<>();
+			plans.put(projection, cache);
+		}
+
+		final String cacheKey = source.getClass().getName() + "/" + view + "/" + compact;
+		List<PlanEntry> plan  = cache.get(cacheKey);
+
+		if (plan == null) {
+
+			plan = createPlan(source, view, compact);
+			cache.put(cacheKey, plan);
+		}
+
+		return plan;
+	}
+
+	/**
+	 * Returns whether the property keys of the given type are the keys
+	 * registered for the type, i.e. whether the type uses the default
+	 * implementation of getPropertyKeys.
+	 */
+	private static boolean hasTypeKeys(final Class type) {
+
+		Boolean typeKeys = typeKeysCache.get(type);
+		if (typeKeys == null) {
+
+			typeKeys = false;
+
+			if (AbstractNode.class.isAssignableFrom(type) || AbstractRelationship.class.isAssignableFrom(type)) {
+
+				try {
+
+					final Class declaringClass = type.getMethod("getPropertyKeys", String.class).getDeclaringClass();
+
+					typeKeys = AbstractNode.class.equals(declaringClass) || AbstractRelationship.class.equals(declaringClass);
+
+				} catch (NoSuchMethodException nsmex) {
+					logger.log(Level.WARNING, "", nsmex);
+				}
+			}
+
+			typeKeysCache.put(type, typeKeys);
+		}
+
+		return typeKeys;
+	}
+
+	private List<PlanEntry> createPlan(final GraphObject source, final String view, final boolean compact) {
+
+		final List<PlanEntry> plan = new LinkedList<>();
+		Iterable<PropertyKey> keys = source.getPropertyKeys(view);
+
+		if (keys != null) {
+
+			// speciality for the Ui view: limit recursive rendering to (id, name)
+			if (compact) {
+				keys = idNameOnly;
+			}
+
+			for (final PropertyKey key : keys) {
+
+				final String jsonName = key.jsonName();
+
+				if (projection == null || projection.includes(jsonName)) {
+
+					// special handling for the internal _graph view: replace name with
+					// the name property from the ui view, in case it was overwritten
+					PropertyKey localKey = key;
+
+					if (View.INTERNAL_GRAPH_VIEW.equals(view)) {
+
+						if (AbstractNode.name.equals(localKey)) {
+
+							// replace key
+							localKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(source.getClass(), AbstractNode.name.jsonName(), false);
+						}
+					}
+
+					plan.add(new PlanEntry(key, localKey, projection != null ? projection.get(jsonName) : null));
+				}
+			}
+		}
+
+		return plan;
+	}
+
 	private void collectAllInterfaces(Class type, Set<Class> interfaces) {
 
 		if (interfaces.contains(type)) {
@@ -460,7 +586,7 @@ public abstract class StreamingWriter {
 			int hashCode = -1;
 
 			// mark object as visited
-			if (source != null) {
+			if (source != null && reduceRedundancy) {
 
 				hashCode = source.hashCode();
 				visitedObjects.add(hashCode);
@@ -471,54 +597,41 @@ public abstract class StreamingWriter {
 			// prevent endless recursion by pruning at depth n
 			if (depth <= outputNestingDepth) {
 
-				// property keys
-				Iterable<PropertyKey> keys = source.getPropertyKeys(localPropertyView);
-				if (keys != null) {
+				final PermissionResolutionMask permissionResolutionMask = source.getPermissionResolutionMask();
 
-					final PermissionResolutionMask permissionResolutionMask = source.getPermissionResolutionMask();
+				// an explicit projection overrides the compact rendering of nested objects in the Ui view
+				final boolean compact   = projection == null && compactNestedProperties && depth > 0 && PropertyView.Ui.equals(localPropertyView);
+				final Projection parent = projection;
 
-					// speciality for the Ui view: limit recursive rendering to (id, name)
-					if (compactNestedProperties && depth > 0 && PropertyView.Ui.equals(localPropertyView)) {
-						keys = idNameOnly;
-					}
+				for (final PlanEntry entry : getPlan(source, localPropertyView, compact)) {
 
-					for (final PropertyKey key : keys) {
+					final PropertyKey key      = entry.key;
+					final PropertyKey localKey = entry.localKey;
 
-						if (permissionResolutionMask == null || permissionResolutionMask.allowsProperty(key)) {
+					if (permissionResolutionMask == null || permissionResolutionMask.allowsProperty(key)) {
 
-							final QueryRange range = writer.getSecurityContext().getRange(key.jsonName());
-							if (range != null) {
-								// Reset count for each key
-								range.resetCount();
-							}
+						final QueryRange range = writer.getSecurityContext().getRange(key.jsonName());
+						if (range != null) {
+							// Reset count for each key
+							range.resetCount();
+						}
 
-							// special handling for the internal _graph view: replace name with
-							// the name property from the ui view, in case it was overwritten
-							PropertyKey localKey = key;
+						final Object value = source.getProperty(localKey, range);
+						if (value != null) {
 
-							if (View.INTERNAL_GRAPH_VIEW.equals(localPropertyView)) {
+							if (!(reduceRedundancy && visitedObjects.contains(value.hashCode()))) {
 
-								if (AbstractNode.name.equals(localKey)) {
+								writer.name(key.jsonName());
 
-									// replace key
-									localKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(source.getClass(), AbstractNode.name.jsonName(), false);
-								}
+								// related objects are rendered with the nested projection of this key
+								projection = entry.projection;
+								serializeProperty(writer, localKey, value, localPropertyView, depth+1);
+								projection = parent;
 							}
 
+						} else {
 
-							final Object value = source.getProperty(localKey, range);
-							if (value != null) {
-
-								if (!(reduceRedundancy && visitedObjects.contains(value.hashCode()))) {
-
-									writer.name(key.jsonName());
-									serializeProperty(writer, localKey, value, localPropertyView, depth+1);
-								}
-
-							} else {
-
-								writer.name(localKey.jsonName()).nullValue();
-							}
+							writer.name(localKey.jsonName()).nullValue();
 						}
 					}
 				}
@@ -527,7 +640,9 @@ public abstract class StreamingWriter {
 			writer.endObject(source);
 
 			// unmark (visiting only counts for children)
-			visitedObjects.remove(hashCode);
+			if (reduceRedundancy) {
+				visitedObjects.remove(hashCode);
+			}
 		}
 	}
 
@@ -600,4 +715,19 @@ public abstract class StreamingWriter {
 			writer.endObject();
 		}
 	}
+
+	// ----- nested classes -----
+	private static class PlanEntry {
+
+		private PropertyKey key       = null;
+		private PropertyKey localKey  = null;
+		private Projection projection = null;
+
+		public PlanEntry(final PropertyKey key, final PropertyKey localKey, final Projection projection) {
+
+			this.key        = key;
+			this.localKey   = localKey;
+			this.projection = projection;
+		}
+	}
 }
@@ -18,6 +18,8 @@
  */
 package org.structr.rest.service;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.logging.Level;
@@ -43,6 +45,8 @@ public class StructrHttpServiceConfig {
 	private boolean userAutoCreate                    = false;
 	private boolean userAutoLogin                     = false;
 	private int outputNestingDepth                    = 3;
+	private boolean readOnlyTransactions              = true;
+	private Set<String> lazyWriteTypes                = new LinkedHashSet<>(Arrays.asList("Image"));	// thumbnails are created on first access
 
 	public ResourceProvider getResourceProvider() {
 		return resourceProvider;
@@ -60,6 +64,34 @@ public class StructrHttpServiceConfig {
 		return outputNestingDepth;
 	}
 
+	public boolean useReadOnlyTransactions() {
+		return readOnlyTransactions;
+	}
+
+	/**
+	 * Indicates whether reading objects of the given type may modify the
+	 * database, so that GET requests for this type can not be served in
+	 * a read-only transaction.
+	 *
+	 * @param type
+	 * @return whether the type or one of its supertypes is configured in <servlet>.lazywritetypes
+	 */
+	public boolean writesLazily(final Class type) {
+
+		Class current = type;
+
+		while (current != null) {
+
+			if (lazyWriteTypes.contains(current.getSimpleName())) {
+				return true;
+			}
+
+			current = current.getSuperclass();
+		}
+
+		return false;
+	}
+
 	public void initializeFromProperties(final Properties properties, final String servletName, final Set<ResourceProvider> resourceProviders) throws InstantiationException, IllegalAccessException {
 
 		final String resourceProviderKeyName = servletName.concat(".resourceprovider");
@@ -68,6 +100,8 @@ public class StructrHttpServiceConfig {
 		final String userAutoLoginKeyName    = servletName.concat(".user.autologin");
 		final String defaultPropertyKeyName  = servletName.concat(".defaultview");
 		final String nestingDepthKeyName     = servletName.concat(".outputdepth");
+		final String readOnlyTxKeyName       = servletName.concat(".readonlytransactions");
+		final String lazyWriteTypesKeyName   = servletName.concat(".lazywritetypes");
 
 		final String resourceProviderValue   = properties.getProperty(resourceProviderKeyName);
 		final String authenticatorValue      = properties.getProperty(authenticatorKeyName);
@@ -75,6 +109,8 @@ public class StructrHttpServiceConfig {
 		final String userAutoLoginValue      = properties.getProperty(userAutoLoginKeyName);
 		final String defaultPropertyKeyValue = properties.getProperty(defaultPropertyKeyName);
 		final String outputDepthValue        = properties.getProperty(nestingDepthKeyName);
+		final String readOnlyTxValue         = properties.getProperty(readOnlyTxKeyName);
+		final String lazyWriteTypesValue     = properties.getProperty(lazyWriteTypesKeyName);
 
 		if (StringUtils.isBlank(resourceProviderValue)) {
 
@@ -127,6 +163,14 @@ public class StructrHttpServiceConfig {
 		if (StringUtils.isNotBlank(outputDepthValue)) {
 			this.outputNestingDepth = Services.parseInt(outputDepthValue, 3);
 		}
+
+		if (StringUtils.isNotBlank(readOnlyTxValue)) {
+			this.readOnlyTransactions = Services.parseBoolean(readOnlyTxValue, true);
+		}
+
+		if (lazyWriteTypesValue != null) {
+			this.lazyWriteTypes = new LinkedHashSet<>(Arrays.asList(StringUtils.split(lazyWriteTypesValue, ", ")));
+		}
 	}
 
 	public Authenticator getAuthenticator() {
@@ -81,6 +81,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 
 	//~--- fields ---------------------------------------------------------
 	private final Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
+	private ResourceRoutes resourceRoutes = null;
 	private Value<String> propertyView = null;
 
 	private static boolean removeLineBreaks = false;
@@ -104,6 +105,9 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 		// inject resources
 		resourceMap.putAll(config.getResourceProvider().getResources());
 
+		// compile the resource patterns once, the resource map does not change after initialization
+		resourceRoutes = ResourceRoutes.getInstance(resourceMap);
+
 		// initialize variables
 		this.propertyView        = new ThreadLocalPropertyView();
 		this.defaultPropertyView = config.getDefaultPropertyView();
@@ -143,7 +147,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView);
+				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 
 				tx.success();
@@ -311,7 +315,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 				// isolate resource authentication
 				try (final Tx tx = app.tx()) {
 
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -49,6 +49,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.auth.Authenticator;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeFactory;
+import org.structr.core.graph.ReadOnlyTransactionException;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.PropertyKey;
@@ -56,10 +57,12 @@ import org.structr.rest.ResourceProvider;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.resource.Resource;
 import org.structr.rest.resource.StaticRelationshipResource;
+import org.structr.rest.serialization.Projection;
 import org.structr.rest.serialization.StreamingHtmlWriter;
 import org.structr.rest.serialization.StreamingJsonWriter;
 import org.structr.rest.service.HttpServiceServlet;
 import org.structr.rest.service.StructrHttpServiceConfig;
+import org.structr.schema.SchemaHelper;
 import org.tuckey.web.filters.urlrewrite.utils.StringUtils;
 
 //~--- classes ----------------------------------------------------------------
@@ -79,6 +82,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 	public static final String REQUEST_PARAMETER_OFFSET_ID              = "pageStartId";
 	public static final String REQUEST_PARAMETER_SORT_KEY               = "sort";
 	public static final String REQUEST_PARAMETER_SORT_ORDER             = "order";
+	public static final String REQUEST_PARAMETER_CURSOR                 = "cursor";
+	public static final String REQUEST_PARAMETER_FIELDS                 = "_fields";
 	public static final Set<String> commonRequestParameters             = new LinkedHashSet<>();
 	private static final Logger logger                                  = Logger.getLogger(JsonRestServlet.class.getName());
 
@@ -90,6 +95,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		commonRequestParameters.add(REQUEST_PARAMETER_OFFSET_ID);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_KEY);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_ORDER);
+		commonRequestParameters.add(REQUEST_PARAMETER_CURSOR);
+		commonRequestParameters.add(REQUEST_PARAMETER_FIELDS);
 		commonRequestParameters.add("debugLoggingEnabled");
 		commonRequestParameters.add("ignoreResultCount");
 
@@ -109,6 +116,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 	private final StructrHttpServiceConfig config                     = new StructrHttpServiceConfig();
 
 	// non-final fields
+	private ResourceRoutes resourceRoutes    = null;
 	private Value<String> propertyView       = null;
 	private ThreadLocalGson gson             = null;
 	private boolean indentJson               = true;
@@ -143,6 +151,9 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			logger.log(Level.SEVERE, "Unable to initialize JsonRestServlet, no resource provider found. Please check structr.conf for a valid resource provider class.");
 		}
 
+		// compile the resource patterns once, the resource map does not change after initialization
+		this.resourceRoutes         = ResourceRoutes.getInstance(resourceMap);
+
 		// initialize variables
 		this.propertyView           = new ThreadLocalPropertyView();
 		this.gson                   = new ThreadLocalGson(propertyView, config.getOutputNestingDepth());
@@ -176,7 +187,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView);
+				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 
 				tx.success();
@@ -294,32 +305,15 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 			final App app = StructrApp.getInstance(securityContext);
 
-			// isolate resource authentication
-			try (final Tx tx = app.tx()) {
+			// isolate resource authentication, doOptions and write output in a single transaction
+			try (final Tx tx = readTx(app, request)) {
 
-				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView), propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
-				tx.success();
-			}
-
-			// isolate doOptions
-			boolean retry = true;
-			while (retry) {
-
-				try (final Tx tx = app.tx()) {
-
-					result = resource.doOptions();
-					tx.success();
-					retry = false;
-
-				} catch (DeadlockException ddex) {
-					retry = true;
-				}
-			}
 
-			// isolate write output
-			try (final Tx tx = app.tx()) {
+				result = resource.doOptions();
 				result.commitResponse(gson.get(), response);
+
 				tx.success();
 			}
 
@@ -407,7 +401,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				// isolate resource authentication
 				try (final Tx tx = app.tx()) {
 
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -593,7 +587,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				try (final Tx tx = app.tx()) {
 
 					// evaluate constraint chain
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -770,85 +764,69 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			// evaluate constraints and measure query time
 			double queryTimeStart    = System.nanoTime();
 
-			// isolate resource authentication
-			try (final Tx tx = app.tx()) {
+			// isolate resource authentication, doGet and write output in a single transaction
+			try (final Tx tx = readTx(app, request)) {
 
-				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceRoutes, propertyView), propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
-				tx.success();
-			}
-
-			// add sorting & paging
-			String pageSizeParameter = request.getParameter(REQUEST_PARAMETER_PAGE_SIZE);
-			String pageParameter     = request.getParameter(REQUEST_PARAMETER_PAGE_NUMBER);
-			String offsetId          = request.getParameter(REQUEST_PARAMETER_OFFSET_ID);
-			String sortOrder         = request.getParameter(REQUEST_PARAMETER_SORT_ORDER);
-			String sortKeyName       = request.getParameter(REQUEST_PARAMETER_SORT_KEY);
-			boolean sortDescending   = (sortOrder != null && "desc".equals(sortOrder.toLowerCase()));
-			int pageSize		 = Services.parseInt(pageSizeParameter, NodeFactory.DEFAULT_PAGE_SIZE);
-			int page                 = Services.parseInt(pageParameter, NodeFactory.DEFAULT_PAGE);
-			String baseUrl           = request.getRequestURI();
-			PropertyKey sortKey      = null;
-
-			// set sort key
-			if (sortKeyName != null) {
-
-				Class<? extends GraphObject> type = resource.getEntityClass();
-				if (type == null) {
-
-					// fallback to default implementation
-					// if no type can be determined
-					type = AbstractNode.class;
-				}
 
-				sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName, false);
-			}
-
-			// isolate doGet
-			boolean retry = true;
-			while (retry) {
-
-				try (final Tx tx = app.tx()) {
-					result = resource.doGet(sortKey, sortDescending, pageSize, page, offsetId);
-					tx.success();
-					retry = false;
+				// add sorting & paging
+				String pageSizeParameter = request.getParameter(REQUEST_PARAMETER_PAGE_SIZE);
+				String pageParameter     = request.getParameter(REQUEST_PARAMETER_PAGE_NUMBER);
+				String offsetId          = request.getParameter(REQUEST_PARAMETER_OFFSET_ID);
+				String sortOrder         = request.getParameter(REQUEST_PARAMETER_SORT_ORDER);
+				String sortKeyName       = request.getParameter(REQUEST_PARAMETER_SORT_KEY);
+				boolean sortDescending   = (sortOrder != null && "desc".equals(sortOrder.toLowerCase()));
+				int pageSize		 = Services.parseInt(pageSizeParameter, NodeFactory.DEFAULT_PAGE_SIZE);
+				int page                 = Services.parseInt(pageParameter, NodeFactory.DEFAULT_PAGE);
+				String baseUrl           = request.getRequestURI();
+				PropertyKey sortKey      = null;
+
+				// set sort key
+				if (sortKeyName != null) {
+
+					Class<? extends GraphObject> type = resource.getEntityClass();
+					if (type == null) {
+
+						// fallback to default implementation
+						// if no type can be determined
+						type = AbstractNode.class;
+					}
 
-				} catch (DeadlockException ddex) {
-					retry = true;
+					sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName, false);
 				}
-			}
 
-			if (returnContent) {
+				result = resource.doGet(sortKey, sortDescending, pageSize, page, offsetId);
 
-                                if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && !result.isEmpty()) {
+				if (returnContent) {
 
-                                        result.setIsCollection(resource.isCollectionResource());
-                                        result.setIsPrimitiveArray(resource.isPrimitiveArray());
+					if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && !result.isEmpty()) {
 
-                                }
+						result.setIsCollection(resource.isCollectionResource());
+						result.setIsPrimitiveArray(resource.isPrimitiveArray());
 
-				PagingHelper.addPagingParameter(result, pageSize, page);
+					}
 
-				// timing..
-				double queryTimeEnd = System.nanoTime();
+					PagingHelper.addPagingParameter(result, pageSize, page);
 
-				// store property view that will be used to render the results
-				result.setPropertyView(propertyView.get(securityContext));
+					// timing..
+					double queryTimeEnd = System.nanoTime();
 
-				// allow resource to modify result set
-				resource.postProcessResultSet(result);
+					// store property view that will be used to render the results
+					result.setPropertyView(propertyView.get(securityContext));
 
-				DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-				result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
+					// allow resource to modify result set
+					resource.postProcessResultSet(result);
 
-				String accept = request.getHeader("Accept");
+					DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+					result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
 
-				if (accept != null && accept.contains("text/html")) {
+					String accept = request.getHeader("Accept");
 
-					final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+					if (accept != null && accept.contains("text/html")) {
 
-					// isolate write output
-					try (final Tx tx = app.tx()) {
+						final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+						htmlStreamer.setProjection(Projection.parse(request.getParameter(REQUEST_PARAMETER_FIELDS)));
 
 						response.setContentType("text/html; charset=utf-8;");
 
@@ -858,27 +836,22 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 							writer.append("\n");    // useful newline
 						}
 
-						tx.success();
-					}
-
-				} else {
-
-					final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+					} else {
 
-					// isolate write output
-					try (final Tx tx = app.tx()) {
+						final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+						jsonStreamer.setProjection(Projection.parse(request.getParameter(REQUEST_PARAMETER_FIELDS)));
 
 						response.setContentType("application/json; charset=utf-8;");
+
 						try (final Writer writer = response.getWriter()) {
 
 							jsonStreamer.stream(securityContext, writer, result, baseUrl);
 							writer.append("\n");    // useful newline
 						}
-
-						tx.success();
 					}
-
 				}
+
+				tx.success();
 			}
 
 			response.setStatus(HttpServletResponse.SC_OK);
@@ -890,6 +863,15 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			gson.get().toJson(frameworkException, response.getWriter());
 			response.getWriter().println();
 
+		} catch (ReadOnlyTransactionException roex) {
+
+			logger.log(Level.WARNING, "GET request modified the database (URI: {0}), types whose read access writes data must be listed in {1}.lazywritetypes", new Object[] { securityContext.getCompoundRequestURI(), getServletName() });
+
+			int code = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+
+			response.setStatus(code);
+			response.getWriter().append(RestMethodResult.jsonError(code, "Exception in GET: " + roex.getMessage()));
+
 		} catch (JsonSyntaxException jsex) {
 
 			logger.log(Level.WARNING, "JsonSyntaxException in GET", jsex);
@@ -932,6 +914,39 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		}
 	}
 
+	/**
+	 * Opens the transaction for GET, HEAD and OPTIONS requests, which is
+	 * read-only unless disabled in the servlet configuration, or unless
+	 * the requested type is configured to write lazily.
+	 */
+	private Tx readTx(final App app, final HttpServletRequest request) {
+
+		if (config.useReadOnlyTransactions() && !config.writesLazily(getRequestedType(request))) {
+			return app.readOnlyTx();
+		}
+
+		return app.tx();
+	}
+
+	/**
+	 * Returns the type addressed by the first part of the request path.
+	 *
+	 * @return the type, or null if the path does not start with a type name
+	 */
+	private Class getRequestedType(final HttpServletRequest request) {
+
+		final String path = request.getPathInfo();
+		if (path != null && path.length() > 1) {
+
+			final int end     = path.indexOf("/", 1);
+			final String part = end > 0 ? path.substring(1, end) : path.substring(1);
+
+			return StructrApp.getConfiguration().getNodeEntities().get(SchemaHelper.normalizeEntityName(part));
+		}
+
+		return null;
+	}
+
 	// </editor-fold>
 
 	// <editor-fold defaultstate="collapsed" desc="nested classes">
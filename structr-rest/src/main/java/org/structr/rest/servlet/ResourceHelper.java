@@ -26,7 +26,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
@@ -66,6 +65,21 @@ public class ResourceHelper {
 	 * @throws FrameworkException
 	 */
 	public static List<Resource> parsePath(final SecurityContext securityContext, final HttpServletRequest request, final Map<Pattern, Class<? extends Resource>> resourceMap, final Value<String> propertyView) throws FrameworkException {
+		return parsePath(securityContext, request, ResourceRoutes.getInstance(resourceMap), propertyView);
+	}
+
+	/**
+	 * Parse the request path and match with possible resource patterns,
+	 * using routes that were compiled in advance.
+	 *
+	 * @param securityContext
+	 * @param request
+	 * @param routes
+	 * @param propertyView
+	 * @return resourceChain
+	 * @throws FrameworkException
+	 */
+	public static List<Resource> parsePath(final SecurityContext securityContext, final HttpServletRequest request, final ResourceRoutes routes, final Value<String> propertyView) throws FrameworkException {
 
 		final String path = request.getPathInfo();
 
@@ -107,50 +121,41 @@ public class ResourceHelper {
 				} else {
 
 					// look for matching pattern
-					for (Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
+					for (final Class<? extends Resource> type : routes.getCandidates(pathParts[i])) {
 
-						Pattern pattern = entry.getKey();
-						Matcher matcher = pattern.matcher(pathParts[i]);
+						Resource resource = null;
 
-						if (matcher.matches()) {
+						try {
 
-							Class<? extends Resource> type = entry.getValue();
-							Resource resource              = null;
+							// instantiate resource constraint
+							resource = type.newInstance();
+						} catch (Throwable t) {
 
-							try {
+							logger.log(Level.WARNING, "Error instantiating resource class", t);
 
-								// instantiate resource constraint
-								resource = type.newInstance();
-							} catch (Throwable t) {
-
-								logger.log(Level.WARNING, "Error instantiating resource class", t);
-
-							}
+						}
 
-							if (resource != null) {
+						if (resource != null) {
 
-								// set security context
-								resource.setSecurityContext(securityContext);
+							// set security context
+							resource.setSecurityContext(securityContext);
 
-								if (resource.checkAndConfigure(part, securityContext, request)) {
+							if (resource.checkAndConfigure(part, securityContext, request)) {
 
-									logger.log(Level.FINE, "{0} matched, adding resource of type {1} for part {2}", new Object[] { matcher.pattern(), type.getName(),
-										part });
+								logger.log(Level.FINE, "Adding resource of type {0} for part {1}", new Object[] { type.getName(), part });
 
-									// allow constraint to modify context
-									resource.configurePropertyView(propertyView);
+								// allow constraint to modify context
+								resource.configurePropertyView(propertyView);
 
-									// add constraint and go on
-									resourceChain.add(resource);
+								// add constraint and go on
+								resourceChain.add(resource);
 
-									found = true;
+								found = true;
 
-									// first match wins, so choose priority wisely ;)
-									break;
+								// first match wins, so choose priority wisely ;)
+								break;
 
-								}
 							}
-
 						}
 					}
 				}
@@ -178,8 +183,23 @@ public class ResourceHelper {
 	 * @throws FrameworkException
 	 */
 	public static Resource optimizeNestedResourceChain(final SecurityContext securityContext, final HttpServletRequest request, final Map<Pattern, Class<? extends Resource>> resourceMap, final Value<String> propertyView) throws FrameworkException {
+		return optimizeNestedResourceChain(securityContext, request, ResourceRoutes.getInstance(resourceMap), propertyView);
+	}
+
+	/**
+	 * Optimize the resource chain by trying to combine two resources to a new one,
+	 * using routes that were compiled in advance.
+	 *
+	 * @param securityContext
+	 * @param request
+	 * @param routes
+	 * @param propertyView
+	 * @return finalResource
+	 * @throws FrameworkException
+	 */
+	public static Resource optimizeNestedResourceChain(final SecurityContext securityContext, final HttpServletRequest request, final ResourceRoutes routes, final Value<String> propertyView) throws FrameworkException {
 
-		final List<Resource> resourceChain = ResourceHelper.parsePath(securityContext, request, resourceMap, propertyView);
+		final List<Resource> resourceChain = ResourceHelper.parsePath(securityContext, request, routes, propertyView);
 
 		ViewFilterResource view = null;
 		int num                 = resourceChain.size();
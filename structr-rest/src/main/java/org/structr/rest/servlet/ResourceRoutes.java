@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.servlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import org.structr.rest.resource.Resource;
+
+/**
+ * Compiled form of a resource map.
+ *
+ * Literal patterns (like "maintenance" or "_schema") are stored in a hash
+ * map, the well-known character class patterns for UUIDs, numeric ids,
+ * maintenance parameters and type names are evaluated with a single scan
+ * over the path part. Only the remaining patterns are matched with regular
+ * expressions. The candidates for a path part are returned in the order of
+ * the original resource map, so the first-match-wins semantics of the
+ * linear scan are preserved.
+ *
+ *
+ */
+public class ResourceRoutes {
+
+	private static final Map<String, ResourceRoutes> compiledRoutes = new ConcurrentHashMap<>();
+	private static final Pattern literalPattern                      = Pattern.compile("[a-zA-Z0-9_\\-]+");
+
+	private static final int HEX         = 1;
+	private static final int DIGIT       = 2;
+	private static final int ALPHA       = 4;
+	private static final int IDENTIFIER  = 8;
+	private static final int IDENT_START = 16;
+
+	private final Map<String, List<Route>> literals = new HashMap<>();
+	private final List<Route> patterns              = new ArrayList<>();
+
+	private ResourceRoutes(final Map<Pattern, Class<? extends Resource>> resourceMap) {
+
+		int index = 0;
+
+		for (final Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
+
+			final Pattern pattern = entry.getKey();
+			final String source   = pattern.pattern();
+			final Route route     = new Route(index++, pattern, entry.getValue());
+
+			if (pattern.flags() == 0 && literalPattern.matcher(source).matches()) {
+
+				List<Route> routes = literals.get(source);
+				if (routes == null) {
+
+					routes = new LinkedList<>();
+					literals.put(source, routes);
+				}
+
+				routes.add(route);
+
+			} else {
+
+				patterns.add(route);
+			}
+		}
+	}
+
+	/**
+	 * Returns the compiled routes for the given resource map. Resource maps
+	 * with the same patterns share the same compiled routes, so compilation
+	 * happens only once per distinct resource map.
+	 *
+	 * @param resourceMap
+	 * @return the compiled routes
+	 */
+	public static ResourceRoutes getInstance(final Map<Pattern, Class<? extends Resource>> resourceMap) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		for (final Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
+
+			buf.append(entry.getKey().pattern()).append("\u0000").append(entry.getValue().getName()).append("\u0000");
+		}
+
+		final String signature = buf.toString();
+		ResourceRoutes routes  = compiledRoutes.get(signature);
+
+		if (routes == null) {
+
+			routes = new ResourceRoutes(resourceMap);
+			compiledRoutes.put(signature, routes);
+		}
+
+		return routes;
+	}
+
+	/**
+	 * Returns the resource types whose patterns match the given path part,
+	 * in the order of the original resource map.
+	 *
+	 * @param part
+	 * @return the matching resource types
+	 */
+	public List<Class<? extends Resource>> getCandidates(final String part) {
+
+		final List<Class<? extends Resource>> candidates = new ArrayList<>(4);
+		final List<Route> literalRoutes                  = literals.get(part);
+		final int mask                                   = scan(part);
+		int literalIndex                                 = 0;
+
+		for (final Route route : patterns) {
+
+			if (route.matches(part, mask)) {
+
+				// insert literal routes that precede this route in the resource map
+				while (literalRoutes != null && literalIndex < literalRoutes.size() && literalRoutes.get(literalIndex).index < route.index) {
+					candidates.add(literalRoutes.get(literalIndex++).type);
+				}
+
+				candidates.add(route.type);
+			}
+		}
+
+		while (literalRoutes != null && literalIndex < literalRoutes.size()) {
+			candidates.add(literalRoutes.get(literalIndex++).type);
+		}
+
+		return candidates;
+	}
+
+	// ----- private methods -----
+	private static int scan(final String part) {
+
+		final int length = part.length();
+		if (length == 0) {
+			return 0;
+		}
+
+		int mask = HEX | DIGIT | ALPHA | IDENTIFIER;
+
+		for (int i=0; i<length; i++) {
+
+			final char c        = part.charAt(i);
+			final boolean lower = c >= 'a' && c <= 'z';
+			final boolean upper = c >= 'A' && c <= 'Z';
+			final boolean digit = c >= '0' && c <= '9';
+
+			if (!digit && !(c >= 'a' && c <= 'f') && !(c >= 'A' && c <= 'F')) {
+				mask &= ~HEX;
+			}
+
+			if (!digit) {
+				mask &= ~DIGIT;
+			}
+
+			if (!lower && !upper) {
+				mask &= ~ALPHA;
+			}
+
+			if (!lower && !upper && !digit && c != '_') {
+				mask &= ~IDENTIFIER;
+			}
+		}
+
+		final char first = part.charAt(0);
+		if ((first >= 'a' && first <= 'z') || (first >= 'A' && first <= 'Z') || first == '_') {
+			mask |= IDENT_START;
+		}
+
+		return mask;
+	}
+
+	// ----- nested classes -----
+	private static class Route {
+
+		private Class<? extends Resource> type = null;
+		private Pattern pattern                = null;
+		private int index                      = 0;
+		private int kind                       = 0;
+
+		public Route(final int index, final Pattern pattern, final Class<? extends Resource> type) {
+
+			this.index   = index;
+			this.pattern = pattern;
+			this.type    = type;
+
+			if (pattern.flags() == 0) {
+
+				switch (pattern.pattern()) {
+
+					case "[a-fA-F0-9]{32}":
+						kind = 1;
+						break;
+
+					case "[0-9]+":
+						kind = 2;
+						break;
+
+					case "[a-zA-Z]+":
+						kind = 3;
+						break;
+
+					case "[a-z_A-Z][a-z_A-Z0-9]*":
+						kind = 4;
+						break;
+				}
+			}
+		}
+
+		public boolean matches(final String part, final int mask) {
+
+			switch (kind) {
+
+				case 1:
+					return part.length() == 32 && (mask & HEX) != 0;
+
+				case 2:
+					return (mask & DIGIT) != 0;
+
+				case 3:
+					return (mask & ALPHA) != 0;
+
+				case 4:
+					return (mask & IDENTIFIER) != 0 && (mask & IDENT_START) != 0;
+
+				default:
+					return pattern.matcher(part).matches();
+			}
+		}
+	}
+}
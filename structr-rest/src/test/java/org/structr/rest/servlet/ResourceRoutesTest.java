@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.servlet;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import junit.framework.TestCase;
+import org.structr.rest.DefaultResourceProvider;
+import org.structr.rest.resource.Resource;
+
+/**
+ * Verifies that the compiled resource routes resolve all URL path shapes
+ * exactly like the linear scan over the resource map.
+ *
+ *
+ */
+public class ResourceRoutesTest extends TestCase {
+
+	private static final String[] parts = new String[] {
+
+		// types and properties
+		"TestOne", "test_one", "testOnes", "_TestOne", "Test1", "owner", "ownedNodes",
+
+		// UUIDs and numeric ids
+		"0123456789abcdef0123456789abcdef", "0123456789ABCDEF0123456789ABCDEF", "0123456789abcdef0123456789abcdeg",
+		"0123456789abcdef", "12345", "0",
+
+		// literals
+		"cypher", "maintenance", "in", "out", "start", "end", "public", "log", "resolver", "_schema", "rebuildIndex",
+
+		// things that must not match
+		"1abc", "abc-def", "a b", "\u00e4", "%20", "abc.json", "-"
+	};
+
+	public void testDefaultResourceMap() {
+
+		final Map<Pattern, Class<? extends Resource>> resourceMap = new DefaultResourceProvider().getResources();
+		final ResourceRoutes routes                               = ResourceRoutes.getInstance(resourceMap);
+
+		for (final String part : parts) {
+
+			assertEquals("Invalid candidates for path part " + part, linearScan(resourceMap, part), routes.getCandidates(part));
+		}
+	}
+
+	public void testCustomPatterns() {
+
+		final Map<Pattern, Class<? extends Resource>> resourceMap = new DefaultResourceProvider().getResources();
+
+		resourceMap.put(Pattern.compile("reset-password"), Resource.class);
+		resourceMap.put(Pattern.compile("[a-z]+\\.json"), Resource.class);
+		resourceMap.put(Pattern.compile("CYPHER", Pattern.CASE_INSENSITIVE), Resource.class);
+
+		final ResourceRoutes routes = ResourceRoutes.getInstance(resourceMap);
+
+		for (final String part : new String[] { "reset-password", "abc.json", "cypher", "Cypher", "TestOne" }) {
+
+			assertEquals("Invalid candidates for path part " + part, linearScan(resourceMap, part), routes.getCandidates(part));
+		}
+	}
+
+	// ----- private methods -----
+	private List<Class<? extends Resource>> linearScan(final Map<Pattern, Class<? extends Resource>> resourceMap, final String part) {
+
+		final List<Class<? extends Resource>> candidates = new LinkedList<>();
+
+		for (final Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
+
+			if (entry.getKey().matcher(part).matches()) {
+				candidates.add(entry.getValue());
+			}
+		}
+
+		return candidates;
+	}
+}
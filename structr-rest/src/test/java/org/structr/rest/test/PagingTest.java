@@ -21,6 +21,12 @@ package org.structr.rest.test;
 import static org.hamcrest.Matchers.*;
 import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.filter.log.ResponseLoggingFilter;
+import com.jayway.restassured.response.Response;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import org.structr.rest.common.StructrRestTest;
 import org.structr.rest.entity.TestOne;
 
@@ -224,5 +230,176 @@ public class PagingTest extends StructrRestTest {
 				.get(resource + "?sort=name&pageSize=2&page=-1&pageStartId=" + offsetId);
 	
 	}
-		
+
+	/**
+	 * Test keyset pagination with cursors
+	 */
+	public void test02CursorPaging() {
+
+		final String resource = "/test_three";
+
+		for (int i=0; i<7; i++) {
+
+			RestAssured.given().contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+				.body(" { 'name' : 'TestThree-" + i + "', 'integerProperty' : " + i + " } ")
+				.expect().statusCode(201).when().post(resource);
+		}
+
+		final String cursor1 = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(3))
+				.body("result[0].name ",	equalTo("TestThree-0"))
+				.body("result[1].name ",	equalTo("TestThree-1"))
+				.body("result[2].name ",	equalTo("TestThree-2"))
+				.body("next_cursor",		notNullValue())
+
+			.when()
+				.get(resource + "?sort=integerProperty&pageSize=3&cursor=")
+				.path("next_cursor");
+
+		// an object inserted before the cursor position must not shift the next page
+		RestAssured.given().contentType("application/json; charset=UTF-8")
+			.body(" { 'name' : 'TestThree-X', 'integerProperty' : -1 } ")
+			.expect().statusCode(201).when().post(resource);
+
+		final String cursor2 = RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(3))
+				.body("result[0].name ",	equalTo("TestThree-3"))
+				.body("result[1].name ",	equalTo("TestThree-4"))
+				.body("result[2].name ",	equalTo("TestThree-5"))
+				.body("next_cursor",		notNullValue())
+
+			.when()
+				.get(resource + "?pageSize=3&cursor=" + cursor1)
+				.path("next_cursor");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(1))
+				.body("result[0].name ",	equalTo("TestThree-6"))
+				.body("next_cursor",		nullValue())
+
+			.when()
+				.get(resource + "?pageSize=3&cursor=" + cursor2);
+
+		// cursor must match the requested sort key
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(400)
+
+			.when()
+				.get(resource + "?sort=name&pageSize=3&cursor=" + cursor2);
+	}
+
+	/**
+	 * Test keyset pagination with cursors on objects without a sort value
+	 */
+	public void test03CursorPagingWithNullValues() {
+
+		final String resource = "/test_three";
+
+		for (int i=0; i<2; i++) {
+
+			RestAssured.given().contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'TestThree-" + i + "', 'integerProperty' : " + i + ", 'doubleProperty' : " + (i - 0.5) + " } ")
+				.expect().statusCode(201).when().post(resource);
+		}
+
+		for (int i=2; i<5; i++) {
+
+			RestAssured.given().contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'TestThree-" + i + "' } ")
+				.expect().statusCode(201).when().post(resource);
+		}
+
+		// null values are indexed as the smallest value, i.e. they come first in ascending and last in descending order
+		final List<String> ascending  = new ArrayList<>(collectAllPages(resource + "?sort=integerProperty&pageSize=2"));
+		final List<String> descending = new ArrayList<>(collectAllPages(resource + "?sort=integerProperty&order=desc&pageSize=2"));
+
+		assertEquals(5, ascending.size());
+		assertEquals(5, descending.size());
+		assertEquals(Arrays.asList("TestThree-0", "TestThree-1"), ascending.subList(3, 5));
+		assertEquals(Arrays.asList("TestThree-1", "TestThree-0"), descending.subList(0, 2));
+
+		// empty double values are indexed between negative and positive values
+		final List<String> doubles = new ArrayList<>(collectAllPages(resource + "?sort=doubleProperty&pageSize=2"));
+
+		assertEquals(5, doubles.size());
+		assertEquals("TestThree-0", doubles.get(0));
+		assertEquals("TestThree-1", doubles.get(4));
+		assertEquals(5, collectAllPages(resource + "?sort=doubleProperty&order=desc&pageSize=2").size());
+	}
+
+	/**
+	 * Test that cursors are rejected for sort keys that are not indexed when empty
+	 */
+	public void test04CursorPagingRequiresIndexedWhenEmpty() {
+
+		RestAssured.given().contentType("application/json; charset=UTF-8")
+			.body(" { 'name' : 'TestOne-0', 'anInt' : 0 } ")
+			.expect().statusCode(201).when().post("/test_one");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(400)
+
+			.when()
+				.get("/test_one?sort=anInt&pageSize=2&cursor=");
+	}
+
+	/**
+	 * Follows the cursors of the given resource and returns the names of
+	 * all objects, failing if any object is returned twice.
+	 */
+	private Set<String> collectAllPages(final String resource) {
+
+		final Set<String> names = new LinkedHashSet<>();
+		String cursor           = "";
+		int pages               = 0;
+
+		while (cursor != null) {
+
+			final Response response = RestAssured
+
+				.given()
+					.contentType("application/json; charset=UTF-8")
+				.expect()
+					.statusCode(200)
+
+				.when()
+					.get(resource + "&cursor=" + cursor);
+
+			final List<String> page = response.path("result.name");
+			for (final String name : page) {
+
+				assertTrue("Object " + name + " returned twice", names.add(name));
+			}
+
+			assertTrue("Too many pages", ++pages <= 5);
+
+			cursor = response.path("next_cursor");
+		}
+
+		return names;
+	}
 }
@@ -21,9 +21,19 @@ package org.structr.rest.test;
 import com.jayway.restassured.RestAssured;
 import com.jayway.restassured.filter.log.ResponseLoggingFilter;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.hasSize;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.GenericNode;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.GenericProperty;
 import org.structr.rest.common.StructrRestTest;
 import org.structr.rest.entity.TestTwo;
 
@@ -33,6 +43,8 @@ import org.structr.rest.entity.TestTwo;
  */
 public class PropertyViewTest extends StructrRestTest {
 
+	private static final Logger logger = Logger.getLogger(PropertyViewTest.class.getName());
+
 	public void testPropertyViewsAndResultSetLayout() {
 
 
@@ -124,4 +136,97 @@ public class PropertyViewTest extends StructrRestTest {
 
 
 	}
+
+	public void testFieldProjection() {
+
+		final String testOne = getUuidFromLocation(RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'TestOne-0', 'anInt' : 1 } ")
+
+			.expect()
+				.statusCode(201)
+
+			.when()
+				.post("/test_ones").getHeader("Location")
+		);
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body(" { 'name' : 'TestTwo-0', 'anInt' : 0, 'test_ones' : [ '" + testOne + "' ] } ")
+
+			.expect()
+				.statusCode(201)
+
+			.when()
+				.post("/test_twos");
+
+		// only the requested properties must be rendered, nested paths limit related objects
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result_count",                equalTo(1))
+				.body("result[0].name",              equalTo("TestTwo-0"))
+				.body("result[0]",                   not(hasKey("anInt")))
+				.body("result[0]",                   not(hasKey("testOnes")))
+				.body("result[0].test_ones",         hasSize(1))
+				.body("result[0].test_ones[0].name", equalTo("TestOne-0"))
+				.body("result[0].test_ones[0]",      not(hasKey("anInt")))
+
+			.when()
+				.get("/test_twos?_fields=name,test_ones.name");
+	}
+
+	public void testGenericNodesWithDifferentProperties() {
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(GenericNode.class,
+				new NodeAttribute(AbstractNode.name, "generic1"),
+				new NodeAttribute(new GenericProperty("color"), "red")
+			);
+
+			app.create(GenericNode.class,
+				new NodeAttribute(AbstractNode.name, "generic2"),
+				new NodeAttribute(new GenericProperty("size"), "large")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception.");
+		}
+
+		// the keys of generic nodes differ per node, so each node must be rendered with its own properties
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.header("Accept", "application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+
+			.expect()
+				.statusCode(200)
+				.body("result_count",    equalTo(2))
+				.body("result[0].name",  equalTo("generic1"))
+				.body("result[0].color", equalTo("red"))
+				.body("result[0]",       not(hasKey("size")))
+				.body("result[1].name",  equalTo("generic2"))
+				.body("result[1].size",  equalTo("large"))
+				.body("result[1]",       not(hasKey("color")))
+
+			.when()
+				.get("/GenericNode?sort=name");
+	}
 }
@@ -20,8 +20,12 @@ package org.structr.files.cmis;
 
 import java.math.BigInteger;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
@@ -52,6 +56,7 @@ import org.structr.files.cmis.wrapper.CMISObjectInFolderWrapper;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.Folder;
 import org.structr.web.entity.Image;
+import org.structr.web.migration.BulkIndexFolderChildrenCommand;
 
 /**
  *
@@ -59,7 +64,9 @@ import org.structr.web.entity.Image;
  */
 public class CMISNavigationService extends AbstractStructrCmisService implements NavigationService {
 
-	private static final Logger logger = Logger.getLogger(CMISNavigationService.class.getName());
+	private static final Logger logger         = Logger.getLogger(CMISNavigationService.class.getName());
+	private static final int LEVEL_QUERY_SIZE  = 500;
+	private static boolean migrationHintLogged = false;
 
 	public CMISNavigationService(final StructrCMISService parentService, final SecurityContext securityContext) {
 		super(parentService, securityContext);
@@ -68,12 +75,18 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 	@Override
 	public ObjectInFolderList getChildren(final String repositoryId, final String folderId, final String propertyFilter, final String orderBy, final Boolean includeAllowableActions, final IncludeRelationships includeRelationships, final String renditionFilter, final Boolean includePathSegment, final BigInteger maxItems, final BigInteger skipCount, final ExtensionsData extension) {
 
-		final App app = StructrApp.getInstance();
+		final SecurityContext pagingContext     = SecurityContext.getSuperUserInstance();
+		final App app                           = StructrApp.getInstance(pagingContext);
 		final CMISObjectInFolderWrapper wrapper = new CMISObjectInFolderWrapper(propertyFilter, includeAllowableActions, maxItems, skipCount);
 
+		// stop instantiating children after the requested page (plus one to detect more items)
+		pagingContext.ignoreResultCount(true);
+
 		try (final Tx tx = app.tx()) {
 
-			wrapper.wrap(getChildrenQuery(app, folderId).getAsList());
+			final long fetchCount = (long)wrapper.getSkipCount() + wrapper.getMaxItems() + 1L;
+
+			wrapper.wrapPage(getChildrenQuery(app, folderId).pageSize((int)Math.min(fetchCount, Integer.MAX_VALUE)).page(1).getAsList());
 
 			tx.success();
 
@@ -98,11 +111,7 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 				maxDepth = depth.intValue();
 			}
 
-			for (final AbstractFile child : getChildrenQuery(app, folderId).getAsList()) {
-
-				recursivelyCollectDescendants(result, child, maxDepth, 1, includeAllowableActions);
-			}
-
+			collectLevelwise(app, result, getChildrenQuery(app, folderId).getAsList(), maxDepth, includeAllowableActions, false);
 
 			tx.success();
 
@@ -129,23 +138,14 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 
 			if (CMISInfo.ROOT_FOLDER_ID.equals(folderId)) {
 
-				for (final Folder folder : app.nodeQuery(Folder.class).and(Folder.parent, null).sort(AbstractNode.name).getAsList()) {
-
-					recursivelyCollectFolderTree(result, folder, maxDepth, 1, includeAllowableActions);
-				}
+				collectLevelwise(app, result, app.nodeQuery(Folder.class).and(Folder.parent, null).sort(AbstractNode.name).getAsList(), maxDepth, includeAllowableActions, true);
 
 			} else {
 
 				final Folder folder = app.get(Folder.class, folderId);
 				if (folder != null) {
 
-					final List<Folder> children = folder.getProperty(Folder.folders);
-					Collections.sort(children, new GraphObjectComparator(AbstractNode.name, false));
-
-					for (final Folder child : children) {
-
-						recursivelyCollectFolderTree(result, child, maxDepth, 1, includeAllowableActions);
-					}
+					collectLevelwise(app, result, getChildrenOfLevel(app, Collections.singletonList(folder), true).get(folder.getUuid()), maxDepth, includeAllowableActions, true);
 
 				} else {
 
@@ -231,61 +231,140 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 	}
 
 	// ----- private methods -----
-	private void recursivelyCollectFolderTree(final List<ObjectInFolderContainer> list, final Folder child, final int maxDepth, final int depth, final Boolean includeAllowableActions) throws FrameworkException {
-
-		if (depth > maxDepth) {
-			return;
+	/**
+	 * Collects the given objects and their descendants up to the given depth,
+	 * one level of the hierarchy at a time. Each folder is visited only once,
+	 * and the children of all folders of a level are fetched together.
+	 */
+	private void collectLevelwise(final App app, final List<ObjectInFolderContainer> list, final List<? extends AbstractFile> roots, final int maxDepth, final Boolean includeAllowableActions, final boolean foldersOnly) throws FrameworkException {
+
+		final CMISObjectInFolderWrapper wrapper = new CMISObjectInFolderWrapper(includeAllowableActions);
+		final Set<String> visited               = new HashSet<>();
+		List<LevelEntry> level                  = new LinkedList<>();
+		int depth                               = 1;
+
+		for (final AbstractFile root : roots) {
+			level.add(new LevelEntry(root, list));
 		}
 
-		final CMISObjectInFolderWrapper wrapper                = new CMISObjectInFolderWrapper(includeAllowableActions);
-		final ObjectInFolderContainerImpl impl                 = new ObjectInFolderContainerImpl();
-		final List<ObjectInFolderContainer> childContainerList = new LinkedList<>();
-		final String pathSegment                               = child.getName();
+		while (!level.isEmpty() && depth <= maxDepth) {
 
-		impl.setObject(wrapper.wrapObjectData(wrapper.wrapGraphObject(child), pathSegment));
-		impl.setChildren(childContainerList);
+			final List<LevelEntry> nextLevel = new LinkedList<>();
+			final List<LevelEntry> expand    = new LinkedList<>();
+			final List<Folder> folders       = new LinkedList<>();
 
-		// add wrapped object to current list
-		list.add(impl);
+			for (final LevelEntry entry : level) {
 
-		// fetch and sort children
-		final List<Folder> children = child.getProperty(Folder.folders);
-		Collections.sort(children, new GraphObjectComparator(AbstractNode.name, false));
+				final AbstractFile file = entry.file;
 
-		// descend into children
-		for (final Folder folderChild: children) {
-			recursivelyCollectFolderTree(childContainerList, folderChild, maxDepth, depth+1, includeAllowableActions);
-		}
+				if (!visited.add(file.getUuid())) {
+					continue;
+				}
+
+				final ObjectInFolderContainerImpl impl                 = new ObjectInFolderContainerImpl();
+				final List<ObjectInFolderContainer> childContainerList = new LinkedList<>();
+
+				impl.setObject(wrapper.wrapObjectData(wrapper.wrapGraphObject(file), file.getName()));
+				impl.setChildren(childContainerList);
+
+				// add wrapped object to the list of its parent
+				entry.target.add(impl);
+
+				if (depth < maxDepth && file instanceof Folder) {
 
+					expand.add(new LevelEntry(file, childContainerList));
+					folders.add((Folder)file);
+				}
+			}
+
+			final Map<String, List<AbstractFile>> children = getChildrenOfLevel(app, folders, foldersOnly);
+
+			for (final LevelEntry entry : expand) {
+
+				for (final AbstractFile child : children.get(entry.file.getUuid())) {
+					nextLevel.add(new LevelEntry(child, entry.target));
+				}
+			}
+
+			level = nextLevel;
+			depth++;
+		}
 	}
 
-	private void recursivelyCollectDescendants(final List<ObjectInFolderContainer> list, final AbstractFile child, final int maxDepth, final int depth, final Boolean includeAllowableActions) throws FrameworkException {
+	/**
+	 * Returns the sorted children of the given folders, keyed by folder id.
+	 * Children of folders with indexed children are found with one query per
+	 * chunk of folders, other folders are traversed.
+	 */
+	private Map<String, List<AbstractFile>> getChildrenOfLevel(final App app, final List<Folder> folders, final boolean foldersOnly) throws FrameworkException {
 
-		if (depth > maxDepth) {
-			return;
+		final Map<String, List<AbstractFile>> children = new HashMap<>();
+		final List<Folder> indexed                     = new LinkedList<>();
+
+		for (final Folder folder : folders) {
+
+			if (Boolean.TRUE.equals(folder.getProperty(Folder.childrenIndexed))) {
+
+				children.put(folder.getUuid(), new LinkedList<>());
+				indexed.add(folder);
+
+			} else {
+
+				children.put(folder.getUuid(), getSortedChildren(folder, foldersOnly));
+			}
 		}
 
-		final CMISObjectInFolderWrapper wrapper                = new CMISObjectInFolderWrapper(includeAllowableActions);
-		final ObjectInFolderContainerImpl impl                 = new ObjectInFolderContainerImpl();
-		final List<ObjectInFolderContainer> childContainerList = new LinkedList<>();
-		final String pathSegment                               = child.getName();
+		for (int i=0; i<indexed.size(); i+=LEVEL_QUERY_SIZE) {
 
-		impl.setObject(wrapper.wrapObjectData(wrapper.wrapGraphObject(child), pathSegment));
-		impl.setChildren(childContainerList);
+			final Query<? extends AbstractFile> query = app.nodeQuery(foldersOnly ? Folder.class : AbstractFile.class).sort(AbstractNode.name).and();
 
-		// add wrapped object to current list
-		list.add(impl);
+			for (final Folder folder : indexed.subList(i, Math.min(i + LEVEL_QUERY_SIZE, indexed.size()))) {
+				query.or(AbstractFile.parentFolderId, folder.getUuid());
+			}
 
-		if (child.getProperty(AbstractNode.type).equals("Folder")) {
+			query.parent();
 
-			final App app     = StructrApp.getInstance();
+			if (!foldersOnly) {
+				query.and(Image.isThumbnail, false);
+			}
+
+			// results are sorted by name, so each list of children is sorted as well
+			for (final AbstractFile child : query.getAsList()) {
+
+				final List<AbstractFile> list = children.get(child.getProperty(AbstractFile.parentFolderId));
+				if (list != null) {
 
-			// descend into children
-			for (final AbstractFile folderChild : app.nodeQuery(AbstractFile.class).sort(AbstractNode.name).and(AbstractFile.parent, (Folder)child).and(Image.isThumbnail, false).getAsList()) {
-				recursivelyCollectDescendants(childContainerList, folderChild, maxDepth, depth+1, includeAllowableActions);
+					list.add(child);
+				}
 			}
+		}
+
+		return children;
+	}
+
+	private List<AbstractFile> getSortedChildren(final Folder folder, final boolean foldersOnly) {
+
+		final List<AbstractFile> children = new LinkedList<>();
 
+		if (foldersOnly) {
+
+			children.addAll(folder.getProperty(Folder.folders));
+
+		} else {
+
+			for (final AbstractFile child : folder.getProperty(AbstractFile.children)) {
+
+				if (child instanceof Image && Boolean.TRUE.equals(child.getProperty(Image.isThumbnail))) {
+					continue;
+				}
+
+				children.add(child);
+			}
 		}
+
+		Collections.sort(children, new GraphObjectComparator(AbstractNode.name, false));
+
+		return children;
 	}
 
 	public Query<AbstractFile> getChildrenQuery (final App app, final String folderId) throws FrameworkException {
@@ -302,7 +381,21 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 
 			if (folder != null) {
 
-				query.and(AbstractFile.parent, folder).and(Image.isThumbnail, false);
+				if (Boolean.TRUE.equals(folder.getProperty(Folder.childrenIndexed))) {
+
+					// indexed query, so that sorting and paging happen in the index
+					query.and(AbstractFile.parentFolderId, folder.getUuid()).and(Image.isThumbnail, false);
+
+				} else {
+
+					if (!migrationHintLogged) {
+
+						logger.log(Level.INFO, "Folder {0} was created before its children were indexed, run maintenance command {1} to speed up CMIS navigation.", new Object[] { folder.getUuid(), BulkIndexFolderChildrenCommand.COMMAND_NAME });
+						migrationHintLogged = true;
+					}
+
+					query.and(AbstractFile.parent, folder).and(Image.isThumbnail, false);
+				}
 
 			} else {
 
@@ -315,4 +408,17 @@ public class CMISNavigationService extends AbstractStructrCmisService implements
 		return query;
 
 	}
+
+	// ----- nested classes -----
+	private static class LevelEntry {
+
+		private List<ObjectInFolderContainer> target = null;
+		private AbstractFile file                    = null;
+
+		public LevelEntry(final AbstractFile file, final List<ObjectInFolderContainer> target) {
+
+			this.target = target;
+			this.file   = file;
+		}
+	}
 }
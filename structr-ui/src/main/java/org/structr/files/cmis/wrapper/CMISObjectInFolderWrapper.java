@@ -19,6 +19,7 @@
 package org.structr.files.cmis.wrapper;
 
 import java.math.BigInteger;
+import java.util.LinkedList;
 import java.util.List;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
@@ -69,6 +70,28 @@ public class CMISObjectInFolderWrapper extends CMISPagingListWrapper<ObjectInFol
 		}
 	}
 
+	/**
+	 * Wraps the requested page of the given list, which must contain the
+	 * first skipCount + maxItems + 1 elements of the result.
+	 *
+	 * @param list
+	 * @throws FrameworkException
+	 */
+	public void wrapPage(final List<? extends GraphObject> list) throws FrameworkException {
+
+		final List<ObjectInFolderData> page = new LinkedList<>();
+		final int size                      = list.size();
+		final int from                      = Math.min(getSkipCount(), size);
+		final int to                        = (int)Math.min((long)from + getMaxItems(), size);
+
+		for (final GraphObject element : list.subList(from, to)) {
+			page.add(wrapObjectData(wrapGraphObject(element), element.getProperty(AbstractNode.name)));
+		}
+
+		// the total number of items is only known if the last page was reached
+		setPage(page, size > to, size > to ? null : BigInteger.valueOf(size));
+	}
+
 	@Override
 	public List<ObjectInFolderData> getObjects() {
 		return getPagedList();
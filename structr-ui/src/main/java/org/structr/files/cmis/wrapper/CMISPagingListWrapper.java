@@ -30,9 +30,12 @@ import org.structr.cmis.common.CMISExtensionsData;
  */
 public class CMISPagingListWrapper<T> extends CMISExtensionsData {
 
-	private List<T> list  = null;
-	private int maxItems  = Integer.MAX_VALUE;
-	private int skipCount = 0;
+	private List<T> list          = null;
+	private Boolean hasMoreItems  = null;
+	private BigInteger numItems   = null;
+	private boolean paged         = false;
+	private int maxItems          = Integer.MAX_VALUE;
+	private int skipCount         = 0;
 
 	public CMISPagingListWrapper() {
 		this(new LinkedList<T>(), null, null);
@@ -71,11 +74,44 @@ public class CMISPagingListWrapper<T> extends CMISExtensionsData {
 		list.addAll(data);
 	}
 
+	/**
+	 * Sets a list that is already paged at the source.
+	 *
+	 * @param page the elements of the requested page
+	 * @param hasMoreItems whether there are elements after the page
+	 * @param numItems the total number of elements, or null if unknown
+	 */
+	public void setPage(final List<T> page, final boolean hasMoreItems, final BigInteger numItems) {
+
+		this.list         = page;
+		this.hasMoreItems = hasMoreItems;
+		this.numItems     = numItems;
+		this.paged        = true;
+	}
+
+	public int getMaxItems() {
+		return maxItems;
+	}
+
+	public int getSkipCount() {
+		return skipCount;
+	}
+
 	public Boolean hasMoreItems() {
+
+		if (paged) {
+			return hasMoreItems;
+		}
+
 		return list.size() > skipCount + maxItems;
 	}
 
 	public BigInteger getNumItems() {
+
+		if (paged) {
+			return numItems;
+		}
+
 		return BigInteger.valueOf(list.size());
 	}
 
@@ -85,6 +121,10 @@ public class CMISPagingListWrapper<T> extends CMISExtensionsData {
 
 	public List<T> getPagedList() {
 
+		if (paged) {
+			return list;
+		}
+
 		final int size = list.size();
 		int to         = Math.min(maxItems, size);
 		int from       = 0;
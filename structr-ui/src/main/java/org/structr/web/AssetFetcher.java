@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Fetches the assets of an imported page concurrently.
+ *
+ * Each URL is fetched only once, into a temporary file. The number of
+ * concurrent downloads is limited globally and per host. Stylesheets are
+ * scanned for further url() references, which are fetched as well.
+ *
+ *
+ */
+public class AssetFetcher {
+
+	private static final Logger logger = Logger.getLogger(AssetFetcher.class.getName());
+
+	public static final String ASSET_THREADS          = "Importer.assets.threads";
+	public static final String ASSET_THREADS_PER_HOST = "Importer.assets.threadsPerHost";
+
+	private final Map<String, Future<java.io.File>> downloads = new ConcurrentHashMap<>();
+	private final Map<String, Semaphore> hostLimits           = new ConcurrentHashMap<>();
+	private ExecutorService executor                          = null;
+	private Source source                                     = null;
+	private int threadsPerHost                                = 2;
+
+	public AssetFetcher(final Source source) {
+
+		this.source         = source;
+		this.threadsPerHost = Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(ASSET_THREADS_PER_HOST), 2));
+		this.executor       = Executors.newFixedThreadPool(Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(ASSET_THREADS), 8)), new DaemonThreadFactory());
+	}
+
+	public Source getSource() {
+		return source;
+	}
+
+	/**
+	 * Schedules the download of the given URL, unless it is already scheduled.
+	 *
+	 * @param url
+	 */
+	public void fetch(final URL url) {
+
+		downloads.computeIfAbsent(url.toString(), key -> executor.submit(() -> download(url)));
+	}
+
+	/**
+	 * Returns the downloaded file for the given URL, waiting for the download
+	 * to finish if necessary.
+	 *
+	 * @param url
+	 * @return the temporary file, or null if the URL was never scheduled
+	 * @throws IOException if the download failed
+	 */
+	public java.io.File get(final URL url) throws IOException {
+
+		final Future<java.io.File> future = downloads.get(url.toString());
+		if (future != null) {
+
+			try {
+				return future.get();
+
+			} catch (ExecutionException ex) {
+
+				throw new IOException(ex.getCause());
+
+			} catch (InterruptedException iex) {
+
+				throw new IOException(iex);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Waits until all scheduled downloads, including those scheduled while
+	 * waiting, are finished.
+	 */
+	public void awaitAll() {
+
+		int count = -1;
+
+		while (count != downloads.size()) {
+
+			final List<Future<java.io.File>> futures = new LinkedList<>(downloads.values());
+
+			count = futures.size();
+
+			for (final Future<java.io.File> future : futures) {
+
+				try {
+					future.get();
+
+				} catch (ExecutionException ignore) {
+
+					// failed downloads are reported when the asset is requested
+
+				} catch (InterruptedException iex) {
+
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops all downloads and removes the temporary files. Can be called
+	 * more than once.
+	 */
+	public void shutdown() {
+
+		executor.shutdownNow();
+
+		for (final Future<java.io.File> future : downloads.values()) {
+
+			if (future.isDone() && !future.isCancelled()) {
+
+				try {
+					FileUtils.deleteQuietly(future.get());
+
+				} catch (ExecutionException | InterruptedException ignore) {}
+			}
+		}
+
+		downloads.clear();
+	}
+
+	// ----- private methods -----
+	private java.io.File download(final URL url) throws IOException, InterruptedException {
+
+		final Semaphore hostLimit = hostLimits.computeIfAbsent(StringUtils.defaultString(url.getHost()), key -> new Semaphore(threadsPerHost));
+		final java.io.File file   = java.io.File.createTempFile("structr-import-", ".tmp");
+
+		hostLimit.acquire();
+		try {
+
+			source.copyToFile(url, file);
+
+		} catch (IOException ioex) {
+
+			FileUtils.deleteQuietly(file);
+			throw ioex;
+
+		} finally {
+
+			hostLimit.release();
+		}
+
+		if (!file.exists() || file.length() == 0) {
+
+			FileUtils.deleteQuietly(file);
+			throw new IOException("Unable to fetch " + url);
+		}
+
+		if (url.getPath().endsWith(".css")) {
+
+			final Matcher matcher = Importer.cssUrlPattern.matcher(FileUtils.readFileToString(file, "UTF-8"));
+			while (matcher.find()) {
+
+				try {
+					fetch(new URL(url, matcher.group(2)));
+
+				} catch (MalformedURLException ignore) {}
+			}
+		}
+
+		logger.log(Level.FINE, "Fetched {0}", url);
+
+		return file;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Creates daemon threads, so that downloads of an import that was not
+	 * shut down cannot keep the JVM from exiting.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+
+			final Thread thread = new Thread(runnable, "AssetFetcher-" + count.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+
+	/**
+	 * The origin of the imported page and its assets.
+	 */
+	public interface Source {
+
+		void copyToFile(final URL url, final java.io.File file) throws IOException;
+	}
+
+	/**
+	 * Loads assets via HTTP.
+	 */
+	public static class HttpSource implements Source {
+
+		@Override
+		public void copyToFile(final URL url, final java.io.File file) throws IOException {
+			Importer.copyURLToFile(url.toString(), file);
+		}
+	}
+
+	/**
+	 * Loads assets from a local directory, using the path of the URL
+	 * relative to the directory.
+	 */
+	public static class DirectorySource implements Source {
+
+		private java.io.File baseDirectory = null;
+
+		public DirectorySource(final java.io.File baseDirectory) {
+			this.baseDirectory = baseDirectory;
+		}
+
+		@Override
+		public void copyToFile(final URL url, final java.io.File file) throws IOException {
+
+			final java.io.File source = new java.io.File(baseDirectory, StringUtils.removeStart(url.getPath(), "/"));
+
+			// do not allow paths outside of the base directory
+			if (!source.getCanonicalPath().startsWith(baseDirectory.getCanonicalPath() + java.io.File.separator)) {
+				throw new IOException("Invalid path " + url.getPath());
+			}
+
+			FileUtils.copyFile(source, file);
+		}
+	}
+
+	/**
+	 * Loads assets from a zip file, using the path of the URL as the name
+	 * of the entry.
+	 */
+	public static class ZipSource implements Source {
+
+		private java.io.File zipFile = null;
+
+		public ZipSource(final java.io.File zipFile) {
+			this.zipFile = zipFile;
+		}
+
+		@Override
+		public void copyToFile(final URL url, final java.io.File file) throws IOException {
+
+			try (final ZipFile zip = new ZipFile(zipFile)) {
+
+				final ZipEntry entry = zip.getEntry(StringUtils.removeStart(url.getPath(), "/"));
+				if (entry == null) {
+
+					throw new IOException("No entry for " + url.getPath() + " in " + zipFile);
+				}
+
+				try (final InputStream is = zip.getInputStream(entry); final OutputStream os = new FileOutputStream(file)) {
+
+					IOUtils.copy(is, os);
+				}
+			}
+		}
+	}
+}
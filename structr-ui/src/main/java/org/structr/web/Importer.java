@@ -119,6 +119,10 @@ public class Importer {
 	private final static String DATA_STRUCTR_PREFIX = "data-structr-";
 	private final static String DATA_META_PREFIX    = "data-structr-meta-";
 
+	public static final String IMPORT_BATCH_SIZE = "Importer.batchSize";
+
+	static final Pattern cssUrlPattern = Pattern.compile("(url\\(['|\"]?)([^'|\"|)]*)");
+
 	static {
 
 		contentTypeForExtension.put("css", "text/css");
@@ -137,6 +141,10 @@ public class Importer {
 	private URL originalUrl;
 	private String address;
 	private String code;
+	private AssetFetcher assetFetcher = null;
+	private Tx batchTx                = null;
+	private int batchSize             = 0;
+	private int batchCount            = 0;
 
 	/**
 	 * Construct an instance of the importer to either read the given code, or download code from the given address.
@@ -204,6 +212,10 @@ public class Importer {
 
 			}
 
+			if (assetFetcher != null) {
+				prefetchAssets();
+			}
+
 		} else {
 
 			logger.log(Level.INFO, "##### Start fetching {0} for page {1} #####", new Object[]{address, name});
@@ -212,6 +224,25 @@ public class Importer {
 
 				originalUrl = new URL(address);
 
+				if (assetFetcher != null) {
+
+					final java.io.File file = java.io.File.createTempFile("structr-import-", ".html");
+
+					try {
+						assetFetcher.getSource().copyToFile(originalUrl, file);
+						code = FileUtils.readFileToString(file, "UTF-8");
+
+					} finally {
+
+						file.delete();
+					}
+
+					parsedDocument = Jsoup.parse(code);
+					prefetchAssets();
+
+					return true;
+				}
+
 				HttpClient client = getHttpClient();
 
 				GetMethod get = new GetMethod(originalUrl.toString());
@@ -249,8 +280,85 @@ public class Importer {
 
 	}
 
+	/**
+	 * Load the assets of the imported page concurrently from the given
+	 * source, instead of downloading them one by one while the nodes are
+	 * created.
+	 *
+	 * @param source
+	 */
+	public void setAssetSource(final AssetFetcher.Source source) {
+		this.assetFetcher = new AssetFetcher(source);
+	}
+
+	/**
+	 * Commit the nodes created by {@link Importer#readPage()} in batches
+	 * of the given size instead of a single transaction.
+	 *
+	 * @param batchSize
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isBatched() {
+		return batchSize > 0;
+	}
+
+	/**
+	 * Stops the asset downloads of this importer and removes the downloaded
+	 * files. Must be called when an import with an asset source ends,
+	 * whether it was successful or not.
+	 */
+	public void shutdown() {
+
+		if (assetFetcher != null) {
+			assetFetcher.shutdown();
+		}
+	}
+
 	public Page readPage() throws FrameworkException {
 
+		try {
+
+			// wait for all assets so that no transaction is held open while downloading
+			if (assetFetcher != null) {
+				assetFetcher.awaitAll();
+			}
+
+			if (batchSize > 0) {
+
+				batchTx = app.tx();
+
+				try {
+
+					final Page page = createPage();
+
+					batchTx.success();
+
+					return page;
+
+				} finally {
+
+					if (batchTx != null) {
+
+						batchTx.close();
+						batchTx = null;
+					}
+				}
+			}
+
+			return createPage();
+
+		} finally {
+
+			// the assets are no longer needed when the page is created
+			shutdown();
+		}
+	}
+
+	private Page createPage() throws FrameworkException {
+
 		Page page = Page.createNewPage(securityContext, name);
 
 		if (page != null) {
@@ -385,62 +493,60 @@ public class Importer {
 			}
 		}
 
-		// compare all new nodes with all existing nodes
-		for (final Map.Entry<String, DOMNode> newNodeEntry : indexMappedNewNodes.entrySet()) {
+		// index existing nodes by id, operations are only created for pairs of
+		// nodes with the same id, so each new node has at most one partner
+		final Map<String, DOMNode> idMappedExistingNodes = new HashMap<>();
+		final Map<String, String> existingTreeIndexes    = new HashMap<>();
 
-			final String newTreeIndex = newNodeEntry.getKey();
-			final DOMNode newNode = newNodeEntry.getValue();
+		for (final Map.Entry<String, DOMNode> existingNodeEntry : indexMappedExistingNodes.entrySet()) {
 
-			for (final Map.Entry<String, DOMNode> existingNodeEntry : indexMappedExistingNodes.entrySet()) {
+			final DOMNode existingNode = existingNodeEntry.getValue();
+			final String existingHash  = existingNode.getIdHash();
 
-				final String existingTreeIndex = existingNodeEntry.getKey();
-				final DOMNode existingNode = existingNodeEntry.getValue();
-				DOMNode newParent = null;
-				int equalityBitmask = 0;
+			if (!idMappedExistingNodes.containsKey(existingHash)) {
 
-				if (newTreeIndex.equals(existingTreeIndex)) {
-					equalityBitmask |= 1;
-				}
+				idMappedExistingNodes.put(existingHash, existingNode);
+				existingTreeIndexes.put(existingHash, existingNodeEntry.getKey());
+			}
+		}
 
-				if (newNode.getIdHashOrProperty().equals(existingNode.getIdHash())) {
-					equalityBitmask |= 2;
-				}
+		// compare all new nodes with their existing counterpart
+		for (final Map.Entry<String, DOMNode> newNodeEntry : indexMappedNewNodes.entrySet()) {
 
-				if (newNode.contentEquals(existingNode)) {
-					equalityBitmask |= 4;
-				}
+			final String newTreeIndex  = newNodeEntry.getKey();
+			final DOMNode newNode      = newNodeEntry.getValue();
+			final String newHash       = newNode.getIdHashOrProperty();
+			final DOMNode existingNode = idMappedExistingNodes.get(newHash);
+
+			// NOT same node => different node, nothing to do here (creations and deletions are handled above)
+			if (existingNode == null) {
+				continue;
+			}
 
-				switch (equalityBitmask) {
+			final boolean sameTreeIndex = newTreeIndex.equals(existingTreeIndexes.get(newHash));
+			DOMNode newParent           = null;
 
-					case 7: // same tree index (1), same node (2), same content (4) => node is completely unmodified
-						break;
+			if (newNode.contentEquals(existingNode)) {
 
-					case 6: // same content (2), same node (4), NOT same tree index => node has moved
-						newParent = newNode.getProperty(DOMNode.parent);
-						changeSet.add(new MoveOperation(hashMappedExistingNodes, getHashOrNull(newParent), getSiblingHashes(newNode), newNode, existingNode));
-						break;
+				if (!sameTreeIndex) {
 
-					case 5: // same tree index (1), NOT same node, same content (5) => node was deleted and restored, maybe the identification information was lost
-						break;
+					// same content, same node, NOT same tree index => node has moved
+					newParent = newNode.getProperty(DOMNode.parent);
+					changeSet.add(new MoveOperation(hashMappedExistingNodes, getHashOrNull(newParent), getSiblingHashes(newNode), newNode, existingNode));
+				}
 
-					case 4: // NOT same tree index, NOT same node, same content (4) => different node, content is equal by chance?
-						break;
+				// same tree index, same node, same content => node is completely unmodified
 
-					case 3: // same tree index, same node, NOT same content => node was modified but not moved
-						changeSet.add(new UpdateOperation(hashMappedExistingNodes, existingNode, newNode));
-						break;
+			} else {
 
-					case 2: // NOT same tree index, same node (2), NOT same content => node was moved and changed
-						newParent = newNode.getProperty(DOMNode.parent);
-						changeSet.add(new UpdateOperation(hashMappedExistingNodes, existingNode, newNode));
-						changeSet.add(new MoveOperation(hashMappedExistingNodes, getHashOrNull(newParent), getSiblingHashes(newNode), newNode, existingNode));
-						break;
+				// same node, NOT same content => node was modified
+				changeSet.add(new UpdateOperation(hashMappedExistingNodes, existingNode, newNode));
 
-					case 1: // same tree index (1), NOT same node, NOT same content => ignore
-						break;
+				if (!sameTreeIndex) {
 
-					case 0: // NOT same tree index, NOT same node, NOT same content => ignore
-						break;
+					// NOT same tree index => node was moved and changed
+					newParent = newNode.getProperty(DOMNode.parent);
+					changeSet.add(new MoveOperation(hashMappedExistingNodes, getHashOrNull(newParent), getSiblingHashes(newNode), newNode, existingNode));
 				}
 			}
 		}
@@ -717,6 +823,7 @@ public class Importer {
 				}
 
 				parent.appendChild(newNode);
+				commitBatch();
 
 				// Link new node to its parent node
 				// linkNodes(parent, newNode, page, localIndex);
@@ -727,6 +834,50 @@ public class Importer {
 		}
 	}
 
+	/**
+	 * Commits the current batch transaction after every batchSize nodes.
+	 */
+	private void commitBatch() throws FrameworkException {
+
+		if (batchTx != null && ++batchCount % batchSize == 0) {
+
+			final Tx tx = batchTx;
+
+			batchTx = null;
+
+			tx.success();
+			tx.close();
+
+			batchTx = app.tx();
+		}
+	}
+
+	/**
+	 * Schedules the download of all assets referenced in the parsed document.
+	 */
+	private void prefetchAssets() {
+
+		for (final Element element : parsedDocument.getAllElements()) {
+
+			final String tag = element.nodeName().replaceAll("[^a-zA-Z0-9#]+", "");
+
+			String downloadAddressAttr = (ArrayUtils.contains(srcElements, tag)
+				? "src" : ArrayUtils.contains(hrefElements, tag)
+				? "href" : null);
+
+			if (downloadAddressAttr != null && StringUtils.isNotBlank(element.attr(downloadAddressAttr))) {
+
+				try {
+					assetFetcher.fetch(new URL(originalUrl, element.attr(downloadAddressAttr)));
+
+				} catch (MalformedURLException ignore) {
+
+					// assets that can't be resolved are handled in downloadFile
+				}
+			}
+		}
+	}
+
 	/**
 	 * Check whether a file with given path and checksum already exists
 	 */
@@ -756,7 +907,7 @@ public class Importer {
 
 			logger.log(Level.INFO, "Starting download from {0}", downloadUrl);
 
-			copyURLToFile(downloadUrl.toString(), fileOnDisk);
+			copyToFile(downloadUrl, fileOnDisk);
 
 		} catch (IOException ioe) {
 
@@ -784,7 +935,7 @@ public class Importer {
 					downloadUrl = new URL(new URL(originalUrl, address.concat("/")), downloadAddress);
 				}
 
-				copyURLToFile(downloadUrl.toString(), fileOnDisk);
+				copyToFile(downloadUrl, fileOnDisk);
 
 			} catch (MalformedURLException ex) {
 				logger.log(Level.SEVERE, ex, LogMessageSupplier.create("Could not resolve address {0}", address.concat("/")));
@@ -952,8 +1103,7 @@ public class Importer {
 
 	private void processCss(final String css, final URL base) throws IOException {
 
-		Pattern pattern = Pattern.compile("(url\\(['|\"]?)([^'|\"|)]*)");
-		Matcher matcher = pattern.matcher(css);
+		Matcher matcher = cssUrlPattern.matcher(css);
 
 		while (matcher.find()) {
 
@@ -966,7 +1116,27 @@ public class Importer {
 
 	}
 
-	private void copyURLToFile(final String uri, final java.io.File fileOnDisk) throws IOException {
+	private void copyToFile(final URL url, final java.io.File fileOnDisk) throws IOException {
+
+		if (assetFetcher != null) {
+
+			final java.io.File file = assetFetcher.get(url);
+			if (file != null) {
+
+				FileUtils.copyFile(file, fileOnDisk);
+
+			} else {
+
+				assetFetcher.getSource().copyToFile(url, fileOnDisk);
+			}
+
+		} else {
+
+			copyURLToFile(url.toString(), fileOnDisk);
+		}
+	}
+
+	static void copyURLToFile(final String uri, final java.io.File fileOnDisk) throws IOException {
 
 		final HttpClient client = getHttpClient();
 		final HttpMethod get = new GetMethod();
@@ -512,7 +512,7 @@ public class FileHelper {
 
 		try {
 			
-			return StructrApp.getInstance(securityContext).nodeQuery(AbstractFile.class).and(AbstractFile.path, absolutePath).getFirst();
+			return RoutingIndex.getInstance().getFile(securityContext, absolutePath);
 			
 //		String[] parts = PathHelper.getParts(absolutePath);
 //
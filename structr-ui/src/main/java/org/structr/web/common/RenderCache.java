@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Server-side cache for rendered pages and page fragments.
+ *
+ * Entries are keyed by the version of the page that owns the rendered node,
+ * so every modification in the DOM tree (which increases the page version)
+ * implicitly invalidates all cached output of that page. Outdated entries
+ * are never hit again and are evicted from the fixed-size cache over time.
+ *
+ *
+ */
+public class RenderCache {
+
+	public static final String RENDER_CACHE_SIZE = "HtmlServlet.renderCache.size";
+
+	private static final Charset utf8                        = Charset.forName("utf-8");
+	private static final FixedSizeCache<String, Entry> cache = new FixedSizeCache<>(Services.parseInt(StructrApp.getConfigurationValue(RENDER_CACHE_SIZE), 1000));
+
+	/**
+	 * Creates the cache key for the given node in the given render context.
+	 *
+	 * The key consists of the node id, the version of its owner document,
+	 * the visibility class of the current user, the requested host, path,
+	 * locale and request parameters, and the data objects the node is
+	 * rendered with.
+	 *
+	 * @param node
+	 * @param renderContext
+	 * @param depth
+	 * @return the cache key
+	 */
+	public static String getKey(final DOMNode node, final RenderContext renderContext, final int depth) {
+
+		final HttpServletRequest request = renderContext.getRequest();
+		final Principal user             = renderContext.getSecurityContext().getUser(false);
+		final GraphObject details        = renderContext.getDetailsDataObject();
+		final GraphObject data           = renderContext.getDataObject();
+		final StringBuilder buf          = new StringBuilder();
+
+		buf.append(node.getUuid());
+		buf.append("/").append(getVersion(node));
+		buf.append("/").append(depth);
+
+		// anonymous users share one cache entry, authenticated users get their own
+		buf.append("/").append(user != null ? user.getUuid() : "public");
+		buf.append("/").append(renderContext.getLocale());
+		buf.append("/").append(details != null ? details.getUuid() : "");
+		buf.append("/").append(data != null ? data.getUuid() : "");
+
+		if (request != null) {
+
+			buf.append("/").append(request.getServerName()).append(":").append(request.getServerPort());
+			buf.append(request.getPathInfo());
+
+			// sort parameters so that the order in the query string is irrelevant
+			final Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+			for (final Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+
+				buf.append("&").append(parameter.getKey()).append("=").append(Arrays.toString(parameter.getValue()));
+			}
+		}
+
+		return buf.toString();
+	}
+
+	public static Entry get(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null && entry.isExpired()) {
+
+			return null;
+		}
+
+		return entry;
+	}
+
+	public static Entry put(final String key, final String content, final Integer maxAgeSeconds) {
+
+		final Entry entry = new Entry(content, maxAgeSeconds);
+
+		cache.put(key, entry);
+
+		return entry;
+	}
+
+	public static void clear() {
+		cache.clear();
+	}
+
+	public static int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Creates a strong ETag for the given content.
+	 *
+	 * @param content
+	 * @return the quoted ETag value
+	 */
+	public static String etag(final byte[] content) {
+		return "\"" + DigestUtils.sha1Hex(content) + "\"";
+	}
+
+	/**
+	 * Checks whether the If-None-Match header of the given request matches
+	 * the given ETag.
+	 *
+	 * @param request
+	 * @param etag
+	 * @return whether the client already has the current representation
+	 */
+	public static boolean matches(final HttpServletRequest request, final String etag) {
+
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (StringUtils.isNotBlank(ifNoneMatch)) {
+
+			for (final String value : ifNoneMatch.split("[ ,]+")) {
+
+				if ("*".equals(value) || etag.equals(value)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	// ----- private methods -----
+	private static Integer getVersion(final DOMNode node) {
+
+		final Page page = node instanceof Page ? (Page)node : (Page)node.getOwnerDocumentAsSuperUser();
+		if (page != null) {
+
+			return page.getProperty(Page.version);
+		}
+
+		return null;
+	}
+
+	// ----- nested classes -----
+	public static class Entry {
+
+		private String content  = null;
+		private byte[] bytes    = null;
+		private String etag     = null;
+		private long expiryDate = Long.MAX_VALUE;
+
+		public Entry(final String content, final Integer maxAgeSeconds) {
+
+			this.content = content;
+			this.bytes   = content.getBytes(utf8);
+			this.etag    = etag(bytes);
+
+			if (maxAgeSeconds != null && maxAgeSeconds > 0) {
+				this.expiryDate = System.currentTimeMillis() + (maxAgeSeconds * 1000L);
+			}
+		}
+
+		public String getContent() {
+			return content;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > expiryDate;
+		}
+	}
+}
@@ -0,0 +1,441 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.GraphObjectComparator;
+import org.structr.common.PathHelper;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
+import org.structr.web.entity.AbstractFile;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * In-memory routing index that maps URL paths to pages, files and folders.
+ *
+ * Pages are indexed by name, path and position when the index is first
+ * used, files and folders are indexed by their absolute path when they
+ * are first requested. The index is updated after every commit, and all
+ * results are verified against the current state of the database, so
+ * stale entries can never lead to wrong results. Pages that were created
+ * without transaction notification are found by the fallback queries.
+ *
+ *
+ */
+public class RoutingIndex implements StructrTransactionListener {
+
+	private static final Logger logger       = Logger.getLogger(RoutingIndex.class.getName());
+	private static RoutingIndex instance     = null;
+
+	private final Map<String, Set<String>> pagesByPath          = new HashMap<>();
+	private final Map<String, Set<String>> pagesByName          = new HashMap<>();
+	private final TreeMap<Integer, Set<String>> pagesByPosition = new TreeMap<>();
+	private final Map<String, PageEntry> pageEntries            = new HashMap<>();
+	private final ConcurrentSkipListMap<String, String> files   = new ConcurrentSkipListMap<>();
+	private final Map<String, String> filePaths                 = new ConcurrentHashMap<>();
+
+	private RoutingIndex() {}
+
+	public static synchronized RoutingIndex getInstance() {
+
+		if (instance == null) {
+
+			instance = new RoutingIndex();
+
+			// register before building the index so that no modification is lost
+			TransactionCommand.registerTransactionListener(instance);
+
+			instance.build();
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Returns the pages whose path, name or id matches the given path,
+	 * sorted by position.
+	 *
+	 * @param securityContext
+	 * @param path
+	 * @return the matching pages visible in the given security context
+	 * @throws FrameworkException
+	 */
+	public List<Page> getPages(final SecurityContext securityContext, final String path) throws FrameworkException {
+
+		final String name           = PathHelper.getName(path);
+		final Set<String> candidates = new LinkedHashSet<>();
+
+		synchronized (this) {
+
+			addAll(candidates, pagesByPath.get(path));
+			addAll(candidates, pagesByName.get(name));
+
+			if (pageEntries.containsKey(name)) {
+				candidates.add(name);
+			}
+		}
+
+		final List<Page> pages = load(securityContext, candidates);
+		if (pages.isEmpty()) {
+
+			return loadPages(securityContext, path);
+		}
+
+		Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+		return pages;
+	}
+
+	/**
+	 * Returns the pages whose path or name matches the given path from the
+	 * database and adds them to the index. This is the fallback for pages
+	 * that were created in transactions without notification, which are
+	 * not in the index.
+	 *
+	 * @param securityContext
+	 * @param path
+	 * @return the matching pages visible in the given security context
+	 * @throws FrameworkException
+	 */
+	public List<Page> loadPages(final SecurityContext securityContext, final String path) throws FrameworkException {
+
+		final String name            = PathHelper.getName(path);
+		final Set<String> candidates = new LinkedHashSet<>();
+		final App app                = StructrApp.getInstance();
+
+		for (final Page page : app.nodeQuery(Page.class).and(Page.path, path).getAsList()) {
+
+			index(page);
+			candidates.add(page.getUuid());
+		}
+
+		for (final Page page : app.nodeQuery(Page.class).and(Page.name, name).getAsList()) {
+
+			index(page);
+			candidates.add(page.getUuid());
+		}
+
+		final List<Page> pages = load(securityContext, candidates);
+
+		Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+		return pages;
+	}
+
+	/**
+	 * Returns all pages with a non-empty position, sorted by position.
+	 *
+	 * @param securityContext
+	 * @return the pages visible in the given security context
+	 * @throws FrameworkException
+	 */
+	public List<Page> getPagesWithPosition(final SecurityContext securityContext) throws FrameworkException {
+
+		final Set<String> candidates = new LinkedHashSet<>();
+
+		synchronized (this) {
+
+			for (final Set<String> uuids : pagesByPosition.values()) {
+				candidates.addAll(uuids);
+			}
+		}
+
+		final List<Page> pages = load(securityContext, candidates);
+		if (pages.isEmpty()) {
+
+			return loadPagesWithPosition(securityContext);
+		}
+
+		Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+		return pages;
+	}
+
+	/**
+	 * Returns all pages with a non-empty position from the database and
+	 * adds them to the index, see {@link #loadPages}.
+	 *
+	 * @param securityContext
+	 * @return the pages visible in the given security context
+	 * @throws FrameworkException
+	 */
+	public List<Page> loadPagesWithPosition(final SecurityContext securityContext) throws FrameworkException {
+
+		final Set<String> candidates = new LinkedHashSet<>();
+
+		for (final Page page : StructrApp.getInstance().nodeQuery(Page.class).getAsList()) {
+
+			index(page);
+
+			if (page.getProperty(Page.position) != null) {
+				candidates.add(page.getUuid());
+			}
+		}
+
+		final List<Page> pages = load(securityContext, candidates);
+
+		Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+		return pages;
+	}
+
+	/**
+	 * Returns the file or folder with the given absolute path.
+	 *
+	 * @param securityContext
+	 * @param path
+	 * @return the file or folder, or null if it does not exist or is not visible
+	 * @throws FrameworkException
+	 */
+	public AbstractFile getFile(final SecurityContext securityContext, final String path) throws FrameworkException {
+
+		final App app    = StructrApp.getInstance();
+		AbstractFile file = null;
+
+		final String uuid = files.get(path);
+		if (uuid != null) {
+
+			file = app.get(AbstractFile.class, uuid);
+
+			// verify that the cached entry is still valid
+			if (file == null || file.isDeleted() || !path.equals(FileHelper.getFolderPath(file))) {
+
+				removeFile(uuid);
+				file = null;
+			}
+		}
+
+		if (file == null) {
+
+			file = app.nodeQuery(AbstractFile.class).and(AbstractFile.path, path).getFirst();
+			if (file != null) {
+
+				files.put(path, file.getUuid());
+				filePaths.put(file.getUuid(), path);
+			}
+		}
+
+		if (file != null) {
+
+			// check visibility in the security context of the caller
+			final AbstractFile visibleFile = StructrApp.getInstance(securityContext).get(AbstractFile.class, file.getUuid());
+			if (visibleFile != null && !visibleFile.isHidden() && securityContext.isVisible(visibleFile)) {
+
+				return visibleFile;
+			}
+		}
+
+		return null;
+	}
+
+	public synchronized void clear() {
+
+		pagesByPath.clear();
+		pagesByName.clear();
+		pagesByPosition.clear();
+		pageEntries.clear();
+		files.clear();
+		filePaths.clear();
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			if (event.isNode()) {
+
+				final String uuid       = event.getUuid();
+				final GraphObject obj   = event.getGraphObject();
+
+				if (event.isDeleted()) {
+
+					removePage(uuid);
+					removeFile(uuid);
+
+				} else if (obj instanceof Page) {
+
+					index((Page)obj);
+
+				} else if (obj instanceof AbstractFile) {
+
+					// renamed or moved, remove cached paths of the file and its children
+					removeFile(uuid);
+				}
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private void build() {
+
+		final long t0 = System.currentTimeMillis();
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			for (final Page page : StructrApp.getInstance().nodeQuery(Page.class).getAsList()) {
+				index(page);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "Unable to build routing index", fex);
+		}
+
+		logger.log(Level.INFO, "Routing index with {0} pages built in {1} ms", new Object[] { pageEntries.size(), System.currentTimeMillis() - t0 });
+	}
+
+	private synchronized void index(final Page page) {
+
+		final String uuid = page.getUuid();
+
+		removePage(uuid);
+
+		final PageEntry entry = new PageEntry(page.getProperty(Page.path), page.getName(), page.getProperty(Page.position));
+
+		add(pagesByPath, entry.path, uuid);
+		add(pagesByName, entry.name, uuid);
+		add(pagesByPosition, entry.position, uuid);
+
+		pageEntries.put(uuid, entry);
+	}
+
+	private synchronized void removePage(final String uuid) {
+
+		final PageEntry entry = pageEntries.remove(uuid);
+		if (entry != null) {
+
+			remove(pagesByPath, entry.path, uuid);
+			remove(pagesByName, entry.name, uuid);
+			remove(pagesByPosition, entry.position, uuid);
+		}
+	}
+
+	private void removeFile(final String uuid) {
+
+		final String path = filePaths.remove(uuid);
+		if (path != null) {
+
+			files.remove(path);
+
+			// remove all children of a folder
+			final String prefix = path.concat("/");
+			for (final String childUuid : files.subMap(prefix, prefix.concat(String.valueOf(Character.MAX_VALUE))).values()) {
+
+				removeFile(childUuid);
+			}
+		}
+	}
+
+	private List<Page> load(final SecurityContext securityContext, final Set<String> uuids) throws FrameworkException {
+
+		final App app          = StructrApp.getInstance(securityContext);
+		final List<Page> pages = new ArrayList<>();
+
+		for (final String uuid : uuids) {
+
+			final Page page = app.get(Page.class, uuid);
+			if (page != null && !page.isDeleted() && !page.isHidden() && securityContext.isVisible(page)) {
+
+				pages.add(page);
+			}
+		}
+
+		return pages;
+	}
+
+	private static <K> void add(final Map<K, Set<String>> map, final K key, final String uuid) {
+
+		if (key != null) {
+
+			Set<String> uuids = map.get(key);
+			if (uuids == null) {
+
+				uuids = new LinkedHashSet<>();
+				map.put(key, uuids);
+			}
+
+			uuids.add(uuid);
+		}
+	}
+
+	private static <K> void remove(final Map<K, Set<String>> map, final K key, final String uuid) {
+
+		if (key != null) {
+
+			final Set<String> uuids = map.get(key);
+			if (uuids != null) {
+
+				uuids.remove(uuid);
+
+				if (uuids.isEmpty()) {
+					map.remove(key);
+				}
+			}
+		}
+	}
+
+	private static void addAll(final Set<String> target, final Set<String> source) {
+
+		if (source != null) {
+			target.addAll(source);
+		}
+	}
+
+	// ----- nested classes -----
+	private static class PageEntry {
+
+		private String path      = null;
+		private String name      = null;
+		private Integer position = null;
+
+		public PageEntry(final String path, final String name, final Integer position) {
+
+			this.path     = path;
+			this.name     = name;
+			this.position = position;
+		}
+	}
+}
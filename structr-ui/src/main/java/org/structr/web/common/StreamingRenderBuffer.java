@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Byte-oriented render buffer for asynchronous streaming of chunked output.
+ *
+ * The rendering thread appends strings to this buffer, which are encoded and
+ * collected into chunks of a fixed size. Completed chunks are written to the
+ * output stream as soon as the container signals that writing is possible,
+ * without polling. The number of buffered chunks is limited: if the client
+ * does not consume the output within the configured timeout, the request
+ * is aborted and further output is discarded, so that a slow client can not
+ * block the rendering thread.
+ *
+ *
+ */
+public class StreamingRenderBuffer extends AsyncBuffer implements WriteListener {
+
+	private static final Logger logger  = Logger.getLogger(StreamingRenderBuffer.class.getName());
+	private static final Charset utf8   = Charset.forName("utf-8");
+
+	private final Queue<byte[]> chunks  = new ArrayDeque<>();
+	private final StringBuilder current = new StringBuilder();
+	private final Object writeLock      = new Object();
+	private AsyncContext async          = null;
+	private ServletOutputStream out     = null;
+	private int chunkSize               = 8192;
+	private int maxChunks               = 64;
+	private long timeout                = 30000L;
+	private boolean finished            = false;
+	private boolean completed           = false;
+	private volatile boolean aborted    = false;
+
+	public StreamingRenderBuffer(final AsyncContext async, final int chunkSize, final int maxChunks, final long timeout) throws IOException {
+
+		this.async     = async;
+		this.out       = async.getResponse().getOutputStream();
+		this.chunkSize = chunkSize;
+		this.maxChunks = maxChunks;
+		this.timeout   = timeout;
+	}
+
+	/**
+	 * Starts streaming by registering this buffer as the write listener of
+	 * the output stream.
+	 */
+	public void start() {
+		out.setWriteListener(this);
+	}
+
+	@Override
+	public AsyncBuffer append(final String s) {
+
+		if (s != null && !aborted) {
+
+			current.append(s);
+
+			if (current.length() >= chunkSize) {
+				flushChunk();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Signals that rendering is finished. Remaining output is written
+	 * and the asynchronous request is completed afterwards.
+	 */
+	public void finish() {
+
+		flushChunk();
+
+		synchronized (chunks) {
+			finished = true;
+		}
+
+		write();
+	}
+
+	/**
+	 * Signals that rendering failed. If no output has been sent yet, an
+	 * error response is sent to the client.
+	 *
+	 * @param t
+	 */
+	public void fail(final Throwable t) {
+
+		synchronized (writeLock) {
+
+			final HttpServletResponse response = (HttpServletResponse)async.getResponse();
+
+			try {
+
+				if (!response.isCommitted()) {
+					response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, t.getMessage());
+				}
+
+			} catch (IOException ioex) {
+				logger.log(Level.WARNING, "", ioex);
+			}
+
+			abort();
+		}
+	}
+
+	// ----- interface WriteListener -----
+	@Override
+	public void onWritePossible() throws IOException {
+		write();
+	}
+
+	@Override
+	public void onError(final Throwable t) {
+
+		logger.log(Level.WARNING, "", t);
+
+		synchronized (writeLock) {
+			abort();
+		}
+	}
+
+	// ----- private methods -----
+	private void flushChunk() {
+
+		if (current.length() == 0) {
+			return;
+		}
+
+		final byte[] chunk = current.toString().getBytes(utf8);
+		current.setLength(0);
+
+		synchronized (chunks) {
+
+			final long deadline = System.currentTimeMillis() + timeout;
+
+			// backpressure: wait for the client to consume buffered chunks
+			while (chunks.size() >= maxChunks && !aborted) {
+
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+
+					logger.log(Level.WARNING, "Client did not consume rendered output within {0} ms, aborting.", timeout);
+
+					aborted = true;
+					break;
+				}
+
+				try {
+
+					chunks.wait(remaining);
+
+				} catch (InterruptedException iex) {
+
+					aborted = true;
+				}
+			}
+
+			if (!aborted) {
+
+				chunks.add(chunk);
+			}
+		}
+
+		if (aborted) {
+
+			// release the request of a client that stopped reading
+			synchronized (writeLock) {
+				abort();
+			}
+
+			return;
+		}
+
+		write();
+	}
+
+	/**
+	 * Writes all available chunks as long as the output stream is ready.
+	 * If the stream is not ready, the container calls onWritePossible
+	 * as soon as it can accept more data.
+	 */
+	private void write() {
+
+		synchronized (writeLock) {
+
+			try {
+
+				while (!completed && out.isReady()) {
+
+					final byte[] chunk;
+					final boolean done;
+
+					synchronized (chunks) {
+
+						chunk = chunks.poll();
+						done  = finished || aborted;
+
+						// wake up rendering thread
+						chunks.notifyAll();
+					}
+
+					if (chunk != null) {
+
+						out.write(chunk);
+
+					} else {
+
+						if (done) {
+
+							completed = true;
+							async.complete();
+						}
+
+						// nothing to write, wait for more data
+						break;
+					}
+				}
+
+			} catch (Throwable t) {
+
+				logger.log(Level.WARNING, "", t);
+				abort();
+			}
+		}
+	}
+
+	private void abort() {
+
+		synchronized (chunks) {
+
+			aborted = true;
+			chunks.clear();
+			chunks.notifyAll();
+		}
+
+		if (!completed) {
+
+			completed = true;
+			async.complete();
+		}
+	}
+}
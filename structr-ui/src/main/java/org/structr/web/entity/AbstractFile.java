@@ -37,6 +37,7 @@ import org.structr.core.property.EndNodes;
 import org.structr.core.property.EntityIdProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.StartNode;
+import org.structr.core.property.StringProperty;
 import org.structr.web.entity.relation.FileChildren;
 import org.structr.web.entity.relation.FileSiblings;
 import org.structr.web.entity.relation.FolderChildren;
@@ -58,6 +59,7 @@ public class AbstractFile extends LinkedTreeNode<FileChildren, FileSiblings, Abs
 	public static final Property<String> path                  = new PathProperty("path").indexed().readOnly();
 	public static final Property<String> parentId              = new EntityIdProperty("parentId", parent);
 	public static final Property<Boolean> hasParent            = new BooleanProperty("hasParent").indexed();
+	public static final Property<String> parentFolderId        = new StringProperty("parentFolderId").indexed();
 
 	public static final View defaultView = new View(AbstractFile.class, PropertyView.Public, path);
 	public static final View uiView      = new View(AbstractFile.class, PropertyView.Ui, path);
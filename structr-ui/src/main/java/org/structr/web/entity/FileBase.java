@@ -114,6 +114,7 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 			}
 
 			setProperty(hasParent, getProperty(parentId) != null);
+			setProperty(parentFolderId, getProperty(parentId));
 
 			return true;
 		}
@@ -136,6 +137,7 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 
 				// set property as super user
 				setProperty(hasParent, getProperty(parentId) != null);
+				setProperty(parentFolderId, getProperty(parentId));
 
 				// restore previous security context
 				this.securityContext = previousSecurityContext;
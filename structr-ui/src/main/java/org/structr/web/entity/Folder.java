@@ -70,6 +70,7 @@ public class Folder extends AbstractFile implements CMISInfo, CMISFolderInfo {
 	public static final Property<User>           homeFolderOfUser        = new StartNode<>("homeFolderOfUser", UserHomeDir.class);
 
 	public static final Property<Integer>        position                = new IntProperty("position").cmis().indexed();
+	public static final Property<Boolean>        childrenIndexed         = new BooleanProperty("childrenIndexed");
 
 	public static final View publicView = new View(Folder.class, PropertyView.Public, id, type, name, owner, isFolder, folders, files, parentId);
 	public static final View uiView     = new View(Folder.class, PropertyView.Ui, parent, owner, folders, files, images, isFolder, includeInFrontendExport);
@@ -95,6 +96,8 @@ public class Folder extends AbstractFile implements CMISInfo, CMISFolderInfo {
 
 		if (super.onCreation(securityContext, errorBuffer)) {
 			setProperty(hasParent, getProperty(parentId) != null);
+			setProperty(parentFolderId, getProperty(parentId));
+			setProperty(childrenIndexed, true);
 			return true;
 		}
 
@@ -116,6 +119,7 @@ public class Folder extends AbstractFile implements CMISInfo, CMISFolderInfo {
 
 				// set property as super user
 				setProperty(hasParent, getProperty(parentId) != null);
+				setProperty(parentFolderId, getProperty(parentId));
 
 				// restore previous security context
 				this.securityContext = previousSecurityContext;
@@ -30,11 +30,13 @@ import net.java.textilej.parser.markup.confluence.ConfluenceDialect;
 import net.java.textilej.parser.markup.mediawiki.MediaWikiDialect;
 import net.java.textilej.parser.markup.textile.TextileDialect;
 import net.java.textilej.parser.markup.trac.TracWikiDialect;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.asciidoctor.Asciidoctor;
 import org.asciidoctor.Asciidoctor.Factory;
 import org.pegdown.Parser;
 import org.pegdown.PegDownProcessor;
+import org.structr.api.util.FixedSizeCache;
 import org.structr.common.Permission;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
@@ -74,7 +76,12 @@ public class Content extends DOMNode implements Text {
 	public static final Property<String> content                                         = new StringProperty("content").indexed();
 	public static final Property<Boolean> isContent                                      = new ConstantBooleanProperty("isContent", true);
 
+	// cached result of the content conversion, maintained on creation and modification
+	public static final Property<String> convertedContent                                = new StringProperty("convertedContent");
+	public static final Property<String> convertedContentHash                            = new StringProperty("convertedContentHash");
+
 	private static final Map<String, Adapter<String, String>> contentConverters          = new LinkedHashMap<>();
+	private static final FixedSizeCache<String, String> conversionCache                  = new FixedSizeCache<>(1000);
 
 	private static final ThreadLocalAsciiDocProcessor asciiDocProcessor                  = new ThreadLocalAsciiDocProcessor();
 	private static final ThreadLocalTracWikiProcessor tracWikiProcessor                  = new ThreadLocalTracWikiProcessor();
@@ -191,6 +198,14 @@ public class Content extends DOMNode implements Text {
 
 	}
 
+	@Override
+	public boolean onCreation(SecurityContext securityContext, ErrorBuffer errorBuffer) throws FrameworkException {
+
+		updateConvertedContent();
+
+		return super.onCreation(securityContext, errorBuffer);
+	}
+
 	@Override
 	public boolean onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
 
@@ -221,6 +236,8 @@ public class Content extends DOMNode implements Text {
 
                 }
 
+		updateConvertedContent();
+
                 try {
 
 			increasePageVersion();
@@ -376,7 +393,7 @@ public class Content extends DOMNode implements Text {
 						try {
 
 							// apply adapter
-							_content = converter.adapt(_content);
+							_content = convert(_contentType, _content, converter);
 						} catch (FrameworkException fex) {
 
 							logger.log(Level.WARNING, "Unable to convert content: {0}", fex.getMessage());
@@ -425,6 +442,98 @@ public class Content extends DOMNode implements Text {
 
 	}
 
+	/**
+	 * Converts the given text using the given converter. The result is
+	 * taken from the converted content stored in this node if the text
+	 * and content type match, or from an in-memory cache otherwise.
+	 *
+	 * @param _contentType
+	 * @param text
+	 * @param converter
+	 * @return the converted text
+	 * @throws FrameworkException
+	 */
+	private String convert(final String _contentType, final String text, final Adapter<String, String> converter) throws FrameworkException {
+
+		if (text == null) {
+			return converter.adapt(text);
+		}
+
+		final String hash = conversionHash(_contentType, text);
+
+		if (hash.equals(getProperty(convertedContentHash))) {
+
+			final String _convertedContent = getProperty(convertedContent);
+			if (_convertedContent != null) {
+
+				return _convertedContent;
+			}
+		}
+
+		// content with template expressions or without stored conversion
+		String converted = conversionCache.get(hash);
+		if (converted == null) {
+
+			converted = converter.adapt(text);
+			conversionCache.put(hash, converted);
+		}
+
+		return converted;
+	}
+
+	/**
+	 * Stores the converted content in this node so that the conversion
+	 * does not have to be done at render time. Content with template
+	 * expressions is converted at render time because the result depends
+	 * on the render context.
+	 */
+	private void updateConvertedContent() {
+
+		final String _content                   = getProperty(content);
+		final String _contentType               = getProperty(contentType);
+		final Adapter<String, String> converter = _contentType != null ? contentConverters.get(_contentType) : null;
+
+		if (converter != null && _content != null && !_content.contains("${")) {
+
+			final String hash = conversionHash(_contentType, _content);
+
+			// only convert if content or content type have changed
+			if (!hash.equals(getProperty(convertedContentHash))) {
+
+				try {
+
+					setConvertedContent(converter.adapt(_content), hash);
+
+				} catch (FrameworkException fex) {
+
+					logger.log(Level.WARNING, "Unable to convert content: {0}", fex.getMessage());
+				}
+			}
+
+		} else if (getProperty(convertedContentHash) != null) {
+
+			setConvertedContent(null, null);
+		}
+	}
+
+	private void setConvertedContent(final String _convertedContent, final String hash) {
+
+		try {
+
+			setProperty(convertedContent, _convertedContent);
+			setProperty(convertedContentHash, hash);
+
+		} catch (FrameworkException fex) {
+
+			// content will be converted at render time
+			logger.log(Level.WARNING, "Unable to store converted content: {0}", fex.getMessage());
+		}
+	}
+
+	private static String conversionHash(final String _contentType, final String text) {
+		return DigestUtils.md5Hex(_contentType + ":" + text);
+	}
+
 //	@Override
 //	protected Object getEditModeValue(final SecurityContext securityContext, final RenderContext renderContext, final GraphObject dataObject, final PropertyKey referenceKeyProperty, final Object defaultValue) {
 //
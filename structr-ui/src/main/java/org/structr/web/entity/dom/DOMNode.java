@@ -69,9 +69,12 @@ import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StartNode;
 import org.structr.core.property.StringProperty;
 import org.structr.core.script.Scripting;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.GraphDataSource;
+import org.structr.web.common.RenderCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.datasource.CypherGraphDataSource;
 import org.structr.web.datasource.FunctionDataSource;
 import org.structr.web.datasource.IdRequestParameterGraphDataSource;
@@ -159,6 +162,7 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 	public static final Property<String> restQuery = new StringProperty("restQuery");
 	public static final Property<String> functionQuery = new StringProperty("functionQuery");
 	public static final Property<Boolean> renderDetails = new BooleanProperty("renderDetails");
+	public static final Property<Boolean> cacheOutput = new BooleanProperty("cacheOutput").defaultValue(false);
 
 	public static final Property<List<DOMNode>> syncedNodes = new EndNodes("syncedNodes", Sync.class, new PropertyNotion(id));
 	public static final Property<DOMNode> sharedComponent = new StartNode("sharedComponent", Sync.class, new PropertyNotion(id));
@@ -341,6 +345,59 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 		final EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
+		if (EditMode.NONE.equals(editMode) && getProperty(cacheOutput)) {
+
+			renderCached(renderContext, depth);
+
+		} else {
+
+			renderUncached(renderContext, depth, editMode);
+		}
+	}
+
+	/**
+	 * Render the node using the server-side render cache.
+	 *
+	 * The rendered output of this node is stored in the {@link RenderCache}
+	 * and re-used as long as the version of the owner document does not change.
+	 *
+	 * @param renderContext
+	 * @param depth
+	 * @throws FrameworkException
+	 */
+	protected void renderCached(final RenderContext renderContext, final int depth) throws FrameworkException {
+
+		final AsyncBuffer out   = renderContext.getBuffer();
+		final String cacheKey   = RenderCache.getKey(this, renderContext, depth);
+		RenderCache.Entry entry = RenderCache.get(cacheKey);
+
+		if (entry == null) {
+
+			final StringRenderBuffer buffer = new StringRenderBuffer();
+			final Page page                 = renderContext.getPage();
+
+			renderContext.setBuffer(buffer);
+
+			try {
+
+				renderUncached(renderContext, depth, EditMode.NONE);
+
+			} finally {
+
+				renderContext.setBuffer(out);
+			}
+
+			entry = RenderCache.put(cacheKey, buffer.getBuffer().toString(), page != null ? page.getProperty(Page.cacheForSeconds) : null);
+		}
+
+		out.append(entry.getContent());
+	}
+
+	private void renderUncached(final RenderContext renderContext, final int depth, final EditMode editMode) throws FrameworkException {
+
+		final GraphObject details = renderContext.getDetailsDataObject();
+		final boolean detailMode  = details != null;
+
 		if (EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode)) {
 
 			renderContent(renderContext, depth);
@@ -641,33 +698,25 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 		} else {
 
-			// ignore page-less nodes
-			if (getProperty(DOMNode.parent) == null) {
-				return;
-			}
-		}
-
-		if (page == null) {
-
 			final List<Node> ancestors = getAncestors();
-			if (!ancestors.isEmpty()) {
+			final DOMNode rootNode     = ancestors.isEmpty() ? this : (DOMNode)ancestors.get(ancestors.size() - 1);
 
-				final DOMNode rootNode = (DOMNode)ancestors.get(ancestors.size() - 1);
-				if (rootNode instanceof Page) {
-					page = (Page)rootNode;
-				} else {
-					rootNode.increasePageVersion();
-				}
+			if (rootNode instanceof Page) {
+
+				page = (Page)rootNode;
 
 			} else {
 
-				final List<DOMNode> _syncedNodes = getProperty(DOMNode.syncedNodes);
+				// The root node is not attached to a page, so it is either a
+				// shared component or a page-less node. Shared components are
+				// rendered in the pages of their synced nodes, so the versions
+				// of these pages must be increased instead.
+				final List<DOMNode> _syncedNodes = rootNode.getProperty(DOMNode.syncedNodes);
 				for (final DOMNode syncedNode : _syncedNodes) {
 
 					syncedNode.increasePageVersion();
 				}
 			}
-
 		}
 
 		if (page != null) {
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.migration;
+
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.BulkGraphOperation;
+import org.structr.core.graph.MaintenanceCommand;
+import org.structr.core.graph.NodeServiceCommand;
+import static org.structr.core.graph.NodeServiceCommand.bulkGraphOperation;
+import org.structr.core.graph.Tx;
+import org.structr.rest.resource.MaintenanceParameterResource;
+import org.structr.web.entity.AbstractFile;
+import org.structr.web.entity.Folder;
+import org.structr.web.entity.relation.FolderChildren;
+
+/**
+ * Stores the parent folder id on the children of all folders that were
+ * created before the parent folder id was indexed, so that CMIS navigation
+ * can find them with an index query.
+ *
+ *
+ */
+public class BulkIndexFolderChildrenCommand extends NodeServiceCommand implements MaintenanceCommand {
+
+	private static final Logger logger      = Logger.getLogger(BulkIndexFolderChildrenCommand.class.getName());
+	public static final String COMMAND_NAME = "indexFolderChildren";
+
+	static {
+
+		MaintenanceParameterResource.registerMaintenanceCommand(COMMAND_NAME, BulkIndexFolderChildrenCommand.class);
+
+	}
+
+	@Override
+	public void execute(final Map<String, Object> attributes) throws FrameworkException {
+
+		final App app        = StructrApp.getInstance();
+		List<Folder> folders = null;
+
+		try (final Tx tx = app.tx()) {
+
+			folders = app.nodeQuery(Folder.class).getAsList();
+			tx.success();
+		}
+
+		final long count = bulkGraphOperation(securityContext, folders.iterator(), 100, "IndexFolderChildren", new BulkGraphOperation<Folder>() {
+
+			@Override
+			public void handleGraphObject(final SecurityContext securityContext, final Folder folder) throws FrameworkException {
+
+				if (!Boolean.TRUE.equals(folder.getProperty(Folder.childrenIndexed))) {
+
+					final String uuid = folder.getUuid();
+
+					for (final FolderChildren rel : folder.getOutgoingRelationships(FolderChildren.class)) {
+
+						rel.getTargetNode().setProperty(AbstractFile.parentFolderId, uuid);
+					}
+
+					folder.setProperty(Folder.childrenIndexed, true);
+				}
+			}
+
+			@Override
+			public void handleThrowable(final SecurityContext securityContext, final Throwable t, final Folder folder) {
+				logger.log(Level.WARNING, "Unable to index children of folder {0}: {1}", new Object[] { folder.getUuid(), t.getMessage() } );
+			}
+
+			@Override
+			public void handleTransactionFailure(final SecurityContext securityContext, final Throwable t) {
+				logger.log(Level.WARNING, "Unable to index folder children: {0}", t.getMessage() );
+			}
+		});
+
+		logger.log(Level.INFO, "Finished indexing the children of {0} folders", count);
+	}
+
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+}
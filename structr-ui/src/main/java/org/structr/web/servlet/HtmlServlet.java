@@ -31,15 +31,17 @@ import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -47,7 +49,6 @@ import java.util.regex.Pattern;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
-import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -56,7 +57,6 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.structr.common.AccessMode;
-import org.structr.common.GraphObjectComparator;
 import org.structr.common.PathHelper;
 import org.structr.common.SecurityContext;
 import org.structr.common.ThreadLocalMatcher;
@@ -82,8 +82,11 @@ import org.structr.schema.ConfigurationProvider;
 import org.structr.util.Base64;
 import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.common.FileHelper;
+import org.structr.web.common.RenderCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RoutingIndex;
+import org.structr.web.common.StreamingRenderBuffer;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
@@ -116,6 +119,11 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 	public static final String CUSTOM_RESPONSE_HEADERS      = "HtmlServlet.customResponseHeaders";
 	public static final String OBJECT_RESOLUTION_PROPERTIES = "HtmlServlet.resolveProperties";
+	public static final String RENDER_THREADS               = "HtmlServlet.renderThreads";
+	public static final String RENDER_QUEUE_SIZE            = "HtmlServlet.renderQueueSize";
+	public static final String ASYNC_CHUNK_SIZE             = "HtmlServlet.async.chunkSize";
+	public static final String ASYNC_BUFFERED_CHUNKS        = "HtmlServlet.async.bufferedChunks";
+	public static final String ASYNC_WRITE_TIMEOUT          = "HtmlServlet.async.writeTimeout";
 
 	private static final String defaultCustomResponseHeaders = "Strict-Transport-Security:max-age=60,"
 				+ "X-Content-Type-Options:nosniff,"
@@ -124,12 +132,16 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	private static List<String> customResponseHeaders = Collections.EMPTY_LIST;
 
 	private static final ThreadLocalMatcher threadLocalUUIDMatcher = new ThreadLocalMatcher("[a-fA-F0-9]{32}");
-	private static final ExecutorService threadPool = Executors.newCachedThreadPool();
+	private static final int renderThreads          = Services.parseInt(StructrApp.getConfigurationValue(RENDER_THREADS), Runtime.getRuntime().availableProcessors() * 4);
+	private static final ExecutorService threadPool = new ThreadPoolExecutor(renderThreads, renderThreads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Services.parseInt(StructrApp.getConfigurationValue(RENDER_QUEUE_SIZE), 1000)));
 
 	private final StructrHttpServiceConfig config = new StructrHttpServiceConfig();
 	private final Set<String> possiblePropertyNamesForEntityResolving   = new LinkedHashSet<>();
 
-	private boolean isAsync = false;
+	private boolean isAsync          = false;
+	private int asyncChunkSize       = 8192;
+	private int asyncBufferedChunks  = 64;
+	private long asyncWriteTimeout   = 30000L;
 
 
 	@Override
@@ -161,7 +173,10 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 			}
 		}
 
-		this.isAsync = Services.parseBoolean(Services.getBaseConfiguration().getProperty(HttpService.ASYNC), true);
+		this.isAsync             = Services.parseBoolean(Services.getBaseConfiguration().getProperty(HttpService.ASYNC), true);
+		this.asyncChunkSize      = Services.parseInt(StructrApp.getConfigurationValue(ASYNC_CHUNK_SIZE), 8192);
+		this.asyncBufferedChunks = Services.parseInt(StructrApp.getConfigurationValue(ASYNC_BUFFERED_CHUNKS), 64);
+		this.asyncWriteTimeout   = Services.parseInt(StructrApp.getConfigurationValue(ASYNC_WRITE_TIMEOUT), 30000);
 	}
 
 	@Override
@@ -420,96 +435,74 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 						setCustomResponseHeaders(response);
 
 						final boolean createsRawData = rootElement.getProperty(Page.pageCreatesRawData);
+						final boolean cacheOutput    = EditMode.NONE.equals(edit) && !createsRawData && rootElement instanceof Page && rootElement.getProperty(DOMNode.cacheOutput);
 
-						// async or not?
-						if (isAsync && !createsRawData) {
+						if (cacheOutput) {
 
-							final AsyncContext async = request.startAsync();
-							final ServletOutputStream out = async.getResponse().getOutputStream();
-							final AtomicBoolean finished = new AtomicBoolean(false);
-							final DOMNode rootNode = rootElement;
+							// use server-side render cache, keyed by page version
+							final String cacheKey   = RenderCache.getKey(rootElement, renderContext, 0);
+							RenderCache.Entry entry = RenderCache.get(cacheKey);
 
-							threadPool.submit(new Runnable() {
+							if (entry == null) {
 
-								@Override
-								public void run() {
+								final StringRenderBuffer buffer = new StringRenderBuffer();
+								renderContext.setBuffer(buffer);
 
-									try (final Tx tx = app.tx()) {
+								// render
+								rootElement.render(renderContext, 0);
 
-										//final long start = System.currentTimeMillis();
-										// render
-										rootNode.render(renderContext, 0);
-										finished.set(true);
-
-										//final long end = System.currentTimeMillis();
-										//System.out.println("Done in " + (end-start) + " ms");
-										tx.success();
+								entry = RenderCache.put(cacheKey, buffer.getBuffer().toString(), rootElement.getProperty(Page.cacheForSeconds));
+							}
 
-									} catch (Throwable t) {
-										logger.log(Level.WARNING, "", t);
-										final String errorMsg = t.getMessage();
-										try {
-											//response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-											response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, errorMsg);
-											finished.set(true);
-										} catch (IOException ex) {
-											logger.log(Level.WARNING, "", ex);
-										}
-									}
-								}
+							writeRenderedOutput(request, response, entry.getBytes(), entry.getETag());
 
-							});
+						} else if (isAsync && !createsRawData) {
 
-							// start output write listener
-							out.setWriteListener(new WriteListener() {
+							final AsyncContext async            = request.startAsync();
+							final StreamingRenderBuffer buffer  = new StreamingRenderBuffer(async, asyncChunkSize, asyncBufferedChunks, asyncWriteTimeout);
+							final DOMNode rootNode              = rootElement;
 
-								@Override
-								public void onWritePossible() throws IOException {
+							renderContext.setBuffer(buffer);
 
-									try {
+							// start output write listener
+							buffer.start();
 
-										final Queue<String> queue = renderContext.getBuffer().getQueue();
-										while (out.isReady()) {
+							try {
 
-											String buffer = null;
+								threadPool.submit(new Runnable() {
 
-											synchronized (queue) {
-												buffer = queue.poll();
-											}
+									@Override
+									public void run() {
 
-											if (buffer != null) {
+										try (final Tx tx = app.tx()) {
 
-												out.print(buffer);
+											// render
+											rootNode.render(renderContext, 0);
+											buffer.finish();
 
-											} else {
+											tx.success();
 
-												if (finished.get()) {
+										} catch (Throwable t) {
 
-													async.complete();
+											logger.log(Level.WARNING, "", t);
+											buffer.fail(t);
+										}
+									}
 
-													// don't overwrite 404 code from error page
-													if (response.getStatus() != HttpServletResponse.SC_NOT_FOUND) {
-														response.setStatus(HttpServletResponse.SC_OK);
-													}
+								});
 
-													// prevent this block from being called again
-													break;
-												}
+							} catch (RejectedExecutionException rex) {
 
-												Thread.sleep(1);
-											}
-										}
+								// all render threads are busy and the queue is full, so we
+								// render in the request thread and write the output asynchronously
+								final StringRenderBuffer fallbackBuffer = new StringRenderBuffer();
+								renderContext.setBuffer(fallbackBuffer);
 
-									} catch (Throwable t) {
-										logger.log(Level.WARNING, "", t);
-									}
-								}
+								rootElement.render(renderContext, 0);
 
-								@Override
-								public void onError(Throwable t) {
-									logger.log(Level.WARNING, "", t);
-								}
-							});
+								buffer.append(fallbackBuffer.getBuffer().toString());
+								buffer.finish();
+							}
 
 						} else {
 
@@ -519,15 +512,10 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 							// render
 							rootElement.render(renderContext, 0);
 
-							try {
-
-								response.getOutputStream().write(buffer.getBuffer().toString().getBytes("utf-8"));
-								response.getOutputStream().flush();
-								response.getOutputStream().close();
+							final byte[] content = buffer.getBuffer().toString().getBytes("utf-8");
 
-							} catch (IOException ioex) {
-								logger.log(Level.WARNING, "", ioex);
-							}
+							// strong ETag for identical output, but not for personalized or edit mode content
+							writeRenderedOutput(request, response, content, (EditMode.NONE.equals(edit) && !dontCache) ? RenderCache.etag(content) : null);
 						}
 					}
 				}
@@ -986,8 +974,16 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	private Page findPage(final SecurityContext securityContext, List<Page> pages, final String path, final EditMode edit) throws FrameworkException {
 
 		if (pages == null) {
-			pages = StructrApp.getInstance(securityContext).nodeQuery(Page.class).getAsList();
-			Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+			final RoutingIndex index = RoutingIndex.getInstance();
+			final Page page          = findPage(securityContext, index.getPages(securityContext, path), path, edit);
+
+			if (page != null) {
+				return page;
+			}
+
+			// the index may not contain all pages
+			return findPage(securityContext, index.loadPages(securityContext, path), path, edit);
 		}
 
 		for (final Page page : pages) {
@@ -1016,8 +1012,16 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	private Page findIndexPage(final SecurityContext securityContext, List<Page> pages, final EditMode edit) throws FrameworkException {
 
 		if (pages == null) {
-			pages = StructrApp.getInstance(securityContext).nodeQuery(Page.class).getAsList();
-			Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+			final RoutingIndex index = RoutingIndex.getInstance();
+			final Page page          = findIndexPage(securityContext, index.getPagesWithPosition(securityContext), edit);
+
+			if (page != null) {
+				return page;
+			}
+
+			// the index may not contain all pages
+			return findIndexPage(securityContext, index.loadPagesWithPosition(securityContext), edit);
 		}
 
 		for (Page page : pages) {
@@ -1209,20 +1213,23 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 			logger.log(Level.FINE, "Requested path: {0}", path);
 
-			final Query pageQuery = StructrApp.getInstance(securityContext).nodeQuery();
+			final RoutingIndex index      = RoutingIndex.getInstance();
+			final List<Linkable> linkables = new LinkedList<>();
 
-			pageQuery.and(Page.path, path).andType(Page.class);
-			final Result pages = pageQuery.getResult();
+			for (final Page page : index.getPages(securityContext, path)) {
 
-			final Query fileQuery = StructrApp.getInstance(securityContext).nodeQuery();
-			fileQuery.and(AbstractFile.path, path).andTypes(File.class);
+				if (path.equals(page.getProperty(Page.path))) {
+					linkables.add(page);
+				}
+			}
 
-			final Result files = fileQuery.getResult();
-			
-			logger.log(Level.FINE, "Found {0} pages and {1} files/folders", new Object[] { pages.size(), files.size() });
-			
-			final List<Linkable> linkables = (List<Linkable>) pages.getResults();
-			linkables.addAll(files.getResults());
+			final AbstractFile file = index.getFile(securityContext, path);
+			if (file instanceof File) {
+
+				linkables.add((File)file);
+			}
+
+			logger.log(Level.FINE, "Found {0} pages and files", linkables.size());
 			
 			request.setAttribute(POSSIBLE_ENTRY_POINTS_KEY, linkables);
 
@@ -1346,6 +1353,47 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		return notModified;
 	}
 
+	/**
+	 * Write the given rendered content to the response, or send 304 Not
+	 * Modified if the client already has the representation identified by
+	 * the given ETag.
+	 *
+	 * @param request
+	 * @param response
+	 * @param content
+	 * @param etag the strong ETag of the content, or null
+	 */
+	private static void writeRenderedOutput(final HttpServletRequest request, final HttpServletResponse response, final byte[] content, final String etag) {
+
+		try {
+
+			final ServletOutputStream out = response.getOutputStream();
+
+			// don't send ETags for error pages
+			if (etag != null && response.getStatus() == HttpServletResponse.SC_OK) {
+
+				response.setHeader("ETag", etag);
+
+				if (RenderCache.matches(request, etag)) {
+
+					response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+					out.flush();
+					out.close();
+
+					return;
+				}
+			}
+
+			out.write(content);
+			out.flush();
+			out.close();
+
+		} catch (IOException ioex) {
+			logger.log(Level.WARNING, "", ioex);
+		}
+	}
+
 	private void streamFile(SecurityContext securityContext, final FileBase file, HttpServletRequest request, HttpServletResponse response, final EditMode edit) throws IOException {
 
 		if (!securityContext.isVisible(file)) {
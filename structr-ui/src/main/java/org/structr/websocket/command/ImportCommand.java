@@ -20,7 +20,13 @@ package org.structr.websocket.command;
 
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+import org.structr.web.AssetFetcher;
 import org.structr.web.Importer;
+import org.structr.web.entity.dom.Page;
 import org.structr.websocket.StructrWebSocket;
 import org.structr.websocket.message.MessageBuilder;
 import org.structr.websocket.message.WebSocketMessage;
@@ -62,19 +68,48 @@ public class ImportCommand extends AbstractCommand {
 		final String name                     = (String) properties.get("name");
 		final boolean publicVisible           = (Boolean) properties.get("publicVisible");
 		final boolean authVisible             = (Boolean) properties.get("authVisible");
-		
+		final boolean parallelImport          = Boolean.TRUE.equals(properties.get("parallelImport"));
+		final App app                         = StructrApp.getInstance(securityContext);
+
+		final Importer pageImporter = new Importer(securityContext, code, address, name, publicVisible, authVisible);
+
+		if (parallelImport) {
+
+			pageImporter.setAssetSource(new AssetFetcher.HttpSource());
+			pageImporter.setBatchSize(Services.parseInt(StructrApp.getConfigurationValue(Importer.IMPORT_BATCH_SIZE), 100));
+		}
+
 		try {
 
-			final Importer pageImporter = new Importer(securityContext, code, address, name, publicVisible, authVisible);
-			final boolean parseOk       = pageImporter.parse();
+			final boolean parseOk = pageImporter.parse();
 
 			if (parseOk) {
 
 				logger.log(Level.INFO, "Sucessfully parsed {0}", address);
 				getWebSocket().send(MessageBuilder.status().code(200).message("Sucessfully parsed address " + address).build(), true);
 
-				String pageId                  = pageImporter.readPage().getUuid();
 				Map<String, Object> resultData = new HashMap();
+				String pageId                  = null;
+
+				if (pageImporter.isBatched()) {
+
+					// the importer commits the page in batches
+					final Page page = pageImporter.readPage();
+
+					try (final Tx tx = app.tx()) {
+
+						pageId = page.getUuid();
+						tx.success();
+					}
+
+				} else {
+
+					try (final Tx tx = app.tx()) {
+
+						pageId = pageImporter.readPage().getUuid();
+						tx.success();
+					}
+				}
 
 				if (pageId != null) {
 
@@ -82,8 +117,12 @@ public class ImportCommand extends AbstractCommand {
 					getWebSocket().send(MessageBuilder.status().code(200).message("Sucessfully created page " + name).data(resultData).build(), true);
 
 					// try to import graph gist source code from HTML comment
-					pageImporter.importDataComments();
-					
+					try (final Tx tx = app.tx()) {
+
+						pageImporter.importDataComments();
+						tx.success();
+					}
+
 				} else {
 
 					getWebSocket().send(MessageBuilder.status().code(400).message("Error while creating page " + name).data(resultData).build(), true);
@@ -95,6 +134,10 @@ public class ImportCommand extends AbstractCommand {
 			logger.log(Level.WARNING, "Error while importing content", fex);
 			getWebSocket().send(MessageBuilder.status().code(fex.getStatus()).message(fex.getMessage()).build(), true);
 
+		} finally {
+
+			// stop pending asset downloads, also if parsing failed
+			pageImporter.shutdown();
 		}
 
 	}
@@ -108,4 +151,9 @@ public class ImportCommand extends AbstractCommand {
 
 	}
 
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+
 }
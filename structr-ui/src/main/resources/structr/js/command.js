@@ -819,7 +819,7 @@ var Command = {
 	 * The server will broadcast CREATE and ADD notifications for each
 	 * node respective relationship created.
 	 */
-	importPage: function(code, address, name, publicVisible, authVisible) {
+	importPage: function(code, address, name, publicVisible, authVisible, parallelImport) {
 		var obj = {};
 		var data = {};
 		obj.command = 'IMPORT';
@@ -828,6 +828,7 @@ var Command = {
 		data.name = name;
 		data.publicVisible = publicVisible;
 		data.authVisible = authVisible;
+		data.parallelImport = parallelImport;
 		obj.data = data;
 		_Logger.log(_LogType.WS[obj.command], 'importPage()', obj);
 		return sendObj(obj);
@@ -363,6 +363,7 @@ var _Pages = {
 					+ '<tr><td><label for="name">Name of new page:</label></td><td><input id="_name" name="name" size="20"></td></tr>'
 					+ '<tr><td><label for="publicVisibilty">Visible to public</label></td><td><input type="checkbox" id="_publicVisible" name="publicVisibility"></td></tr>'
 					+ '<tr><td><label for="authVisibilty">Visible to authenticated users</label></td><td><input type="checkbox" checked="checked" id="_authVisible" name="authVisibilty"></td></tr>'
+					+ '<tr><td><label for="parallelImport">Download assets in parallel</label></td><td><input type="checkbox" id="_parallelImport" name="parallelImport"></td></tr>'
 					+ '</table>');
 
 			var addressField = $('#_address', dialog);
@@ -386,9 +387,10 @@ var _Pages = {
 				var name = $('#_name', dialog).val();
 				var publicVisible = $('#_publicVisible', dialog).prop('checked');
 				var authVisible = $('#_authVisible', dialog).prop('checked');
+				var parallelImport = $('#_parallelImport', dialog).prop('checked');
 
 				_Logger.log(_LogType.PAGES, 'start');
-				return Command.importPage(code, address, name, publicVisible, authVisible);
+				return Command.importPage(code, address, name, publicVisible, authVisible, parallelImport);
 			});
 
 		});
@@ -62,4 +62,22 @@ public class CMISPagingListWrapperTest {
 
 
 	}
+
+	@Test
+	public void testPagedAtSource() {
+
+		final CMISPagingListWrapper<Integer> wrapper = new CMISPagingListWrapper<>(BigInteger.valueOf(5), BigInteger.valueOf(10));
+
+		wrapper.setPage(Arrays.asList(new Integer[] { 11,12,13,14,15 } ), true, null);
+
+		assertEquals("Invalid paging result", 5, wrapper.getPagedList().size());
+		assertEquals("Invalid paging result", Boolean.TRUE, wrapper.hasMoreItems());
+		assertEquals("Invalid paging result", null, wrapper.getNumItems());
+
+		wrapper.setPage(Arrays.asList(new Integer[] { 16,17 } ), false, BigInteger.valueOf(17));
+
+		assertEquals("Invalid paging result", 2, wrapper.getPagedList().size());
+		assertEquals("Invalid paging result", Boolean.FALSE, wrapper.hasMoreItems());
+		assertEquals("Invalid paging result", BigInteger.valueOf(17), wrapper.getNumItems());
+	}
 }
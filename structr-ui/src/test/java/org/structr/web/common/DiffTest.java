@@ -719,6 +719,28 @@ public class DiffTest extends StructrUiTest {
 
 
 
+	public void testLargePageDiff() {
+
+		final StringBuilder source = new StringBuilder("<html><head><title>Title</title></head><body>");
+
+		for (int i=0; i<2500; i++) {
+			source.append("<div><p>paragraph ").append(i).append("</p></div>");
+		}
+
+		source.append("</body></html>");
+
+		final long t0         = System.currentTimeMillis();
+		final String result1  = testDiff(source.toString(), (String from) -> from.replace("paragraph 1234<", "modified paragraph<"));
+		final long duration   = System.currentTimeMillis() - t0;
+
+		logger.log(Level.INFO, "Diff of page with 5000 elements took {0} ms", duration);
+
+		assertTrue(result1.contains("<p>modified paragraph</p>"));
+		assertTrue(result1.contains("<p>paragraph 1233</p>"));
+		assertTrue(result1.contains("<p>paragraph 2499</p>"));
+		assertFalse(result1.contains("paragraph 1234<"));
+	}
+
 	private String testDiff(final String source, final Function<String, String> modifier) {
 
 		Services.getInstance().getCurrentConfig().setProperty(Services.JSON_INDENTATION,          "true");
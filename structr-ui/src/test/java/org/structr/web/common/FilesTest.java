@@ -18,6 +18,7 @@
  */
 package org.structr.web.common;
 
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.asciidoctor.internal.IOUtils;
@@ -27,9 +28,12 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
 import org.structr.dynamic.File;
+import org.structr.files.cmis.CMISNavigationService;
+import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Folder;
 import org.structr.web.entity.Image;
+import org.structr.web.migration.BulkIndexFolderChildrenCommand;
 
 /**
  *
@@ -121,4 +125,101 @@ public class FilesTest extends StructrTest {
 
 	}
 
+	public void testParentFolderIdIsIndexed() {
+
+		Folder folder1 = null;
+		Folder folder2 = null;
+		File file      = null;
+
+		try (final Tx tx = app.tx()) {
+
+			folder1 = FileHelper.createFolderPath(SecurityContext.getSuperUserInstance(), "/folder1");
+			folder2 = FileHelper.createFolderPath(SecurityContext.getSuperUserInstance(), "/folder2");
+			file    = app.create(File.class, new NodeAttribute<>(AbstractNode.name, "file1"), new NodeAttribute<>(File.parent, folder1));
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals(1, app.nodeQuery(AbstractFile.class).and(AbstractFile.parentFolderId, folder1.getUuid()).getAsList().size());
+			assertEquals(0, app.nodeQuery(AbstractFile.class).and(AbstractFile.parentFolderId, folder2.getUuid()).getAsList().size());
+
+			// move file
+			file.setProperty(File.parent, folder2);
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals(0, app.nodeQuery(AbstractFile.class).and(AbstractFile.parentFolderId, folder1.getUuid()).getAsList().size());
+			assertEquals(1, app.nodeQuery(AbstractFile.class).and(AbstractFile.parentFolderId, folder2.getUuid()).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+		}
+	}
+
+	public void testFolderChildrenAreIndexedByMaintenanceCommand() {
+
+		final CMISNavigationService navigationService = new CMISNavigationService(null, SecurityContext.getSuperUserInstance());
+		Folder folder                                 = null;
+
+		try (final Tx tx = app.tx()) {
+
+			folder = FileHelper.createFolderPath(SecurityContext.getSuperUserInstance(), "/folder1");
+			app.create(File.class, new NodeAttribute<>(AbstractNode.name, "file1"), new NodeAttribute<>(File.parent, folder));
+
+			// simulate a folder that was created before its children were indexed
+			folder.setProperty(Folder.childrenIndexed, false);
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+		}
+
+		// navigation must not write
+		try (final Tx tx = app.readOnlyTx()) {
+
+			assertEquals(1, navigationService.getChildrenQuery(app, folder.getUuid()).getAsList().size());
+			assertFalse(folder.getProperty(Folder.childrenIndexed));
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+			fail("Unexpected exception");
+		}
+
+		try {
+
+			app.command(BulkIndexFolderChildrenCommand.class).execute(new HashMap<>());
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue(folder.getProperty(Folder.childrenIndexed));
+			assertEquals(1, navigationService.getChildrenQuery(app, folder.getUuid()).getAsList().size());
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			Logger.getLogger(FilesTest.class.getName()).log(Level.SEVERE, null, ex);
+		}
+	}
+
 }
@@ -18,15 +18,19 @@
  */
 package org.structr.web.common;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
 import org.structr.common.PathHelper;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
 import org.structr.core.graph.Tx;
 import org.structr.dynamic.File;
+import org.structr.web.AssetFetcher;
 import org.structr.web.Importer;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.dom.Page;
@@ -324,6 +328,48 @@ public class ImporterTest extends StructrUiTest {
 		);
 	}
 
+	public void testParallelImportFromDirectory() {
+
+		try {
+
+			final java.io.File site = Files.createTempDirectory("structr-import-test").toFile();
+
+			FileUtils.writeStringToFile(new java.io.File(site, "index.html"), "<html><head><link href=\"css/style.css\" rel=\"stylesheet\"><script src=\"js/app.js\"></script></head><body><h1>Test</h1><p>Paragraph</p></body></html>");
+			FileUtils.writeStringToFile(new java.io.File(site, "css/style.css"), "body { background: url('../fonts/test.woff'); }");
+			FileUtils.writeStringToFile(new java.io.File(site, "js/app.js"), "var test = true;");
+			FileUtils.writeStringToFile(new java.io.File(site, "fonts/test.woff"), "font data");
+
+			final Importer importer = new Importer(securityContext, null, "http://example.com/index.html", "testpage", true, true);
+
+			importer.setAssetSource(new AssetFetcher.DirectorySource(site));
+			importer.setBatchSize(2);
+			importer.parse();
+
+			final Page page = importer.readPage();
+
+			try (final Tx tx = app.tx()) {
+
+				final String html = page.getContent(RenderContext.EditMode.NONE);
+
+				assertTrue(html.contains("<h1>Test</h1>"));
+				assertTrue(html.contains("<p>Paragraph</p>"));
+
+				tx.success();
+			}
+
+			assertFileExists("/css/style.css", 1);
+			assertFileExists("/js/app.js", 1);
+			assertFileExists("/fonts/test.woff", 1);
+
+			FileUtils.deleteDirectory(site);
+
+		} catch (IOException | FrameworkException ex) {
+
+			logger.log(Level.WARNING, "", ex);
+			fail("Unexpected exception");
+		}
+	}
+
 	private String testImport(final String address, final RenderContext.EditMode editMode) {
 
 		String sourceHtml = null;
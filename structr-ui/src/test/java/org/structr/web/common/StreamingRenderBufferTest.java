@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import junit.framework.TestCase;
+
+/**
+ * Tests backpressure and output order of {@link StreamingRenderBuffer}
+ * with an output stream whose readiness is controlled by the test.
+ *
+ *
+ */
+public class StreamingRenderBufferTest extends TestCase {
+
+	private TestOutputStream out = null;
+	private AsyncContext async   = null;
+	private boolean completed    = false;
+
+	@Override
+	protected void setUp() throws Exception {
+
+		super.setUp();
+
+		out       = new TestOutputStream();
+		completed = false;
+
+		final HttpServletResponse response = (HttpServletResponse)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { HttpServletResponse.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "getOutputStream":
+					return out;
+
+				case "isCommitted":
+					return out.size() > 0;
+			}
+
+			return null;
+		});
+
+		async = (AsyncContext)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { AsyncContext.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "getResponse":
+					return response;
+
+				case "complete":
+					synchronized (this) {
+						completed = true;
+					}
+					break;
+			}
+
+			return null;
+		});
+	}
+
+	public void testOutputOrder() throws Exception {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(async, 16, 4, 10000L);
+		final StringBuilder expected       = new StringBuilder();
+
+		buffer.start();
+
+		for (int i=0; i<1000; i++) {
+
+			final String line = "<div>" + i + "</div>\n";
+
+			buffer.append(line);
+			expected.append(line);
+		}
+
+		buffer.finish();
+
+		assertEquals(expected.toString(), out.getContent());
+		assertTrue("Request was not completed", isCompleted());
+	}
+
+	public void testBackpressure() throws Exception {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(async, 4, 2, 10000L);
+		final AtomicInteger appended       = new AtomicInteger();
+		final StringBuilder expected       = new StringBuilder();
+
+		for (int i=0; i<100; i++) {
+			expected.append("abcd").append(i);
+		}
+
+		out.setReady(false);
+		buffer.start();
+
+		final Thread renderer = new Thread(() -> {
+
+			for (int i=0; i<100; i++) {
+
+				buffer.append("abcd" + i);
+				appended.incrementAndGet();
+			}
+
+			buffer.finish();
+		});
+
+		renderer.start();
+
+		// the renderer must block as soon as the bounded buffer is full
+		waitForState(renderer, Thread.State.TIMED_WAITING);
+
+		assertTrue("Renderer was not blocked by a full buffer", appended.get() <= 3);
+		assertEquals("Output was written to a stream that was not ready", 0, out.size());
+		assertFalse(isCompleted());
+
+		// client consumes output, the container signals that writing is possible
+		out.setReady(true);
+		buffer.onWritePossible();
+
+		renderer.join(10000L);
+
+		assertFalse("Renderer did not finish", renderer.isAlive());
+		assertEquals(100, appended.get());
+		assertEquals(expected.toString(), out.getContent());
+		assertTrue("Request was not completed", isCompleted());
+	}
+
+	public void testSlowClientIsAborted() throws Exception {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(async, 4, 1, 200L);
+		final long start                   = System.currentTimeMillis();
+
+		out.setReady(false);
+		buffer.start();
+
+		for (int i=0; i<100; i++) {
+			buffer.append("abcd" + i);
+		}
+
+		buffer.finish();
+
+		// the renderer waits only once, further output is discarded
+		assertTrue("Renderer was blocked longer than the write timeout", System.currentTimeMillis() - start < 5000L);
+		assertTrue("Request was not completed", isCompleted());
+
+		out.setReady(true);
+		buffer.onWritePossible();
+
+		assertEquals(0, out.size());
+	}
+
+	// ----- private methods -----
+	private synchronized boolean isCompleted() {
+		return completed;
+	}
+
+	private void waitForState(final Thread thread, final Thread.State state) throws InterruptedException {
+
+		final long deadline = System.currentTimeMillis() + 10000L;
+
+		while (thread.getState() != state && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertEquals(state, thread.getState());
+	}
+
+	// ----- nested classes -----
+	private static class TestOutputStream extends ServletOutputStream {
+
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		private volatile boolean ready           = true;
+
+		@Override
+		public boolean isReady() {
+			return ready;
+		}
+
+		@Override
+		public void setWriteListener(final WriteListener writeListener) {
+		}
+
+		@Override
+		public synchronized void write(final int b) {
+			data.write(b);
+		}
+
+		@Override
+		public synchronized void write(final byte[] b, final int off, final int len) {
+			data.write(b, off, len);
+		}
+
+		public void setReady(final boolean ready) {
+			this.ready = ready;
+		}
+
+		public synchronized int size() {
+			return data.size();
+		}
+
+		public synchronized String getContent() {
+			return new String(data.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
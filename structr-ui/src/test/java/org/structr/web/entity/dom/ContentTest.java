@@ -262,6 +262,68 @@ public class ContentTest extends DOMTest {
 		}
 	}
 
+	public void testConvertedContent() {
+
+		Content content = null;
+
+		try (final Tx tx = app.tx()) {
+
+			content = getContentNode();
+			assertNotNull(content);
+
+			content.setProperty(Content.contentType, "text/markdown");
+			content.setProperty(Content.content, "# Title");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// converted content must be stored on creation
+			assertNotNull(content.getProperty(Content.convertedContentHash));
+			assertTrue(content.getProperty(Content.convertedContent).contains("<h1>Title</h1>"));
+
+			content.setProperty(Content.content, "## Subtitle");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// converted content must be updated on modification
+			assertTrue(content.getProperty(Content.convertedContent).contains("<h2>Subtitle</h2>"));
+
+			content.setProperty(Content.content, "# ${this.name}");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// content with template expressions is converted at render time
+			assertNull(content.getProperty(Content.convertedContent));
+			assertNull(content.getProperty(Content.convertedContentHash));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fail("unexpected exception");
+		}
+	}
+
 	public void testGetWholeText() {
 
 	}
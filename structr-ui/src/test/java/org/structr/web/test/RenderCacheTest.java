@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.test;
+
+import com.jayway.restassured.RestAssured;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.hamcrest.Matchers;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.web.common.StructrUiTest;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Text;
+
+/**
+ * Test the server-side render cache and the ETag support of the HtmlServlet.
+ *
+ *
+ */
+public class RenderCacheTest extends StructrUiTest {
+
+	private static final Logger logger = Logger.getLogger(RenderCacheTest.class.getName());
+
+	public void testCachedPageInvalidation() {
+
+		Text text = null;
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page = app.create(Page.class, "cached");
+
+			try {
+				final Element html = page.createElement("html");
+				((DOMNode) html).setProperty(DOMNode.visibleToPublicUsers, true);
+
+				text = page.createTextNode("version-1");
+				((DOMNode) text).setProperty(DOMNode.visibleToPublicUsers, true);
+
+				page.appendChild(html);
+				html.appendChild(text);
+
+			} catch (DOMException dex) {
+				logger.log(Level.WARNING, "", dex);
+				throw new FrameworkException(422, dex.getMessage());
+			}
+
+			page.setProperty(Page.visibleToPublicUsers, true);
+			page.setProperty(DOMNode.cacheOutput, true);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = htmlUrl;
+
+		final String etag = RestAssured
+			.expect()
+			.statusCode(200)
+			.body(Matchers.containsString("version-1"))
+			.header("ETag", Matchers.notNullValue())
+			.when()
+			.get("/cached")
+			.header("ETag");
+
+		// second request with the same ETag must not transfer the page again
+		RestAssured
+			.given()
+			.header("If-None-Match", etag)
+			.expect()
+			.statusCode(304)
+			.when()
+			.get("/cached");
+
+		// modification of a node in the page must invalidate the cached output
+		try (final Tx tx = app.tx()) {
+
+			((DOMNode) text).setProperty(Content.content, "version-2");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		RestAssured
+			.given()
+			.header("If-None-Match", etag)
+			.expect()
+			.statusCode(200)
+			.body(Matchers.containsString("version-2"))
+			.header("ETag", Matchers.not(etag))
+			.when()
+			.get("/cached");
+	}
+}
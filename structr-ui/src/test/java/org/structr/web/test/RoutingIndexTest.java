@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.test;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.dynamic.File;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.RoutingIndex;
+import org.structr.web.common.StructrUiTest;
+import org.structr.web.entity.AbstractFile;
+import org.structr.web.entity.Folder;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Test that the routing index follows renamed and moved pages and files.
+ *
+ *
+ */
+public class RoutingIndexTest extends StructrUiTest {
+
+	private static final Logger logger = Logger.getLogger(RoutingIndexTest.class.getName());
+
+	public void testRenamedPage() {
+
+		Page page = null;
+
+		try (final Tx tx = app.tx()) {
+
+			page = Page.createNewPage(securityContext, "page-01");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<Page> pages = RoutingIndex.getInstance().getPages(securityContext, "/page-01");
+
+			assertEquals(1, pages.size());
+			assertEquals(page, pages.get(0));
+
+			page.setProperty(Page.name, "page-02");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue(RoutingIndex.getInstance().getPages(securityContext, "/page-01").isEmpty());
+			assertEquals(page, RoutingIndex.getInstance().getPages(securityContext, "/page-02").get(0));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+	}
+
+	public void testPageCreatedWithoutNotification() {
+
+		Page indexed = null;
+		Page page    = null;
+
+		try (final Tx tx = app.tx()) {
+
+			indexed = Page.createNewPage(securityContext, "indexed");
+			indexed.setProperty(Page.position, 10);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// make sure that the index exists before the next page is created
+			assertEquals(1, RoutingIndex.getInstance().getPagesWithPosition(securityContext).size());
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		// imports and uploads create nodes without transaction notification
+		try (final Tx tx = app.tx(true, false, false)) {
+
+			page = Page.createNewPage(securityContext, "unindexed");
+			page.setProperty(Page.position, 0);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final RoutingIndex index = RoutingIndex.getInstance();
+
+			assertEquals(page, index.getPages(securityContext, "/unindexed").get(0));
+
+			final List<Page> pages = index.loadPagesWithPosition(securityContext);
+
+			assertEquals(2, pages.size());
+			assertEquals(page, pages.get(0));
+			assertEquals(indexed, pages.get(1));
+
+			// loaded pages are added to the index
+			assertEquals(2, index.getPagesWithPosition(securityContext).size());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+	}
+
+	public void testRenamedFolder() {
+
+		Folder folder = null;
+		File file     = null;
+
+		try (final Tx tx = app.tx()) {
+
+			folder = FileHelper.createFolderPath(securityContext, "/a/b");
+			file   = app.create(File.class,
+				new NodeAttribute(AbstractFile.name, "test.txt"),
+				new NodeAttribute(AbstractFile.parent, folder)
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals(file, FileHelper.getFileByAbsolutePath(securityContext, "/a/b/test.txt"));
+			assertEquals(folder, FileHelper.getFileByAbsolutePath(securityContext, "/a/b"));
+
+			// rename parent folder, the cached paths of all children must be invalidated
+			((AbstractFile)folder.getProperty(AbstractFile.parent)).setProperty(AbstractFile.name, "c");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertNull(FileHelper.getFileByAbsolutePath(securityContext, "/a/b/test.txt"));
+			assertNull(FileHelper.getFileByAbsolutePath(securityContext, "/a/b"));
+			assertEquals(file, FileHelper.getFileByAbsolutePath(securityContext, "/c/b/test.txt"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.log(Level.WARNING, "", fex);
+			fail("Unexpected exception");
+		}
+	}
+}